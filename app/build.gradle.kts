@@ -40,6 +40,7 @@ dependencies {
     implementation(libs.material)
     implementation(libs.activity)
     implementation(libs.constraintlayout)
+    implementation("androidx.recyclerview:recyclerview:1.3.2")
 
     // Navigation Components
     implementation("androidx.navigation:navigation-fragment:2.7.7")
@@ -54,6 +55,18 @@ dependencies {
     // ExoPlayer for video playback
     implementation("androidx.media3:media3-exoplayer:1.6.1")
     implementation("androidx.media3:media3-ui:1.6.1")
+    implementation("androidx.media3:media3-exoplayer-hls:1.6.1")
+
+    // Media3 Transformer for packaging uploaded videos into an HLS ladder
+    implementation("androidx.media3:media3-transformer:1.6.1")
+    implementation("androidx.media3:media3-effect:1.6.1")
+
+    // WorkManager for background course uploads
+    implementation("androidx.work:work-runtime:2.9.1")
+
+    // Room for the on-disk mirror of courses, playlists and bookmarks
+    implementation("androidx.room:room-runtime:2.6.1")
+    annotationProcessor("androidx.room:room-compiler:2.6.1")
 
     // Glide for image loading
     implementation("com.github.bumptech.glide:glide:4.16.0")
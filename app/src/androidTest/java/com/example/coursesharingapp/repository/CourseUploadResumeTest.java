@@ -0,0 +1,190 @@
+package com.example.coursesharingapp.repository;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.net.Uri;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.coursesharingapp.model.Course;
+import com.example.coursesharingapp.model.UploadJob;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.storage.FirebaseStorage;
+import com.google.firebase.storage.StorageReference;
+import com.google.firebase.storage.UploadTask;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs the same queued upload twice through CourseRepository, the way
+ * CourseUploadWorker does after being stopped, against the Firestore and
+ * Storage emulators. Start them before running, with rules that allow
+ * writes to courses and under videos/ and thumbnails/:
+ *
+ *     firebase emulators:start --only firestore,storage
+ */
+@RunWith(AndroidJUnit4.class)
+public class CourseUploadResumeTest {
+
+    private static final int VIDEO_SIZE = 16 * 1024 * 1024;
+    private static final long TIMEOUT_SECONDS = 60;
+
+    private File videoFile;
+    private File thumbnailFile;
+    private byte[] videoContents;
+
+    @BeforeClass
+    public static void useEmulators() {
+        FirebaseFirestore.getInstance().useEmulator("10.0.2.2", 8080);
+        FirebaseStorage.getInstance().useEmulator("10.0.2.2", 9199);
+    }
+
+    @Before
+    public void createFiles() throws IOException {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        videoContents = new byte[VIDEO_SIZE];
+        new Random(42).nextBytes(videoContents);
+        videoFile = new File(context.getCacheDir(), "resume_" + System.nanoTime() + ".mp4");
+        try (FileOutputStream output = new FileOutputStream(videoFile)) {
+            output.write(videoContents);
+        }
+
+        thumbnailFile = new File(context.getCacheDir(), "resume_" + System.nanoTime() + ".png");
+        Bitmap bitmap = Bitmap.createBitmap(320, 180, Bitmap.Config.ARGB_8888);
+        try (FileOutputStream output = new FileOutputStream(thumbnailFile)) {
+            bitmap.compress(Bitmap.CompressFormat.PNG, 100, output);
+        }
+    }
+
+    @After
+    public void deleteFiles() {
+        videoFile.delete();
+        thumbnailFile.delete();
+    }
+
+    @Test
+    public void rerunOfTheSameJobResumesTheVideo() throws Exception {
+        String courseId = FirebaseFirestore.getInstance().collection("courses").document().getId();
+        Course course = new Course("Resume test", "Short", "Long", "test-uid", "tester", "Testing");
+        UploadJob job = new UploadJob(UUID.randomUUID().toString(), courseId, course,
+                Uri.fromFile(thumbnailFile).toString(), Uri.fromFile(videoFile).toString(), false, false);
+
+        int interruptedAt = interruptFirstRun(job);
+
+        AtomicInteger firstVideoProgress = new AtomicInteger(-1);
+        AtomicReference<String> error = new AtomicReference<>();
+        CountDownLatch done = new CountDownLatch(1);
+        run(job, new TestCallback() {
+            @Override
+            public void onVideoProgress(int progress) {
+                firstVideoProgress.compareAndSet(-1, progress);
+            }
+
+            @Override
+            public void onSuccess() {
+                done.countDown();
+            }
+
+            @Override
+            public void onError(String errorMessage) {
+                error.set(errorMessage);
+                done.countDown();
+            }
+        });
+
+        assertTrue(done.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertNull(error.get());
+        assertTrue("The re-run restarted the video from byte 0", firstVideoProgress.get() >= interruptedAt);
+
+        DocumentSnapshot stored = Tasks.await(
+                FirebaseFirestore.getInstance().collection("courses").document(courseId).get());
+        assertTrue(stored.exists());
+        assertNotNull(stored.getString("videoUrl"));
+        assertArrayEquals(videoContents, Tasks.await(
+                FirebaseStorage.getInstance().getReference(job.getVideoPath()).getBytes(VIDEO_SIZE)));
+    }
+
+    // Start the job and stop it, as a stopped worker does, once some of the video was sent
+    private int interruptFirstRun(UploadJob job) throws InterruptedException {
+        AtomicReference<CourseRepository.CourseUpload> upload = new AtomicReference<>();
+        CountDownLatch interrupted = new CountDownLatch(1);
+        AtomicInteger interruptedAt = new AtomicInteger();
+
+        upload.set(run(job, new TestCallback() {
+            @Override
+            public void onVideoProgress(int progress) {
+                if (progress > 0 && interruptedAt.get() == 0) {
+                    interruptedAt.set(progress);
+                    upload.get().stop(interrupted::countDown);
+                }
+            }
+
+            @Override
+            public void onSuccess() {
+                interrupted.countDown();
+            }
+
+            @Override
+            public void onError(String errorMessage) {
+                interrupted.countDown();
+            }
+        }));
+
+        assertTrue(interrupted.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertTrue("Upload finished before it could be interrupted", interruptedAt.get() > 0);
+        StorageReference videoRef = FirebaseStorage.getInstance().getReference(job.getVideoPath());
+        for (UploadTask task : videoRef.getActiveUploadTasks()) {
+            assertFalse("The stopped upload is still sending", task.isInProgress());
+        }
+        return interruptedAt.get();
+    }
+
+    // Like CourseUploadWorker: a fresh repository and the job's course, started on the main thread
+    private static CourseRepository.CourseUpload run(UploadJob job,
+                                                     CourseRepository.UploadProgressCallback callback) {
+        AtomicReference<CourseRepository.CourseUpload> upload = new AtomicReference<>();
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() ->
+                upload.set(new CourseRepository().createCourseWithProgress(job.toCourse(),
+                        Uri.parse(job.getThumbnailUri()), Uri.parse(job.getVideoUri()), job.getVideoPath(),
+                        callback)));
+        return upload.get();
+    }
+
+    // Only the callbacks a test cares about need overriding
+    private abstract static class TestCallback implements CourseRepository.UploadProgressCallback {
+        @Override
+        public void onThumbnailProgress(int progress) {
+        }
+
+        @Override
+        public void onVideoProgress(int progress) {
+        }
+
+        @Override
+        public void onThumbnailComplete() {
+        }
+
+        @Override
+        public void onVideoComplete() {
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.example.coursesharingapp.repository;
+
+import android.content.Context;
+import android.net.Uri;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.storage.FirebaseStorage;
+import com.google.firebase.storage.StorageMetadata;
+import com.google.firebase.storage.StorageReference;
+import com.google.firebase.storage.UploadTask;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * Interrupts uploads partway and uploads the same file again, against the
+ * Storage emulator. Start it before running, with rules that allow writes
+ * under test/:
+ *
+ *     firebase emulators:start --only storage
+ *
+ * The emulator is reached at 10.0.2.2, the host as seen from an Android
+ * emulator.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ResumableUploaderTest {
+
+    private static final int FILE_SIZE = 16 * 1024 * 1024;
+    private static final long TIMEOUT_SECONDS = 60;
+
+    private final ResumableUploader uploader = ResumableUploader.getInstance();
+    private final StorageMetadata metadata = new StorageMetadata.Builder()
+            .setContentType("application/octet-stream")
+            .build();
+
+    private File file;
+    private byte[] contents;
+
+    @BeforeClass
+    public static void useEmulator() {
+        FirebaseStorage.getInstance().useEmulator("10.0.2.2", 9199);
+    }
+
+    @Before
+    public void createFile() throws IOException {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        contents = new byte[FILE_SIZE];
+        new Random(42).nextBytes(contents);
+        file = new File(context.getCacheDir(), "resumable_" + System.nanoTime() + ".bin");
+        try (FileOutputStream output = new FileOutputStream(file)) {
+            output.write(contents);
+        }
+    }
+
+    @After
+    public void deleteFile() {
+        file.delete();
+    }
+
+    @Test
+    public void interruptedUploadResumesFromTheServerOffset() throws Exception {
+        String path = "test/resumable/" + System.nanoTime();
+        long interruptedAt = interruptUpload(path);
+
+        Outcome resumed = upload(path);
+
+        assertNull(resumed.error.get());
+        assertTrue("Resumed upload restarted from byte 0", resumed.firstProgress.get() > 0);
+        assertTrue(resumed.firstProgress.get() >= interruptedAt);
+        assertArrayEquals(contents, download(path));
+    }
+
+    @Test
+    public void sameFileToAnotherPathStartsOver() throws Exception {
+        String firstPath = "test/resumable/" + System.nanoTime();
+        String secondPath = firstPath + "_other";
+        interruptUpload(firstPath);
+
+        Outcome other = upload(secondPath);
+
+        assertNull(other.error.get());
+        assertArrayEquals(contents, download(secondPath));
+        try {
+            download(firstPath);
+            fail("The interrupted upload was completed into its old path");
+        } catch (ExecutionException expected) {
+            // Still unfinished: nothing stored at the first path
+        }
+    }
+
+    // Start an upload and pause it, as a killed process would leave it, once the server confirmed some bytes
+    private long interruptUpload(String path) throws InterruptedException {
+        StorageReference ref = FirebaseStorage.getInstance().getReference(path);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        AtomicLong interruptedAt = new AtomicLong();
+
+        uploader.upload(Uri.fromFile(file), path, metadata, new ResumableUploader.ResumableUploadCallback() {
+            @Override
+            public void onProgress(long bytesTransferred, long totalBytes) {
+                if (bytesTransferred > 0 && interrupted.getCount() > 0) {
+                    for (UploadTask task : ref.getActiveUploadTasks()) {
+                        task.pause();
+                    }
+                    interruptedAt.set(bytesTransferred);
+                    interrupted.countDown();
+                }
+            }
+
+            @Override
+            public void onSuccess(Uri downloadUri) {
+                interrupted.countDown();
+            }
+
+            @Override
+            public void onError(String errorMessage) {
+                interrupted.countDown();
+            }
+        });
+
+        assertTrue(interrupted.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertTrue("Upload finished before it could be interrupted", interruptedAt.get() > 0);
+        assertTrue(interruptedAt.get() < FILE_SIZE);
+        return interruptedAt.get();
+    }
+
+    private Outcome upload(String path) throws InterruptedException {
+        Outcome outcome = new Outcome();
+        CountDownLatch done = new CountDownLatch(1);
+
+        uploader.upload(Uri.fromFile(file), path, metadata, new ResumableUploader.ResumableUploadCallback() {
+            @Override
+            public void onProgress(long bytesTransferred, long totalBytes) {
+                outcome.firstProgress.compareAndSet(-1, bytesTransferred);
+            }
+
+            @Override
+            public void onSuccess(Uri downloadUri) {
+                done.countDown();
+            }
+
+            @Override
+            public void onError(String errorMessage) {
+                outcome.error.set(errorMessage);
+                done.countDown();
+            }
+        });
+
+        assertTrue(done.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        return outcome;
+    }
+
+    private static byte[] download(String path) throws ExecutionException, InterruptedException {
+        return Tasks.await(FirebaseStorage.getInstance().getReference(path).getBytes(FILE_SIZE));
+    }
+
+    // What an upload reported
+    private static class Outcome {
+        final AtomicLong firstProgress = new AtomicLong(-1);
+        final AtomicReference<String> error = new AtomicReference<>();
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.coursesharingapp;
+
+import android.app.Application;
+
+import androidx.annotation.NonNull;
+import androidx.work.Configuration;
+
+import com.example.coursesharingapp.repository.AccessCodeIndex;
+import com.example.coursesharingapp.repository.LocalStore;
+import com.example.coursesharingapp.repository.PlaybackPositionStore;
+import com.example.coursesharingapp.repository.ResumableUploader;
+import com.example.coursesharingapp.repository.UploadQueue;
+import com.example.coursesharingapp.repository.VideoCache;
+import com.example.coursesharingapp.util.ThumbnailProcessor;
+
+import java.util.concurrent.Executors;
+
+public class CourseSharingApplication extends Application implements Configuration.Provider {
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        // Set up here rather than in MainActivity, since upload workers can start the process without it
+        ResumableUploader.getInstance().init(this);
+        ThumbnailProcessor.getInstance().init(this);
+        UploadQueue.getInstance().init(this);
+        VideoCache.getInstance().init(this);
+        PlaybackPositionStore.getInstance().init(this);
+        LocalStore.getInstance().init(this);
+        AccessCodeIndex.getInstance().init(this);
+    }
+
+    // Upload workers hold a thread while they wait for an upload slot and for the whole transfer,
+    // so threads are added as needed rather than letting them hold up video packaging
+    @NonNull
+    @Override
+    public Configuration getWorkManagerConfiguration() {
+        return new Configuration.Builder()
+                .setExecutor(Executors.newCachedThreadPool())
+                .build();
+    }
+}
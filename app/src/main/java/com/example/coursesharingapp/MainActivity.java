@@ -11,6 +11,10 @@ import androidx.navigation.ui.NavigationUI;
 
 import com.example.coursesharingapp.databinding.ActivityMainBinding;
 import com.example.coursesharingapp.repository.AuthRepository;
+import com.example.coursesharingapp.repository.CourseRepository;
+import com.example.coursesharingapp.repository.CourseSearchIndex;
+import com.example.coursesharingapp.repository.MirrorSync;
+import com.example.coursesharingapp.repository.SavedStateStore;
 import com.google.firebase.auth.FirebaseUser;
 
 import java.util.ArrayList;
@@ -36,6 +40,12 @@ public class MainActivity extends AppCompatActivity {
         // Initialize Firebase Auth
         authRepository = new AuthRepository();
 
+        // Start keeping the on-device course search index up to date
+        CourseSearchIndex.getInstance().start(this);
+
+        // Follow the user's bookmarks; this also moves old random-id bookmarks to their new ids
+        SavedStateStore.getInstance().start();
+
         // Initialize tab history with home as the starting point
         tabHistory.add(R.id.homeFragment);
 
@@ -74,6 +84,15 @@ public class MainActivity extends AppCompatActivity {
         checkAuthState();
     }
 
+    @Override
+    protected void onStart() {
+        super.onStart();
+        // Pull what changed in the catalog while the app was away
+        MirrorSync.getInstance().sync();
+        // The user's courses from before server-side search can't be found there until indexed
+        new CourseRepository().backfillSearchTokens();
+    }
+
     private void handleDestinationChange(NavDestination destination) {
         int destinationId = destination.getId();
 
@@ -0,0 +1,68 @@
+package com.example.coursesharingapp.local;
+
+import androidx.room.TypeConverter;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+// Stores the list and map fields of the mirrored documents as JSON text
+public class Converters {
+
+    @TypeConverter
+    public static String fromStringList(List<String> values) {
+        if (values == null) {
+            return null;
+        }
+        return new JSONArray(values).toString();
+    }
+
+    @TypeConverter
+    public static List<String> toStringList(String json) {
+        if (json == null) {
+            return null;
+        }
+        List<String> values = new ArrayList<>();
+        try {
+            JSONArray array = new JSONArray(json);
+            for (int i = 0; i < array.length(); i++) {
+                values.add(array.getString(i));
+            }
+        } catch (JSONException e) {
+            // Unreadable row; treat it as empty, the next sync rewrites it
+        }
+        return values;
+    }
+
+    @TypeConverter
+    public static String fromStringMap(Map<String, String> values) {
+        if (values == null) {
+            return null;
+        }
+        return new JSONObject(values).toString();
+    }
+
+    @TypeConverter
+    public static Map<String, String> toStringMap(String json) {
+        if (json == null) {
+            return null;
+        }
+        Map<String, String> values = new HashMap<>();
+        try {
+            JSONObject object = new JSONObject(json);
+            for (Iterator<String> keys = object.keys(); keys.hasNext(); ) {
+                String key = keys.next();
+                values.put(key, object.getString(key));
+            }
+        } catch (JSONException e) {
+            // Unreadable row; treat it as empty, the next sync rewrites it
+        }
+        return values;
+    }
+}
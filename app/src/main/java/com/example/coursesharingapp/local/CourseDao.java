@@ -0,0 +1,43 @@
+package com.example.coursesharingapp.local;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+import java.util.List;
+
+@Dao
+public interface CourseDao {
+
+    // Newest public courses, optionally in one category (null for all)
+    @Query("SELECT * FROM courses WHERE isPrivate = 0 AND (:category IS NULL OR category = :category) "
+            + "ORDER BY createdAt DESC LIMIT :limit")
+    List<CourseEntity> getPublicCourses(String category, int limit);
+
+    @Query("SELECT * FROM courses WHERE id IN (:ids)")
+    List<CourseEntity> getCoursesByIds(List<String> ids);
+
+    // A user's saved courses, most recently saved first; a course bookmarked twice is listed once
+    @Query("SELECT courses.* FROM courses INNER JOIN saved_courses ON saved_courses.courseId = courses.id "
+            + "WHERE saved_courses.userId = :userId GROUP BY courses.id ORDER BY MAX(saved_courses.savedAt) DESC")
+    List<CourseEntity> getSavedCourses(String userId);
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void upsert(List<CourseEntity> courses);
+
+    @Query("DELETE FROM courses WHERE id = :id")
+    void delete(String id);
+
+    @Query("DELETE FROM courses WHERE id IN (:ids)")
+    void deleteAll(List<String> ids);
+
+    // Public courses newer than `after` that the server no longer returns for that feed
+    @Query("DELETE FROM courses WHERE isPrivate = 0 AND (:category IS NULL OR category = :category) "
+            + "AND createdAt > :after AND id NOT IN (:keepIds)")
+    void deleteMissingPublic(String category, long after, List<String> keepIds);
+
+    // An uploader's courses newer than `after` that the server no longer returns
+    @Query("DELETE FROM courses WHERE uploaderUid = :uploaderUid AND createdAt > :after AND id NOT IN (:keepIds)")
+    void deleteMissingByUploader(String uploaderUid, long after, List<String> keepIds);
+}
@@ -0,0 +1,86 @@
+package com.example.coursesharingapp.local;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+import com.example.coursesharingapp.model.Course;
+import com.google.firebase.Timestamp;
+
+import java.util.Date;
+import java.util.Map;
+
+// Local copy of a course document. createdAt is stored as epoch millis so feeds can be ordered and windowed in SQL.
+@Entity(tableName = "courses",
+        indices = {
+                @Index("createdAt"),
+                @Index({"category", "createdAt"}),
+                @Index({"uploaderUid", "createdAt"})
+        })
+public class CourseEntity {
+    @PrimaryKey
+    @NonNull
+    public String id = "";
+    public String title;
+    public String shortDescription;
+    public String longDescription;
+    public String uploaderUid;
+    public String uploaderUsername;
+    public String thumbnailUrl;
+    public Map<String, String> thumbnailVariants;
+    public String thumbnailPlaceholder;
+    public double thumbnailAspectRatio;
+    public String videoUrl;
+    public String hlsManifestUrl;
+    public String category;
+    public long createdAt;
+    public long updatedAt; // 0 if the server hasn't stamped it
+    public boolean isPrivate;
+    public String accessCode;
+
+    public static CourseEntity fromCourse(Course course) {
+        CourseEntity entity = new CourseEntity();
+        entity.id = course.getId();
+        entity.title = course.getTitle();
+        entity.shortDescription = course.getShortDescription();
+        entity.longDescription = course.getLongDescription();
+        entity.uploaderUid = course.getUploaderUid();
+        entity.uploaderUsername = course.getUploaderUsername();
+        entity.thumbnailUrl = course.getThumbnailUrl();
+        entity.thumbnailVariants = course.getThumbnailVariants();
+        entity.thumbnailPlaceholder = course.getThumbnailPlaceholder();
+        entity.thumbnailAspectRatio = course.getThumbnailAspectRatio();
+        entity.videoUrl = course.getVideoUrl();
+        entity.hlsManifestUrl = course.getHlsManifestUrl();
+        entity.category = course.getCategory();
+        entity.createdAt = course.getCreatedAtMillis();
+        entity.updatedAt = course.getUpdatedAtMillis();
+        entity.isPrivate = course.isPrivate();
+        entity.accessCode = course.getAccessCode();
+        return entity;
+    }
+
+    public Course toCourse() {
+        Course course = new Course();
+        course.setId(id);
+        course.setTitle(title);
+        course.setShortDescription(shortDescription);
+        course.setLongDescription(longDescription);
+        course.setUploaderUid(uploaderUid);
+        course.setUploaderUsername(uploaderUsername);
+        course.setThumbnailUrl(thumbnailUrl);
+        course.setThumbnailVariants(thumbnailVariants);
+        course.setThumbnailPlaceholder(thumbnailPlaceholder);
+        course.setThumbnailAspectRatio(thumbnailAspectRatio);
+        course.setVideoUrl(videoUrl);
+        course.setHlsManifestUrl(hlsManifestUrl);
+        course.setCategory(category);
+        // Keep it a Timestamp so a course written back to Firestore keeps the field's type
+        course.setCreatedAt(new Timestamp(new Date(createdAt)));
+        course.setUpdatedAt(updatedAt != 0 ? new Timestamp(new Date(updatedAt)) : null);
+        course.setPrivate(isPrivate);
+        course.setAccessCode(accessCode);
+        return course;
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.coursesharingapp.local;
+
+import androidx.room.Database;
+import androidx.room.RoomDatabase;
+import androidx.room.TypeConverters;
+
+/**
+ * Room database holding the on-device mirror of the Firestore courses,
+ * playlists, bookmarks and user profiles. Only a cache: every row can be
+ * rebuilt from Firestore, so schema changes simply drop and recreate it.
+ */
+@Database(entities = {
+        CourseEntity.class,
+        PlaylistEntity.class,
+        SavedCourseEntity.class,
+        SavedPlaylistEntity.class,
+        UserEntity.class,
+        SyncStateEntity.class
+}, version = 2, exportSchema = false)
+@TypeConverters(Converters.class)
+public abstract class LocalDatabase extends RoomDatabase {
+
+    public static final String DATABASE_NAME = "course_sharing_local.db";
+
+    public abstract CourseDao courseDao();
+
+    public abstract PlaylistDao playlistDao();
+
+    public abstract SavedItemDao savedItemDao();
+
+    public abstract UserDao userDao();
+
+    public abstract SyncStateDao syncStateDao();
+}
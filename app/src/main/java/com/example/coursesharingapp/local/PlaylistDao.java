@@ -0,0 +1,36 @@
+package com.example.coursesharingapp.local;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+import java.util.List;
+
+@Dao
+public interface PlaylistDao {
+
+    @Query("SELECT * FROM playlists WHERE id = :id")
+    PlaylistEntity getPlaylist(String id);
+
+    // A user's saved playlists, most recently saved first; a playlist bookmarked twice is listed once
+    @Query("SELECT playlists.* FROM playlists INNER JOIN saved_playlists ON saved_playlists.playlistId = playlists.id "
+            + "WHERE saved_playlists.userId = :userId GROUP BY playlists.id ORDER BY MAX(saved_playlists.savedAt) DESC")
+    List<PlaylistEntity> getSavedPlaylists(String userId);
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void upsert(List<PlaylistEntity> playlists);
+
+    @Query("DELETE FROM playlists WHERE id = :id")
+    void delete(String id);
+
+    @Query("DELETE FROM playlists WHERE id IN (:ids)")
+    void deleteAll(List<String> ids);
+
+    // Public playlists the server no longer returns
+    @Query("DELETE FROM playlists WHERE isPrivate = 0 AND id NOT IN (:keepIds)")
+    void deleteMissingPublic(List<String> keepIds);
+
+    @Query("DELETE FROM playlists WHERE creatorUid = :creatorUid AND id NOT IN (:keepIds)")
+    void deleteMissingByCreator(String creatorUid, List<String> keepIds);
+}
@@ -0,0 +1,64 @@
+package com.example.coursesharingapp.local;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+import com.example.coursesharingapp.model.Playlist;
+import com.google.firebase.Timestamp;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+// Local copy of a playlist document
+@Entity(tableName = "playlists",
+        indices = {
+                @Index("createdAt"),
+                @Index({"creatorUid", "createdAt"})
+        })
+public class PlaylistEntity {
+    @PrimaryKey
+    @NonNull
+    public String id = "";
+    public String title;
+    public String description;
+    public String creatorUid;
+    public String creatorUsername;
+    public List<String> courseIds;
+    public long createdAt;
+    public long updatedAt; // 0 if the server hasn't stamped it
+    public boolean isPrivate;
+    public String accessCode;
+
+    public static PlaylistEntity fromPlaylist(Playlist playlist) {
+        PlaylistEntity entity = new PlaylistEntity();
+        entity.id = playlist.getId();
+        entity.title = playlist.getTitle();
+        entity.description = playlist.getDescription();
+        entity.creatorUid = playlist.getCreatorUid();
+        entity.creatorUsername = playlist.getCreatorUsername();
+        entity.courseIds = playlist.getCourseIds();
+        entity.createdAt = playlist.getCreatedAtMillis();
+        entity.updatedAt = playlist.getUpdatedAtMillis();
+        entity.isPrivate = playlist.isPrivate();
+        entity.accessCode = playlist.getAccessCode();
+        return entity;
+    }
+
+    public Playlist toPlaylist() {
+        Playlist playlist = new Playlist();
+        playlist.setId(id);
+        playlist.setTitle(title);
+        playlist.setDescription(description);
+        playlist.setCreatorUid(creatorUid);
+        playlist.setCreatorUsername(creatorUsername);
+        playlist.setCourseIds(courseIds != null ? courseIds : new ArrayList<>());
+        playlist.setCreatedAt(new Timestamp(new Date(createdAt)));
+        playlist.setUpdatedAt(updatedAt != 0 ? new Timestamp(new Date(updatedAt)) : null);
+        playlist.setPrivate(isPrivate);
+        playlist.setAccessCode(accessCode);
+        return playlist;
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.coursesharingapp.local;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+// A user's course bookmark, keyed by its Firestore document id
+@Entity(tableName = "saved_courses",
+        indices = {
+                @Index({"userId", "savedAt"}),
+                @Index("courseId")
+        })
+public class SavedCourseEntity {
+    @PrimaryKey
+    @NonNull
+    public String id = "";
+    public String userId;
+    public String courseId;
+    public long savedAt;
+
+    public SavedCourseEntity() {
+    }
+
+    public SavedCourseEntity(@NonNull String id, String userId, String courseId, long savedAt) {
+        this.id = id;
+        this.userId = userId;
+        this.courseId = courseId;
+        this.savedAt = savedAt;
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.coursesharingapp.local;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+import java.util.List;
+
+@Dao
+public interface SavedItemDao {
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void upsertSavedCourses(List<SavedCourseEntity> savedCourses);
+
+    @Query("DELETE FROM saved_courses WHERE id IN (:ids)")
+    void deleteSavedCourses(List<String> ids);
+
+    @Query("DELETE FROM saved_courses WHERE userId = :userId AND id NOT IN (:keepIds)")
+    void deleteMissingSavedCourses(String userId, List<String> keepIds);
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void upsertSavedPlaylists(List<SavedPlaylistEntity> savedPlaylists);
+
+    @Query("DELETE FROM saved_playlists WHERE id IN (:ids)")
+    void deleteSavedPlaylists(List<String> ids);
+
+    @Query("DELETE FROM saved_playlists WHERE userId = :userId AND id NOT IN (:keepIds)")
+    void deleteMissingSavedPlaylists(String userId, List<String> keepIds);
+
+    // Bookmarks belong to the signed-in user; drop them all on sign-out
+    @Query("DELETE FROM saved_courses")
+    void clearSavedCourses();
+
+    @Query("DELETE FROM saved_playlists")
+    void clearSavedPlaylists();
+}
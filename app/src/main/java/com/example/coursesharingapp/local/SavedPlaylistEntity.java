@@ -0,0 +1,31 @@
+package com.example.coursesharingapp.local;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+// A user's playlist bookmark, keyed by its Firestore document id
+@Entity(tableName = "saved_playlists",
+        indices = {
+                @Index({"userId", "savedAt"}),
+                @Index("playlistId")
+        })
+public class SavedPlaylistEntity {
+    @PrimaryKey
+    @NonNull
+    public String id = "";
+    public String userId;
+    public String playlistId;
+    public long savedAt;
+
+    public SavedPlaylistEntity() {
+    }
+
+    public SavedPlaylistEntity(@NonNull String id, String userId, String playlistId, long savedAt) {
+        this.id = id;
+        this.userId = userId;
+        this.playlistId = playlistId;
+        this.savedAt = savedAt;
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.coursesharingapp.local;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+@Dao
+public interface SyncStateDao {
+
+    @Query("SELECT * FROM sync_state WHERE collection = :collection")
+    SyncStateEntity getSyncState(String collection);
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void upsert(SyncStateEntity syncState);
+}
@@ -0,0 +1,23 @@
+package com.example.coursesharingapp.local;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+// How far the mirror has synced one Firestore collection. Kept in the mirror's own database
+// so a schema reset, which empties the tables, also starts the sync over.
+@Entity(tableName = "sync_state")
+public class SyncStateEntity {
+    @PrimaryKey
+    @NonNull
+    public String collection = "";
+    public long watermark; // Newest updatedAt pulled, in epoch millis
+
+    public SyncStateEntity() {
+    }
+
+    public SyncStateEntity(@NonNull String collection, long watermark) {
+        this.collection = collection;
+        this.watermark = watermark;
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.coursesharingapp.local;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+@Dao
+public interface UserDao {
+
+    @Query("SELECT * FROM users WHERE id = :id")
+    UserEntity getUser(String id);
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void upsert(UserEntity user);
+}
@@ -0,0 +1,39 @@
+package com.example.coursesharingapp.local;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+import com.example.coursesharingapp.model.User;
+import com.google.firebase.Timestamp;
+
+import java.util.Date;
+
+// Local copy of a user profile document
+@Entity(tableName = "users")
+public class UserEntity {
+    @PrimaryKey
+    @NonNull
+    public String id = "";
+    public String username;
+    public String email;
+    public long createdAt;
+
+    public static UserEntity fromUser(User user) {
+        UserEntity entity = new UserEntity();
+        entity.id = user.getId();
+        entity.username = user.getUsername();
+        entity.email = user.getEmail();
+        entity.createdAt = user.getCreatedAtMillis();
+        return entity;
+    }
+
+    public User toUser() {
+        User user = new User();
+        user.setId(id);
+        user.setUsername(username);
+        user.setEmail(email);
+        user.setCreatedAt(new Timestamp(new Date(createdAt)));
+        return user;
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.coursesharingapp.model;
+
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.ServerTimestamp;
+
+// Entry of the access code index, keyed by the code itself: accessCodes/{code}
+public class AccessCode {
+    // Firestore collection holding the index
+    public static final String COLLECTION = "accessCodes";
+
+    public static final String TYPE_COURSE = "course";
+    public static final String TYPE_PLAYLIST = "playlist";
+
+    private String type; // TYPE_COURSE or TYPE_PLAYLIST
+    private String targetId; // Id of the course or playlist the code opens
+    private String ownerUid;
+    @ServerTimestamp
+    private Timestamp createdAt;
+
+    public AccessCode() {
+        // Required empty constructor for Firestore
+    }
+
+    public AccessCode(String type, String targetId, String ownerUid) {
+        this.type = type;
+        this.targetId = targetId;
+        this.ownerUid = ownerUid;
+    }
+
+    // Getters and Setters
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public String getTargetId() {
+        return targetId;
+    }
+
+    public void setTargetId(String targetId) {
+        this.targetId = targetId;
+    }
+
+    public String getOwnerUid() {
+        return ownerUid;
+    }
+
+    public void setOwnerUid(String ownerUid) {
+        this.ownerUid = ownerUid;
+    }
+
+    public Timestamp getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Timestamp createdAt) {
+        this.createdAt = createdAt;
+    }
+}
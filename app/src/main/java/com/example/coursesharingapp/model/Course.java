@@ -1,8 +1,13 @@
 package com.example.coursesharingapp.model;
 
 import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.Exclude;
+import com.google.firebase.firestore.ServerTimestamp;
+import java.util.ArrayList;
 import java.util.Date;
-import java.util.Random;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 public class Course {
     private String id;
@@ -12,13 +17,19 @@ public class Course {
     private String uploaderUid;
     private String uploaderUsername;
     private String thumbnailUrl;
+    private Map<String, String> thumbnailVariants; // Pixel width -> download URL of the WebP thumbnail at that width
+    private String thumbnailPlaceholder; // BlurHash of the thumbnail, drawn while it loads
+    private double thumbnailAspectRatio; // Thumbnail width / height, 0 if unknown
     private String videoUrl;
+    private String hlsManifestUrl; // Adaptive bitrate master playlist, null until the video has been packaged
     private String category;
     private Object createdAt; // Can be either Timestamp or Long
+    @ServerTimestamp
+    private Timestamp updatedAt; // Stamped by the server on every write, for delta sync
 
     private boolean isPrivate;
     private String accessCode;
-
+    private List<String> searchTokens; // Normalized word prefixes written by the repository for search
 
     // Category constants
     public static final String CATEGORY_ART = "Art";
@@ -65,6 +76,28 @@ public class Course {
         this.accessCode = null;
     }
 
+    // Copy of another course that shares no mutable state with it
+    public Course(Course other) {
+        this.id = other.id;
+        this.title = other.title;
+        this.shortDescription = other.shortDescription;
+        this.longDescription = other.longDescription;
+        this.uploaderUid = other.uploaderUid;
+        this.uploaderUsername = other.uploaderUsername;
+        this.thumbnailUrl = other.thumbnailUrl;
+        this.thumbnailVariants = other.thumbnailVariants != null ? new HashMap<>(other.thumbnailVariants) : null;
+        this.thumbnailPlaceholder = other.thumbnailPlaceholder;
+        this.thumbnailAspectRatio = other.thumbnailAspectRatio;
+        this.videoUrl = other.videoUrl;
+        this.hlsManifestUrl = other.hlsManifestUrl;
+        this.category = other.category;
+        this.createdAt = other.createdAt; // Timestamp and Long are immutable
+        this.updatedAt = other.updatedAt;
+        this.isPrivate = other.isPrivate;
+        this.accessCode = other.accessCode;
+        this.searchTokens = other.searchTokens != null ? new ArrayList<>(other.searchTokens) : null;
+    }
+
     // Getters and Setters
     public String getId() {
         return id;
@@ -122,6 +155,30 @@ public class Course {
         this.thumbnailUrl = thumbnailUrl;
     }
 
+    public Map<String, String> getThumbnailVariants() {
+        return thumbnailVariants;
+    }
+
+    public void setThumbnailVariants(Map<String, String> thumbnailVariants) {
+        this.thumbnailVariants = thumbnailVariants;
+    }
+
+    public String getThumbnailPlaceholder() {
+        return thumbnailPlaceholder;
+    }
+
+    public void setThumbnailPlaceholder(String thumbnailPlaceholder) {
+        this.thumbnailPlaceholder = thumbnailPlaceholder;
+    }
+
+    public double getThumbnailAspectRatio() {
+        return thumbnailAspectRatio;
+    }
+
+    public void setThumbnailAspectRatio(double thumbnailAspectRatio) {
+        this.thumbnailAspectRatio = thumbnailAspectRatio;
+    }
+
     public String getVideoUrl() {
         return videoUrl;
     }
@@ -130,6 +187,14 @@ public class Course {
         this.videoUrl = videoUrl;
     }
 
+    public String getHlsManifestUrl() {
+        return hlsManifestUrl;
+    }
+
+    public void setHlsManifestUrl(String hlsManifestUrl) {
+        this.hlsManifestUrl = hlsManifestUrl;
+    }
+
     public String getCategory() {
         return category;
     }
@@ -167,6 +232,21 @@ public class Course {
         return new Date();
     }
 
+    // Server time of the last write; null until the write reaches the server.
+    // Clear it before writing a document back so the server stamps it again.
+    public Timestamp getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Timestamp updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    @Exclude
+    public long getUpdatedAtMillis() {
+        return updatedAt != null ? updatedAt.toDate().getTime() : 0;
+    }
+
     public boolean isPrivate() {
         return isPrivate;
     }
@@ -187,15 +267,11 @@ public class Course {
         this.accessCode = accessCode;
     }
 
-    // Generate a 6-digit access code (used by repository for unique generation)
-    public static String generateAccessCode() {
-        Random random = new Random();
-        int code = 100000 + random.nextInt(900000); // Generates 6-digit number
-        return String.valueOf(code);
+    public List<String> getSearchTokens() {
+        return searchTokens;
     }
 
-    // Static method to generate access code for existing courses (used by repository)
-    public static String generateNewAccessCode() {
-        return generateAccessCode();
+    public void setSearchTokens(List<String> searchTokens) {
+        this.searchTokens = searchTokens;
     }
 }
\ No newline at end of file
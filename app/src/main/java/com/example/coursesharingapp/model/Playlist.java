@@ -1,11 +1,12 @@
 package com.example.coursesharingapp.model;
 
 import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.Exclude;
+import com.google.firebase.firestore.ServerTimestamp;
 
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
-import java.util.Random;
 
 public class Playlist {
     private String id;
@@ -15,6 +16,8 @@ public class Playlist {
     private String creatorUsername;
     private List<String> courseIds; // List of course IDs in the playlist
     private Object createdAt; // Can be either Timestamp or Long
+    @ServerTimestamp
+    private Timestamp updatedAt; // Stamped by the server on every write, for delta sync
     private boolean isPrivate;
     private String accessCode;
 
@@ -46,18 +49,6 @@ public class Playlist {
         this.accessCode = null;
     }
 
-    // Generate a 6-digit access code (used by repository for unique generation)
-    public static String generateAccessCode() {
-        Random random = new Random();
-        int code = 100000 + random.nextInt(900000); // Generates 6-digit number
-        return String.valueOf(code);
-    }
-
-    // Static method to generate access code for existing playlists (used by repository)
-    public static String generateNewAccessCode() {
-        return generateAccessCode();
-    }
-
     // Getters and Setters
     public String getId() {
         return id;
@@ -174,4 +165,19 @@ public class Playlist {
         }
         return new Date();
     }
+
+    // Server time of the last write; null until the write reaches the server.
+    // Clear it before writing a document back so the server stamps it again.
+    public Timestamp getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Timestamp updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    @Exclude
+    public long getUpdatedAtMillis() {
+        return updatedAt != null ? updatedAt.toDate().getTime() : 0;
+    }
 }
\ No newline at end of file
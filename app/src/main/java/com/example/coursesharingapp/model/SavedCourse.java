@@ -20,6 +20,11 @@ public class SavedCourse {
         this.savedAt = Timestamp.now();
     }
 
+    // Bookmarks are keyed by user and course, so saving twice writes the same document
+    public static String documentId(String userId, String courseId) {
+        return userId + "_" + courseId;
+    }
+
     // Getters and Setters
     public String getId() {
         return id;
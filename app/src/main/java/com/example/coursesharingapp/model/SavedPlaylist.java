@@ -20,6 +20,11 @@ public class SavedPlaylist {
         this.savedAt = Timestamp.now();
     }
 
+    // Bookmarks are keyed by user and playlist, so saving twice writes the same document
+    public static String documentId(String userId, String playlistId) {
+        return userId + "_" + playlistId;
+    }
+
     // Getters and Setters
     public String getId() {
         return id;
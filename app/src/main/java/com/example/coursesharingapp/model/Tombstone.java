@@ -0,0 +1,70 @@
+package com.example.coursesharingapp.model;
+
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.ServerTimestamp;
+
+// Left behind when a course or playlist is deleted or made private, so clients syncing by updatedAt
+// learn that it's gone; the sync queries only return public documents and the user's own
+public class Tombstone {
+    // Firestore collection holding the tombstones
+    public static final String COLLECTION = "tombstones";
+
+    private String collection; // Collection the deleted document was in
+    private String documentId;
+    private String ownerUid; // Set when the document was made private rather than deleted; its owner keeps it
+    @ServerTimestamp
+    private Timestamp updatedAt;
+
+    public Tombstone() {
+        // Required empty constructor for Firestore
+    }
+
+    public Tombstone(String collection, String documentId) {
+        this.collection = collection;
+        this.documentId = documentId;
+    }
+
+    // For a document made private; removed again when the document is made public
+    public Tombstone(String collection, String documentId, String ownerUid) {
+        this(collection, documentId);
+        this.ownerUid = ownerUid;
+    }
+
+    // One tombstone per document, so deleting twice writes the same document
+    public static String documentId(String collection, String documentId) {
+        return collection + "_" + documentId;
+    }
+
+    // Getters and Setters
+    public String getCollection() {
+        return collection;
+    }
+
+    public void setCollection(String collection) {
+        this.collection = collection;
+    }
+
+    public String getDocumentId() {
+        return documentId;
+    }
+
+    public void setDocumentId(String documentId) {
+        this.documentId = documentId;
+    }
+
+    public String getOwnerUid() {
+        return ownerUid;
+    }
+
+    public void setOwnerUid(String ownerUid) {
+        this.ownerUid = ownerUid;
+    }
+
+    public Timestamp getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Timestamp updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
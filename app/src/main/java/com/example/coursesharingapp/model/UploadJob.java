@@ -0,0 +1,249 @@
+package com.example.coursesharingapp.model;
+
+// A course waiting in, or processed by, the background upload queue
+public class UploadJob {
+
+    // Job states
+    public static final String STATUS_PREPARING = "preparing"; // Copying the picked files into app storage
+    public static final String STATUS_QUEUED = "queued";
+    public static final String STATUS_RUNNING = "running";
+    public static final String STATUS_SUCCEEDED = "succeeded";
+    public static final String STATUS_FAILED = "failed";
+
+    private String id;
+    private String workId; // WorkManager request id
+    private String courseId; // Reserved up front so a re-run overwrites instead of duplicating
+    private String videoPath; // Fixed up front so a re-run resumes the video upload instead of restarting it
+    private String title;
+    private String shortDescription;
+    private String longDescription;
+    private String uploaderUid;
+    private String uploaderUsername;
+    private String category;
+    private boolean isPrivate;
+    private String accessCode; // Reserved by the first run of a private course and reused by re-runs
+    private String thumbnailUri;
+    private String videoUri;
+    private boolean wifiOnly;
+    private boolean chargingOnly;
+    private String status;
+    private int progress;
+    private long bytesTransferred;
+    private long totalBytes;
+    private String errorMessage;
+    private long createdAt;
+
+    public UploadJob() {
+        // Empty constructor for deserialization
+    }
+
+    public UploadJob(String id, String courseId, Course course, String thumbnailUri, String videoUri,
+                     boolean wifiOnly, boolean chargingOnly) {
+        this.id = id;
+        this.courseId = courseId;
+        this.videoPath = "videos/" + courseId + "_" + id;
+        this.title = course.getTitle();
+        this.shortDescription = course.getShortDescription();
+        this.longDescription = course.getLongDescription();
+        this.uploaderUid = course.getUploaderUid();
+        this.uploaderUsername = course.getUploaderUsername();
+        this.category = course.getCategory();
+        this.isPrivate = course.isPrivate();
+        this.thumbnailUri = thumbnailUri;
+        this.videoUri = videoUri;
+        this.wifiOnly = wifiOnly;
+        this.chargingOnly = chargingOnly;
+        this.status = STATUS_QUEUED;
+        this.createdAt = System.currentTimeMillis();
+    }
+
+    // Build the course this job creates
+    public Course toCourse() {
+        Course course = new Course(title, shortDescription, longDescription,
+                uploaderUid, uploaderUsername, category, isPrivate);
+        course.setId(courseId);
+        course.setAccessCode(accessCode);
+        return course;
+    }
+
+    public boolean isFinished() {
+        return STATUS_SUCCEEDED.equals(status) || STATUS_FAILED.equals(status);
+    }
+
+    // Getters and Setters
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getWorkId() {
+        return workId;
+    }
+
+    public void setWorkId(String workId) {
+        this.workId = workId;
+    }
+
+    public String getCourseId() {
+        return courseId;
+    }
+
+    public void setCourseId(String courseId) {
+        this.courseId = courseId;
+    }
+
+    public String getVideoPath() {
+        return videoPath;
+    }
+
+    public void setVideoPath(String videoPath) {
+        this.videoPath = videoPath;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public String getShortDescription() {
+        return shortDescription;
+    }
+
+    public void setShortDescription(String shortDescription) {
+        this.shortDescription = shortDescription;
+    }
+
+    public String getLongDescription() {
+        return longDescription;
+    }
+
+    public void setLongDescription(String longDescription) {
+        this.longDescription = longDescription;
+    }
+
+    public String getUploaderUid() {
+        return uploaderUid;
+    }
+
+    public void setUploaderUid(String uploaderUid) {
+        this.uploaderUid = uploaderUid;
+    }
+
+    public String getUploaderUsername() {
+        return uploaderUsername;
+    }
+
+    public void setUploaderUsername(String uploaderUsername) {
+        this.uploaderUsername = uploaderUsername;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public void setCategory(String category) {
+        this.category = category;
+    }
+
+    public boolean isPrivate() {
+        return isPrivate;
+    }
+
+    public void setPrivate(boolean isPrivate) {
+        this.isPrivate = isPrivate;
+    }
+
+    public String getAccessCode() {
+        return accessCode;
+    }
+
+    public void setAccessCode(String accessCode) {
+        this.accessCode = accessCode;
+    }
+
+    public String getThumbnailUri() {
+        return thumbnailUri;
+    }
+
+    public void setThumbnailUri(String thumbnailUri) {
+        this.thumbnailUri = thumbnailUri;
+    }
+
+    public String getVideoUri() {
+        return videoUri;
+    }
+
+    public void setVideoUri(String videoUri) {
+        this.videoUri = videoUri;
+    }
+
+    public boolean isWifiOnly() {
+        return wifiOnly;
+    }
+
+    public void setWifiOnly(boolean wifiOnly) {
+        this.wifiOnly = wifiOnly;
+    }
+
+    public boolean isChargingOnly() {
+        return chargingOnly;
+    }
+
+    public void setChargingOnly(boolean chargingOnly) {
+        this.chargingOnly = chargingOnly;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public int getProgress() {
+        return progress;
+    }
+
+    public void setProgress(int progress) {
+        this.progress = progress;
+    }
+
+    public long getBytesTransferred() {
+        return bytesTransferred;
+    }
+
+    public void setBytesTransferred(long bytesTransferred) {
+        this.bytesTransferred = bytesTransferred;
+    }
+
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public void setTotalBytes(long totalBytes) {
+        this.totalBytes = totalBytes;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public void setErrorMessage(String errorMessage) {
+        this.errorMessage = errorMessage;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(long createdAt) {
+        this.createdAt = createdAt;
+    }
+}
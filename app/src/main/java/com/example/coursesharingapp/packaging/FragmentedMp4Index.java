@@ -0,0 +1,373 @@
+package com.example.coursesharingapp.packaging;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Byte layout of a fragmented MP4 file, as needed to describe it in an HLS
+ * playlist: the initialization section (ftyp and moov) and every fragment
+ * (moof and its mdat) with its offset, length and duration.
+ *
+ * Durations come from the video track's trun sample durations, falling back
+ * to the tfhd and trex defaults. Plain Java with no Android dependencies.
+ */
+public class FragmentedMp4Index {
+
+    // One independently decodable piece of the file
+    public static class Fragment {
+        private final long offset;
+        private final long length;
+        private final long durationUs;
+
+        Fragment(long offset, long length, long durationUs) {
+            this.offset = offset;
+            this.length = length;
+            this.durationUs = durationUs;
+        }
+
+        public long getOffset() {
+            return offset;
+        }
+
+        public long getLength() {
+            return length;
+        }
+
+        public long getDurationUs() {
+            return durationUs;
+        }
+    }
+
+    private static final int BOX_HEADER_SIZE = 8;
+
+    private final long initLength;
+    private final int width;
+    private final int height;
+    private final List<Fragment> fragments;
+
+    FragmentedMp4Index(long initLength, int width, int height, List<Fragment> fragments) {
+        this.initLength = initLength;
+        this.width = width;
+        this.height = height;
+        this.fragments = Collections.unmodifiableList(fragments);
+    }
+
+    // Length of the initialization section, which starts at offset 0
+    public long getInitLength() {
+        return initLength;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public List<Fragment> getFragments() {
+        return fragments;
+    }
+
+    public long getDurationUs() {
+        long duration = 0;
+        for (Fragment fragment : fragments) {
+            duration += fragment.durationUs;
+        }
+        return duration;
+    }
+
+    /**
+     * Index a fragmented MP4 file
+     * @param file The file
+     * @return Its layout
+     * @throws IOException If the file can't be read or isn't a fragmented MP4 with a video track
+     */
+    public static FragmentedMp4Index read(File file) throws IOException {
+        try (RandomAccessFile input = new RandomAccessFile(file, "r")) {
+            return read(input);
+        }
+    }
+
+    private static FragmentedMp4Index read(RandomAccessFile input) throws IOException {
+        long fileLength = input.length();
+        long initLength = -1;
+        Track videoTrack = null;
+
+        // Start offset and video duration of the fragment being collected
+        long fragmentStart = -1;
+        long fragmentDuration = 0;
+        List<Fragment> fragments = new ArrayList<>();
+
+        long position = 0;
+        while (position + BOX_HEADER_SIZE <= fileLength) {
+            input.seek(position);
+            long size = readUnsignedInt(input);
+            String type = readType(input);
+            int headerSize = BOX_HEADER_SIZE;
+            if (size == 1) {
+                size = input.readLong();
+                headerSize += 8;
+            } else if (size == 0) {
+                size = fileLength - position;
+            }
+            if (size < headerSize || position + size > fileLength) {
+                throw new IOException("Malformed box " + type + " at " + position);
+            }
+
+            switch (type) {
+                case "moov":
+                    videoTrack = parseMoov(readPayload(input, position + headerSize, size - headerSize));
+                    initLength = position + size;
+                    break;
+                case "moof":
+                    if (videoTrack == null) {
+                        throw new IOException("moof before moov");
+                    }
+                    long duration = parseMoofVideoDuration(
+                            readPayload(input, position + headerSize, size - headerSize), videoTrack);
+                    if (duration > 0 || fragmentStart < 0) {
+                        // A fragment with video starts a new segment
+                        if (fragmentStart >= 0) {
+                            fragments.add(newFragment(fragmentStart, position, fragmentDuration, videoTrack));
+                        }
+                        fragmentStart = position;
+                        fragmentDuration = duration;
+                    }
+                    // A fragment without video samples stays part of the previous segment
+                    break;
+                case "mfra":
+                    // Random access index at the end of the file; not part of any segment
+                    if (fragmentStart >= 0) {
+                        fragments.add(newFragment(fragmentStart, position, fragmentDuration, videoTrack));
+                        fragmentStart = -1;
+                    }
+                    break;
+                default:
+                    break;
+            }
+            position += size;
+        }
+
+        if (fragmentStart >= 0) {
+            fragments.add(newFragment(fragmentStart, position, fragmentDuration, videoTrack));
+        }
+        if (initLength < 0 || videoTrack == null) {
+            throw new IOException("No video track found");
+        }
+        if (fragments.isEmpty()) {
+            throw new IOException("File is not fragmented");
+        }
+        return new FragmentedMp4Index(initLength, videoTrack.width, videoTrack.height, fragments);
+    }
+
+    private static Fragment newFragment(long start, long end, long duration, Track track) {
+        return new Fragment(start, end - start, duration * 1_000_000L / track.timescale);
+    }
+
+    // Video track properties from the moov box
+    private static class Track {
+        long trackId;
+        long timescale;
+        long defaultSampleDuration;
+        int width;
+        int height;
+    }
+
+    private static Track parseMoov(ByteBuffer moov) throws IOException {
+        Track videoTrack = null;
+        List<long[]> trexDefaults = new ArrayList<>(); // [trackId, defaultSampleDuration]
+
+        while (moov.remaining() >= BOX_HEADER_SIZE) {
+            Box box = nextBox(moov);
+            if ("trak".equals(box.type)) {
+                Track track = parseTrak(box.payload);
+                if (track != null && videoTrack == null) {
+                    videoTrack = track;
+                }
+            } else if ("mvex".equals(box.type)) {
+                while (box.payload.remaining() >= BOX_HEADER_SIZE) {
+                    Box trex = nextBox(box.payload);
+                    if ("trex".equals(trex.type)) {
+                        ByteBuffer child = trex.payload;
+                        child.position(child.position() + 4); // version and flags
+                        long trackId = unsignedInt(child);
+                        child.position(child.position() + 4); // default_sample_description_index
+                        trexDefaults.add(new long[]{trackId, unsignedInt(child)});
+                    }
+                }
+            }
+        }
+
+        if (videoTrack == null) {
+            throw new IOException("No video track found");
+        }
+        for (long[] defaults : trexDefaults) {
+            if (defaults[0] == videoTrack.trackId) {
+                videoTrack.defaultSampleDuration = defaults[1];
+            }
+        }
+        return videoTrack;
+    }
+
+    // Returns null unless the track is video
+    private static Track parseTrak(ByteBuffer trak) {
+        Track track = new Track();
+        boolean isVideo = false;
+
+        while (trak.remaining() >= BOX_HEADER_SIZE) {
+            Box trakChild = nextBox(trak);
+            ByteBuffer box = trakChild.payload;
+            if ("tkhd".equals(trakChild.type)) {
+                int version = box.get() & 0xff;
+                box.position(box.position() + 3); // flags
+                box.position(box.position() + (version == 1 ? 16 : 8)); // creation and modification time
+                track.trackId = unsignedInt(box);
+                // reserved, duration, reserved[2], layer, alternate_group, volume, reserved, matrix
+                box.position(box.position() + 4 + (version == 1 ? 8 : 4) + 8 + 8 + 36);
+                track.width = box.getInt() >>> 16; // 16.16 fixed point
+                track.height = box.getInt() >>> 16;
+            } else if ("mdia".equals(trakChild.type)) {
+                while (box.remaining() >= BOX_HEADER_SIZE) {
+                    Box mdiaChild = nextBox(box);
+                    ByteBuffer child = mdiaChild.payload;
+                    String childType = mdiaChild.type;
+                    if ("mdhd".equals(childType)) {
+                        int version = child.get() & 0xff;
+                        child.position(child.position() + 3 + (version == 1 ? 16 : 8));
+                        track.timescale = unsignedInt(child);
+                    } else if ("hdlr".equals(childType)) {
+                        child.position(child.position() + 8); // version, flags, pre_defined
+                        byte[] handler = new byte[4];
+                        child.get(handler);
+                        isVideo = "vide".equals(new String(handler, StandardCharsets.US_ASCII));
+                    }
+                }
+            }
+        }
+        return isVideo && track.timescale > 0 ? track : null;
+    }
+
+    // Total sample duration of the video track in this fragment, in the track's timescale
+    private static long parseMoofVideoDuration(ByteBuffer moof, Track videoTrack) {
+        long duration = 0;
+        while (moof.remaining() >= BOX_HEADER_SIZE) {
+            Box moofChild = nextBox(moof);
+            if (!"traf".equals(moofChild.type)) {
+                continue;
+            }
+            ByteBuffer traf = moofChild.payload;
+
+            long defaultDuration = videoTrack.defaultSampleDuration;
+            boolean isVideo = false;
+            while (traf.remaining() >= BOX_HEADER_SIZE) {
+                Box trafChild = nextBox(traf);
+                ByteBuffer box = trafChild.payload;
+                String type = trafChild.type;
+                if ("tfhd".equals(type)) {
+                    int flags = box.getInt() & 0xffffff;
+                    isVideo = unsignedInt(box) == videoTrack.trackId;
+                    if ((flags & 0x01) != 0) {
+                        box.position(box.position() + 8); // base_data_offset
+                    }
+                    if ((flags & 0x02) != 0) {
+                        box.position(box.position() + 4); // sample_description_index
+                    }
+                    if ((flags & 0x08) != 0) {
+                        defaultDuration = unsignedInt(box);
+                    }
+                } else if ("trun".equals(type) && isVideo) {
+                    duration += trunDuration(box, defaultDuration);
+                }
+            }
+        }
+        return duration;
+    }
+
+    private static long trunDuration(ByteBuffer trun, long defaultDuration) {
+        int flags = trun.getInt() & 0xffffff;
+        long sampleCount = unsignedInt(trun);
+        if ((flags & 0x01) != 0) {
+            trun.position(trun.position() + 4); // data_offset
+        }
+        if ((flags & 0x04) != 0) {
+            trun.position(trun.position() + 4); // first_sample_flags
+        }
+        if ((flags & 0x100) == 0) {
+            return sampleCount * defaultDuration;
+        }
+
+        int otherFieldsSize = ((flags & 0x200) != 0 ? 4 : 0)
+                + ((flags & 0x400) != 0 ? 4 : 0)
+                + ((flags & 0x800) != 0 ? 4 : 0);
+        long duration = 0;
+        for (long i = 0; i < sampleCount; i++) {
+            duration += unsignedInt(trun);
+            trun.position(trun.position() + otherFieldsSize);
+        }
+        return duration;
+    }
+
+    // A child box: its four character type and its payload
+    private static class Box {
+        final String type;
+        final ByteBuffer payload;
+
+        Box(String type, ByteBuffer payload) {
+            this.type = type;
+            this.payload = payload;
+        }
+    }
+
+    // Slice the next child box off a parent and advance the parent past it
+    private static Box nextBox(ByteBuffer parent) {
+        int start = parent.position();
+        long size = unsignedInt(parent);
+        byte[] type = new byte[4];
+        parent.get(type);
+        int headerSize = BOX_HEADER_SIZE;
+        if (size == 1) {
+            size = parent.getLong();
+            headerSize += 8;
+        } else if (size == 0) {
+            size = parent.limit() - start;
+        }
+        int end = (int) Math.min(parent.limit(), start + Math.max(size, headerSize));
+
+        ByteBuffer payload = parent.duplicate();
+        payload.limit(end);
+        payload.position(start + headerSize);
+        parent.position(end);
+        return new Box(new String(type, StandardCharsets.US_ASCII), payload.slice());
+    }
+
+    private static ByteBuffer readPayload(RandomAccessFile input, long offset, long length) throws IOException {
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("Box too large");
+        }
+        byte[] bytes = new byte[(int) length];
+        input.seek(offset);
+        input.readFully(bytes);
+        return ByteBuffer.wrap(bytes);
+    }
+
+    private static long readUnsignedInt(RandomAccessFile input) throws IOException {
+        return input.readInt() & 0xffffffffL;
+    }
+
+    private static String readType(RandomAccessFile input) throws IOException {
+        byte[] type = new byte[4];
+        input.readFully(type);
+        return new String(type, StandardCharsets.US_ASCII);
+    }
+
+    private static long unsignedInt(ByteBuffer buffer) {
+        return buffer.getInt() & 0xffffffffL;
+    }
+}
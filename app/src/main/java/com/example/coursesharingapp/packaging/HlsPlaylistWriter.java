@@ -0,0 +1,117 @@
+package com.example.coursesharingapp.packaging;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Writes HLS playlists for renditions stored as single fragmented MP4 files.
+ *
+ * Each media playlist addresses its file's fragments with byte ranges, so a
+ * rendition is one object in storage instead of hundreds of segment files.
+ * Playlist URIs are absolute because storage download URLs can't be resolved
+ * relative to each other. Plain Java with no Android dependencies.
+ */
+public final class HlsPlaylistWriter {
+
+    public static final String CONTENT_TYPE = "application/vnd.apple.mpegurl";
+
+    // fMP4 segments and EXT-X-MAP byte ranges need version 7
+    private static final int HLS_VERSION = 7;
+
+    // A rendition as listed in the master playlist
+    public static class Variant {
+        private final String playlistUrl;
+        private final FragmentedMp4Index index;
+
+        public Variant(String playlistUrl, FragmentedMp4Index index) {
+            this.playlistUrl = playlistUrl;
+            this.index = index;
+        }
+    }
+
+    private HlsPlaylistWriter() {
+    }
+
+    /**
+     * Write the media playlist of one rendition
+     * @param mediaUrl Absolute URL of the rendition's MP4 file
+     * @param index Layout of that file
+     * @return The playlist text
+     */
+    public static String writeMediaPlaylist(String mediaUrl, FragmentedMp4Index index) {
+        long maxDurationUs = 0;
+        for (FragmentedMp4Index.Fragment fragment : index.getFragments()) {
+            maxDurationUs = Math.max(maxDurationUs, fragment.getDurationUs());
+        }
+
+        StringBuilder playlist = new StringBuilder();
+        playlist.append("#EXTM3U\n");
+        playlist.append("#EXT-X-VERSION:").append(HLS_VERSION).append('\n');
+        playlist.append("#EXT-X-TARGETDURATION:").append(ceilSeconds(maxDurationUs)).append('\n');
+        playlist.append("#EXT-X-MEDIA-SEQUENCE:0\n");
+        playlist.append("#EXT-X-PLAYLIST-TYPE:VOD\n");
+        playlist.append("#EXT-X-INDEPENDENT-SEGMENTS\n");
+        playlist.append("#EXT-X-MAP:URI=\"").append(mediaUrl)
+                .append("\",BYTERANGE=\"").append(index.getInitLength()).append("@0\"\n");
+        for (FragmentedMp4Index.Fragment fragment : index.getFragments()) {
+            playlist.append(String.format(Locale.US, "#EXTINF:%.3f,\n", fragment.getDurationUs() / 1_000_000.0));
+            playlist.append("#EXT-X-BYTERANGE:").append(fragment.getLength())
+                    .append('@').append(fragment.getOffset()).append('\n');
+            playlist.append(mediaUrl).append('\n');
+        }
+        playlist.append("#EXT-X-ENDLIST\n");
+        return playlist.toString();
+    }
+
+    /**
+     * Write the master playlist listing every rendition, lowest bandwidth first
+     * @param variants The renditions
+     * @return The playlist text
+     */
+    public static String writeMasterPlaylist(List<Variant> variants) {
+        List<Variant> sorted = new ArrayList<>(variants);
+        sorted.sort(Comparator.comparingLong(variant -> peakBandwidth(variant.index)));
+
+        StringBuilder playlist = new StringBuilder();
+        playlist.append("#EXTM3U\n");
+        playlist.append("#EXT-X-VERSION:").append(HLS_VERSION).append('\n');
+        playlist.append("#EXT-X-INDEPENDENT-SEGMENTS\n");
+        for (Variant variant : sorted) {
+            // Measured from the file, so the declared bandwidth includes the muxed audio
+            playlist.append("#EXT-X-STREAM-INF:BANDWIDTH=").append(peakBandwidth(variant.index))
+                    .append(",AVERAGE-BANDWIDTH=").append(averageBandwidth(variant.index));
+            if (variant.index.getWidth() > 0 && variant.index.getHeight() > 0) {
+                playlist.append(",RESOLUTION=").append(variant.index.getWidth())
+                        .append('x').append(variant.index.getHeight());
+            }
+            playlist.append('\n').append(variant.playlistUrl).append('\n');
+        }
+        return playlist.toString();
+    }
+
+    // Highest bitrate of any single segment, in bits per second
+    static long peakBandwidth(FragmentedMp4Index index) {
+        long peak = 0;
+        for (FragmentedMp4Index.Fragment fragment : index.getFragments()) {
+            if (fragment.getDurationUs() > 0) {
+                peak = Math.max(peak, fragment.getLength() * 8 * 1_000_000L / fragment.getDurationUs());
+            }
+        }
+        return Math.max(peak, 1);
+    }
+
+    static long averageBandwidth(FragmentedMp4Index index) {
+        long bytes = 0;
+        for (FragmentedMp4Index.Fragment fragment : index.getFragments()) {
+            bytes += fragment.getLength();
+        }
+        long durationUs = index.getDurationUs();
+        return durationUs > 0 ? Math.max(bytes * 8 * 1_000_000L / durationUs, 1) : peakBandwidth(index);
+    }
+
+    private static long ceilSeconds(long durationUs) {
+        return Math.max(1, (durationUs + 999_999) / 1_000_000);
+    }
+}
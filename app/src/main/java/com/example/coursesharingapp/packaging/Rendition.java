@@ -0,0 +1,63 @@
+package com.example.coursesharingapp.packaging;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+// One rung of the adaptive bitrate ladder
+public class Rendition {
+
+    // Renditions offered for a source that is at least as large, smallest first
+    public static final List<Rendition> LADDER = Collections.unmodifiableList(Arrays.asList(
+            new Rendition("240p", 240, 400_000),
+            new Rendition("360p", 360, 800_000),
+            new Rendition("480p", 480, 1_400_000),
+            new Rendition("720p", 720, 2_800_000),
+            new Rendition("1080p", 1080, 5_000_000)));
+
+    public static final int AUDIO_BITRATE = 128_000;
+
+    private final String name;
+    private final int shortSide; // Pixels along the frame's shorter side, so portrait videos get the same ladder
+    private final int videoBitrate; // Bits per second
+
+    public Rendition(String name, int shortSide, int videoBitrate) {
+        this.name = name;
+        this.shortSide = shortSide;
+        this.videoBitrate = videoBitrate;
+    }
+
+    /**
+     * Pick the renditions worth encoding for a source; nothing is upscaled.
+     * @param sourceShortSide The source frame's shorter side in pixels
+     * @return The renditions, smallest first; a source below the smallest rung gets one rendition at its own
+     *         size, rounded down to even since encoders need even dimensions
+     */
+    public static List<Rendition> ladderFor(int sourceShortSide) {
+        List<Rendition> renditions = new ArrayList<>();
+        for (Rendition rendition : LADDER) {
+            if (rendition.shortSide <= sourceShortSide) {
+                renditions.add(rendition);
+            }
+        }
+        if (renditions.isEmpty()) {
+            Rendition smallest = LADDER.get(0);
+            int shortSide = Math.max(2, sourceShortSide & ~1);
+            renditions.add(new Rendition(shortSide + "p", shortSide, smallest.videoBitrate));
+        }
+        return renditions;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getShortSide() {
+        return shortSide;
+    }
+
+    public int getVideoBitrate() {
+        return videoBitrate;
+    }
+}
@@ -0,0 +1,245 @@
+package com.example.coursesharingapp.packaging;
+
+import android.content.Context;
+import android.media.MediaMetadataRetriever;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.OptIn;
+import androidx.media3.common.MediaItem;
+import androidx.media3.common.MimeTypes;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.effect.Presentation;
+import androidx.media3.transformer.Composition;
+import androidx.media3.transformer.DefaultEncoderFactory;
+import androidx.media3.transformer.EditedMediaItem;
+import androidx.media3.transformer.Effects;
+import androidx.media3.transformer.ExportException;
+import androidx.media3.transformer.ExportResult;
+import androidx.media3.transformer.InAppFragmentedMp4Muxer;
+import androidx.media3.transformer.ProgressHolder;
+import androidx.media3.transformer.Transformer;
+import androidx.media3.transformer.VideoEncoderSettings;
+
+import com.google.common.collect.ImmutableList;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Encodes a video into the renditions of {@link Rendition#ladderFor(int)}, each
+ * as one fragmented MP4 file whose fragments become HLS segments.
+ *
+ * Renditions are encoded one after another with Media3 Transformer using the
+ * device's hardware encoders. Keyframes are forced at every segment boundary so
+ * every fragment starts with one. Must be used from the main thread, where
+ * callbacks arrive too.
+ */
+@OptIn(markerClass = UnstableApi.class)
+public class VideoPackager {
+    private static final String TAG = "VideoPackager";
+
+    // Segment length; short enough to switch renditions quickly, long enough to keep playlists small
+    public static final long SEGMENT_DURATION_MS = 4000;
+    private static final float KEYFRAME_INTERVAL_SECONDS = 2f;
+
+    private static final long PROGRESS_POLL_INTERVAL_MS = 500;
+
+    private final Context context;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private Transformer currentTransformer;
+    private boolean cancelled;
+
+    // An encoded rendition ready for upload
+    public static class PackagedRendition {
+        private final Rendition rendition;
+        private final File file;
+        private final FragmentedMp4Index index;
+
+        PackagedRendition(Rendition rendition, File file, FragmentedMp4Index index) {
+            this.rendition = rendition;
+            this.file = file;
+            this.index = index;
+        }
+
+        public Rendition getRendition() {
+            return rendition;
+        }
+
+        public File getFile() {
+            return file;
+        }
+
+        public FragmentedMp4Index getIndex() {
+            return index;
+        }
+    }
+
+    // Interface for packaging results
+    public interface PackagingCallback {
+        void onProgress(int progress);
+        void onPackaged(List<PackagedRendition> renditions);
+        void onError(String errorMessage);
+    }
+
+    public VideoPackager(Context context) {
+        this.context = context.getApplicationContext();
+    }
+
+    /**
+     * Encode every rendition of a video. Renditions an earlier, interrupted
+     * call already finished in the same directory are reused as they are,
+     * so their uploads can resume too.
+     * @param videoUri The source video
+     * @param outputDir Directory for the encoded files; the caller deletes it once done with the video
+     * @param callback Progress and result callback
+     */
+    public void packageVideo(Uri videoUri, File outputDir, PackagingCallback callback) {
+        int[] size = readDisplaySize(videoUri);
+        if (size == null) {
+            callback.onError("Could not read the video");
+            return;
+        }
+        if (!outputDir.isDirectory() && !outputDir.mkdirs()) {
+            callback.onError("Could not create the packaging directory");
+            return;
+        }
+
+        List<Rendition> renditions = Rendition.ladderFor(Math.min(size[0], size[1]));
+        encodeNext(videoUri, size, renditions, 0, outputDir, new ArrayList<>(), callback);
+    }
+
+    // Stop the rendition being encoded; no further callbacks are made
+    public void cancel() {
+        cancelled = true;
+        if (currentTransformer != null) {
+            currentTransformer.cancel();
+        }
+    }
+
+    private void encodeNext(Uri videoUri, int[] size, List<Rendition> renditions, int index, File outputDir,
+                            List<PackagedRendition> packaged, PackagingCallback callback) {
+        if (cancelled) {
+            return;
+        }
+        if (index == renditions.size()) {
+            callback.onPackaged(packaged);
+            return;
+        }
+
+        Rendition rendition = renditions.get(index);
+        File output = new File(outputDir, rendition.getName() + ".mp4");
+        if (output.exists()) {
+            try {
+                packaged.add(new PackagedRendition(rendition, output, FragmentedMp4Index.read(output)));
+                encodeNext(videoUri, size, renditions, index + 1, outputDir, packaged, callback);
+                return;
+            } catch (IOException e) {
+                Log.w(TAG, "Encoding " + rendition.getName() + " again, the earlier output is unreadable: "
+                        + e.getMessage());
+            }
+        }
+        // Encode beside the output so a rendition cut short is never taken as finished
+        File partial = new File(outputDir, rendition.getName() + ".partial.mp4");
+
+        Transformer transformer = new Transformer.Builder(context)
+                .setVideoMimeType(MimeTypes.VIDEO_H264)
+                .setAudioMimeType(MimeTypes.AUDIO_AAC)
+                .setEncoderFactory(new DefaultEncoderFactory.Builder(context)
+                        .setRequestedVideoEncoderSettings(new VideoEncoderSettings.Builder()
+                                .setBitrate(rendition.getVideoBitrate())
+                                .setiFrameIntervalSeconds(KEYFRAME_INTERVAL_SECONDS)
+                                .build())
+                        .build())
+                .setMuxerFactory(new InAppFragmentedMp4Muxer.Factory(SEGMENT_DURATION_MS))
+                .addListener(new Transformer.Listener() {
+                    @Override
+                    public void onCompleted(Composition composition, ExportResult exportResult) {
+                        currentTransformer = null;
+                        if (!partial.renameTo(output)) {
+                            callback.onError("Packaging " + rendition.getName() + " failed: could not save it");
+                            return;
+                        }
+                        try {
+                            packaged.add(new PackagedRendition(rendition, output, FragmentedMp4Index.read(output)));
+                        } catch (IOException e) {
+                            callback.onError("Packaging " + rendition.getName() + " failed: " + e.getMessage());
+                            return;
+                        }
+                        encodeNext(videoUri, size, renditions, index + 1, outputDir, packaged, callback);
+                    }
+
+                    @Override
+                    public void onError(Composition composition, ExportResult exportResult,
+                                        ExportException exportException) {
+                        currentTransformer = null;
+                        Log.e(TAG, "Encoding " + rendition.getName() + " failed", exportException);
+                        callback.onError("Encoding " + rendition.getName() + " failed: "
+                                + exportException.getMessage());
+                    }
+                })
+                .build();
+
+        // Scale so the shorter side matches the rendition; Presentation sizes by output height
+        int height = size[0] >= size[1]
+                ? rendition.getShortSide()
+                : evenRound((double) rendition.getShortSide() * size[1] / size[0]);
+        EditedMediaItem item = new EditedMediaItem.Builder(MediaItem.fromUri(videoUri))
+                .setEffects(new Effects(ImmutableList.of(), ImmutableList.of(Presentation.createForHeight(height))))
+                .build();
+
+        currentTransformer = transformer;
+        transformer.start(item, partial.getAbsolutePath());
+        pollProgress(transformer, renditions.size(), index, callback);
+    }
+
+    // Transformer has no progress listener; poll it while this rendition encodes
+    private void pollProgress(Transformer transformer, int renditionCount, int index, PackagingCallback callback) {
+        ProgressHolder progressHolder = new ProgressHolder();
+        mainHandler.postDelayed(new Runnable() {
+            @Override
+            public void run() {
+                if (cancelled || transformer != currentTransformer) {
+                    return;
+                }
+                if (transformer.getProgress(progressHolder) == Transformer.PROGRESS_STATE_AVAILABLE) {
+                    callback.onProgress((index * 100 + progressHolder.progress) / renditionCount);
+                }
+                mainHandler.postDelayed(this, PROGRESS_POLL_INTERVAL_MS);
+            }
+        }, PROGRESS_POLL_INTERVAL_MS);
+    }
+
+    // Width and height as displayed, after the rotation stored in the file
+    private int[] readDisplaySize(Uri videoUri) {
+        MediaMetadataRetriever retriever = new MediaMetadataRetriever();
+        try {
+            retriever.setDataSource(context, videoUri);
+            int width = Integer.parseInt(retriever.extractMetadata(MediaMetadataRetriever.METADATA_KEY_VIDEO_WIDTH));
+            int height = Integer.parseInt(retriever.extractMetadata(MediaMetadataRetriever.METADATA_KEY_VIDEO_HEIGHT));
+            String rotation = retriever.extractMetadata(MediaMetadataRetriever.METADATA_KEY_VIDEO_ROTATION);
+            if ("90".equals(rotation) || "270".equals(rotation)) {
+                return new int[]{height, width};
+            }
+            return new int[]{width, height};
+        } catch (RuntimeException e) {
+            Log.e(TAG, "Failed to read video size: " + e.getMessage());
+            return null;
+        } finally {
+            try {
+                retriever.release();
+            } catch (IOException e) {
+                // Nothing left to clean up
+            }
+        }
+    }
+
+    // Encoders need even dimensions
+    private static int evenRound(double value) {
+        return (int) Math.round(value / 2) * 2;
+    }
+}
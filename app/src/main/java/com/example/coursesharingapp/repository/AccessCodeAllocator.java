@@ -0,0 +1,17 @@
+package com.example.coursesharingapp.repository;
+
+/**
+ * Source of new access codes for {@link AccessCodeIndex}. An implementation
+ * must never hand out the same code twice, on any device, so the index can
+ * reserve a code without first querying whether it is taken.
+ */
+public interface AccessCodeAllocator {
+
+    interface AllocateCallback {
+        void onAllocated(String accessCode);
+        void onError(String errorMessage);
+    }
+
+    // Hand out a code nobody has been given before. Call from the main thread; callbacks run on it too.
+    void allocate(AllocateCallback callback);
+}
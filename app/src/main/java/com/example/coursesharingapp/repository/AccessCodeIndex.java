@@ -0,0 +1,206 @@
+package com.example.coursesharingapp.repository;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.example.coursesharingapp.model.AccessCode;
+import com.example.coursesharingapp.util.AccessCodeFormat;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.WriteBatch;
+
+/**
+ * Index of the access codes of private courses and playlists, one document
+ * per code at accessCodes/{code}, so resolving a code is a single document
+ * read rather than a query over the courses or playlists collection.
+ *
+ * New codes come from an {@link AccessCodeAllocator}, which never hands out
+ * the same code twice, so reserving one needs no query for whether it is
+ * taken. The entry is still created in a transaction that never overwrites
+ * an existing one, as a guard against a misbehaving allocator. The entry
+ * id is the whole code, secret part included, so security rules must allow
+ * reading single entries but never listing the collection.
+ *
+ * Codes handed out before the index existed are six digits and only live on
+ * their course or playlist document; repositories fall back to the old query
+ * for codes the index doesn't know. Allocators must not produce codes of that
+ * shape, which the default format can't.
+ */
+public class AccessCodeIndex {
+    private static final String TAG = "AccessCodeIndex";
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    private static AccessCodeIndex instance;
+
+    private final FirebaseFirestore firestore = FirebaseFirestore.getInstance();
+    private AccessCodeAllocator allocator;
+
+    public interface ReserveCallback {
+        void onReserved(String accessCode);
+        void onError(String errorMessage);
+    }
+
+    public interface ResolveCallback {
+        // targetId is null if the code doesn't open anything of the requested type
+        void onResolved(String targetId);
+        // The code has no index entry; it may be one handed out before the index existed
+        void onNotIndexed();
+        void onError(String errorMessage);
+    }
+
+    public static synchronized AccessCodeIndex getInstance() {
+        if (instance == null) {
+            instance = new AccessCodeIndex();
+        }
+        return instance;
+    }
+
+    private AccessCodeIndex() {
+    }
+
+    /**
+     * Set up the default allocator unless one was set already. Safe to call more than once.
+     * @param context Any context; the application context is kept
+     */
+    public synchronized void init(Context context) {
+        if (allocator == null) {
+            allocator = new CounterAccessCodeAllocator(context, AccessCodeFormat.DEFAULT);
+        }
+    }
+
+    // Replace where new codes come from, e.g. to change their alphabet or length
+    public synchronized void setAllocator(AccessCodeAllocator allocator) {
+        this.allocator = allocator;
+    }
+
+    /**
+     * Reserve a new unique access code for a course or playlist
+     * @param type AccessCode.TYPE_COURSE or AccessCode.TYPE_PLAYLIST
+     * @param targetId Id of the course or playlist, reserved in advance
+     * @param ownerUid The user creating it
+     */
+    public void reserve(String type, String targetId, String ownerUid, ReserveCallback callback) {
+        reserve(type, targetId, ownerUid, callback, 0);
+    }
+
+    private void reserve(String type, String targetId, String ownerUid, ReserveCallback callback, int attempts) {
+        if (attempts >= MAX_ATTEMPTS) {
+            callback.onError("Failed to generate unique access code after " + attempts + " attempts");
+            return;
+        }
+        if (allocator == null) {
+            callback.onError("Access codes are not set up");
+            return;
+        }
+
+        allocator.allocate(new AccessCodeAllocator.AllocateCallback() {
+            @Override
+            public void onAllocated(String accessCode) {
+                claim(type, targetId, ownerUid, accessCode, callback, attempts);
+            }
+
+            @Override
+            public void onError(String errorMessage) {
+                callback.onError(errorMessage);
+            }
+        });
+    }
+
+    // Create the entry of an allocated code; only if it exists already is another code allocated
+    private void claim(String type, String targetId, String ownerUid, String accessCode,
+                       ReserveCallback callback, int attempts) {
+        DocumentReference codeRef = firestore.collection(AccessCode.COLLECTION).document(accessCode);
+        firestore.runTransaction(transaction -> {
+            if (transaction.get(codeRef).exists()) {
+                return false;
+            }
+            transaction.set(codeRef, new AccessCode(type, targetId, ownerUid));
+            return true;
+        }).addOnSuccessListener(created -> {
+            if (created) {
+                callback.onReserved(accessCode);
+            } else {
+                Log.w(TAG, "Allocator handed out a code already in use");
+                reserve(type, targetId, ownerUid, callback, attempts + 1);
+            }
+        }).addOnFailureListener(e -> callback.onError(e.getMessage()));
+    }
+
+    /**
+     * Hold a code reserved earlier for the same course or playlist again,
+     * e.g. when a failed upload is run once more. Its entry is created again
+     * if it was released meanwhile.
+     * @param type AccessCode.TYPE_COURSE or AccessCode.TYPE_PLAYLIST
+     * @param targetId Id of the course or playlist the code was reserved for
+     * @param ownerUid The user creating it
+     * @param accessCode The code reserved earlier
+     * @param callback Gets the same code, or a new one if the old one now opens something else
+     */
+    public void reclaim(String type, String targetId, String ownerUid, String accessCode, ReserveCallback callback) {
+        DocumentReference codeRef = firestore.collection(AccessCode.COLLECTION).document(accessCode);
+        firestore.runTransaction(transaction -> {
+            DocumentSnapshot existing = transaction.get(codeRef);
+            if (existing.exists()) {
+                return targetId.equals(existing.getString("targetId"));
+            }
+            transaction.set(codeRef, new AccessCode(type, targetId, ownerUid));
+            return true;
+        }).addOnSuccessListener(held -> {
+            if (held) {
+                callback.onReserved(accessCode);
+            } else {
+                reserve(type, targetId, ownerUid, callback);
+            }
+        }).addOnFailureListener(e -> callback.onError(e.getMessage()));
+    }
+
+    /**
+     * Find what an access code opens
+     * @param accessCode The code the user entered
+     * @param type AccessCode.TYPE_COURSE or AccessCode.TYPE_PLAYLIST
+     */
+    public void resolve(String accessCode, String type, ResolveCallback callback) {
+        // Document ids can't contain slashes, and nothing a user types should become a path
+        if (accessCode == null || accessCode.isEmpty() || accessCode.contains("/")) {
+            callback.onResolved(null);
+            return;
+        }
+
+        firestore.collection(AccessCode.COLLECTION)
+                .document(accessCode)
+                .get()
+                .addOnCompleteListener(task -> {
+                    if (!task.isSuccessful()) {
+                        callback.onError(task.getException().getMessage());
+                        return;
+                    }
+                    DocumentSnapshot document = task.getResult();
+                    if (!document.exists()) {
+                        callback.onNotIndexed();
+                        return;
+                    }
+                    AccessCode entry = document.toObject(AccessCode.class);
+                    callback.onResolved(type.equals(entry.getType()) ? entry.getTargetId() : null);
+                });
+    }
+
+    // Free a code as part of the batch that deletes its course or playlist
+    public void release(WriteBatch batch, String accessCode) {
+        if (accessCode != null && !accessCode.isEmpty()) {
+            batch.delete(firestore.collection(AccessCode.COLLECTION).document(accessCode));
+        }
+    }
+
+    // Free a code whose course or playlist was never created. Best effort.
+    public void release(String accessCode) {
+        if (accessCode == null || accessCode.isEmpty()) {
+            return;
+        }
+        firestore.collection(AccessCode.COLLECTION)
+                .document(accessCode)
+                .delete()
+                .addOnFailureListener(e -> Log.w(TAG, "Could not release access code: " + e.getMessage()));
+    }
+}
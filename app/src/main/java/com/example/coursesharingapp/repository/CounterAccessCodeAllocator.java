@@ -0,0 +1,142 @@
+package com.example.coursesharingapp.repository;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import com.example.coursesharingapp.util.AccessCodeFormat;
+import com.example.coursesharingapp.util.FeistelPermutation;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Allocates access codes from a counter shared by all clients at
+ * accessCodeCounters/{format id}. A client reserves a block of counter
+ * values with one transaction and hands them out locally, so most codes
+ * cost no round trip at all and none costs a uniqueness query.
+ *
+ * Each value is run through a {@link FeistelPermutation} before being
+ * encoded, so consecutive values give unrelated-looking index parts while
+ * two values never give the same one. The permutation is public and only
+ * cosmetic: the counter document holds nothing but the next value, and what
+ * keeps a code from being guessed is its random secret part, which never
+ * leaves this device except inside the code itself. What is left of a block
+ * is kept in preferences and used after a restart.
+ */
+public class CounterAccessCodeAllocator implements AccessCodeAllocator {
+
+    public static final String COUNTERS_COLLECTION = "accessCodeCounters";
+
+    // Values reserved per transaction; a block lost with the app's data only wastes this many codes
+    private static final int BLOCK_SIZE = 20;
+
+    private static final String PREF_NAME = "access_code_allocator";
+
+    // Fixed so every client permutes alike; not a secret, see the class comment
+    private static final long PERMUTATION_KEY = 0x5DEECE66DL;
+
+    private final FirebaseFirestore firestore = FirebaseFirestore.getInstance();
+    private final AccessCodeFormat format;
+    private final SharedPreferences prefs;
+    private final FeistelPermutation permutation;
+    private final SecureRandom secretSource = new SecureRandom();
+
+    // Remaining block [next, end)
+    private long next;
+    private long end;
+
+    // Callers waiting for a block to be reserved
+    private final List<AllocateCallback> waiting = new ArrayList<>();
+    private boolean reserving = false;
+
+    /**
+     * @param context Any context; the application context is kept
+     * @param format Alphabet and length of the codes
+     */
+    public CounterAccessCodeAllocator(Context context, AccessCodeFormat format) {
+        this.format = format;
+        this.prefs = context.getApplicationContext().getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
+        this.permutation = new FeistelPermutation(format.size(), PERMUTATION_KEY);
+        loadBlock();
+    }
+
+    @Override
+    public void allocate(AllocateCallback callback) {
+        if (next < end) {
+            long value = next++;
+            saveBlock();
+            callback.onAllocated(format.encode(permutation.permute(value), secretSource));
+            return;
+        }
+
+        waiting.add(callback);
+        if (!reserving) {
+            reserveBlock();
+        }
+    }
+
+    // Move the shared counter past a block of values, creating the counter the first time
+    private void reserveBlock() {
+        reserving = true;
+        DocumentReference counterRef = firestore.collection(COUNTERS_COLLECTION).document(format.getId());
+
+        firestore.runTransaction(transaction -> {
+            DocumentSnapshot counter = transaction.get(counterRef);
+            Long stored = counter.exists() ? counter.getLong("next") : null;
+            long start = stored != null ? stored : 0;
+            if (start >= format.size()) {
+                throw new FirebaseFirestoreException("No access codes left",
+                        FirebaseFirestoreException.Code.RESOURCE_EXHAUSTED);
+            }
+
+            long blockEnd = Math.min(start + BLOCK_SIZE, format.size());
+            Map<String, Object> updated = new HashMap<>();
+            updated.put("next", blockEnd);
+            transaction.set(counterRef, updated);
+            return new long[]{start, blockEnd};
+        }).addOnSuccessListener(block -> {
+            reserving = false;
+            next = block[0];
+            end = block[1];
+            saveBlock();
+
+            // Serve the waiting callers; any beyond the block reserve the next one
+            List<AllocateCallback> callbacks = new ArrayList<>(waiting);
+            waiting.clear();
+            for (AllocateCallback callback : callbacks) {
+                allocate(callback);
+            }
+        }).addOnFailureListener(e -> {
+            reserving = false;
+            List<AllocateCallback> callbacks = new ArrayList<>(waiting);
+            waiting.clear();
+            for (AllocateCallback callback : callbacks) {
+                callback.onError(e.getMessage());
+            }
+        });
+    }
+
+    private void loadBlock() {
+        String prefix = format.getId() + "_";
+        next = prefs.getLong(prefix + "next", 0);
+        end = prefs.getLong(prefix + "end", 0);
+    }
+
+    // Saved before a code is handed out. Written to disk in the background, so a process killed
+    // right after may hand out an index again on restart; its secret part still differs, and
+    // AccessCodeIndex never overwrites an existing entry.
+    private void saveBlock() {
+        String prefix = format.getId() + "_";
+        prefs.edit()
+                .putLong(prefix + "next", next)
+                .putLong(prefix + "end", end)
+                .apply();
+    }
+}
@@ -0,0 +1,206 @@
+package com.example.coursesharingapp.repository;
+
+import android.os.SystemClock;
+
+import com.example.coursesharingapp.model.Course;
+import com.google.firebase.firestore.SnapshotMetadata;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Process-wide LRU cache of course documents shared by every CourseRepository
+ * instance. Bounded both by entry count and by an estimate of retained bytes,
+ * with a time-to-live on each entry.
+ *
+ * Entries are private copies: put stores a copy and get hands out a fresh
+ * one, so a caller that edits the course it got can't change what other
+ * screens read, or make a list diff compare a course against itself.
+ */
+public class CourseCache {
+
+    // Default bounds
+    private static final int DEFAULT_MAX_ENTRIES = 500;
+    private static final long DEFAULT_MAX_BYTES = 2L * 1024 * 1024; // 2MB
+
+    // Documents confirmed by the server live longer than ones served from Firestore's local cache
+    private static final long SERVER_TTL_MS = 5 * 60 * 1000; // 5 minutes
+    private static final long LOCAL_TTL_MS = 30 * 1000; // 30 seconds
+
+    // Rough fixed overhead of a Course object and its map entry
+    private static final int ENTRY_OVERHEAD_BYTES = 160;
+
+    private static CourseCache instance;
+
+    private final int maxEntries;
+    private final long maxBytes;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long currentBytes;
+
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    private static class Entry {
+        final Course course;
+        final long sizeBytes;
+        final long expiresAt;
+
+        Entry(Course course, long sizeBytes, long expiresAt) {
+            this.course = course;
+            this.sizeBytes = sizeBytes;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    public static synchronized CourseCache getInstance() {
+        if (instance == null) {
+            instance = new CourseCache(DEFAULT_MAX_ENTRIES, DEFAULT_MAX_BYTES);
+        }
+        return instance;
+    }
+
+    CourseCache(int maxEntries, long maxBytes) {
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Get a cached course
+     * @param courseId The course document id
+     * @return A copy of the cached course, or null if absent or expired
+     */
+    public synchronized Course get(String courseId) {
+        Entry entry = entries.get(courseId);
+        if (entry == null) {
+            missCount++;
+            return null;
+        }
+        if (entry.expiresAt <= SystemClock.elapsedRealtime()) {
+            removeEntry(courseId);
+            missCount++;
+            return null;
+        }
+        hitCount++;
+        return new Course(entry.course);
+    }
+
+    /**
+     * Cache a course read from Firestore
+     * @param course The course, with its id set
+     * @param metadata Snapshot metadata of the document the course was read from
+     */
+    public synchronized void put(Course course, SnapshotMetadata metadata) {
+        if (course == null || course.getId() == null) {
+            return;
+        }
+        // Local writes that the server hasn't acknowledged yet may still be rejected
+        if (metadata != null && metadata.hasPendingWrites()) {
+            return;
+        }
+
+        Entry existing = entries.get(course.getId());
+        boolean fromServer = metadata == null || !metadata.isFromCache();
+        long now = SystemClock.elapsedRealtime();
+        long expiresAt = now + (fromServer ? SERVER_TTL_MS : LOCAL_TTL_MS);
+
+        // Don't let a stale local copy replace a fresher server copy
+        if (!fromServer && existing != null && existing.expiresAt > expiresAt) {
+            return;
+        }
+
+        removeEntry(course.getId());
+        Entry entry = new Entry(new Course(course), estimateSize(course), expiresAt);
+        entries.put(course.getId(), entry);
+        currentBytes += entry.sizeBytes;
+        trimToSize();
+    }
+
+    /**
+     * Drop a course from the cache, e.g. after it was edited or deleted
+     * @param courseId The course document id
+     */
+    public synchronized void invalidate(String courseId) {
+        if (courseId != null) {
+            removeEntry(courseId);
+        }
+    }
+
+    /**
+     * Drop all cached courses
+     */
+    public synchronized void clear() {
+        entries.clear();
+        currentBytes = 0;
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long sizeInBytes() {
+        return currentBytes;
+    }
+
+    private void removeEntry(String courseId) {
+        Entry removed = entries.remove(courseId);
+        if (removed != null) {
+            currentBytes -= removed.sizeBytes;
+        }
+    }
+
+    // Evict least recently used entries until both bounds are respected
+    private void trimToSize() {
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while ((entries.size() > maxEntries || currentBytes > maxBytes) && iterator.hasNext()) {
+            Entry eldest = iterator.next().getValue();
+            iterator.remove();
+            currentBytes -= eldest.sizeBytes;
+            evictionCount++;
+        }
+    }
+
+    // Estimate retained size from the string fields, which dominate a Course
+    private static long estimateSize(Course course) {
+        long chars = length(course.getId())
+                + length(course.getTitle())
+                + length(course.getShortDescription())
+                + length(course.getLongDescription())
+                + length(course.getUploaderUid())
+                + length(course.getUploaderUsername())
+                + length(course.getThumbnailUrl())
+                + length(course.getThumbnailPlaceholder())
+                + length(course.getVideoUrl())
+                + length(course.getHlsManifestUrl())
+                + length(course.getCategory())
+                + length(course.getAccessCode());
+        if (course.getSearchTokens() != null) {
+            for (String token : course.getSearchTokens()) {
+                chars += length(token);
+            }
+        }
+        if (course.getThumbnailVariants() != null) {
+            for (Map.Entry<String, String> variant : course.getThumbnailVariants().entrySet()) {
+                chars += length(variant.getKey()) + length(variant.getValue());
+            }
+        }
+        return ENTRY_OVERHEAD_BYTES + chars * 2;
+    }
+
+    private static int length(String value) {
+        return value != null ? value.length() : 0;
+    }
+}
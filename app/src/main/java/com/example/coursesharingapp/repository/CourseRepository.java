@@ -3,32 +3,98 @@ package com.example.coursesharingapp.repository;
 import android.net.Uri;
 import android.util.Log;
 
+import com.example.coursesharingapp.model.AccessCode;
 import com.example.coursesharingapp.model.Course;
 import com.example.coursesharingapp.model.SavedCourse;
+import com.example.coursesharingapp.model.Tombstone;
+import com.example.coursesharingapp.packaging.HlsPlaylistWriter;
+import com.example.coursesharingapp.packaging.VideoPackager;
+import com.example.coursesharingapp.util.AccessCodeFormat;
+import com.example.coursesharingapp.util.ListChange;
+import com.example.coursesharingapp.util.SearchTokenizer;
+import com.example.coursesharingapp.util.ThumbnailProcessor;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
+import com.google.firebase.firestore.DocumentChange;
 import com.google.firebase.firestore.DocumentReference;
 import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FieldValue;
 import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.ListenerRegistration;
 import com.google.firebase.firestore.Query;
 import com.google.firebase.firestore.QueryDocumentSnapshot;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.WriteBatch;
 import com.google.firebase.storage.FirebaseStorage;
+import com.google.firebase.storage.StorageMetadata;
 import com.google.firebase.storage.StorageReference;
-import com.google.firebase.storage.UploadTask;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 public class CourseRepository {
     private static final String TAG = "CourseRepository";
     private final FirebaseFirestore firestore;
     private final FirebaseStorage storage;
+    private final CourseCache courseCache;
+    private final AccessCodeIndex accessCodeIndex;
+    private final LocalStore localStore;
+    private final SavedStateStore savedStateStore;
+    private final ResumableUploader resumableUploader;
+    private final ThumbnailProcessor thumbnailProcessor;
 
     // Define the maximum file size: 5GB in bytes
     private static final long MAX_FILE_SIZE = 5L * 1024 * 1024 * 1024; // 5GB
 
+    // Maximum number of values Firestore accepts in a single whereIn filter
+    private static final int WHERE_IN_CHUNK_SIZE = 30;
+
+    // Maximum number of results returned for a single search
+    public static final int SEARCH_RESULT_LIMIT = 100;
+
+    // Default number of courses per page for the paged feeds
+    public static final int DEFAULT_PAGE_SIZE = 20;
+
+    // Stay under Firestore's 500 writes per batch
+    private static final int BACKFILL_BATCH_SIZE = 400;
+
+    // Users whose courses were given search tokens since the app started; main thread only
+    private static final Set<String> searchTokenBackfills = new HashSet<>();
+
     public CourseRepository() {
         firestore = FirebaseFirestore.getInstance();
         storage = FirebaseStorage.getInstance();
+        courseCache = CourseCache.getInstance();
+        accessCodeIndex = AccessCodeIndex.getInstance();
+        localStore = LocalStore.getInstance();
+        savedStateStore = SavedStateStore.getInstance();
+        resumableUploader = ResumableUploader.getInstance();
+        thumbnailProcessor = ThumbnailProcessor.getInstance();
+    }
+
+    // Shared course cache, exposed for hit/miss/eviction counters
+    public CourseCache getCourseCache() {
+        return courseCache;
+    }
+
+    // Map a course document to a Course and remember it in the shared cache and the on-disk mirror
+    private Course toCachedCourse(DocumentSnapshot document) {
+        Course course = document.toObject(Course.class);
+        course.setId(document.getId());
+        courseCache.put(course, document.getMetadata());
+        localStore.putCourse(course);
+        return course;
     }
 
     public interface CourseCallback {
@@ -41,6 +107,36 @@ public class CourseRepository {
         void onError(String errorMessage);
     }
 
+    public interface SearchCallback {
+        // complete is false when the lookup hit SEARCH_RESULT_LIMIT, so matches may be missing
+        void onCoursesLoaded(List<Course> courses, boolean complete);
+        void onError(String errorMessage);
+    }
+
+    public interface OrderedCoursesCallback {
+        void onCoursesLoaded(List<Course> courses, List<String> missingCourseIds);
+        void onError(String errorMessage);
+    }
+
+    public interface CoursePageCallback {
+        // lastDocument is the cursor to pass as startAfter for the next page
+        void onPageLoaded(List<Course> courses, DocumentSnapshot lastDocument, boolean hasMore);
+        void onError(String errorMessage);
+    }
+
+    public interface CourseChangesCallback {
+        // The full list, delivered once when the listener starts
+        void onCoursesLoaded(List<Course> courses, boolean hasMore);
+        // Only what changed since the previous delivery, in the order to apply it
+        void onCoursesChanged(List<ListChange<Course>> changes, boolean hasMore);
+        void onError(String errorMessage);
+    }
+
+    public interface CourseFeedCallback extends CourseChangesCallback {
+        // Last document of the listened head, the cursor older pages start after; null if the head is empty
+        void onHeadEnd(DocumentSnapshot lastDocument);
+    }
+
     public interface SingleCourseCallback {
         void onCourseLoaded(Course course);
         void onError(String errorMessage);
@@ -50,6 +146,10 @@ public class CourseRepository {
         void onProgress(int progress);
         void onSuccess(String downloadUrl);
         void onError(String errorMessage);
+
+        // Exact byte counts, for callers that weigh several uploads against each other
+        default void onBytesTransferred(long bytesTransferred, long totalBytes) {
+        }
     }
 
     public interface IsCourseBookmarkedCallback {
@@ -70,52 +170,129 @@ public class CourseRepository {
         void onVideoComplete();
         void onSuccess();
         void onError(String errorMessage);
+
+        // Combined progress of all files being uploaded, weighted by their size
+        default void onOverallProgress(int progress, long bytesTransferred, long totalBytes) {
+        }
+
+        // A private course's access code is held, before any file is uploaded
+        default void onAccessCodeReserved(String accessCode) {
+        }
     }
 
-    public interface EditProgressCallback {
-        void onThumbnailProgress(int progress);
-        void onVideoProgress(int progress);
-        void onThumbnailComplete();
-        void onVideoComplete();
-        void onSuccess();
+    public interface EditProgressCallback extends UploadProgressCallback {
+    }
+
+    /**
+     * A course's files being uploaded, which can be stopped so that running
+     * the same upload again later resumes them instead of sending them twice.
+     */
+    public static class CourseUpload {
+        private boolean stopped;
+        private final List<ResumableUploader.Transfer> transfers = new ArrayList<>();
+
+        /**
+         * Stop the upload. No further callbacks are made. Call on the main thread.
+         * @param onStopped Run on the main thread once no file is being sent any more
+         */
+        public void stop(Runnable onStopped) {
+            stopped = true;
+            if (transfers.isEmpty()) {
+                onStopped.run();
+                return;
+            }
+            int[] pending = {transfers.size()};
+            for (ResumableUploader.Transfer transfer : transfers) {
+                transfer.stop(() -> {
+                    pending[0]--;
+                    if (pending[0] == 0) {
+                        onStopped.run();
+                    }
+                });
+            }
+        }
+    }
+
+    // A thumbnail stored in every size; variantUrls maps pixel width to download URL
+    private static class UploadedThumbnail {
+        final Map<String, String> variantUrls;
+        final String placeholderHash;
+        final double aspectRatio;
+
+        UploadedThumbnail(Map<String, String> variantUrls, String placeholderHash, double aspectRatio) {
+            this.variantUrls = variantUrls;
+            this.placeholderHash = placeholderHash;
+            this.aspectRatio = aspectRatio;
+        }
+    }
+
+    private interface ThumbnailUploadCallback {
+        void onSuccess(UploadedThumbnail thumbnail);
+        void onError(String errorMessage);
+
+        default void onBytesTransferred(long bytesTransferred, long totalBytes) {
+        }
+    }
+
+    // Result of uploading a course's files; a result is null if that file wasn't uploaded
+    private interface CourseFilesCallback {
+        void onFilesUploaded(UploadedThumbnail thumbnail, String videoUrl);
         void onError(String errorMessage);
     }
 
-    // Get all PUBLIC courses only (no filter)
-    public void getAllCourses(CoursesCallback callback) {
-        firestore.collection("courses")
+    // Get one page of PUBLIC courses, starting after the given cursor (null for the first page)
+    public void getAllCoursesPage(DocumentSnapshot startAfter, int pageSize, CoursePageCallback callback) {
+        Query query = firestore.collection("courses")
                 .whereEqualTo("private", false) // Only get public courses
-                .orderBy("createdAt", Query.Direction.DESCENDING)
+                .orderBy("createdAt", Query.Direction.DESCENDING);
+        loadCoursePage(query, startAfter, pageSize, callback);
+    }
+
+    // Get one page of PUBLIC courses in a category, starting after the given cursor (null for the first page)
+    public void getCoursesByCategoryPage(String category, DocumentSnapshot startAfter, int pageSize,
+                                         CoursePageCallback callback) {
+        Query query = firestore.collection("courses")
+                .whereEqualTo("category", category)
+                .whereEqualTo("private", false) // Only get public courses
+                .orderBy("createdAt", Query.Direction.DESCENDING);
+        loadCoursePage(query, startAfter, pageSize, callback);
+    }
+
+    private void loadCoursePage(Query query, DocumentSnapshot startAfter, int pageSize, CoursePageCallback callback) {
+        if (startAfter != null) {
+            query = query.startAfter(startAfter);
+        }
+
+        query.limit(pageSize)
                 .get()
                 .addOnCompleteListener(task -> {
                     if (task.isSuccessful()) {
                         List<Course> courses = new ArrayList<>();
+                        DocumentSnapshot lastDocument = startAfter;
                         for (QueryDocumentSnapshot document : task.getResult()) {
-                            Course course = document.toObject(Course.class);
-                            course.setId(document.getId());
-                            courses.add(course);
+                            courses.add(toCachedCourse(document));
+                            lastDocument = document;
                         }
-                        callback.onCoursesLoaded(courses);
+                        // A short page means the end of the feed was reached
+                        boolean hasMore = courses.size() == pageSize;
+                        callback.onPageLoaded(courses, lastDocument, hasMore);
                     } else {
                         callback.onError(task.getException().getMessage());
                     }
                 });
     }
 
-    // Get PUBLIC courses by category
-    public void getCoursesByCategory(String category, CoursesCallback callback) {
+    // Get courses by uploader (my courses) - includes both public and private
+    public void getCoursesByUploader(String uploaderUid, CoursesCallback callback) {
         firestore.collection("courses")
-                .whereEqualTo("category", category)
-                .whereEqualTo("private", false) // Only get public courses
+                .whereEqualTo("uploaderUid", uploaderUid)
                 .orderBy("createdAt", Query.Direction.DESCENDING)
                 .get()
                 .addOnCompleteListener(task -> {
                     if (task.isSuccessful()) {
                         List<Course> courses = new ArrayList<>();
                         for (QueryDocumentSnapshot document : task.getResult()) {
-                            Course course = document.toObject(Course.class);
-                            course.setId(document.getId());
-                            courses.add(course);
+                            courses.add(toCachedCourse(document));
                         }
                         callback.onCoursesLoaded(courses);
                     } else {
@@ -124,48 +301,312 @@ public class CourseRepository {
                 });
     }
 
-    // Get courses by uploader (my courses) - includes both public and private
-    public void getCoursesByUploader(String uploaderUid, CoursesCallback callback) {
-        firestore.collection("courses")
+    // Newest PUBLIC courses from the on-disk mirror, to show while the live feed loads
+    public void getLocalCourses(String category, int limit, CoursesCallback callback) {
+        localStore.getCourses(category, limit, callback);
+    }
+
+    // Listen to the head of the PUBLIC course feed, optionally in one category (null for all). Without
+    // endAt that is the newest page. Once older pages are read with the page methods, pass the last
+    // course of the head as endAt: new courses then grow the head instead of pushing courses out of it
+    // into a gap before the first older page.
+    public ListenerRegistration listenToCourses(String category, DocumentSnapshot endAt,
+                                                CourseFeedCallback callback) {
+        Query query = firestore.collection("courses")
+                .whereEqualTo("private", false); // Only get public courses
+        if (category != null) {
+            query = query.whereEqualTo("category", category);
+        }
+        query = query.orderBy("createdAt", Query.Direction.DESCENDING);
+        int limit = endAt == null ? DEFAULT_PAGE_SIZE : Integer.MAX_VALUE;
+        query = endAt == null ? query.limit(limit) : query.endAt(endAt);
+
+        return listenToCourseQuery(query, limit, (snapshots, hasMore) -> {
+            // A cut-off result only speaks for the courses newer than its last one
+            long after = Long.MIN_VALUE;
+            if ((hasMore || endAt != null) && !snapshots.isEmpty()) {
+                DocumentSnapshot last = snapshots.getDocuments().get(snapshots.size() - 1);
+                after = last.toObject(Course.class).getCreatedAtMillis();
+            }
+            localStore.removeMissingPublicCourses(category, documentIds(snapshots), after);
+        }, snapshots -> callback.onHeadEnd(snapshots.isEmpty()
+                ? null : snapshots.getDocuments().get(snapshots.size() - 1)), callback);
+    }
+
+    // Listen to courses by uploader (my courses) - includes both public and private
+    public ListenerRegistration listenToCoursesByUploader(String uploaderUid, CourseChangesCallback callback) {
+        Query query = firestore.collection("courses")
                 .whereEqualTo("uploaderUid", uploaderUid)
-                .orderBy("createdAt", Query.Direction.DESCENDING)
+                .orderBy("createdAt", Query.Direction.DESCENDING);
+        return listenToCourseQuery(query, Integer.MAX_VALUE, (snapshots, hasMore) ->
+                localStore.removeMissingUploaderCourses(uploaderUid, documentIds(snapshots)), null, callback);
+    }
+
+    // Drops mirrored courses a listened query no longer returns
+    private interface MirrorReconciler {
+        void reconcile(QuerySnapshot snapshots, boolean hasMore);
+    }
+
+    // Sees every snapshot of a listened query before its courses are delivered
+    private interface SnapshotObserver {
+        void onSnapshot(QuerySnapshot snapshots);
+    }
+
+    // Deliver the first snapshot whole and every later one as its document changes only,
+    // so an update costs as much as what changed rather than the size of the list
+    private ListenerRegistration listenToCourseQuery(Query query, int limit, MirrorReconciler reconciler,
+                                                     SnapshotObserver observer, CourseChangesCallback callback) {
+        boolean[] firstSnapshot = {true};
+        boolean[] reconciled = {false};
+        return query.addSnapshotListener((snapshots, e) -> {
+            if (e != null) {
+                callback.onError(e.getMessage());
+                return;
+            }
+            // A full result means there may be more beyond the limit
+            boolean hasMore = snapshots.size() >= limit;
+
+            // Only the server knows what was deleted; cached snapshots may be missing courses
+            if (!snapshots.getMetadata().isFromCache() && (!reconciled[0] || hasRemovals(snapshots))) {
+                reconciled[0] = true;
+                reconciler.reconcile(snapshots, hasMore);
+            }
+            if (observer != null) {
+                observer.onSnapshot(snapshots);
+            }
+
+            if (firstSnapshot[0]) {
+                firstSnapshot[0] = false;
+                List<Course> courses = new ArrayList<>();
+                for (QueryDocumentSnapshot document : snapshots) {
+                    courses.add(toCachedCourse(document));
+                }
+                callback.onCoursesLoaded(courses, hasMore);
+                return;
+            }
+
+            List<ListChange<Course>> changes = new ArrayList<>();
+            for (DocumentChange change : snapshots.getDocumentChanges()) {
+                changes.add(toListChange(change));
+            }
+            if (!changes.isEmpty()) {
+                callback.onCoursesChanged(changes, hasMore);
+            }
+        });
+    }
+
+    private static boolean hasRemovals(QuerySnapshot snapshots) {
+        for (DocumentChange change : snapshots.getDocumentChanges()) {
+            if (change.getType() == DocumentChange.Type.REMOVED) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<String> documentIds(QuerySnapshot snapshots) {
+        List<String> ids = new ArrayList<>();
+        for (DocumentSnapshot document : snapshots.getDocuments()) {
+            ids.add(document.getId());
+        }
+        return ids;
+    }
+
+    private ListChange<Course> toListChange(DocumentChange change) {
+        switch (change.getType()) {
+            case ADDED:
+                return new ListChange<>(ListChange.Type.ADDED, toCachedCourse(change.getDocument()),
+                        -1, change.getNewIndex());
+            case MODIFIED:
+                return new ListChange<>(ListChange.Type.MODIFIED, toCachedCourse(change.getDocument()),
+                        change.getOldIndex(), change.getNewIndex());
+            case REMOVED:
+            default:
+                // Leaving the query (past the limit, made private) isn't a delete, so the cache keeps it
+                Course removed = change.getDocument().toObject(Course.class);
+                removed.setId(change.getDocument().getId());
+                return new ListChange<>(ListChange.Type.REMOVED, removed, change.getOldIndex(), -1);
+        }
+    }
+
+    // Search PUBLIC courses only by title, description, or uploader username.
+    // Uses the on-device index when it's ready, otherwise the server-side searchTokens index.
+    public void searchCourses(String query, SearchCallback callback) {
+        CourseSearchIndex searchIndex = CourseSearchIndex.getInstance();
+        if (!searchIndex.isReady()) {
+            searchCoursesRemote(query, callback);
+            return;
+        }
+
+        List<String> courseIds = searchIndex.search(query, SEARCH_RESULT_LIMIT);
+        getCoursesByIds(courseIds, new OrderedCoursesCallback() {
+            @Override
+            public void onCoursesLoaded(List<Course> courses, List<String> missingCourseIds) {
+                callback.onCoursesLoaded(courses, courseIds.size() < SEARCH_RESULT_LIMIT);
+            }
+
+            @Override
+            public void onError(String errorMessage) {
+                callback.onError(errorMessage);
+            }
+        });
+    }
+
+    // Matches word prefixes through the searchTokens field, so only matching documents are read.
+    // Firestore looks up the most selective word; the others are checked on the documents it returns.
+    private void searchCoursesRemote(String query, SearchCallback callback) {
+        List<String> tokens = SearchTokenizer.queryTokens(query);
+        if (tokens.isEmpty()) {
+            callback.onCoursesLoaded(new ArrayList<>(), true);
+            return;
+        }
+
+        // A longer prefix is shared by fewer words, so it matches fewer courses
+        String lookupToken = tokens.get(0);
+        for (String token : tokens) {
+            if (token.length() > lookupToken.length()) {
+                lookupToken = token;
+            }
+        }
+
+        firestore.collection("courses")
+                .whereEqualTo("private", false) // Only get public courses
+                .whereArrayContains("searchTokens", lookupToken)
+                .limit(SEARCH_RESULT_LIMIT)
                 .get()
                 .addOnCompleteListener(task -> {
                     if (task.isSuccessful()) {
-                        List<Course> courses = new ArrayList<>();
+                        List<Course> matches = new ArrayList<>();
+                        Map<String, Integer> scores = new HashMap<>();
                         for (QueryDocumentSnapshot document : task.getResult()) {
-                            Course course = document.toObject(Course.class);
-                            course.setId(document.getId());
-                            courses.add(course);
+                            Course course = toCachedCourse(document);
+                            // Every query word has to match some word of the course
+                            if (course.getSearchTokens() != null && course.getSearchTokens().containsAll(tokens)) {
+                                matches.add(course);
+                                scores.put(course.getId(), scoreSearchMatch(course, tokens));
+                            }
                         }
-                        callback.onCoursesLoaded(courses);
+
+                        // Best matches first, newest first among equal scores
+                        Collections.sort(matches, (a, b) -> {
+                            int byScore = Integer.compare(scores.get(b.getId()), scores.get(a.getId()));
+                            if (byScore != 0) {
+                                return byScore;
+                            }
+                            return Long.compare(b.getCreatedAtMillis(), a.getCreatedAtMillis());
+                        });
+                        // Whether the lookup was cut off, not how many survived the other words
+                        callback.onCoursesLoaded(matches, task.getResult().size() < SEARCH_RESULT_LIMIT);
                     } else {
                         callback.onError(task.getException().getMessage());
                     }
                 });
     }
 
-    // Search PUBLIC courses only by title, description, or uploader username
-    public void searchCourses(String query, CoursesCallback callback) {
-        // Get all public courses and filter client-side since Firestore doesn't support 'contains' queries
-        getAllCourses(new CoursesCallback() {
-            @Override
-            public void onCoursesLoaded(List<Course> allCourses) {
-                List<Course> filteredCourses = new ArrayList<>();
-                String lowercaseQuery = query.toLowerCase();
-
-                for (Course course : allCourses) {
-                    // Check if the query matches title, description, or uploader username
-                    if (course.getTitle().toLowerCase().contains(lowercaseQuery) ||
-                            (course.getShortDescription() != null &&
-                                    course.getShortDescription().toLowerCase().contains(lowercaseQuery)) ||
-                            (course.getUploaderUsername() != null &&
-                                    course.getUploaderUsername().toLowerCase().contains(lowercaseQuery))) {
-                        filteredCourses.add(course);
+    private int scoreSearchMatch(Course course, List<String> queryTokens) {
+        return SearchTokenizer.score(
+                SearchTokenizer.words(course.getTitle()),
+                SearchTokenizer.words(course.getUploaderUsername()),
+                SearchTokenizer.words(course.getShortDescription()),
+                queryTokens);
+    }
+
+    // Store the search index tokens on a course before it's written
+    private void indexForSearch(Course course) {
+        course.setSearchTokens(SearchTokenizer.prefixTokens(
+                course.getTitle(), course.getShortDescription(), course.getUploaderUsername()));
+    }
+
+    /**
+     * Give the signed-in user's courses written before search tokens existed
+     * their tokens, so the server-side search finds them. Only a course's
+     * uploader may write it, so each user's app migrates their own courses.
+     * Does nothing more once it has succeeded for a user since the app
+     * started. Call from the main thread.
+     */
+    public void backfillSearchTokens() {
+        FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
+        if (user == null || !searchTokenBackfills.add(user.getUid())) {
+            return;
+        }
+        String uid = user.getUid();
+
+        firestore.collection("courses")
+                .whereEqualTo("uploaderUid", uid)
+                .get()
+                .addOnSuccessListener(snapshots -> {
+                    WriteBatch batch = firestore.batch();
+                    int writes = 0;
+                    for (QueryDocumentSnapshot document : snapshots) {
+                        if (document.get("searchTokens") != null) {
+                            continue;
+                        }
+                        Course course = document.toObject(Course.class);
+                        // Not a content change, so updatedAt stays and nothing re-syncs it
+                        batch.update(document.getReference(), "searchTokens", SearchTokenizer.prefixTokens(
+                                course.getTitle(), course.getShortDescription(), course.getUploaderUsername()));
+                        writes++;
+                        if (writes == BACKFILL_BATCH_SIZE) {
+                            commitSearchTokenBackfill(batch, uid);
+                            batch = firestore.batch();
+                            writes = 0;
+                        }
                     }
+                    if (writes > 0) {
+                        commitSearchTokenBackfill(batch, uid);
+                    }
+                })
+                .addOnFailureListener(e -> {
+                    Log.w(TAG, "Could not read courses to index for search: " + e.getMessage());
+                    searchTokenBackfills.remove(uid);
+                });
+    }
+
+    // A failed batch is tried again the next time the backfill runs
+    private void commitSearchTokenBackfill(WriteBatch batch, String uid) {
+        batch.commit().addOnFailureListener(e -> {
+            Log.w(TAG, "Could not index courses for search: " + e.getMessage());
+            searchTokenBackfills.remove(uid);
+        });
+    }
+
+    // Validate access code for private course: one read of its index entry, then the course by id
+    public void validateCourseAccessCode(String accessCode, AccessCodeValidationCallback callback) {
+        accessCodeIndex.resolve(accessCode, AccessCode.TYPE_COURSE, new AccessCodeIndex.ResolveCallback() {
+            @Override
+            public void onResolved(String courseId) {
+                if (courseId == null) {
+                    callback.onValidationResult(false, null);
+                    return;
                 }
+                firestore.collection("courses")
+                        .document(courseId)
+                        .get()
+                        .addOnCompleteListener(task -> {
+                            if (!task.isSuccessful()) {
+                                callback.onError(task.getException().getMessage());
+                                return;
+                            }
+                            DocumentSnapshot document = task.getResult();
+                            if (!document.exists()) {
+                                callback.onValidationResult(false, null);
+                                return;
+                            }
+                            // The entry may outlive the course being made public or given a new code
+                            Course course = toCachedCourse(document);
+                            boolean isValid = course.isPrivate() && accessCode.equals(course.getAccessCode());
+                            callback.onValidationResult(isValid, isValid ? course : null);
+                        });
+            }
 
-                callback.onCoursesLoaded(filteredCourses);
+            @Override
+            public void onNotIndexed() {
+                // Only codes from before the index can be missing from it
+                if (AccessCodeFormat.isLegacy(accessCode)) {
+                    validateLegacyCourseAccessCode(accessCode, callback);
+                } else {
+                    callback.onValidationResult(false, null);
+                }
             }
 
             @Override
@@ -175,8 +616,8 @@ public class CourseRepository {
         });
     }
 
-    // Validate access code for private course
-    public void validateCourseAccessCode(String accessCode, AccessCodeValidationCallback callback) {
+    // Codes handed out before the access code index only live on the course document
+    private void validateLegacyCourseAccessCode(String accessCode, AccessCodeValidationCallback callback) {
         firestore.collection("courses")
                 .whereEqualTo("accessCode", accessCode)
                 .whereEqualTo("private", true)
@@ -186,9 +627,7 @@ public class CourseRepository {
                     if (task.isSuccessful()) {
                         if (!task.getResult().isEmpty()) {
                             DocumentSnapshot document = task.getResult().getDocuments().get(0);
-                            Course course = document.toObject(Course.class);
-                            course.setId(document.getId());
-                            callback.onValidationResult(true, course);
+                            callback.onValidationResult(true, toCachedCourse(document));
                         } else {
                             callback.onValidationResult(false, null);
                         }
@@ -199,6 +638,13 @@ public class CourseRepository {
     }
 
     public void getCourseById(String courseId, SingleCourseCallback callback) {
+        // Serve recently seen courses without a network read
+        Course cachedCourse = courseCache.get(courseId);
+        if (cachedCourse != null) {
+            callback.onCourseLoaded(cachedCourse);
+            return;
+        }
+
         firestore.collection("courses")
                 .document(courseId)
                 .get()
@@ -206,9 +652,7 @@ public class CourseRepository {
                     if (task.isSuccessful()) {
                         DocumentSnapshot document = task.getResult();
                         if (document.exists()) {
-                            Course course = document.toObject(Course.class);
-                            course.setId(document.getId());
-                            callback.onCourseLoaded(course);
+                            callback.onCourseLoaded(toCachedCourse(document));
                         } else {
                             callback.onError("Course not found");
                         }
@@ -221,13 +665,13 @@ public class CourseRepository {
     // Check if a course is bookmarked by a user
     public void isCourseSaved(String userId, String courseId, IsCourseBookmarkedCallback callback) {
         firestore.collection("savedCourses")
-                .whereEqualTo("userId", userId)
-                .whereEqualTo("courseId", courseId)
-                .limit(1)
+                .document(SavedCourse.documentId(userId, courseId))
                 .get()
                 .addOnCompleteListener(task -> {
                     if (task.isSuccessful()) {
-                        boolean isBookmarked = !task.getResult().isEmpty();
+                        // Bookmarks not yet moved to their deterministic id still count
+                        boolean isBookmarked = task.getResult().exists()
+                                || !savedStateStore.getLegacyCourseBookmarkIds(userId, courseId).isEmpty();
                         callback.onResult(isBookmarked);
                     } else {
                         callback.onError(task.getException().getMessage());
@@ -237,67 +681,59 @@ public class CourseRepository {
 
     // Save a course for a user
     public void saveCourse(String userId, String courseId, CourseCallback callback) {
-        // First check if it's already saved
-        isCourseSaved(userId, courseId, new IsCourseBookmarkedCallback() {
-            @Override
-            public void onResult(boolean isBookmarked) {
-                if (isBookmarked) {
-                    // Already saved, just return success
+        // The document id is derived from user and course, so saving again just rewrites the same bookmark
+        firestore.collection("savedCourses")
+                .document(SavedCourse.documentId(userId, courseId))
+                .set(new SavedCourse(userId, courseId))
+                .addOnSuccessListener(aVoid -> {
                     callback.onSuccess();
-                    return;
-                }
-
-                // Create a new SavedCourse object
-                SavedCourse savedCourse = new SavedCourse(userId, courseId);
-
-                // Add to Firestore
-                firestore.collection("savedCourses")
-                        .add(savedCourse)
-                        .addOnSuccessListener(documentReference -> {
-                            callback.onSuccess();
-                        })
-                        .addOnFailureListener(e -> {
-                            callback.onError(e.getMessage());
-                        });
-            }
-
-            @Override
-            public void onError(String errorMessage) {
-                callback.onError(errorMessage);
-            }
-        });
+                })
+                .addOnFailureListener(e -> {
+                    callback.onError(e.getMessage());
+                });
     }
 
     // Unsave a course for a user
     public void unsaveCourse(String userId, String courseId, CourseCallback callback) {
+        if (savedStateStore.hasLoadedCourses(userId)) {
+            deleteCourseBookmarks(userId, courseId, savedStateStore.getLegacyCourseBookmarkIds(userId, courseId),
+                    callback);
+            return;
+        }
+
+        // The store hasn't read the user's bookmarks yet, so look up any the migration hasn't reached
         firestore.collection("savedCourses")
                 .whereEqualTo("userId", userId)
                 .whereEqualTo("courseId", courseId)
                 .get()
-                .addOnCompleteListener(task -> {
-                    if (task.isSuccessful()) {
-                        if (task.getResult().isEmpty()) {
-                            // Not saved, just return success
-                            callback.onSuccess();
-                            return;
+                .addOnSuccessListener(snapshots -> {
+                    List<String> legacyIds = new ArrayList<>();
+                    for (DocumentSnapshot document : snapshots.getDocuments()) {
+                        if (!document.getId().equals(SavedCourse.documentId(userId, courseId))) {
+                            legacyIds.add(document.getId());
                         }
-
-                        // Get the SavedCourse document ID
-                        String savedCourseId = task.getResult().getDocuments().get(0).getId();
-
-                        // Delete from Firestore
-                        firestore.collection("savedCourses")
-                                .document(savedCourseId)
-                                .delete()
-                                .addOnSuccessListener(aVoid -> {
-                                    callback.onSuccess();
-                                })
-                                .addOnFailureListener(e -> {
-                                    callback.onError(e.getMessage());
-                                });
-                    } else {
-                        callback.onError(task.getException().getMessage());
                     }
+                    deleteCourseBookmarks(userId, courseId, legacyIds, callback);
+                })
+                .addOnFailureListener(e -> callback.onError(e.getMessage()));
+    }
+
+    // Delete a course's bookmark and the random-id ones the migration hasn't reached yet
+    private void deleteCourseBookmarks(String userId, String courseId, List<String> legacyIds,
+                                       CourseCallback callback) {
+        WriteBatch batch = firestore.batch();
+        batch.delete(firestore.collection("savedCourses").document(SavedCourse.documentId(userId, courseId)));
+        for (String legacyId : legacyIds) {
+            batch.delete(firestore.collection("savedCourses").document(legacyId));
+        }
+
+        // Deleting a missing document succeeds, so unsaving twice is harmless
+        batch.commit()
+                .addOnSuccessListener(aVoid -> {
+                    callback.onSuccess();
+                })
+                .addOnFailureListener(e -> {
+                    callback.onError(e.getMessage());
                 });
     }
 
@@ -324,56 +760,127 @@ public class CourseRepository {
                             }
                         }
 
-                        // Now fetch all these courses
-                        List<Course> savedCourses = new ArrayList<>();
-                        final int[] pendingRequests = {courseIds.size()};
-
-                        for (String courseId : courseIds) {
-                            getCourseById(courseId, new SingleCourseCallback() {
-                                @Override
-                                public void onCourseLoaded(Course course) {
-                                    savedCourses.add(course);
-                                    pendingRequests[0]--;
-                                    checkComplete();
-                                }
-
-                                @Override
-                                public void onError(String errorMessage) {
-                                    // Just log error and continue
-                                    Log.e(TAG, "Error loading course: " + errorMessage);
-                                    pendingRequests[0]--;
-                                    checkComplete();
-                                }
-
-                                private void checkComplete() {
-                                    if (pendingRequests[0] == 0) {
-                                        callback.onCoursesLoaded(savedCourses);
-                                    }
-                                }
-                            });
-                        }
+                        // Now fetch all these courses in chunks, keeping savedAt order
+                        getCoursesByIds(courseIds, new OrderedCoursesCallback() {
+                            @Override
+                            public void onCoursesLoaded(List<Course> courses, List<String> missingCourseIds) {
+                                callback.onCoursesLoaded(courses);
+                            }
+
+                            @Override
+                            public void onError(String errorMessage) {
+                                callback.onError(errorMessage);
+                            }
+                        });
                     } else {
                         callback.onError(task.getException().getMessage());
                     }
                 });
     }
 
+    // Saved courses from the on-disk mirror, to show while getSavedCourses loads
+    public void getLocalSavedCourses(String userId, CoursesCallback callback) {
+        localStore.getSavedCourses(userId, callback);
+    }
+
+    // Get courses by id in the given order with at most one round trip per chunk of ids.
+    // Ids whose documents no longer exist are reported separately so callers can prune them.
+    public void getCoursesByIds(List<String> courseIds, OrderedCoursesCallback callback) {
+        // Drop duplicates and blanks since whereIn rejects them
+        List<String> uniqueIds = new ArrayList<>();
+        if (courseIds != null) {
+            for (String courseId : new LinkedHashSet<>(courseIds)) {
+                if (courseId != null && !courseId.isEmpty()) {
+                    uniqueIds.add(courseId);
+                }
+            }
+        }
+
+        // Only query courses that aren't already cached
+        Map<String, Course> coursesById = new HashMap<>();
+        List<String> uncachedIds = new ArrayList<>();
+        for (String courseId : uniqueIds) {
+            Course cachedCourse = courseCache.get(courseId);
+            if (cachedCourse != null) {
+                coursesById.put(courseId, cachedCourse);
+            } else {
+                uncachedIds.add(courseId);
+            }
+        }
+
+        if (uncachedIds.isEmpty()) {
+            List<Course> courses = new ArrayList<>();
+            for (String courseId : uniqueIds) {
+                courses.add(coursesById.get(courseId));
+            }
+            callback.onCoursesLoaded(courses, new ArrayList<>());
+            return;
+        }
+
+        // Run all chunk queries concurrently
+        List<List<String>> chunks = new ArrayList<>();
+        List<Task<QuerySnapshot>> chunkTasks = new ArrayList<>();
+        for (int start = 0; start < uncachedIds.size(); start += WHERE_IN_CHUNK_SIZE) {
+            List<String> chunk = new ArrayList<>(
+                    uncachedIds.subList(start, Math.min(start + WHERE_IN_CHUNK_SIZE, uncachedIds.size())));
+            chunks.add(chunk);
+            chunkTasks.add(firestore.collection("courses")
+                    .whereIn(FieldPath.documentId(), chunk)
+                    .get());
+        }
+
+        Tasks.whenAllComplete(chunkTasks).addOnCompleteListener(allTask -> {
+            Set<String> resolvedIds = new HashSet<>(coursesById.keySet());
+            String lastError = null;
+
+            for (int i = 0; i < chunkTasks.size(); i++) {
+                Task<QuerySnapshot> chunkTask = chunkTasks.get(i);
+                if (!chunkTask.isSuccessful()) {
+                    // Just log error and continue with the other chunks
+                    lastError = chunkTask.getException().getMessage();
+                    Log.e(TAG, "Error loading courses: " + lastError);
+                    continue;
+                }
+                // Only ids from chunks that actually came back can be reported as missing
+                resolvedIds.addAll(chunks.get(i));
+                for (QueryDocumentSnapshot document : chunkTask.getResult()) {
+                    coursesById.put(document.getId(), toCachedCourse(document));
+                }
+            }
+
+            if (resolvedIds.isEmpty()) {
+                callback.onError(lastError);
+                return;
+            }
+
+            // Rebuild the list in the requested order
+            List<Course> courses = new ArrayList<>();
+            List<String> missingCourseIds = new ArrayList<>();
+            for (String courseId : uniqueIds) {
+                Course course = coursesById.get(courseId);
+                if (course != null) {
+                    courses.add(course);
+                } else if (resolvedIds.contains(courseId)) {
+                    missingCourseIds.add(courseId);
+                }
+            }
+            callback.onCoursesLoaded(courses, missingCourseIds);
+        });
+    }
+
     // Original createCourse method - kept for backward compatibility
     public void createCourse(Course course, Uri thumbnailUri, Uri videoUri, CourseCallback callback) {
-        // First, add the course to Firestore
-        DocumentReference courseRef = firestore.collection("courses").document();
+        // First, add the course to Firestore; queued uploads reserve their id in advance
+        DocumentReference courseRef = course.getId() != null
+                ? firestore.collection("courses").document(course.getId())
+                : firestore.collection("courses").document();
         course.setId(courseRef.getId());
 
         // Upload thumbnail and video
-        uploadThumbnail(course.getId(), thumbnailUri, new UploadCallback() {
-            @Override
-            public void onProgress(int progress) {
-                // Handle thumbnail upload progress
-            }
-
+        uploadThumbnail(course.getId(), thumbnailUri, new ThumbnailUploadCallback() {
             @Override
-            public void onSuccess(String thumbnailUrl) {
-                course.setThumbnailUrl(thumbnailUrl);
+            public void onSuccess(UploadedThumbnail thumbnail) {
+                applyThumbnail(course, thumbnail);
 
                 uploadVideo(course.getId(), videoUri, new UploadCallback() {
                     @Override
@@ -384,6 +891,8 @@ public class CourseRepository {
                     @Override
                     public void onSuccess(String videoUrl) {
                         course.setVideoUrl(videoUrl);
+                        indexForSearch(course);
+                        course.setUpdatedAt(null); // Stamped by the server
 
                         // Save course with URLs to Firestore
                         courseRef.set(course)
@@ -415,15 +924,10 @@ public class CourseRepository {
 
         // Check if there are new files to upload
         if (thumbnailUri != null && videoUri != null) {
-            uploadThumbnail(course.getId(), thumbnailUri, new UploadCallback() {
-                @Override
-                public void onProgress(int progress) {
-                    // Handle thumbnail upload progress
-                }
-
+            uploadThumbnail(course.getId(), thumbnailUri, new ThumbnailUploadCallback() {
                 @Override
-                public void onSuccess(String thumbnailUrl) {
-                    course.setThumbnailUrl(thumbnailUrl);
+                public void onSuccess(UploadedThumbnail thumbnail) {
+                    applyThumbnail(course, thumbnail);
 
                     uploadVideo(course.getId(), videoUri, new UploadCallback() {
                         @Override
@@ -434,6 +938,7 @@ public class CourseRepository {
                         @Override
                         public void onSuccess(String videoUrl) {
                             course.setVideoUrl(videoUrl);
+                            course.setHlsManifestUrl(null);
                             updateCourseInFirestore(course, callback);
                         }
 
@@ -451,15 +956,10 @@ public class CourseRepository {
             });
         } else if (thumbnailUri != null) {
             // Upload only new thumbnail
-            uploadThumbnail(course.getId(), thumbnailUri, new UploadCallback() {
-                @Override
-                public void onProgress(int progress) {
-                    // Handle thumbnail upload progress
-                }
-
+            uploadThumbnail(course.getId(), thumbnailUri, new ThumbnailUploadCallback() {
                 @Override
-                public void onSuccess(String thumbnailUrl) {
-                    course.setThumbnailUrl(thumbnailUrl);
+                public void onSuccess(UploadedThumbnail thumbnail) {
+                    applyThumbnail(course, thumbnail);
                     updateCourseInFirestore(course, callback);
                 }
 
@@ -479,6 +979,7 @@ public class CourseRepository {
                 @Override
                 public void onSuccess(String videoUrl) {
                     course.setVideoUrl(videoUrl);
+                    course.setHlsManifestUrl(null);
                     updateCourseInFirestore(course, callback);
                 }
 
@@ -500,254 +1001,394 @@ public class CourseRepository {
             return;
         }
 
-        // Check if there are new files to upload
-        if (thumbnailUri != null && videoUri != null) {
-            uploadThumbnailWithProgress(course.getId(), thumbnailUri, new UploadCallback() {
-                @Override
-                public void onProgress(int progress) {
-                    callback.onThumbnailProgress(progress);
-                }
+        String previousThumbnailUrl = course.getThumbnailUrl();
+        Map<String, String> previousThumbnailVariants = course.getThumbnailVariants();
+        String previousThumbnailPlaceholder = course.getThumbnailPlaceholder();
+        double previousThumbnailAspectRatio = course.getThumbnailAspectRatio();
+        String previousVideoUrl = course.getVideoUrl();
+        String previousHlsManifestUrl = course.getHlsManifestUrl();
 
-                @Override
-                public void onSuccess(String thumbnailUrl) {
-                    callback.onThumbnailComplete();
-                    course.setThumbnailUrl(thumbnailUrl);
+        // Upload whichever files changed side by side, then save the course once
+        uploadCourseFiles(course.getId(), thumbnailUri, videoUri, newVideoPath(course.getId()), null, callback,
+                new CourseFilesCallback() {
+            @Override
+            public void onFilesUploaded(UploadedThumbnail thumbnail, String videoUrl) {
+                if (thumbnail != null) {
+                    applyThumbnail(course, thumbnail);
+                }
+                if (videoUrl != null) {
+                    course.setVideoUrl(videoUrl);
+                    // The old package plays the old video; a new one is made from the replacement
+                    course.setHlsManifestUrl(null);
+                }
 
-                    uploadVideoWithProgress(course.getId(), videoUri, new UploadCallback() {
-                        @Override
-                        public void onProgress(int progress) {
-                            callback.onVideoProgress(progress);
+                updateCourseInFirestore(course, new CourseCallback() {
+                    @Override
+                    public void onSuccess() {
+                        if (videoUrl != null) {
+                            deleteHlsPackage(previousHlsManifestUrl);
                         }
+                        callback.onSuccess();
+                    }
 
-                        @Override
-                        public void onSuccess(String videoUrl) {
-                            callback.onVideoComplete();
-                            course.setVideoUrl(videoUrl);
-                            updateCourseInFirestore(course, new CourseCallback() {
-                                @Override
-                                public void onSuccess() {
-                                    callback.onSuccess();
-                                }
-
-                                @Override
-                                public void onError(String errorMessage) {
-                                    callback.onError(errorMessage);
-                                }
-                            });
-                        }
+                    @Override
+                    public void onError(String errorMessage) {
+                        // Nothing references the new files, so don't leave them behind
+                        deleteOrphanedThumbnail(thumbnail);
+                        deleteOrphanedUpload(videoUrl);
+                        course.setThumbnailUrl(previousThumbnailUrl);
+                        course.setThumbnailVariants(previousThumbnailVariants);
+                        course.setThumbnailPlaceholder(previousThumbnailPlaceholder);
+                        course.setThumbnailAspectRatio(previousThumbnailAspectRatio);
+                        course.setVideoUrl(previousVideoUrl);
+                        course.setHlsManifestUrl(previousHlsManifestUrl);
+                        callback.onError(errorMessage);
+                    }
+                });
+            }
 
-                        @Override
-                        public void onError(String errorMessage) {
-                            callback.onError(errorMessage);
-                        }
-                    });
-                }
+            @Override
+            public void onError(String errorMessage) {
+                callback.onError(errorMessage);
+            }
+        });
+    }
 
-                @Override
-                public void onError(String errorMessage) {
-                    callback.onError(errorMessage);
-                }
-            });
-        } else if (thumbnailUri != null) {
-            // Upload only new thumbnail
-            uploadThumbnailWithProgress(course.getId(), thumbnailUri, new UploadCallback() {
-                @Override
-                public void onProgress(int progress) {
-                    callback.onThumbnailProgress(progress);
-                }
+    // Save an edited course. A private course gets a tombstone, so clients that synced it while it
+    // was public drop it; making it public again removes the tombstone and the course syncs back.
+    private void updateCourseInFirestore(Course course, CourseCallback callback) {
+        indexForSearch(course);
+        // A course read earlier still carries its old updatedAt; clear it so the server stamps this write
+        course.setUpdatedAt(null);
+        WriteBatch batch = firestore.batch();
+        batch.set(firestore.collection("courses").document(course.getId()), course);
+        DocumentReference tombstoneRef = firestore.collection(Tombstone.COLLECTION)
+                .document(Tombstone.documentId("courses", course.getId()));
+        if (course.isPrivate()) {
+            batch.set(tombstoneRef, new Tombstone("courses", course.getId(), course.getUploaderUid()));
+        } else {
+            batch.delete(tombstoneRef);
+        }
+        batch.commit()
+                .addOnSuccessListener(aVoid -> {
+                    courseCache.invalidate(course.getId());
+                    callback.onSuccess();
+                })
+                .addOnFailureListener(e -> callback.onError(e.getMessage()));
+    }
 
-                @Override
-                public void onSuccess(String thumbnailUrl) {
-                    callback.onThumbnailComplete();
-                    course.setThumbnailUrl(thumbnailUrl);
-                    updateCourseInFirestore(course, new CourseCallback() {
-                        @Override
-                        public void onSuccess() {
-                            callback.onSuccess();
-                        }
+    // Original upload methods without progress tracking
+    private void uploadThumbnail(String courseId, Uri thumbnailUri, ThumbnailUploadCallback callback) {
+        uploadThumbnailWithProgress(courseId, thumbnailUri, callback);
+    }
 
-                        @Override
-                        public void onError(String errorMessage) {
-                            callback.onError(errorMessage);
-                        }
-                    });
-                }
+    private void uploadVideo(String courseId, Uri videoUri, UploadCallback callback) {
+        uploadVideoResumable(newVideoPath(courseId), videoUri, callback);
+    }
 
-                @Override
-                public void onError(String errorMessage) {
-                    callback.onError(errorMessage);
-                }
-            });
-        } else if (videoUri != null) {
-            // Upload only new video
-            uploadVideoWithProgress(course.getId(), videoUri, new UploadCallback() {
-                @Override
-                public void onProgress(int progress) {
-                    callback.onVideoProgress(progress);
-                }
+    // New upload methods with progress tracking
+    // Thumbnails are resized and re-encoded on the device, then every size is uploaded
+    private void uploadThumbnailWithProgress(String courseId, Uri thumbnailUri, ThumbnailUploadCallback callback) {
+        thumbnailProcessor.process(thumbnailUri, new ThumbnailProcessor.ThumbnailCallback() {
+            @Override
+            public void onProcessed(ThumbnailProcessor.ProcessedThumbnail thumbnail) {
+                uploadThumbnailVariants(courseId, thumbnail, callback);
+            }
 
-                @Override
-                public void onSuccess(String videoUrl) {
-                    callback.onVideoComplete();
-                    course.setVideoUrl(videoUrl);
-                    updateCourseInFirestore(course, new CourseCallback() {
-                        @Override
-                        public void onSuccess() {
-                            callback.onSuccess();
-                        }
+            @Override
+            public void onError(String errorMessage) {
+                callback.onError(errorMessage);
+            }
+        });
+    }
 
-                        @Override
-                        public void onError(String errorMessage) {
-                            callback.onError(errorMessage);
-                        }
-                    });
-                }
+    // Upload the sizes of one thumbnail side by side. If any fails, the ones already stored are deleted.
+    private void uploadThumbnailVariants(String courseId, ThumbnailProcessor.ProcessedThumbnail thumbnail,
+                                         ThumbnailUploadCallback callback) {
+        List<ThumbnailProcessor.Variant> variants = thumbnail.getVariants();
 
-                @Override
-                public void onError(String errorMessage) {
-                    callback.onError(errorMessage);
+        // The sizes share a name and differ only in the width suffix
+        String baseName = "thumbnails/" + courseId + "_" + UUID.randomUUID().toString();
+
+        // Names are never reused, so clients may cache the files indefinitely
+        StorageMetadata metadata = new StorageMetadata.Builder()
+                .setContentType(ThumbnailProcessor.CONTENT_TYPE)
+                .setCacheControl("public, max-age=31536000")
+                .build();
+
+        long totalBytes = 0;
+        for (ThumbnailProcessor.Variant variant : variants) {
+            totalBytes += variant.getData().length;
+        }
+        final long allBytes = totalBytes;
+        final long[] bytesTransferred = new long[variants.size()];
+        final Map<String, String> variantUrls = new HashMap<>();
+        final String[] error = new String[1];
+        final int[] pendingUploads = {variants.size()};
+
+        for (int i = 0; i < variants.size(); i++) {
+            final int index = i;
+            ThumbnailProcessor.Variant variant = variants.get(i);
+            StorageReference storageRef = storage.getReference()
+                    .child(baseName + "_" + variant.getWidth() + ".webp");
+
+            storageRef.putBytes(variant.getData(), metadata).addOnProgressListener(taskSnapshot -> {
+                bytesTransferred[index] = taskSnapshot.getBytesTransferred();
+                long transferred = 0;
+                for (long bytes : bytesTransferred) {
+                    transferred += bytes;
                 }
-            });
-        } else {
-            // No new files, just update the course data
-            updateCourseInFirestore(course, new CourseCallback() {
-                @Override
-                public void onSuccess() {
-                    callback.onSuccess();
+                callback.onBytesTransferred(transferred, allBytes);
+            }).continueWithTask(task -> {
+                if (!task.isSuccessful()) {
+                    throw task.getException();
+                }
+                return storageRef.getDownloadUrl();
+            }).addOnCompleteListener(task -> {
+                if (task.isSuccessful()) {
+                    variantUrls.put(String.valueOf(variant.getWidth()), task.getResult().toString());
+                } else if (error[0] == null) {
+                    error[0] = task.getException() != null ? task.getException().getMessage() : "Thumbnail upload failed";
                 }
 
-                @Override
-                public void onError(String errorMessage) {
-                    callback.onError(errorMessage);
+                pendingUploads[0]--;
+                if (pendingUploads[0] > 0) {
+                    return;
+                }
+                if (error[0] != null) {
+                    for (String fileUrl : variantUrls.values()) {
+                        deleteOrphanedUpload(fileUrl);
+                    }
+                    callback.onError(error[0]);
+                } else {
+                    callback.onSuccess(new UploadedThumbnail(variantUrls, thumbnail.getPlaceholderHash(),
+                            thumbnail.getAspectRatio()));
                 }
             });
         }
     }
 
-    private void updateCourseInFirestore(Course course, CourseCallback callback) {
-        firestore.collection("courses")
-                .document(course.getId())
-                .set(course)
-                .addOnSuccessListener(aVoid -> callback.onSuccess())
-                .addOnFailureListener(e -> callback.onError(e.getMessage()));
+    // Store the thumbnail sizes on the course; thumbnailUrl keeps the largest for code that needs one URL
+    private static void applyThumbnail(Course course, UploadedThumbnail thumbnail) {
+        course.setThumbnailVariants(thumbnail.variantUrls);
+        course.setThumbnailPlaceholder(thumbnail.placeholderHash);
+        course.setThumbnailAspectRatio(thumbnail.aspectRatio);
+
+        String largestUrl = null;
+        int largestWidth = -1;
+        for (Map.Entry<String, String> entry : thumbnail.variantUrls.entrySet()) {
+            int width = Integer.parseInt(entry.getKey());
+            if (width > largestWidth) {
+                largestWidth = width;
+                largestUrl = entry.getValue();
+            }
+        }
+        course.setThumbnailUrl(largestUrl);
     }
 
-    // Original upload methods without progress tracking
-    private void uploadThumbnail(String courseId, Uri thumbnailUri, UploadCallback callback) {
-        String fileName = "thumbnails/" + courseId + "_" + UUID.randomUUID().toString();
-        StorageReference storageRef = storage.getReference().child(fileName);
-
-        // Add metadata to restrict file size
-        com.google.firebase.storage.StorageMetadata metadata = new com.google.firebase.storage.StorageMetadata.Builder()
-                .setContentType("image/*")
-                .build();
-
-        UploadTask uploadTask = storageRef.putFile(thumbnailUri, metadata);
+    private ResumableUploader.Transfer uploadVideoWithProgress(String videoPath, Uri videoUri,
+                                                              UploadCallback callback) {
+        return uploadVideoResumable(videoPath, videoUri, callback);
+    }
 
-        uploadTask.addOnProgressListener(taskSnapshot -> {
-            double progress = (100.0 * taskSnapshot.getBytesTransferred()) / taskSnapshot.getTotalByteCount();
-            callback.onProgress((int) progress);
-        }).continueWithTask(task -> {
-            if (!task.isSuccessful()) {
-                throw task.getException();
-            }
-            return storageRef.getDownloadUrl();
-        }).addOnCompleteListener(task -> {
-            if (task.isSuccessful()) {
-                Uri downloadUri = task.getResult();
-                callback.onSuccess(downloadUri.toString());
-            } else {
-                callback.onError(task.getException().getMessage());
-            }
-        });
+    // Where a video uploaded outside the upload queue is stored; never the same twice
+    private static String newVideoPath(String courseId) {
+        return "videos/" + courseId + "_" + UUID.randomUUID().toString();
     }
 
-    private void uploadVideo(String courseId, Uri videoUri, UploadCallback callback) {
-        String fileName = "videos/" + courseId + "_" + UUID.randomUUID().toString();
-        StorageReference storageRef = storage.getReference().child(fileName);
+    // Videos can be up to 5GB, so they go through the resumable uploader, which resumes
+    // an interrupted upload of the same file to the same path
+    private ResumableUploader.Transfer uploadVideoResumable(String fileName, Uri videoUri, UploadCallback callback) {
 
         // Add metadata to restrict file size
-        com.google.firebase.storage.StorageMetadata metadata = new com.google.firebase.storage.StorageMetadata.Builder()
+        StorageMetadata metadata = new StorageMetadata.Builder()
                 .setContentType("video/*")
                 .build();
 
-        UploadTask uploadTask = storageRef.putFile(videoUri, metadata);
-
-        uploadTask.addOnProgressListener(taskSnapshot -> {
-            double progress = (100.0 * taskSnapshot.getBytesTransferred()) / taskSnapshot.getTotalByteCount();
-            callback.onProgress((int) progress);
-        }).continueWithTask(task -> {
-            if (!task.isSuccessful()) {
-                throw task.getException();
+        return resumableUploader.upload(videoUri, fileName, metadata, new ResumableUploader.ResumableUploadCallback() {
+            @Override
+            public void onProgress(long bytesTransferred, long totalBytes) {
+                callback.onBytesTransferred(bytesTransferred, totalBytes);
+                if (totalBytes > 0) {
+                    callback.onProgress((int) ((100.0 * bytesTransferred) / totalBytes));
+                }
             }
-            return storageRef.getDownloadUrl();
-        }).addOnCompleteListener(task -> {
-            if (task.isSuccessful()) {
-                Uri downloadUri = task.getResult();
+
+            @Override
+            public void onSuccess(Uri downloadUri) {
                 callback.onSuccess(downloadUri.toString());
-            } else {
-                callback.onError(task.getException().getMessage());
+            }
+
+            @Override
+            public void onError(String errorMessage) {
+                callback.onError(errorMessage);
             }
         });
     }
 
-    // New upload methods with progress tracking
-    private void uploadThumbnailWithProgress(String courseId, Uri thumbnailUri, UploadCallback callback) {
-        String fileName = "thumbnails/" + courseId + "_" + UUID.randomUUID().toString();
-        StorageReference storageRef = storage.getReference().child(fileName);
+    /**
+     * Upload an encoded HLS ladder next to a course's video and point the course at its master playlist.
+     * The renditions and their playlists share one folder, so the whole package can be deleted together.
+     * The folder is named after the source video, so publishing the same renditions again after being
+     * stopped resumes their uploads.
+     * @param courseId The course the video belongs to
+     * @param sourceVideoUrl The video the renditions were encoded from; nothing is published if it was replaced meanwhile
+     * @param renditions The encoded renditions
+     * @param callback Result callback
+     * @return The running upload, which the caller may stop
+     */
+    public CourseUpload publishHlsPackage(String courseId, String sourceVideoUrl,
+                                          List<VideoPackager.PackagedRendition> renditions, CourseCallback callback) {
+        String folder = "videos/" + courseId + "_hls_"
+                + UUID.nameUUIDFromBytes(sourceVideoUrl.getBytes(StandardCharsets.UTF_8));
+        CourseUpload upload = new CourseUpload();
+
+        // A folder only ever holds renditions of one source video, so clients may cache the files indefinitely
+        StorageMetadata videoMetadata = new StorageMetadata.Builder()
+                .setContentType("video/mp4")
+                .setCacheControl("public, max-age=31536000")
+                .build();
 
-        // Add metadata to restrict file size
-        com.google.firebase.storage.StorageMetadata metadata = new com.google.firebase.storage.StorageMetadata.Builder()
-                .setContentType("image/*")
+        final String[] mediaUrls = new String[renditions.size()];
+        final String[] error = new String[1];
+        final int[] pendingUploads = {renditions.size()};
+
+        for (int i = 0; i < renditions.size(); i++) {
+            final int index = i;
+            VideoPackager.PackagedRendition rendition = renditions.get(i);
+            String path = folder + "/" + rendition.getRendition().getName() + ".mp4";
+            upload.transfers.add(resumableUploader.upload(Uri.fromFile(rendition.getFile()), path, videoMetadata,
+                    new ResumableUploader.ResumableUploadCallback() {
+                        @Override
+                        public void onProgress(long bytesTransferred, long totalBytes) {
+                        }
+
+                        @Override
+                        public void onSuccess(Uri downloadUri) {
+                            mediaUrls[index] = downloadUri.toString();
+                            onRenditionFinished();
+                        }
+
+                        @Override
+                        public void onError(String errorMessage) {
+                            if (error[0] == null) {
+                                error[0] = errorMessage != null ? errorMessage : "Rendition upload failed";
+                            }
+                            onRenditionFinished();
+                        }
+
+                        private void onRenditionFinished() {
+                            pendingUploads[0]--;
+                            if (pendingUploads[0] > 0) {
+                                return;
+                            }
+                            if (error[0] != null) {
+                                deleteHlsFolder(storage.getReference().child(folder));
+                                callback.onError(error[0]);
+                            } else {
+                                uploadHlsPlaylists(courseId, sourceVideoUrl, folder, renditions, mediaUrls, callback);
+                            }
+                        }
+                    }));
+        }
+        return upload;
+    }
+
+    // Write each rendition's media playlist, then the master playlist that lists them
+    private void uploadHlsPlaylists(String courseId, String sourceVideoUrl, String folder,
+                                    List<VideoPackager.PackagedRendition> renditions, String[] mediaUrls,
+                                    CourseCallback callback) {
+        StorageMetadata playlistMetadata = new StorageMetadata.Builder()
+                .setContentType(HlsPlaylistWriter.CONTENT_TYPE)
+                .setCacheControl("public, max-age=31536000")
                 .build();
+        StorageReference folderRef = storage.getReference().child(folder);
 
-        UploadTask uploadTask = storageRef.putFile(thumbnailUri, metadata);
+        List<Task<Uri>> playlistTasks = new ArrayList<>();
+        for (int i = 0; i < renditions.size(); i++) {
+            String playlist = HlsPlaylistWriter.writeMediaPlaylist(mediaUrls[i], renditions.get(i).getIndex());
+            playlistTasks.add(uploadText(folderRef.child(renditions.get(i).getRendition().getName() + ".m3u8"),
+                    playlist, playlistMetadata));
+        }
 
-        uploadTask.addOnProgressListener(taskSnapshot -> {
-            double progress = (100.0 * taskSnapshot.getBytesTransferred()) / taskSnapshot.getTotalByteCount();
-            callback.onProgress((int) progress);
-        }).continueWithTask(task -> {
-            if (!task.isSuccessful()) {
-                throw task.getException();
-            }
-            return storageRef.getDownloadUrl();
-        }).addOnCompleteListener(task -> {
-            if (task.isSuccessful()) {
-                Uri downloadUri = task.getResult();
-                callback.onSuccess(downloadUri.toString());
-            } else {
-                callback.onError(task.getException().getMessage());
+        Tasks.whenAllComplete(playlistTasks).continueWithTask(ignored -> {
+            List<HlsPlaylistWriter.Variant> variants = new ArrayList<>();
+            for (int i = 0; i < playlistTasks.size(); i++) {
+                Task<Uri> task = playlistTasks.get(i);
+                if (!task.isSuccessful()) {
+                    throw task.getException();
+                }
+                variants.add(new HlsPlaylistWriter.Variant(task.getResult().toString(), renditions.get(i).getIndex()));
             }
+            return uploadText(folderRef.child("master.m3u8"),
+                    HlsPlaylistWriter.writeMasterPlaylist(variants), playlistMetadata);
+        }).addOnSuccessListener(manifestUri -> attachHlsManifest(courseId, sourceVideoUrl, manifestUri.toString())
+                .addOnSuccessListener(attached -> {
+                    if (attached) {
+                        courseCache.invalidate(courseId);
+                        callback.onSuccess();
+                    } else {
+                        // The course was deleted or its video replaced while packaging; nothing will play this
+                        deleteHlsFolder(folderRef);
+                        callback.onError("The course video changed while it was being packaged");
+                    }
+                })
+                .addOnFailureListener(e -> {
+                    deleteHlsFolder(folderRef);
+                    callback.onError(e.getMessage());
+                })).addOnFailureListener(e -> {
+            deleteHlsFolder(folderRef);
+            callback.onError(e.getMessage());
         });
     }
 
-    private void uploadVideoWithProgress(String courseId, Uri videoUri, UploadCallback callback) {
-        String fileName = "videos/" + courseId + "_" + UUID.randomUUID().toString();
-        StorageReference storageRef = storage.getReference().child(fileName);
-
-        // Add metadata to restrict file size
-        com.google.firebase.storage.StorageMetadata metadata = new com.google.firebase.storage.StorageMetadata.Builder()
-                .setContentType("video/*")
-                .build();
+    // Set the manifest only if the course still plays the video it was made from; resolves to whether it was set
+    private Task<Boolean> attachHlsManifest(String courseId, String sourceVideoUrl, String manifestUrl) {
+        DocumentReference courseRef = firestore.collection("courses").document(courseId);
+        return firestore.runTransaction(transaction -> {
+            DocumentSnapshot snapshot = transaction.get(courseRef);
+            if (!snapshot.exists() || !sourceVideoUrl.equals(snapshot.getString("videoUrl"))) {
+                return false;
+            }
+            transaction.update(courseRef, "hlsManifestUrl", manifestUrl,
+                    "updatedAt", FieldValue.serverTimestamp());
+            return true;
+        });
+    }
 
-        UploadTask uploadTask = storageRef.putFile(videoUri, metadata);
+    private Task<Uri> uploadText(StorageReference storageRef, String text, StorageMetadata metadata) {
+        return storageRef.putBytes(text.getBytes(StandardCharsets.UTF_8), metadata)
+                .continueWithTask(task -> {
+                    if (!task.isSuccessful()) {
+                        throw task.getException();
+                    }
+                    return storageRef.getDownloadUrl();
+                });
+    }
 
-        uploadTask.addOnProgressListener(taskSnapshot -> {
-            double progress = (100.0 * taskSnapshot.getBytesTransferred()) / taskSnapshot.getTotalByteCount();
-            callback.onProgress((int) progress);
-        }).continueWithTask(task -> {
-            if (!task.isSuccessful()) {
-                throw task.getException();
+    // Best-effort removal of an HLS package, given its folder
+    private void deleteHlsFolder(StorageReference folderRef) {
+        folderRef.listAll().addOnSuccessListener(listResult -> {
+            for (StorageReference item : listResult.getItems()) {
+                item.delete().addOnFailureListener(e ->
+                        Log.e(TAG, "Failed to delete " + item.getPath() + ": " + e.getMessage()));
             }
-            return storageRef.getDownloadUrl();
-        }).addOnCompleteListener(task -> {
-            if (task.isSuccessful()) {
-                Uri downloadUri = task.getResult();
-                callback.onSuccess(downloadUri.toString());
-            } else {
-                callback.onError(task.getException().getMessage());
+        }).addOnFailureListener(e -> Log.e(TAG, "Failed to list " + folderRef.getPath() + ": " + e.getMessage()));
+    }
+
+    // The package's folder, found from the master playlist URL
+    private void deleteHlsPackage(String manifestUrl) {
+        if (manifestUrl == null || manifestUrl.isEmpty()) {
+            return;
+        }
+        try {
+            StorageReference folderRef = storage.getReferenceFromUrl(manifestUrl).getParent();
+            if (folderRef != null) {
+                deleteHlsFolder(folderRef);
             }
-        });
+        } catch (IllegalArgumentException e) {
+            Log.e(TAG, "Invalid HLS manifest URL: " + manifestUrl);
+        }
     }
 
     // Delete course method
@@ -756,6 +1397,16 @@ public class CourseRepository {
         getCourseById(courseId, new SingleCourseCallback() {
             @Override
             public void onCourseLoaded(Course course) {
+                // The largest thumbnail size is deleted below as the thumbnail; remove the other sizes alongside
+                if (course.getThumbnailVariants() != null) {
+                    for (String variantUrl : course.getThumbnailVariants().values()) {
+                        if (!variantUrl.equals(course.getThumbnailUrl())) {
+                            deleteOrphanedUpload(variantUrl);
+                        }
+                    }
+                }
+                deleteHlsPackage(course.getHlsManifestUrl());
+
                 // Delete files from storage
                 deleteFileFromUrl(course.getThumbnailUrl(), new CourseCallback() {
                     @Override
@@ -764,28 +1415,14 @@ public class CourseRepository {
                             @Override
                             public void onSuccess() {
                                 // Delete the course document from Firestore
-                                firestore.collection("courses")
-                                        .document(courseId)
-                                        .delete()
-                                        .addOnSuccessListener(aVoid -> {
-                                            // Delete all saved references to this course
-                                            deleteSavedCourseReferences(courseId, callback);
-                                        })
-                                        .addOnFailureListener(e -> callback.onError(e.getMessage()));
+                                deleteCourseDocument(courseId, course.getAccessCode(), callback);
                             }
 
                             @Override
                             public void onError(String errorMessage) {
                                 Log.e(TAG, "Failed to delete video file: " + errorMessage);
                                 // Continue with deleting the document even if file deletion fails
-                                firestore.collection("courses")
-                                        .document(courseId)
-                                        .delete()
-                                        .addOnSuccessListener(aVoid -> {
-                                            // Delete all saved references to this course
-                                            deleteSavedCourseReferences(courseId, callback);
-                                        })
-                                        .addOnFailureListener(e -> callback.onError(e.getMessage()));
+                                deleteCourseDocument(courseId, course.getAccessCode(), callback);
                             }
                         });
                     }
@@ -797,28 +1434,14 @@ public class CourseRepository {
                         deleteFileFromUrl(course.getVideoUrl(), new CourseCallback() {
                             @Override
                             public void onSuccess() {
-                                firestore.collection("courses")
-                                        .document(courseId)
-                                        .delete()
-                                        .addOnSuccessListener(aVoid -> {
-                                            // Delete all saved references to this course
-                                            deleteSavedCourseReferences(courseId, callback);
-                                        })
-                                        .addOnFailureListener(e -> callback.onError(e.getMessage()));
+                                deleteCourseDocument(courseId, course.getAccessCode(), callback);
                             }
 
                             @Override
                             public void onError(String videoError) {
                                 Log.e(TAG, "Failed to delete video file: " + videoError);
                                 // Continue with deleting the document even if both file deletions fail
-                                firestore.collection("courses")
-                                        .document(courseId)
-                                        .delete()
-                                        .addOnSuccessListener(aVoid -> {
-                                            // Delete all saved references to this course
-                                            deleteSavedCourseReferences(courseId, callback);
-                                        })
-                                        .addOnFailureListener(e -> callback.onError(e.getMessage()));
+                                deleteCourseDocument(courseId, course.getAccessCode(), callback);
                             }
                         });
                     }
@@ -831,8 +1454,26 @@ public class CourseRepository {
             }
         });
     }
+
+    // Delete the course document and free its access code, leaving a tombstone so clients
+    // syncing by updatedAt drop it too, then all saved references to it
+    private void deleteCourseDocument(String courseId, String accessCode, CourseCallback callback) {
+        WriteBatch batch = firestore.batch();
+        batch.delete(firestore.collection("courses").document(courseId));
+        batch.set(firestore.collection(Tombstone.COLLECTION).document(Tombstone.documentId("courses", courseId)),
+                new Tombstone("courses", courseId));
+        accessCodeIndex.release(batch, accessCode);
+        batch.commit()
+                .addOnSuccessListener(aVoid -> deleteSavedCourseReferences(courseId, callback))
+                .addOnFailureListener(e -> callback.onError(e.getMessage()));
+    }
+
     // Delete all saved references to a course when the course is deleted
     private void deleteSavedCourseReferences(String courseId, CourseCallback callback) {
+        // The course document is gone at this point
+        courseCache.invalidate(courseId);
+        localStore.deleteCourse(courseId);
+
         firestore.collection("savedCourses")
                 .whereEqualTo("courseId", courseId)
                 .get()
@@ -844,7 +1485,7 @@ public class CourseRepository {
                         }
 
                         // Create a batch operation to delete all saved references
-                        com.google.firebase.firestore.WriteBatch batch = firestore.batch();
+                        WriteBatch batch = firestore.batch();
 
                         for (DocumentSnapshot document : task.getResult().getDocuments()) {
                             batch.delete(document.getReference());
@@ -875,111 +1516,241 @@ public class CourseRepository {
             callback.onError("Invalid file URL");
         }
     }
-    // Interface for unique access code generation
-    public interface UniqueAccessCodeCallback {
-        void onUniqueCodeGenerated(String accessCode);
-        void onError(String errorMessage);
-    }
 
-    // Generate a unique access code for courses
-    private void generateUniqueAccessCode(UniqueAccessCodeCallback callback) {
-        generateUniqueAccessCode(callback, 0);
-    }
-
-    private void generateUniqueAccessCode(UniqueAccessCodeCallback callback, int attempts) {
-        if (attempts >= 10) {
-            callback.onError("Failed to generate unique access code after 10 attempts");
-            return;
-        }
-
-        String accessCode = Course.generateAccessCode();
-
-        // Check if this access code already exists
-        firestore.collection("courses")
-                .whereEqualTo("accessCode", accessCode)
-                .limit(1)
-                .get()
-                .addOnCompleteListener(task -> {
-                    if (task.isSuccessful()) {
-                        if (task.getResult().isEmpty()) {
-                            // Access code is unique
-                            callback.onUniqueCodeGenerated(accessCode);
-                        } else {
-                            // Access code already exists, try again
-                            generateUniqueAccessCode(callback, attempts + 1);
-                        }
-                    } else {
-                        callback.onError(task.getException().getMessage());
-                    }
-                });
+    // Updated createCourseWithProgress method to generate unique access codes
+    public CourseUpload createCourseWithProgress(Course course, Uri thumbnailUri, Uri videoUri,
+                                                 UploadProgressCallback callback) {
+        return createCourseWithProgress(course, thumbnailUri, videoUri, null, callback);
     }
 
-    // Updated createCourseWithProgress method to generate unique access codes
-    public void createCourseWithProgress(Course course, Uri thumbnailUri, Uri videoUri, UploadProgressCallback callback) {
-        // First, add the course to Firestore
-        DocumentReference courseRef = firestore.collection("courses").document();
+    /**
+     * Create a course and upload its files
+     * @param course The course; a queued upload sets its reserved id and access code
+     * @param thumbnailUri The thumbnail image
+     * @param videoUri The video
+     * @param videoPath Storage path for the video, or null for a new one. Pass the same path when running
+     *                  the same upload again, so the video resumes where the earlier run stopped.
+     * @param callback Progress and result callback
+     * @return The running upload, which the caller may stop
+     */
+    public CourseUpload createCourseWithProgress(Course course, Uri thumbnailUri, Uri videoUri, String videoPath,
+                                                 UploadProgressCallback callback) {
+        CourseUpload upload = new CourseUpload();
+        // First, add the course to Firestore; queued uploads reserve their id in advance
+        DocumentReference courseRef = course.getId() != null
+                ? firestore.collection("courses").document(course.getId())
+                : firestore.collection("courses").document();
         course.setId(courseRef.getId());
+        String videoFile = videoPath != null ? videoPath : newVideoPath(course.getId());
 
-        // Generate unique access code if course is private
+        // Reserve a unique access code if course is private
         if (course.isPrivate()) {
-            generateUniqueAccessCode(new UniqueAccessCodeCallback() {
+            AccessCodeIndex.ReserveCallback reserveCallback = new AccessCodeIndex.ReserveCallback() {
                 @Override
-                public void onUniqueCodeGenerated(String accessCode) {
+                public void onReserved(String accessCode) {
                     course.setAccessCode(accessCode);
-                    proceedWithUpload(course, courseRef, thumbnailUri, videoUri, callback);
+                    callback.onAccessCodeReserved(accessCode);
+                    if (!upload.stopped) {
+                        proceedWithUpload(course, courseRef, thumbnailUri, videoUri, videoFile, upload, callback);
+                    }
                 }
 
                 @Override
                 public void onError(String errorMessage) {
-                    callback.onError("Failed to generate unique access code: " + errorMessage);
+                    if (!upload.stopped) {
+                        callback.onError("Failed to generate unique access code: " + errorMessage);
+                    }
                 }
-            });
+            };
+            // A re-run of a queued upload brings the code its earlier run reserved
+            if (course.getAccessCode() != null) {
+                accessCodeIndex.reclaim(AccessCode.TYPE_COURSE, course.getId(), course.getUploaderUid(),
+                        course.getAccessCode(), reserveCallback);
+            } else {
+                accessCodeIndex.reserve(AccessCode.TYPE_COURSE, course.getId(), course.getUploaderUid(),
+                        reserveCallback);
+            }
         } else {
-            proceedWithUpload(course, courseRef, thumbnailUri, videoUri, callback);
+            proceedWithUpload(course, courseRef, thumbnailUri, videoUri, videoFile, upload, callback);
         }
+        return upload;
     }
 
     // Helper method to proceed with upload after access code generation
-    private void proceedWithUpload(Course course, DocumentReference courseRef, Uri thumbnailUri, Uri videoUri, UploadProgressCallback callback) {
-        // Upload thumbnail and video with progress tracking
-        uploadThumbnailWithProgress(course.getId(), thumbnailUri, new UploadCallback() {
+    private void proceedWithUpload(Course course, DocumentReference courseRef, Uri thumbnailUri, Uri videoUri,
+                                   String videoPath, CourseUpload upload, UploadProgressCallback callback) {
+        // Upload thumbnail and video at the same time with progress tracking
+        uploadCourseFiles(course.getId(), thumbnailUri, videoUri, videoPath, upload, callback,
+                new CourseFilesCallback() {
             @Override
-            public void onProgress(int progress) {
-                callback.onThumbnailProgress(progress);
+            public void onFilesUploaded(UploadedThumbnail thumbnail, String videoUrl) {
+                if (upload.stopped) {
+                    // The next run uploads again to the same paths and writes the course itself
+                    return;
+                }
+                applyThumbnail(course, thumbnail);
+                course.setVideoUrl(videoUrl);
+                indexForSearch(course);
+                course.setUpdatedAt(null); // Stamped by the server
+
+                // Save course with URLs to Firestore
+                courseRef.set(course)
+                        .addOnSuccessListener(aVoid -> callback.onSuccess())
+                        .addOnFailureListener(e -> {
+                            // The course was never created, so its files and code would be unreachable
+                            deleteOrphanedThumbnail(thumbnail);
+                            deleteOrphanedUpload(videoUrl);
+                            accessCodeIndex.release(course.getAccessCode());
+                            callback.onError(e.getMessage());
+                        });
             }
 
             @Override
-            public void onSuccess(String thumbnailUrl) {
-                callback.onThumbnailComplete();
-                course.setThumbnailUrl(thumbnailUrl);
+            public void onError(String errorMessage) {
+                if (upload.stopped) {
+                    return;
+                }
+                accessCodeIndex.release(course.getAccessCode());
+                callback.onError(errorMessage);
+            }
+        });
+    }
 
-                uploadVideoWithProgress(course.getId(), videoUri, new UploadCallback() {
-                    @Override
-                    public void onProgress(int progress) {
-                        callback.onVideoProgress(progress);
-                    }
+    // Upload a course's thumbnail and video concurrently and report one byte-weighted progress.
+    // Either URI may be null. If one upload fails, the files the other one stored are deleted.
+    // The video transfer is attached to upload, if given, so that it can be stopped.
+    private void uploadCourseFiles(String courseId, Uri thumbnailUri, Uri videoUri, String videoPath,
+                                   CourseUpload upload, UploadProgressCallback progressCallback,
+                                   CourseFilesCallback callback) {
+        if (thumbnailUri == null && videoUri == null) {
+            callback.onFilesUploaded(null, null);
+            return;
+        }
 
-                    @Override
-                    public void onSuccess(String videoUrl) {
-                        callback.onVideoComplete();
-                        course.setVideoUrl(videoUrl);
+        // Index 0 is the thumbnail, index 1 the video. Task callbacks all run on the main thread.
+        final UploadedThumbnail[] uploadedThumbnail = new UploadedThumbnail[1];
+        final String[] videoUrl = new String[1];
+        final String[] errors = new String[2];
+        final long[] bytesTransferred = new long[2];
+        final long[] totalBytes = new long[2];
+        final int[] pendingUploads = {(thumbnailUri != null ? 1 : 0) + (videoUri != null ? 1 : 0)};
+
+        class UploadTracker {
+            void onBytesTransferred(int index, long transferred, long total) {
+                bytesTransferred[index] = transferred;
+                totalBytes[index] = total;
+
+                long allTransferred = bytesTransferred[0] + bytesTransferred[1];
+                long allTotal = totalBytes[0] + totalBytes[1];
+                if (allTotal > 0) {
+                    progressCallback.onOverallProgress((int) ((100.0 * allTransferred) / allTotal),
+                            allTransferred, allTotal);
+                }
+            }
 
-                        // Save course with URLs to Firestore
-                        courseRef.set(course)
-                                .addOnSuccessListener(aVoid -> callback.onSuccess())
-                                .addOnFailureListener(e -> callback.onError(e.getMessage()));
+            void onFinished(int index, String errorMessage) {
+                errors[index] = errorMessage;
+                if (errorMessage == null) {
+                    if (index == 0) {
+                        progressCallback.onThumbnailComplete();
+                    } else {
+                        progressCallback.onVideoComplete();
                     }
+                }
 
-                    @Override
-                    public void onError(String errorMessage) {
-                        callback.onError(errorMessage);
+                pendingUploads[0]--;
+                if (pendingUploads[0] > 0) {
+                    return;
+                }
+
+                String error = errors[0] != null ? errors[0] : errors[1];
+                if (error != null) {
+                    deleteOrphanedThumbnail(uploadedThumbnail[0]);
+                    deleteOrphanedUpload(videoUrl[0]);
+                    callback.onError(error);
+                } else {
+                    callback.onFilesUploaded(uploadedThumbnail[0], videoUrl[0]);
+                }
+            }
+        }
+        UploadTracker tracker = new UploadTracker();
+
+        if (thumbnailUri != null) {
+            uploadThumbnailWithProgress(courseId, thumbnailUri, new ThumbnailUploadCallback() {
+                @Override
+                public void onBytesTransferred(long transferred, long total) {
+                    tracker.onBytesTransferred(0, transferred, total);
+                    if (total > 0) {
+                        progressCallback.onThumbnailProgress((int) ((100.0 * transferred) / total));
                     }
-                });
+                }
+
+                @Override
+                public void onSuccess(UploadedThumbnail thumbnail) {
+                    uploadedThumbnail[0] = thumbnail;
+                    tracker.onFinished(0, null);
+                }
+
+                @Override
+                public void onError(String errorMessage) {
+                    tracker.onFinished(0, errorMessage);
+                }
+            });
+        }
+        if (videoUri != null) {
+            ResumableUploader.Transfer videoTransfer = uploadVideoWithProgress(videoPath, videoUri,
+                    new UploadCallback() {
+                @Override
+                public void onProgress(int progress) {
+                    progressCallback.onVideoProgress(progress);
+                }
+
+                @Override
+                public void onBytesTransferred(long transferred, long total) {
+                    tracker.onBytesTransferred(1, transferred, total);
+                }
+
+                @Override
+                public void onSuccess(String downloadUrl) {
+                    videoUrl[0] = downloadUrl;
+                    tracker.onFinished(1, null);
+                }
+
+                @Override
+                public void onError(String errorMessage) {
+                    tracker.onFinished(1, errorMessage);
+                }
+            });
+            if (upload != null) {
+                upload.transfers.add(videoTransfer);
+            }
+        }
+    }
+
+    // Best-effort removal of every size of a thumbnail nothing will reference
+    private void deleteOrphanedThumbnail(UploadedThumbnail thumbnail) {
+        if (thumbnail == null) {
+            return;
+        }
+        for (String fileUrl : thumbnail.variantUrls.values()) {
+            deleteOrphanedUpload(fileUrl);
+        }
+    }
+
+    // Best-effort removal of an uploaded file nothing will reference
+    private void deleteOrphanedUpload(String fileUrl) {
+        if (fileUrl == null) {
+            return;
+        }
+        deleteFileFromUrl(fileUrl, new CourseCallback() {
+            @Override
+            public void onSuccess() {
+                Log.d(TAG, "Deleted orphaned upload: " + fileUrl);
             }
 
             @Override
             public void onError(String errorMessage) {
-                callback.onError(errorMessage);
+                Log.e(TAG, "Failed to delete orphaned upload " + fileUrl + ": " + errorMessage);
             }
         });
     }
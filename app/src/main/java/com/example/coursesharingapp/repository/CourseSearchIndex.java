@@ -0,0 +1,512 @@
+package com.example.coursesharingapp.repository;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.example.coursesharingapp.model.Course;
+import com.example.coursesharingapp.model.Tombstone;
+import com.example.coursesharingapp.util.SearchTokenizer;
+import com.google.firebase.Timestamp;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QueryDocumentSnapshot;
+import com.google.firebase.firestore.Source;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * On-device inverted index over public courses, used by CourseRepository to
+ * answer searches without a network round trip. Maps every normalized word of
+ * title, short description and uploader username to the ids of the courses
+ * containing it. Words are kept sorted so a prefix query is a range scan.
+ *
+ * The index is persisted to app storage together with the newest updatedAt
+ * it has seen. It is built from the whole public catalog once, a page at a
+ * time and off to the side, so searches keep answering from the old copy
+ * until the new one is swapped in. After that a snapshot listener follows
+ * only public courses stamped since then, plus tombstones of courses deleted
+ * or made private, so starting the app costs as much as what changed. Changes
+ * are followed while a user is signed in; the index itself survives sign-out.
+ */
+public class CourseSearchIndex {
+    private static final String TAG = "CourseSearchIndex";
+
+    private static final String INDEX_FILE_NAME = "course_search_index.bin";
+    private static final int FILE_FORMAT_VERSION = 2;
+
+    // Coalesce bursts of snapshot changes into one disk write
+    private static final long SAVE_DELAY_MS = 2000;
+
+    // Courses read per query while building the index
+    private static final int BACKFILL_PAGE_SIZE = 500;
+
+    private static CourseSearchIndex instance;
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+    private File indexFile;
+    private Catalog catalog = new Catalog(); // Replaced whole when built or loaded
+    private final List<ListenerRegistration> registrations = new ArrayList<>();
+    private boolean ready;
+    private long watermark = -1; // Newest updatedAt applied, in epoch millis; -1 until the index is built
+    private boolean saveScheduled;
+    private boolean following;
+    private int generation; // Bumped by stop(), so reads started before it end without applying anything
+
+    // The fields of a course the index needs for matching and ranking
+    private static class IndexedCourse {
+        final String id;
+        final String title;
+        final String shortDescription;
+        final String uploaderUsername;
+        final long createdAtMillis;
+        final List<String> titleWords;
+        final List<String> descriptionWords;
+        final List<String> uploaderWords;
+
+        IndexedCourse(String id, String title, String shortDescription, String uploaderUsername,
+                      long createdAtMillis) {
+            this.id = id;
+            this.title = title;
+            this.shortDescription = shortDescription;
+            this.uploaderUsername = uploaderUsername;
+            this.createdAtMillis = createdAtMillis;
+            this.titleWords = SearchTokenizer.words(title);
+            this.descriptionWords = SearchTokenizer.words(shortDescription);
+            this.uploaderWords = SearchTokenizer.words(uploaderUsername);
+        }
+
+        Set<String> allWords() {
+            Set<String> words = new HashSet<>(titleWords);
+            words.addAll(descriptionWords);
+            words.addAll(uploaderWords);
+            return words;
+        }
+    }
+
+    // Indexed courses and their posting lists
+    private static class Catalog {
+        // word -> ids of courses containing it, sorted by word for prefix range scans
+        final TreeMap<String, Set<String>> postings = new TreeMap<>();
+        final Map<String, IndexedCourse> coursesById = new HashMap<>();
+
+        void put(IndexedCourse course) {
+            remove(course.id);
+            coursesById.put(course.id, course);
+            for (String word : course.allWords()) {
+                Set<String> postingList = postings.get(word);
+                if (postingList == null) {
+                    postingList = new HashSet<>();
+                    postings.put(word, postingList);
+                }
+                postingList.add(course.id);
+            }
+        }
+
+        void remove(String courseId) {
+            IndexedCourse existing = coursesById.remove(courseId);
+            if (existing == null) {
+                return;
+            }
+            for (String word : existing.allWords()) {
+                Set<String> postingList = postings.get(word);
+                if (postingList != null) {
+                    postingList.remove(courseId);
+                    if (postingList.isEmpty()) {
+                        postings.remove(word);
+                    }
+                }
+            }
+        }
+    }
+
+    public static synchronized CourseSearchIndex getInstance() {
+        if (instance == null) {
+            instance = new CourseSearchIndex();
+        }
+        return instance;
+    }
+
+    private CourseSearchIndex() {
+    }
+
+    /**
+     * Load the persisted index and follow public course changes whenever a
+     * user is signed in. Safe to call more than once.
+     * @param context Any context; the application context is kept
+     */
+    public synchronized void start(Context context) {
+        if (indexFile != null) {
+            return;
+        }
+        indexFile = new File(context.getApplicationContext().getFilesDir(), INDEX_FILE_NAME);
+        executor.execute(this::loadFromDisk);
+
+        // Fires right away with the current user, then on every sign-in and sign-out
+        FirebaseAuth.getInstance().addAuthStateListener(auth -> {
+            if (auth.getCurrentUser() != null) {
+                follow();
+            } else {
+                stop();
+            }
+        });
+    }
+
+    // Catch up from the watermark, or build the index if there is none yet, then follow changes
+    private synchronized void follow() {
+        if (following) {
+            return;
+        }
+        following = true;
+        int followGeneration = generation;
+
+        // Queued behind loadFromDisk, so the watermark read here is the persisted one
+        executor.execute(() -> {
+            long since;
+            synchronized (this) {
+                if (followGeneration != generation) {
+                    return;
+                }
+                since = watermark;
+            }
+            if (since < 0) {
+                backfill(followGeneration);
+            } else {
+                listenForChanges(since, followGeneration);
+            }
+        });
+    }
+
+    // Stop following course changes and flush the index to disk. Called on sign-out; the index stays searchable.
+    private synchronized void stop() {
+        if (!following) {
+            return;
+        }
+        following = false;
+        generation++;
+        for (ListenerRegistration registration : registrations) {
+            registration.remove();
+        }
+        registrations.clear();
+        executor.execute(this::saveToDisk);
+    }
+
+    /**
+     * @return True once the index holds a usable copy of the catalog
+     */
+    public synchronized boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Find public courses whose words start with every query word
+     * @param query The raw query
+     * @param limit Maximum number of ids to return
+     * @return Matching course ids, best match first
+     */
+    public synchronized List<String> search(String query, int limit) {
+        List<String> tokens = SearchTokenizer.queryTokens(query);
+        if (tokens.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        // Intersect the candidates of each query word, starting from the rarest
+        List<Set<String>> candidateSets = new ArrayList<>();
+        for (String token : tokens) {
+            Set<String> candidates = idsWithPrefix(token);
+            if (candidates.isEmpty()) {
+                return new ArrayList<>();
+            }
+            candidateSets.add(candidates);
+        }
+        Collections.sort(candidateSets, (a, b) -> Integer.compare(a.size(), b.size()));
+
+        Set<String> matches = new HashSet<>(candidateSets.get(0));
+        for (int i = 1; i < candidateSets.size() && !matches.isEmpty(); i++) {
+            matches.retainAll(candidateSets.get(i));
+        }
+
+        // Best matches first, newest first among equal scores
+        List<IndexedCourse> ranked = new ArrayList<>();
+        Map<String, Integer> scores = new HashMap<>();
+        for (String courseId : matches) {
+            IndexedCourse course = catalog.coursesById.get(courseId);
+            ranked.add(course);
+            scores.put(courseId, SearchTokenizer.score(
+                    course.titleWords, course.uploaderWords, course.descriptionWords, tokens));
+        }
+        Collections.sort(ranked, (a, b) -> {
+            int byScore = Integer.compare(scores.get(b.id), scores.get(a.id));
+            if (byScore != 0) {
+                return byScore;
+            }
+            return Long.compare(b.createdAtMillis, a.createdAtMillis);
+        });
+
+        List<String> courseIds = new ArrayList<>();
+        for (int i = 0; i < ranked.size() && i < limit; i++) {
+            courseIds.add(ranked.get(i).id);
+        }
+        return courseIds;
+    }
+
+    // Union of the posting lists of every word starting with the prefix
+    private Set<String> idsWithPrefix(String prefix) {
+        Set<String> ids = new HashSet<>();
+        Map<String, Set<String>> matching = catalog.postings.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+        for (Set<String> postingList : matching.values()) {
+            ids.addAll(postingList);
+        }
+        return ids;
+    }
+
+    // Build the index from every public course once, then follow changes from where the catalog stood
+    private void backfill(int followGeneration) {
+        // Read the newest updatedAt first: anything written during the full read is newer and gets followed
+        FirebaseFirestore.getInstance().collection("courses")
+                .orderBy("updatedAt", Query.Direction.DESCENDING)
+                .limit(1)
+                .get(Source.SERVER)
+                .addOnSuccessListener(executor, newest -> {
+                    long since = newest.isEmpty() ? 0 : updatedAtMillis(newest.getDocuments().get(0));
+                    backfillPage(since, new Catalog(), null, followGeneration);
+                })
+                .addOnFailureListener(executor, e -> Log.e(TAG, "Failed to build search index: " + e.getMessage()));
+    }
+
+    // Read one page of public courses into a catalog nobody searches yet; after the last page, swap it in
+    private void backfillPage(long since, Catalog building, DocumentSnapshot lastRead, int followGeneration) {
+        Query query = FirebaseFirestore.getInstance().collection("courses")
+                .whereEqualTo("private", false) // Only public courses are searchable
+                .orderBy(FieldPath.documentId())
+                .limit(BACKFILL_PAGE_SIZE);
+        if (lastRead != null) {
+            query = query.startAfter(lastRead);
+        }
+
+        query.get(Source.SERVER)
+                .addOnSuccessListener(executor, snapshots -> {
+                    synchronized (this) {
+                        if (followGeneration != generation) {
+                            return;
+                        }
+                    }
+                    // Only this executor's thread touches the catalog being built
+                    for (QueryDocumentSnapshot document : snapshots) {
+                        building.put(toIndexedCourse(document));
+                    }
+                    if (snapshots.size() == BACKFILL_PAGE_SIZE) {
+                        backfillPage(since, building, snapshots.getDocuments().get(snapshots.size() - 1),
+                                followGeneration);
+                        return;
+                    }
+
+                    synchronized (this) {
+                        if (followGeneration != generation) {
+                            return;
+                        }
+                        catalog = building;
+                        watermark = since;
+                        ready = true;
+                    }
+                    scheduleSave();
+                    listenForChanges(since, followGeneration);
+                })
+                .addOnFailureListener(executor, e -> Log.e(TAG, "Failed to build search index: " + e.getMessage()));
+    }
+
+    // Follow public courses stamped at or after `since`, plus tombstones of courses deleted or made
+    // private. The first snapshot holds only what changed since the index was saved, not the whole catalog.
+    private void listenForChanges(long since, int followGeneration) {
+        Timestamp sinceTimestamp = new Timestamp(new Date(since));
+        FirebaseFirestore firestore = FirebaseFirestore.getInstance();
+
+        // Public courses only, so private ones and their access codes never reach this device. A course
+        // made private while followed leaves the query; one made private before leaves a tombstone.
+        ListenerRegistration courseListener = firestore.collection("courses")
+                .whereEqualTo("private", false)
+                .whereGreaterThanOrEqualTo("updatedAt", sinceTimestamp)
+                .addSnapshotListener(executor, (snapshots, error) -> {
+                    if (error != null) {
+                        Log.e(TAG, "Course listener failed: " + error.getMessage());
+                        return;
+                    }
+                    if (snapshots == null) {
+                        return;
+                    }
+
+                    synchronized (this) {
+                        for (DocumentChange change : snapshots.getDocumentChanges()) {
+                            QueryDocumentSnapshot document = change.getDocument();
+                            // updatedAt only grows, so a course leaves this query when deleted or made private
+                            if (change.getType() == DocumentChange.Type.REMOVED) {
+                                catalog.remove(document.getId());
+                            } else {
+                                catalog.put(toIndexedCourse(document));
+                            }
+                            watermark = Math.max(watermark, updatedAtMillis(document));
+                        }
+                    }
+                    scheduleSave();
+                });
+
+        ListenerRegistration tombstoneListener = firestore.collection(Tombstone.COLLECTION)
+                .whereGreaterThanOrEqualTo("updatedAt", sinceTimestamp)
+                .addSnapshotListener(executor, (snapshots, error) -> {
+                    if (error != null) {
+                        Log.e(TAG, "Tombstone listener failed: " + error.getMessage());
+                        return;
+                    }
+                    if (snapshots == null) {
+                        return;
+                    }
+
+                    synchronized (this) {
+                        for (DocumentChange change : snapshots.getDocumentChanges()) {
+                            Tombstone tombstone = change.getDocument().toObject(Tombstone.class);
+                            if (change.getType() != DocumentChange.Type.REMOVED
+                                    && "courses".equals(tombstone.getCollection())) {
+                                catalog.remove(tombstone.getDocumentId());
+                            }
+                        }
+                    }
+                    scheduleSave();
+                });
+
+        synchronized (this) {
+            // Signed out while the index was being read; these listeners are not wanted any more
+            if (followGeneration != generation) {
+                courseListener.remove();
+                tombstoneListener.remove();
+                return;
+            }
+            registrations.add(courseListener);
+            registrations.add(tombstoneListener);
+        }
+    }
+
+    private static IndexedCourse toIndexedCourse(QueryDocumentSnapshot document) {
+        Course course = document.toObject(Course.class);
+        return new IndexedCourse(document.getId(), course.getTitle(), course.getShortDescription(),
+                course.getUploaderUsername(), course.getCreatedAtMillis());
+    }
+
+    // 0 while the write that set it is still on its way to the server
+    private static long updatedAtMillis(DocumentSnapshot document) {
+        Timestamp updatedAt = document.getTimestamp("updatedAt");
+        return updatedAt != null ? updatedAt.toDate().getTime() : 0;
+    }
+
+    private synchronized void scheduleSave() {
+        if (saveScheduled) {
+            return;
+        }
+        saveScheduled = true;
+        executor.schedule(() -> {
+            synchronized (this) {
+                saveScheduled = false;
+            }
+            saveToDisk();
+        }, SAVE_DELAY_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private void loadFromDisk() {
+        if (!indexFile.exists()) {
+            return;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)))) {
+            // An index from an older format is rebuilt, since it has no watermark to resume from
+            if (in.readInt() != FILE_FORMAT_VERSION) {
+                return;
+            }
+            long savedWatermark = in.readLong();
+            int count = in.readInt();
+            Catalog loaded = new Catalog();
+            for (int i = 0; i < count; i++) {
+                loaded.put(new IndexedCourse(in.readUTF(), readNullableString(in),
+                        readNullableString(in), readNullableString(in), in.readLong()));
+            }
+            synchronized (this) {
+                // A persisted index is good enough to search while the listener catches up
+                catalog = loaded;
+                watermark = savedWatermark;
+                ready = true;
+            }
+        } catch (IOException e) {
+            // Nothing was swapped in; the index gets built from scratch
+            Log.e(TAG, "Failed to load search index: " + e.getMessage());
+        }
+    }
+
+    private void saveToDisk() {
+        List<IndexedCourse> snapshot;
+        long savedWatermark;
+        synchronized (this) {
+            // Not built yet; nothing worth keeping
+            if (watermark < 0) {
+                return;
+            }
+            snapshot = new ArrayList<>(catalog.coursesById.values());
+            savedWatermark = watermark;
+        }
+
+        // Write to a temporary file first so a crash never leaves a truncated index
+        File tempFile = new File(indexFile.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+            out.writeInt(FILE_FORMAT_VERSION);
+            out.writeLong(savedWatermark);
+            out.writeInt(snapshot.size());
+            for (IndexedCourse course : snapshot) {
+                out.writeUTF(course.id);
+                writeNullableString(out, course.title);
+                writeNullableString(out, course.shortDescription);
+                writeNullableString(out, course.uploaderUsername);
+                out.writeLong(course.createdAtMillis);
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to save search index: " + e.getMessage());
+            tempFile.delete();
+            return;
+        }
+
+        if (!tempFile.renameTo(indexFile)) {
+            Log.e(TAG, "Failed to replace search index file");
+            tempFile.delete();
+        }
+    }
+
+    private static void writeNullableString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullableString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
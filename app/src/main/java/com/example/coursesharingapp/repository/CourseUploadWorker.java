@@ -0,0 +1,214 @@
+package com.example.coursesharingapp.repository;
+
+import android.app.Notification;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.content.Context;
+import android.content.pm.ServiceInfo;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.core.app.NotificationCompat;
+import androidx.work.Data;
+import androidx.work.ForegroundInfo;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.example.coursesharingapp.model.Course;
+import com.example.coursesharingapp.model.UploadJob;
+
+import java.io.File;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Runs one job of the {@link UploadQueue} as a foreground service, so the
+ * upload continues when the app is in the background.
+ */
+public class CourseUploadWorker extends Worker {
+    private static final String TAG = "CourseUploadWorker";
+
+    static final String KEY_JOB_ID = "job_id";
+    public static final String KEY_PROGRESS = "progress";
+
+    private static final String CHANNEL_ID = "course_uploads";
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final CountDownLatch finished = new CountDownLatch(1);
+    private CourseRepository.CourseUpload upload; // Only touched on the main thread
+
+    public CourseUploadWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        String jobId = getInputData().getString(KEY_JOB_ID);
+        UploadQueue queue = UploadQueue.getInstance();
+        queue.init(getApplicationContext());
+
+        UploadJob job = queue.getJob(jobId);
+        if (job == null || job.isFinished()) {
+            // Cancelled or already done
+            return Result.success();
+        }
+
+        // The upload limit is held here, since WorkManager's threads are shared with other work
+        if (!queue.acquireUploadSlot(this)) {
+            return Result.retry();
+        }
+        try {
+            return upload(queue, job);
+        } finally {
+            queue.releaseUploadSlot();
+        }
+    }
+
+    // Run the job's upload on the main thread and wait for it to finish or be stopped
+    private Result upload(UploadQueue queue, UploadJob job) {
+        String jobId = job.getId();
+        setForegroundAsync(createForegroundInfo(job.getTitle(), 0));
+        queue.markRunning(jobId);
+
+        final String[] error = new String[1];
+        final int[] lastProgress = {-1};
+        Course course = job.toCourse();
+
+        // Firebase delivers callbacks on the main thread; this worker thread just waits for the result
+        mainHandler.post(() -> {
+            if (isStopped()) {
+                // Stopped before it began; onStopped has already released the worker thread
+                return;
+            }
+            upload = new CourseRepository().createCourseWithProgress(course,
+                Uri.parse(job.getThumbnailUri()), Uri.parse(job.getVideoUri()), job.getVideoPath(),
+                new CourseRepository.UploadProgressCallback() {
+                    @Override
+                    public void onAccessCodeReserved(String accessCode) {
+                        queue.setAccessCode(jobId, accessCode);
+                    }
+
+                    @Override
+                    public void onThumbnailProgress(int progress) {
+                    }
+
+                    @Override
+                    public void onVideoProgress(int progress) {
+                    }
+
+                    @Override
+                    public void onOverallProgress(int progress, long bytesTransferred, long totalBytes) {
+                        queue.updateProgress(jobId, progress, bytesTransferred, totalBytes);
+                        if (progress != lastProgress[0]) {
+                            lastProgress[0] = progress;
+                            setProgressAsync(new Data.Builder().putInt(KEY_PROGRESS, progress).build());
+                            setForegroundAsync(createForegroundInfo(job.getTitle(), progress));
+                        }
+                    }
+
+                    @Override
+                    public void onThumbnailComplete() {
+                    }
+
+                    @Override
+                    public void onVideoComplete() {
+                    }
+
+                    @Override
+                    public void onSuccess() {
+                        finished.countDown();
+                    }
+
+                    @Override
+                    public void onError(String errorMessage) {
+                        error[0] = errorMessage != null ? errorMessage : "Upload failed";
+                        finished.countDown();
+                    }
+                });
+        });
+
+        try {
+            finished.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Result.retry();
+        }
+
+        if (isStopped()) {
+            // Constraints no longer met or cancelled; WorkManager decides whether to run it again
+            queue.markQueued(jobId);
+            return Result.retry();
+        }
+        if (error[0] != null) {
+            Log.e(TAG, "Upload job " + jobId + " failed: " + error[0]);
+            queue.markFailed(jobId, error[0]);
+            return Result.failure();
+        }
+        // The course is live with its progressive video; the adaptive ladder follows when it's ready.
+        // Packaging takes over the job's copy of the video, which the queue deletes with the job.
+        File videoCopy = new File(Uri.parse(job.getVideoUri()).getPath());
+        File packagingSource = VideoPackagingWorker.sourceFile(getApplicationContext(), course.getId(),
+                course.getVideoUrl());
+        File packagingDir = packagingSource.getParentFile();
+        boolean handedOver = (packagingDir.isDirectory() || packagingDir.mkdirs())
+                && videoCopy.renameTo(packagingSource);
+        queue.markSucceeded(jobId);
+        if (handedOver) {
+            VideoPackagingWorker.enqueue(getApplicationContext(), course.getId(), job.getTitle(),
+                    Uri.fromFile(packagingSource), course.getVideoUrl(), job.isWifiOnly());
+        } else {
+            Log.w(TAG, "Could not hand the video of job " + jobId + " to packaging; it stays progressive");
+        }
+        return Result.success();
+    }
+
+    @Override
+    public void onStopped() {
+        super.onStopped();
+        UploadQueue.getInstance().wakeUploadSlotWaiters();
+        // Pause the video before releasing the worker thread, so a retry resumes the same
+        // session rather than sending the file again alongside it. The job keeps its reserved
+        // course id and video path, so the re-run overwrites whatever this run got to.
+        mainHandler.post(() -> {
+            if (upload != null) {
+                upload.stop(finished::countDown);
+            } else {
+                finished.countDown();
+            }
+        });
+    }
+
+    // Needed for expedited work on devices that start it as a foreground service right away
+    @NonNull
+    @Override
+    public ForegroundInfo getForegroundInfo() {
+        UploadQueue queue = UploadQueue.getInstance();
+        queue.init(getApplicationContext());
+        UploadJob job = queue.getJob(getInputData().getString(KEY_JOB_ID));
+        return createForegroundInfo(job != null ? job.getTitle() : null, 0);
+    }
+
+    private ForegroundInfo createForegroundInfo(String title, int progress) {
+        Context context = getApplicationContext();
+        NotificationManager notificationManager = context.getSystemService(NotificationManager.class);
+        if (notificationManager.getNotificationChannel(CHANNEL_ID) == null) {
+            notificationManager.createNotificationChannel(new NotificationChannel(
+                    CHANNEL_ID, "Course uploads", NotificationManager.IMPORTANCE_LOW));
+        }
+
+        Notification notification = new NotificationCompat.Builder(context, CHANNEL_ID)
+                .setSmallIcon(android.R.drawable.stat_sys_upload)
+                .setContentTitle(title != null ? "Uploading " + title : "Uploading course")
+                .setProgress(100, progress, progress == 0)
+                .setOngoing(true)
+                .setOnlyAlertOnce(true)
+                .build();
+
+        // One notification per job
+        int notificationId = getId().hashCode();
+        return new ForegroundInfo(notificationId, notification, ServiceInfo.FOREGROUND_SERVICE_TYPE_DATA_SYNC);
+    }
+}
@@ -0,0 +1,418 @@
+package com.example.coursesharingapp.repository;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.room.Room;
+
+import com.example.coursesharingapp.local.CourseEntity;
+import com.example.coursesharingapp.local.LocalDatabase;
+import com.example.coursesharingapp.local.PlaylistEntity;
+import com.example.coursesharingapp.local.SavedCourseEntity;
+import com.example.coursesharingapp.local.SavedPlaylistEntity;
+import com.example.coursesharingapp.local.SyncStateEntity;
+import com.example.coursesharingapp.local.UserEntity;
+import com.example.coursesharingapp.model.Course;
+import com.example.coursesharingapp.model.Playlist;
+import com.example.coursesharingapp.model.SavedCourse;
+import com.example.coursesharingapp.model.SavedPlaylist;
+import com.example.coursesharingapp.model.User;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * On-disk mirror of the courses, playlists, bookmarks and user profiles the
+ * app has seen, so screens can show their last known content straight away
+ * and refresh it when Firestore answers (stale-while-revalidate).
+ *
+ * Repositories write every document they read through to the mirror. Feed
+ * listeners also report which documents a query returned, so rows deleted or
+ * made private elsewhere drop out of the mirror, and {@link MirrorSync} pulls
+ * in whatever changed since the last sync. All database work runs on
+ * one background thread in submission order; read results are delivered on
+ * the main thread. A read that finds nothing, or fails, stays silent and
+ * leaves the screen to its Firestore load.
+ */
+public class LocalStore {
+    private static final String TAG = "LocalStore";
+
+    // SQLite before Android 11 accepts at most 999 bound arguments per statement
+    private static final int MAX_SQL_ARGS = 900;
+
+    // Watermark of a collection that has never been synced
+    public static final long NO_WATERMARK = -1;
+
+    private static LocalStore instance;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private LocalDatabase database;
+
+    // Documents arrive one at a time from the repositories; write them in one transaction. Guarded by this.
+    private final Map<String, CourseEntity> pendingCourses = new LinkedHashMap<>();
+    private final Map<String, PlaylistEntity> pendingPlaylists = new LinkedHashMap<>();
+    private boolean flushScheduled;
+
+    public static synchronized LocalStore getInstance() {
+        if (instance == null) {
+            instance = new LocalStore();
+        }
+        return instance;
+    }
+
+    private LocalStore() {
+    }
+
+    /**
+     * Open the database. Safe to call more than once.
+     * @param context Any context; the application context is kept
+     */
+    public synchronized void init(Context context) {
+        if (database != null) {
+            return;
+        }
+        // Every row can be fetched again, so a schema change just starts the mirror over
+        database = Room.databaseBuilder(context.getApplicationContext(),
+                        LocalDatabase.class, LocalDatabase.DATABASE_NAME)
+                .fallbackToDestructiveMigration()
+                .build();
+        // Open the file now so the first screen's read doesn't pay for it
+        executor.execute(() -> database.getOpenHelper().getWritableDatabase());
+    }
+
+    // Courses
+
+    public void putCourse(Course course) {
+        if (course.getId() == null || database == null) {
+            return;
+        }
+        synchronized (this) {
+            pendingCourses.put(course.getId(), CourseEntity.fromCourse(course));
+            scheduleFlush();
+        }
+    }
+
+    public void deleteCourse(String courseId) {
+        run(() -> database.courseDao().delete(courseId));
+    }
+
+    /**
+     * Drop public courses a feed query no longer returns
+     * @param category The feed's category, or null for all courses
+     * @param returnedIds Ids of every course the query returned
+     * @param after The query covers every course created after this time; Long.MIN_VALUE if it wasn't cut off
+     */
+    public void removeMissingPublicCourses(String category, List<String> returnedIds, long after) {
+        if (returnedIds.size() > MAX_SQL_ARGS) {
+            return;
+        }
+        run(() -> database.courseDao().deleteMissingPublic(category, after, returnedIds));
+    }
+
+    // Drop an uploader's courses their query no longer returns
+    public void removeMissingUploaderCourses(String uploaderUid, List<String> returnedIds) {
+        if (returnedIds.size() > MAX_SQL_ARGS) {
+            return;
+        }
+        run(() -> database.courseDao().deleteMissingByUploader(uploaderUid, Long.MIN_VALUE, returnedIds));
+    }
+
+    // Newest mirrored public courses, optionally in one category (null for all)
+    public void getCourses(String category, int limit, CourseRepository.CoursesCallback callback) {
+        read(() -> toCourses(database.courseDao().getPublicCourses(category, limit)),
+                callback::onCoursesLoaded);
+    }
+
+    // Mirrored saved courses, most recently saved first
+    public void getSavedCourses(String userId, CourseRepository.CoursesCallback callback) {
+        read(() -> toCourses(database.courseDao().getSavedCourses(userId)), callback::onCoursesLoaded);
+    }
+
+    // Playlists
+
+    public void putPlaylist(Playlist playlist) {
+        if (playlist.getId() == null || database == null) {
+            return;
+        }
+        synchronized (this) {
+            pendingPlaylists.put(playlist.getId(), PlaylistEntity.fromPlaylist(playlist));
+            scheduleFlush();
+        }
+    }
+
+    public void deletePlaylist(String playlistId) {
+        run(() -> database.playlistDao().delete(playlistId));
+    }
+
+    // Drop public playlists the full public query no longer returns
+    public void removeMissingPublicPlaylists(List<String> returnedIds) {
+        if (returnedIds.size() > MAX_SQL_ARGS) {
+            return;
+        }
+        run(() -> database.playlistDao().deleteMissingPublic(returnedIds));
+    }
+
+    // Drop a creator's playlists their query no longer returns
+    public void removeMissingCreatorPlaylists(String creatorUid, List<String> returnedIds) {
+        if (returnedIds.size() > MAX_SQL_ARGS) {
+            return;
+        }
+        run(() -> database.playlistDao().deleteMissingByCreator(creatorUid, returnedIds));
+    }
+
+    // Mirrored saved playlists, most recently saved first
+    public void getSavedPlaylists(String userId, PlaylistRepository.PlaylistsCallback callback) {
+        read(() -> {
+            List<Playlist> playlists = new ArrayList<>();
+            for (PlaylistEntity entity : database.playlistDao().getSavedPlaylists(userId)) {
+                playlists.add(entity.toPlaylist());
+            }
+            return playlists;
+        }, callback::onPlaylistsLoaded);
+    }
+
+    // A mirrored playlist with the courses of it that are mirrored, in playlist order; nothing if it isn't mirrored
+    public void getPlaylistWithCourses(String playlistId, PlaylistRepository.PlaylistWithCoursesCallback callback) {
+        read(() -> {
+            PlaylistEntity entity = database.playlistDao().getPlaylist(playlistId);
+            if (entity == null) {
+                return null;
+            }
+            Playlist playlist = entity.toPlaylist();
+            Map<String, Course> coursesById = new HashMap<>();
+            List<String> courseIds = playlist.getCourseIds();
+            for (int start = 0; start < courseIds.size(); start += MAX_SQL_ARGS) {
+                List<String> chunk = courseIds.subList(start, Math.min(start + MAX_SQL_ARGS, courseIds.size()));
+                for (CourseEntity courseEntity : database.courseDao().getCoursesByIds(chunk)) {
+                    coursesById.put(courseEntity.id, courseEntity.toCourse());
+                }
+            }
+            List<Course> courses = new ArrayList<>();
+            for (String courseId : courseIds) {
+                Course course = coursesById.get(courseId);
+                if (course != null) {
+                    courses.add(course);
+                }
+            }
+            return new PlaylistWithCourses(playlist, courses);
+        }, result -> callback.onPlaylistWithCoursesLoaded(result.playlist, result.courses));
+    }
+
+    // Bookmarks
+
+    // Mirror bookmark documents the saved state listener saw added or changed
+    public void putSavedCourses(List<SavedCourse> savedCourses) {
+        List<SavedCourseEntity> entities = new ArrayList<>();
+        for (SavedCourse savedCourse : savedCourses) {
+            entities.add(new SavedCourseEntity(savedCourse.getId(), savedCourse.getUserId(),
+                    savedCourse.getCourseId(), savedCourse.getSavedAtMillis()));
+        }
+        run(() -> database.savedItemDao().upsertSavedCourses(entities));
+    }
+
+    public void deleteSavedCourses(List<String> bookmarkIds) {
+        run(() -> database.savedItemDao().deleteSavedCourses(bookmarkIds));
+    }
+
+    // Drop a user's course bookmarks the server no longer has
+    public void removeMissingSavedCourses(String userId, List<String> bookmarkIds) {
+        if (bookmarkIds.size() > MAX_SQL_ARGS) {
+            return;
+        }
+        run(() -> database.savedItemDao().deleteMissingSavedCourses(userId, bookmarkIds));
+    }
+
+    public void putSavedPlaylists(List<SavedPlaylist> savedPlaylists) {
+        List<SavedPlaylistEntity> entities = new ArrayList<>();
+        for (SavedPlaylist savedPlaylist : savedPlaylists) {
+            entities.add(new SavedPlaylistEntity(savedPlaylist.getId(), savedPlaylist.getUserId(),
+                    savedPlaylist.getPlaylistId(), savedPlaylist.getSavedAtMillis()));
+        }
+        run(() -> database.savedItemDao().upsertSavedPlaylists(entities));
+    }
+
+    public void deleteSavedPlaylists(List<String> bookmarkIds) {
+        run(() -> database.savedItemDao().deleteSavedPlaylists(bookmarkIds));
+    }
+
+    public void removeMissingSavedPlaylists(String userId, List<String> bookmarkIds) {
+        if (bookmarkIds.size() > MAX_SQL_ARGS) {
+            return;
+        }
+        run(() -> database.savedItemDao().deleteMissingSavedPlaylists(userId, bookmarkIds));
+    }
+
+    // Forget the signed-out user's bookmarks
+    public void clearBookmarks() {
+        run(() -> {
+            database.savedItemDao().clearSavedCourses();
+            database.savedItemDao().clearSavedPlaylists();
+        });
+    }
+
+    // Users
+
+    public void putUser(User user) {
+        if (user.getId() == null) {
+            return;
+        }
+        UserEntity entity = UserEntity.fromUser(user);
+        run(() -> database.userDao().upsert(entity));
+    }
+
+    // A mirrored user profile; nothing if it isn't mirrored
+    public void getUser(String userId, UserRepository.UserCallback callback) {
+        read(() -> {
+            UserEntity entity = database.userDao().getUser(userId);
+            return entity != null ? entity.toUser() : null;
+        }, callback::onUserLoaded);
+    }
+
+    // Sync
+
+    public interface WatermarkCallback {
+        void onWatermarkLoaded(long watermark);
+    }
+
+    // How far a collection has been synced; NO_WATERMARK if it never has
+    public void getWatermark(String collection, WatermarkCallback callback) {
+        read(() -> {
+            SyncStateEntity syncState = database.syncStateDao().getSyncState(collection);
+            return syncState != null ? syncState.watermark : NO_WATERMARK;
+        }, callback::onWatermarkLoaded);
+    }
+
+    /**
+     * Apply one page of a delta sync and move the collection's watermark past it, in one
+     * transaction, so a sync cut short never leaves the watermark ahead of the rows
+     * @param collection The synced collection
+     * @param watermark The newest updatedAt in the page
+     * @param courses Courses to store
+     * @param playlists Playlists to store
+     * @param removedCourseIds Courses deleted or no longer visible to this user
+     * @param removedPlaylistIds Playlists deleted or no longer visible to this user
+     */
+    public void applySyncPage(String collection, long watermark, List<Course> courses, List<Playlist> playlists,
+                              List<String> removedCourseIds, List<String> removedPlaylistIds) {
+        List<CourseEntity> courseEntities = new ArrayList<>();
+        for (Course course : courses) {
+            courseEntities.add(CourseEntity.fromCourse(course));
+        }
+        List<PlaylistEntity> playlistEntities = new ArrayList<>();
+        for (Playlist playlist : playlists) {
+            playlistEntities.add(PlaylistEntity.fromPlaylist(playlist));
+        }
+        run(() -> database.runInTransaction(() -> {
+            if (!courseEntities.isEmpty()) {
+                database.courseDao().upsert(courseEntities);
+            }
+            if (!playlistEntities.isEmpty()) {
+                database.playlistDao().upsert(playlistEntities);
+            }
+            for (int start = 0; start < removedCourseIds.size(); start += MAX_SQL_ARGS) {
+                database.courseDao().deleteAll(
+                        removedCourseIds.subList(start, Math.min(start + MAX_SQL_ARGS, removedCourseIds.size())));
+            }
+            for (int start = 0; start < removedPlaylistIds.size(); start += MAX_SQL_ARGS) {
+                database.playlistDao().deleteAll(
+                        removedPlaylistIds.subList(start, Math.min(start + MAX_SQL_ARGS, removedPlaylistIds.size())));
+            }
+            database.syncStateDao().upsert(new SyncStateEntity(collection, watermark));
+        }));
+    }
+
+    // Internals
+
+    private interface Load<T> {
+        T load();
+    }
+
+    private interface Result<T> {
+        void deliver(T result);
+    }
+
+    // Write all pending documents in one transaction
+    private void scheduleFlush() {
+        if (flushScheduled) {
+            return;
+        }
+        flushScheduled = true;
+        run(() -> {
+            List<CourseEntity> courses;
+            List<PlaylistEntity> playlists;
+            synchronized (LocalStore.this) {
+                courses = new ArrayList<>(pendingCourses.values());
+                playlists = new ArrayList<>(pendingPlaylists.values());
+                pendingCourses.clear();
+                pendingPlaylists.clear();
+                flushScheduled = false;
+            }
+            database.runInTransaction(() -> {
+                if (!courses.isEmpty()) {
+                    database.courseDao().upsert(courses);
+                }
+                if (!playlists.isEmpty()) {
+                    database.playlistDao().upsert(playlists);
+                }
+            });
+        });
+    }
+
+    private void run(Runnable write) {
+        if (database == null) {
+            return;
+        }
+        executor.execute(() -> {
+            try {
+                write.run();
+            } catch (RuntimeException e) {
+                // The mirror is only a cache; Firestore stays the source of truth
+                Log.e(TAG, "Local write failed", e);
+            }
+        });
+    }
+
+    private <T> void read(Load<T> load, Result<T> result) {
+        if (database == null) {
+            return;
+        }
+        executor.execute(() -> {
+            T loaded;
+            try {
+                loaded = load.load();
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Local read failed", e);
+                return;
+            }
+            if (loaded != null) {
+                mainHandler.post(() -> result.deliver(loaded));
+            }
+        });
+    }
+
+    private static class PlaylistWithCourses {
+        final Playlist playlist;
+        final List<Course> courses;
+
+        PlaylistWithCourses(Playlist playlist, List<Course> courses) {
+            this.playlist = playlist;
+            this.courses = courses;
+        }
+    }
+
+    private static List<Course> toCourses(List<CourseEntity> entities) {
+        List<Course> courses = new ArrayList<>();
+        for (CourseEntity entity : entities) {
+            courses.add(entity.toCourse());
+        }
+        return courses;
+    }
+}
@@ -0,0 +1,224 @@
+package com.example.coursesharingapp.repository;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.example.coursesharingapp.model.Course;
+import com.example.coursesharingapp.model.Playlist;
+import com.example.coursesharingapp.model.Tombstone;
+import com.google.firebase.Timestamp;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.Source;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Brings the {@link LocalStore} mirror up to date by pulling only the
+ * courses, playlists and tombstones whose server-stamped updatedAt is at or
+ * after the watermark stored for their collection, so a refresh costs as
+ * much as what changed rather than the size of the catalog. Only public
+ * courses and playlists and the user's own are pulled, so nobody else's
+ * private documents or access codes reach the device; one made private
+ * leaves a tombstone so devices that had it drop it.
+ *
+ * The first sync of a collection only records where the collection stands;
+ * the mirror is filled by the screens themselves. Documents written before
+ * updatedAt existed are never pulled, and stay current through the feed
+ * listeners. All callbacks run on the main thread.
+ */
+public class MirrorSync {
+    private static final String TAG = "MirrorSync";
+
+    private static final int PAGE_SIZE = 200;
+
+    // Coming back to the app more often than this doesn't sync again
+    private static final long MIN_SYNC_INTERVAL_MS = 5 * 60 * 1000;
+
+    private static MirrorSync instance;
+
+    private final FirebaseFirestore firestore = FirebaseFirestore.getInstance();
+    private final LocalStore localStore = LocalStore.getInstance();
+    private final CourseCache courseCache = CourseCache.getInstance();
+
+    private boolean syncing = false;
+    private long lastSyncAt = 0;
+
+    public static synchronized MirrorSync getInstance() {
+        if (instance == null) {
+            instance = new MirrorSync();
+        }
+        return instance;
+    }
+
+    private MirrorSync() {
+    }
+
+    /**
+     * Pull the changes since the last sync, unless a sync is running or finished recently.
+     * Call from the main thread.
+     */
+    public void sync() {
+        if (syncing || FirebaseAuth.getInstance().getCurrentUser() == null) {
+            return;
+        }
+        if (lastSyncAt != 0 && SystemClock.elapsedRealtime() - lastSyncAt < MIN_SYNC_INTERVAL_MS) {
+            return;
+        }
+        syncing = true;
+        syncCollection("courses", () ->
+                syncCollection("playlists", () ->
+                        syncCollection(Tombstone.COLLECTION, () -> finish(true))));
+    }
+
+    private void finish(boolean succeeded) {
+        syncing = false;
+        if (succeeded) {
+            lastSyncAt = SystemClock.elapsedRealtime();
+        }
+    }
+
+    private void syncCollection(String collection, Runnable next) {
+        localStore.getWatermark(collection, watermark -> {
+            if (watermark == LocalStore.NO_WATERMARK) {
+                startWatermark(collection, next);
+            } else {
+                pullPage(collection, changeQueries(collection, watermark), 0, watermark, new long[]{watermark},
+                        null, next);
+            }
+        });
+    }
+
+    // The queries for what changed in a collection since the watermark: tombstones, or the public
+    // documents plus the user's own. Documents made private since then arrive as tombstones.
+    private List<Query> changeQueries(String collection, long watermark) {
+        CollectionReference collectionRef = firestore.collection(collection);
+        List<Query> queries = new ArrayList<>();
+        if (Tombstone.COLLECTION.equals(collection)) {
+            queries.add(collectionRef);
+        } else {
+            String ownerField = "courses".equals(collection) ? "uploaderUid" : "creatorUid";
+            queries.add(collectionRef.whereEqualTo("private", false));
+            queries.add(collectionRef.whereEqualTo(ownerField, FirebaseAuth.getInstance().getUid()));
+        }
+
+        Timestamp since = new Timestamp(new Date(watermark));
+        for (int i = 0; i < queries.size(); i++) {
+            queries.set(i, queries.get(i)
+                    .whereGreaterThanOrEqualTo("updatedAt", since)
+                    .orderBy("updatedAt")
+                    .limit(PAGE_SIZE));
+        }
+        return queries;
+    }
+
+    // Record the newest updatedAt in the collection as where the first sync stands
+    private void startWatermark(String collection, Runnable next) {
+        Query query = firestore.collection(collection);
+        if (!Tombstone.COLLECTION.equals(collection)) {
+            query = query.whereEqualTo("private", false);
+        }
+        query.orderBy("updatedAt", Query.Direction.DESCENDING)
+                .limit(1)
+                .get(Source.SERVER)
+                .addOnSuccessListener(snapshots -> {
+                    long watermark = snapshots.isEmpty() ? 0 : updatedAtMillis(snapshots.getDocuments().get(0));
+                    localStore.applySyncPage(collection, watermark, new ArrayList<>(), new ArrayList<>(),
+                            new ArrayList<>(), new ArrayList<>());
+                    next.run();
+                })
+                .addOnFailureListener(e -> {
+                    Log.w(TAG, "Could not start syncing " + collection + ": " + e.getMessage());
+                    finish(false);
+                });
+    }
+
+    // Pull one page of a change query, then its next page if this one was full, then the next query.
+    // The stored watermark only moves once every query has been read, so an interrupted sync repeats
+    // pages rather than skipping them. Documents sharing the watermark's time are pulled again;
+    // applying them twice is harmless.
+    private void pullPage(String collection, List<Query> queries, int queryIndex, long watermark, long[] newest,
+                          DocumentSnapshot after, Runnable next) {
+        Query query = queries.get(queryIndex);
+        if (after != null) {
+            query = query.startAfter(after);
+        }
+
+        // From the server, so the page reflects what changed rather than what this device cached
+        query.get(Source.SERVER)
+                .addOnSuccessListener(snapshots -> {
+                    for (DocumentSnapshot document : snapshots.getDocuments()) {
+                        newest[0] = Math.max(newest[0], updatedAtMillis(document));
+                    }
+                    boolean full = snapshots.size() >= PAGE_SIZE;
+                    boolean lastPage = !full && queryIndex == queries.size() - 1;
+                    applyPage(collection, lastPage ? newest[0] : watermark, snapshots);
+                    if (full) {
+                        DocumentSnapshot last = snapshots.getDocuments().get(snapshots.size() - 1);
+                        pullPage(collection, queries, queryIndex, watermark, newest, last, next);
+                    } else if (!lastPage) {
+                        pullPage(collection, queries, queryIndex + 1, watermark, newest, null, next);
+                    } else {
+                        next.run();
+                    }
+                })
+                .addOnFailureListener(e -> {
+                    Log.w(TAG, "Could not sync " + collection + ": " + e.getMessage());
+                    finish(false);
+                });
+    }
+
+    // Apply a page to the mirror and store the watermark the sync has reached
+    private void applyPage(String collection, long watermark, QuerySnapshot snapshots) {
+        FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
+        String uid = user != null ? user.getUid() : null;
+
+        List<Course> courses = new ArrayList<>();
+        List<Playlist> playlists = new ArrayList<>();
+        List<String> removedCourseIds = new ArrayList<>();
+        List<String> removedPlaylistIds = new ArrayList<>();
+
+        for (DocumentSnapshot document : snapshots.getDocuments()) {
+            switch (collection) {
+                case "courses":
+                    Course course = document.toObject(Course.class);
+                    course.setId(document.getId());
+                    courses.add(course);
+                    courseCache.put(course, document.getMetadata());
+                    break;
+                case "playlists":
+                    Playlist playlist = document.toObject(Playlist.class);
+                    playlist.setId(document.getId());
+                    playlists.add(playlist);
+                    break;
+                default:
+                    Tombstone tombstone = document.toObject(Tombstone.class);
+                    if (uid != null && uid.equals(tombstone.getOwnerUid())) {
+                        // The user's own document made private; they still see it
+                        break;
+                    }
+                    if ("courses".equals(tombstone.getCollection())) {
+                        removedCourseIds.add(tombstone.getDocumentId());
+                        courseCache.invalidate(tombstone.getDocumentId());
+                    } else if ("playlists".equals(tombstone.getCollection())) {
+                        removedPlaylistIds.add(tombstone.getDocumentId());
+                    }
+                    break;
+            }
+        }
+
+        localStore.applySyncPage(collection, watermark, courses, playlists, removedCourseIds, removedPlaylistIds);
+    }
+
+    private static long updatedAtMillis(DocumentSnapshot document) {
+        Timestamp updatedAt = document.getTimestamp("updatedAt");
+        return updatedAt != null ? updatedAt.toDate().getTime() : 0;
+    }
+}
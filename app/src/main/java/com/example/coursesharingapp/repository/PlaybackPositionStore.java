@@ -0,0 +1,77 @@
+package com.example.coursesharingapp.repository;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+/**
+ * Remembers where playback of each course video stopped, so it can resume
+ * there next time, whether the course is opened on its own or from a
+ * playlist. A video watched to the end starts from the beginning again.
+ */
+public class PlaybackPositionStore {
+
+    private static final String PREF_NAME = "playback_positions";
+
+    // Stopping this close to the end counts as finished
+    private static final long FINISHED_THRESHOLD_MS = 5000;
+
+    private static PlaybackPositionStore instance;
+
+    private SharedPreferences prefs;
+
+    public static synchronized PlaybackPositionStore getInstance() {
+        if (instance == null) {
+            instance = new PlaybackPositionStore();
+        }
+        return instance;
+    }
+
+    private PlaybackPositionStore() {
+    }
+
+    /**
+     * Open the store. Safe to call more than once.
+     * @param context Any context; the application context is kept
+     */
+    public synchronized void init(Context context) {
+        if (prefs == null) {
+            prefs = context.getApplicationContext().getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
+        }
+    }
+
+    /**
+     * @param courseId The course
+     * @return Where to resume its video in milliseconds, 0 to start from the beginning
+     */
+    public long getPosition(String courseId) {
+        if (prefs == null || courseId == null) {
+            return 0;
+        }
+        return prefs.getLong(courseId, 0);
+    }
+
+    /**
+     * Remember where playback of a course video stopped
+     * @param courseId The course
+     * @param positionMs The playback position
+     * @param durationMs The video's duration, or a negative value if unknown
+     */
+    public void savePosition(String courseId, long positionMs, long durationMs) {
+        if (prefs == null || courseId == null) {
+            return;
+        }
+        boolean finished = durationMs > 0 && positionMs >= durationMs - FINISHED_THRESHOLD_MS;
+        if (finished || positionMs <= 0) {
+            clearPosition(courseId);
+        } else {
+            prefs.edit().putLong(courseId, positionMs).apply();
+        }
+    }
+
+    // Start the course's video from the beginning next time
+    public void clearPosition(String courseId) {
+        if (prefs != null && courseId != null && prefs.contains(courseId)) {
+            prefs.edit().remove(courseId).apply();
+        }
+    }
+}
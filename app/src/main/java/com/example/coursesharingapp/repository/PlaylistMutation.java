@@ -0,0 +1,183 @@
+package com.example.coursesharingapp.repository;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A batch of edits to one playlist, committed with a single write by
+ * {@link PlaylistRepository#applyMutation}. Operations name courses rather
+ * than positions in a list the editor read earlier, and are replayed in
+ * order on the playlist as stored when the write happens, so edits made
+ * meanwhile by someone else are kept rather than overwritten:
+ * adding a course already there, or moving or removing one that is gone,
+ * does nothing.
+ */
+public class PlaylistMutation {
+
+    private enum Type { ADD, REMOVE, MOVE }
+
+    private static class Operation {
+        final Type type;
+        final String courseId;
+        final int index; // Target position; -1 appends
+
+        Operation(Type type, String courseId, int index) {
+            this.type = type;
+            this.courseId = courseId;
+            this.index = index;
+        }
+    }
+
+    private final List<Operation> operations = new ArrayList<>();
+    private String title;
+    private String description;
+
+    /**
+     * The edits that turn one course order into another
+     * @param before The course ids as the editor loaded them
+     * @param after The course ids as the editor left them
+     * @return Removals of courses no longer listed, then an insert or move for each position that differs
+     */
+    public static PlaylistMutation between(List<String> before, List<String> after) {
+        PlaylistMutation mutation = new PlaylistMutation();
+        Set<String> kept = new HashSet<>(after);
+        List<String> working = new ArrayList<>();
+        for (String courseId : before) {
+            if (kept.contains(courseId)) {
+                working.add(courseId);
+            } else {
+                mutation.remove(courseId);
+            }
+        }
+
+        // Fix the order position by position; everything before i already matches
+        for (int i = 0; i < after.size(); i++) {
+            String courseId = after.get(i);
+            if (i < working.size() && courseId.equals(working.get(i))) {
+                continue;
+            }
+            int current = working.indexOf(courseId);
+            if (current < 0) {
+                mutation.insert(courseId, i);
+            } else {
+                working.remove(current);
+                mutation.move(courseId, i);
+            }
+            working.add(i, courseId);
+        }
+        return mutation;
+    }
+
+    // Append a course
+    public PlaylistMutation add(String courseId) {
+        operations.add(new Operation(Type.ADD, courseId, -1));
+        return this;
+    }
+
+    // Add a course at a position; past the end appends
+    public PlaylistMutation insert(String courseId, int index) {
+        operations.add(new Operation(Type.ADD, courseId, index));
+        return this;
+    }
+
+    public PlaylistMutation remove(String courseId) {
+        operations.add(new Operation(Type.REMOVE, courseId, -1));
+        return this;
+    }
+
+    // Move a course to a position; past the end moves it last
+    public PlaylistMutation move(String courseId, int index) {
+        operations.add(new Operation(Type.MOVE, courseId, index));
+        return this;
+    }
+
+    public PlaylistMutation setTitle(String title) {
+        this.title = title;
+        return this;
+    }
+
+    public PlaylistMutation setDescription(String description) {
+        this.description = description;
+        return this;
+    }
+
+    // New title, or null to leave it
+    public String getTitle() {
+        return title;
+    }
+
+    // New description, or null to leave it
+    public String getDescription() {
+        return description;
+    }
+
+    public boolean isEmpty() {
+        return operations.isEmpty() && title == null && description == null;
+    }
+
+    // Whether the course list is touched at all
+    boolean changesCourses() {
+        return !operations.isEmpty();
+    }
+
+    // Courses appended, if appending them is all the mutation does to the list; null otherwise
+    List<String> appendedOnly() {
+        return idsIfAll(Type.ADD, true);
+    }
+
+    // Courses removed, if removing them is all the mutation does to the list; null otherwise
+    List<String> removedOnly() {
+        return idsIfAll(Type.REMOVE, false);
+    }
+
+    private List<String> idsIfAll(Type type, boolean appending) {
+        if (operations.isEmpty()) {
+            return null;
+        }
+        List<String> ids = new ArrayList<>();
+        for (Operation operation : operations) {
+            if (operation.type != type || (appending && operation.index >= 0)) {
+                return null;
+            }
+            ids.add(operation.courseId);
+        }
+        return ids;
+    }
+
+    /**
+     * Replay the operations on a course list
+     * @param courseIds The list as currently stored; may be null
+     * @return The edited list
+     */
+    List<String> applyTo(List<String> courseIds) {
+        List<String> result = courseIds != null ? new ArrayList<>(courseIds) : new ArrayList<>();
+        for (Operation operation : operations) {
+            int current = result.indexOf(operation.courseId);
+            switch (operation.type) {
+                case ADD:
+                    if (current < 0) {
+                        result.add(clamp(operation.index, result.size()), operation.courseId);
+                    }
+                    break;
+                case REMOVE:
+                    if (current >= 0) {
+                        result.remove(current);
+                    }
+                    break;
+                case MOVE:
+                    if (current >= 0) {
+                        result.remove(current);
+                        result.add(clamp(operation.index, result.size()), operation.courseId);
+                    }
+                    break;
+            }
+        }
+        return result;
+    }
+
+    private static int clamp(int index, int size) {
+        return index < 0 || index > size ? size : index;
+    }
+}
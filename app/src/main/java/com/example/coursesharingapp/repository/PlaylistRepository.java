@@ -2,26 +2,49 @@ package com.example.coursesharingapp.repository;
 
 import androidx.annotation.NonNull;
 
+import com.example.coursesharingapp.model.AccessCode;
 import com.example.coursesharingapp.model.Course;
 import com.example.coursesharingapp.model.Playlist;
 import com.example.coursesharingapp.model.SavedPlaylist;
+import com.example.coursesharingapp.model.Tombstone;
+import com.example.coursesharingapp.util.AccessCodeFormat;
+import com.example.coursesharingapp.util.ListChange;
+import com.google.android.gms.tasks.Task;
+import com.google.firebase.firestore.DocumentChange;
 import com.google.firebase.firestore.DocumentReference;
 import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
 import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.ListenerRegistration;
 import com.google.firebase.firestore.Query;
 import com.google.firebase.firestore.QueryDocumentSnapshot;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.WriteBatch;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class PlaylistRepository {
     private static final String TAG = "PlaylistRepository";
+
+    // Fewest courses a playlist can be edited down to
+    private static final int MIN_COURSES = 2;
+
     private final FirebaseFirestore firestore;
     private final CourseRepository courseRepository;
+    private final SavedStateStore savedStateStore;
+    private final LocalStore localStore;
+    private final AccessCodeIndex accessCodeIndex;
 
     public PlaylistRepository() {
         firestore = FirebaseFirestore.getInstance();
         courseRepository = new CourseRepository();
+        savedStateStore = SavedStateStore.getInstance();
+        localStore = LocalStore.getInstance();
+        accessCodeIndex = AccessCodeIndex.getInstance();
     }
 
     public interface PlaylistCallback {
@@ -34,6 +57,14 @@ public class PlaylistRepository {
         void onError(String errorMessage);
     }
 
+    public interface PlaylistChangesCallback {
+        // The full list, delivered once when the listener starts
+        void onPlaylistsLoaded(List<Playlist> playlists);
+        // Only what changed since the previous delivery, in the order to apply it
+        void onPlaylistsChanged(List<ListChange<Playlist>> changes);
+        void onError(String errorMessage);
+    }
+
     public interface SinglePlaylistCallback {
         void onPlaylistLoaded(Playlist playlist);
         void onError(String errorMessage);
@@ -83,8 +114,7 @@ public class PlaylistRepository {
                     if (task.isSuccessful()) {
                         List<Playlist> playlists = new ArrayList<>();
                         for (QueryDocumentSnapshot document : task.getResult()) {
-                            Playlist playlist = document.toObject(Playlist.class);
-                            playlist.setId(document.getId());
+                            Playlist playlist = toPlaylist(document);
                             playlists.add(playlist);
                         }
                         callback.onPlaylistsLoaded(playlists);
@@ -104,8 +134,7 @@ public class PlaylistRepository {
                     if (task.isSuccessful()) {
                         List<Playlist> playlists = new ArrayList<>();
                         for (QueryDocumentSnapshot document : task.getResult()) {
-                            Playlist playlist = document.toObject(Playlist.class);
-                            playlist.setId(document.getId());
+                            Playlist playlist = toPlaylist(document);
                             playlists.add(playlist);
                         }
                         callback.onPlaylistsLoaded(playlists);
@@ -115,6 +144,106 @@ public class PlaylistRepository {
                 });
     }
 
+    // Listen to all PUBLIC playlists
+    public ListenerRegistration listenToAllPlaylists(PlaylistChangesCallback callback) {
+        Query query = firestore.collection("playlists")
+                .whereEqualTo("private", false) // Only get public playlists
+                .orderBy("createdAt", Query.Direction.DESCENDING);
+        return listenToPlaylistQuery(query, snapshots ->
+                localStore.removeMissingPublicPlaylists(documentIds(snapshots)), callback);
+    }
+
+    // Listen to playlists by creator - includes both public and private
+    public ListenerRegistration listenToPlaylistsByCreator(String creatorUid, PlaylistChangesCallback callback) {
+        Query query = firestore.collection("playlists")
+                .whereEqualTo("creatorUid", creatorUid)
+                .orderBy("createdAt", Query.Direction.DESCENDING);
+        return listenToPlaylistQuery(query, snapshots ->
+                localStore.removeMissingCreatorPlaylists(creatorUid, documentIds(snapshots)), callback);
+    }
+
+    // Drops mirrored playlists a listened query no longer returns
+    private interface MirrorReconciler {
+        void reconcile(QuerySnapshot snapshots);
+    }
+
+    // Deliver the first snapshot whole and every later one as its document changes only
+    private ListenerRegistration listenToPlaylistQuery(Query query, MirrorReconciler reconciler,
+                                                       PlaylistChangesCallback callback) {
+        boolean[] firstSnapshot = {true};
+        boolean[] reconciled = {false};
+        return query.addSnapshotListener((snapshots, e) -> {
+            if (e != null) {
+                callback.onError(e.getMessage());
+                return;
+            }
+
+            // Only the server knows what was deleted; cached snapshots may be missing playlists
+            if (!snapshots.getMetadata().isFromCache() && (!reconciled[0] || hasRemovals(snapshots))) {
+                reconciled[0] = true;
+                reconciler.reconcile(snapshots);
+            }
+
+            if (firstSnapshot[0]) {
+                firstSnapshot[0] = false;
+                List<Playlist> playlists = new ArrayList<>();
+                for (QueryDocumentSnapshot document : snapshots) {
+                    playlists.add(toPlaylist(document));
+                }
+                callback.onPlaylistsLoaded(playlists);
+                return;
+            }
+
+            List<ListChange<Playlist>> changes = new ArrayList<>();
+            for (DocumentChange change : snapshots.getDocumentChanges()) {
+                switch (change.getType()) {
+                    case ADDED:
+                        changes.add(new ListChange<>(ListChange.Type.ADDED, toPlaylist(change.getDocument()),
+                                -1, change.getNewIndex()));
+                        break;
+                    case MODIFIED:
+                        changes.add(new ListChange<>(ListChange.Type.MODIFIED, toPlaylist(change.getDocument()),
+                                change.getOldIndex(), change.getNewIndex()));
+                        break;
+                    case REMOVED:
+                        // Not written to the mirror: it may have been deleted
+                        Playlist removed = change.getDocument().toObject(Playlist.class);
+                        removed.setId(change.getDocument().getId());
+                        changes.add(new ListChange<>(ListChange.Type.REMOVED, removed, change.getOldIndex(), -1));
+                        break;
+                }
+            }
+            if (!changes.isEmpty()) {
+                callback.onPlaylistsChanged(changes);
+            }
+        });
+    }
+
+    private static boolean hasRemovals(QuerySnapshot snapshots) {
+        for (DocumentChange change : snapshots.getDocumentChanges()) {
+            if (change.getType() == DocumentChange.Type.REMOVED) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<String> documentIds(QuerySnapshot snapshots) {
+        List<String> ids = new ArrayList<>();
+        for (DocumentSnapshot document : snapshots.getDocuments()) {
+            ids.add(document.getId());
+        }
+        return ids;
+    }
+
+    // Map a playlist document to a Playlist and remember it in the on-disk mirror
+    private Playlist toPlaylist(DocumentSnapshot document) {
+        Playlist playlist = document.toObject(Playlist.class);
+        playlist.setId(document.getId());
+        localStore.putPlaylist(playlist);
+        return playlist;
+    }
+
     // Search all PUBLIC playlists by title, description, or uploader username
     public void searchAllPlaylists(String query, PlaylistsCallback callback) {
         // Get all public playlists and filter client-side since Firestore doesn't support 'contains' queries
@@ -185,8 +314,54 @@ public class PlaylistRepository {
         });
     }
 
-    // Validate access code for private playlist
+    // Validate access code for private playlist: one read of its index entry, then the playlist by id
     public void validatePlaylistAccessCode(String accessCode, AccessCodeValidationCallback callback) {
+        accessCodeIndex.resolve(accessCode, AccessCode.TYPE_PLAYLIST, new AccessCodeIndex.ResolveCallback() {
+            @Override
+            public void onResolved(String playlistId) {
+                if (playlistId == null) {
+                    callback.onValidationResult(false, null);
+                    return;
+                }
+                firestore.collection("playlists")
+                        .document(playlistId)
+                        .get()
+                        .addOnCompleteListener(task -> {
+                            if (!task.isSuccessful()) {
+                                callback.onError(task.getException().getMessage());
+                                return;
+                            }
+                            DocumentSnapshot document = task.getResult();
+                            if (!document.exists()) {
+                                callback.onValidationResult(false, null);
+                                return;
+                            }
+                            // The entry may outlive the playlist being made public or given a new code
+                            Playlist playlist = toPlaylist(document);
+                            boolean isValid = playlist.isPrivate() && accessCode.equals(playlist.getAccessCode());
+                            callback.onValidationResult(isValid, isValid ? playlist : null);
+                        });
+            }
+
+            @Override
+            public void onNotIndexed() {
+                // Only codes from before the index can be missing from it
+                if (AccessCodeFormat.isLegacy(accessCode)) {
+                    validateLegacyPlaylistAccessCode(accessCode, callback);
+                } else {
+                    callback.onValidationResult(false, null);
+                }
+            }
+
+            @Override
+            public void onError(String errorMessage) {
+                callback.onError(errorMessage);
+            }
+        });
+    }
+
+    // Codes handed out before the access code index only live on the playlist document
+    private void validateLegacyPlaylistAccessCode(String accessCode, AccessCodeValidationCallback callback) {
         firestore.collection("playlists")
                 .whereEqualTo("accessCode", accessCode)
                 .whereEqualTo("private", true)
@@ -196,8 +371,7 @@ public class PlaylistRepository {
                     if (task.isSuccessful()) {
                         if (!task.getResult().isEmpty()) {
                             DocumentSnapshot document = task.getResult().getDocuments().get(0);
-                            Playlist playlist = document.toObject(Playlist.class);
-                            playlist.setId(document.getId());
+                            Playlist playlist = toPlaylist(document);
                             callback.onValidationResult(true, playlist);
                         } else {
                             callback.onValidationResult(false, null);
@@ -217,8 +391,7 @@ public class PlaylistRepository {
                     if (task.isSuccessful()) {
                         DocumentSnapshot document = task.getResult();
                         if (document.exists()) {
-                            Playlist playlist = document.toObject(Playlist.class);
-                            playlist.setId(document.getId());
+                            Playlist playlist = toPlaylist(document);
                             callback.onPlaylistLoaded(playlist);
                         } else {
                             callback.onError("Playlist not found");
@@ -229,6 +402,12 @@ public class PlaylistRepository {
                 });
     }
 
+    // A playlist and its courses from the on-disk mirror, to show while getPlaylistWithCourses loads.
+    // Nothing is delivered if the playlist hasn't been mirrored yet.
+    public void getLocalPlaylistWithCourses(String playlistId, PlaylistWithCoursesCallback callback) {
+        localStore.getPlaylistWithCourses(playlistId, callback);
+    }
+
     // Get a playlist and all its courses
     public void getPlaylistWithCourses(String playlistId, PlaylistWithCoursesCallback callback) {
         getPlaylistById(playlistId, new SinglePlaylistCallback() {
@@ -241,31 +420,25 @@ public class PlaylistRepository {
                     return;
                 }
 
-                final List<Course> courses = new ArrayList<>();
-                final int[] remainingCourses = {courseIds.size()};
-
-                for (String courseId : courseIds) {
-                    courseRepository.getCourseById(courseId, new CourseRepository.SingleCourseCallback() {
-                        @Override
-                        public void onCourseLoaded(Course course) {
-                            courses.add(course);
-                            remainingCourses[0]--;
-                            checkComplete();
-                        }
-
-                        @Override
-                        public void onError(String errorMessage) {
-                            remainingCourses[0]--;
-                            checkComplete();
-                        }
-
-                        private void checkComplete() {
-                            if (remainingCourses[0] == 0) {
-                                callback.onPlaylistWithCoursesLoaded(playlist, courses);
+                // Load all courses in playlist order with one round trip per chunk
+                courseRepository.getCoursesByIds(courseIds, new CourseRepository.OrderedCoursesCallback() {
+                    @Override
+                    public void onCoursesLoaded(List<Course> courses, List<String> missingCourseIds) {
+                        if (!missingCourseIds.isEmpty()) {
+                            // Courses were deleted since they were added, drop them from the playlist
+                            for (String missingCourseId : missingCourseIds) {
+                                playlist.removeCourseId(missingCourseId);
                             }
+                            pruneMissingCourses(playlistId, missingCourseIds);
                         }
-                    });
-                }
+                        callback.onPlaylistWithCoursesLoaded(playlist, courses);
+                    }
+
+                    @Override
+                    public void onError(String errorMessage) {
+                        callback.onError(errorMessage);
+                    }
+                });
             }
 
             @Override
@@ -275,10 +448,22 @@ public class PlaylistRepository {
         });
     }
 
+    // Remove ids of deleted courses from a playlist document. Best effort: the write is
+    // rejected for viewers who don't own the playlist, so failures are only logged.
+    private void pruneMissingCourses(String playlistId, List<String> missingCourseIds) {
+        firestore.collection("playlists")
+                .document(playlistId)
+                .update("courseIds", FieldValue.arrayRemove(missingCourseIds.toArray()),
+                        "updatedAt", FieldValue.serverTimestamp())
+                .addOnFailureListener(e ->
+                        android.util.Log.w(TAG, "Could not prune missing courses: " + e.getMessage()));
+    }
+
     // Original createPlaylist method - kept for backward compatibility
     public void createPlaylist(Playlist playlist, PlaylistCallback callback) {
         DocumentReference playlistRef = firestore.collection("playlists").document();
         playlist.setId(playlistRef.getId());
+        playlist.setUpdatedAt(null); // Stamped by the server
 
         playlistRef.set(playlist)
                 .addOnSuccessListener(aVoid -> callback.onSuccess())
@@ -286,42 +471,62 @@ public class PlaylistRepository {
     }
 
 
-    // Original updatePlaylist method - kept for backward compatibility
+    // Original updatePlaylist method - kept for backward compatibility.
+    // A private playlist gets a tombstone so clients that synced it while it was public drop it.
     public void updatePlaylist(Playlist playlist, PlaylistCallback callback) {
-        firestore.collection("playlists")
-                .document(playlist.getId())
-                .set(playlist)
+        // A playlist read earlier still carries its old updatedAt; clear it so the server stamps this write
+        playlist.setUpdatedAt(null);
+        WriteBatch batch = firestore.batch();
+        batch.set(firestore.collection("playlists").document(playlist.getId()), playlist);
+        DocumentReference tombstoneRef = firestore.collection(Tombstone.COLLECTION)
+                .document(Tombstone.documentId("playlists", playlist.getId()));
+        if (playlist.isPrivate()) {
+            batch.set(tombstoneRef, new Tombstone("playlists", playlist.getId(), playlist.getCreatorUid()));
+        } else {
+            batch.delete(tombstoneRef);
+        }
+        batch.commit()
                 .addOnSuccessListener(aVoid -> callback.onSuccess())
                 .addOnFailureListener(e -> callback.onError(e.getMessage()));
     }
 
-    // New method for playlist update with progress tracking
-    public void updatePlaylistWithProgress(Playlist playlist, PlaylistUpdateProgressCallback callback) {
+    // Apply a batch of edits to a playlist with a single write, keeping edits others made meanwhile
+    public void applyMutation(String playlistId, PlaylistMutation mutation, PlaylistCallback callback) {
+        if (mutation.isEmpty()) {
+            callback.onSuccess();
+            return;
+        }
+        commitMutation(playlistId, mutation, 0)
+                .addOnSuccessListener(aVoid -> callback.onSuccess())
+                .addOnFailureListener(e -> callback.onError(e.getMessage()));
+    }
+
+    // Playlist update with progress tracking; the playlist must keep at least MIN_COURSES courses
+    public void updatePlaylistWithProgress(String playlistId, PlaylistMutation mutation,
+                                           PlaylistUpdateProgressCallback callback) {
         callback.onProgress("Preparing playlist update...");
 
-        if (playlist.getId() == null || playlist.getId().isEmpty()) {
+        if (playlistId == null || playlistId.isEmpty()) {
             callback.onError("Playlist ID is required for update");
             return;
         }
 
         callback.onProgress("Validating playlist data...");
 
-        // Validate playlist has required fields
-        if (playlist.getTitle() == null || playlist.getTitle().trim().isEmpty()) {
+        if (mutation.getTitle() != null && mutation.getTitle().trim().isEmpty()) {
             callback.onError("Playlist title is required");
             return;
         }
 
-        if (playlist.getCourseIds() == null || playlist.getCourseIds().size() < 2) {
-            callback.onError("Playlist must contain at least 2 courses");
+        if (mutation.isEmpty()) {
+            callback.onProgress("Playlist updated successfully!");
+            callback.onSuccess();
             return;
         }
 
         callback.onProgress("Updating playlist in database...");
 
-        firestore.collection("playlists")
-                .document(playlist.getId())
-                .set(playlist)
+        commitMutation(playlistId, mutation, MIN_COURSES)
                 .addOnSuccessListener(aVoid -> {
                     callback.onProgress("Playlist updated successfully!");
                     callback.onSuccess();
@@ -331,44 +536,67 @@ public class PlaylistRepository {
                 });
     }
 
-    // Add a course to a playlist
-    public void addCourseToPlaylist(String playlistId, String courseId, PlaylistCallback callback) {
-        getPlaylistById(playlistId, new SinglePlaylistCallback() {
-            @Override
-            public void onPlaylistLoaded(Playlist playlist) {
-                playlist.addCourseId(courseId);
-                updatePlaylist(playlist, callback);
-            }
+    // Write a mutation. Only appending or only removing courses is one update with arrayUnion or
+    // arrayRemove; anything else, or a removal that must respect minCourses, is replayed in a
+    // transaction on the stored course list, which retries if the playlist changes under it.
+    private Task<Void> commitMutation(String playlistId, PlaylistMutation mutation, int minCourses) {
+        DocumentReference playlistRef = firestore.collection("playlists").document(playlistId);
 
-            @Override
-            public void onError(String errorMessage) {
-                callback.onError(errorMessage);
+        Map<String, Object> fields = new HashMap<>();
+        if (mutation.getTitle() != null) {
+            fields.put("title", mutation.getTitle());
+        }
+        if (mutation.getDescription() != null) {
+            fields.put("description", mutation.getDescription());
+        }
+        fields.put("updatedAt", FieldValue.serverTimestamp());
+
+        List<String> appended = mutation.appendedOnly();
+        List<String> removed = mutation.removedOnly();
+        if (!mutation.changesCourses()) {
+            return playlistRef.update(fields);
+        } else if (appended != null) {
+            fields.put("courseIds", FieldValue.arrayUnion(appended.toArray()));
+            return playlistRef.update(fields);
+        } else if (removed != null && minCourses == 0) {
+            fields.put("courseIds", FieldValue.arrayRemove(removed.toArray()));
+            return playlistRef.update(fields);
+        }
+
+        return firestore.runTransaction(transaction -> {
+            Playlist stored = transaction.get(playlistRef).toObject(Playlist.class);
+            if (stored == null) {
+                throw new FirebaseFirestoreException("Playlist not found",
+                        FirebaseFirestoreException.Code.NOT_FOUND);
             }
+            List<String> courseIds = mutation.applyTo(stored.getCourseIds());
+            if (courseIds.size() < minCourses) {
+                throw new FirebaseFirestoreException("Playlist must contain at least " + minCourses + " courses",
+                        FirebaseFirestoreException.Code.FAILED_PRECONDITION);
+            }
+
+            Map<String, Object> update = new HashMap<>(fields);
+            update.put("courseIds", courseIds);
+            transaction.update(playlistRef, update);
+            return null;
         });
     }
 
+    // Add a course to a playlist
+    public void addCourseToPlaylist(String playlistId, String courseId, PlaylistCallback callback) {
+        applyMutation(playlistId, new PlaylistMutation().add(courseId), callback);
+    }
+
     // Remove a course from a playlist
     public void removeCourseFromPlaylist(String playlistId, String courseId, PlaylistCallback callback) {
-        getPlaylistById(playlistId, new SinglePlaylistCallback() {
-            @Override
-            public void onPlaylistLoaded(Playlist playlist) {
-                playlist.removeCourseId(courseId);
-                updatePlaylist(playlist, callback);
-            }
-
-            @Override
-            public void onError(String errorMessage) {
-                callback.onError(errorMessage);
-            }
-        });
+        applyMutation(playlistId, new PlaylistMutation().remove(courseId), callback);
     }
 
     // Original deletePlaylist method - kept for backward compatibility
     public void deletePlaylist(String playlistId, PlaylistCallback callback) {
-        firestore.collection("playlists")
-                .document(playlistId)
-                .delete()
+        deletePlaylistDocument(playlistId)
                 .addOnSuccessListener(aVoid -> {
+                    localStore.deletePlaylist(playlistId);
                     // After deleting the playlist, also delete all saved references
                     deleteSavedPlaylistReferences(playlistId, callback);
                 })
@@ -386,10 +614,9 @@ public class PlaylistRepository {
 
         callback.onProgress("Deleting playlist from database...");
 
-        firestore.collection("playlists")
-                .document(playlistId)
-                .delete()
+        deletePlaylistDocument(playlistId)
                 .addOnSuccessListener(aVoid -> {
+                    localStore.deletePlaylist(playlistId);
                     callback.onProgress("Removing saved references...");
                     // After deleting the playlist, also delete all saved references
                     deleteSavedPlaylistReferencesWithProgress(playlistId, callback);
@@ -399,6 +626,24 @@ public class PlaylistRepository {
                 });
     }
 
+    // Delete the playlist document and free its access code, leaving a tombstone so clients
+    // syncing by updatedAt drop it too
+    private Task<Void> deletePlaylistDocument(String playlistId) {
+        DocumentReference playlistRef = firestore.collection("playlists").document(playlistId);
+        // Read the playlist first for its access code
+        return playlistRef.get().continueWithTask(task -> {
+            if (!task.isSuccessful()) {
+                throw task.getException();
+            }
+            WriteBatch batch = firestore.batch();
+            batch.delete(playlistRef);
+            batch.set(firestore.collection(Tombstone.COLLECTION).document(Tombstone.documentId("playlists", playlistId)),
+                    new Tombstone("playlists", playlistId));
+            accessCodeIndex.release(batch, task.getResult().getString("accessCode"));
+            return batch.commit();
+        });
+    }
+
     // Delete all saved references to a playlist when the playlist is deleted
     private void deleteSavedPlaylistReferences(String playlistId, PlaylistCallback callback) {
         firestore.collection("savedPlaylists")
@@ -412,7 +657,7 @@ public class PlaylistRepository {
                         }
 
                         // Create a batch operation to delete all saved references
-                        com.google.firebase.firestore.WriteBatch batch = firestore.batch();
+                        WriteBatch batch = firestore.batch();
 
                         for (DocumentSnapshot document : task.getResult().getDocuments()) {
                             batch.delete(document.getReference());
@@ -443,7 +688,7 @@ public class PlaylistRepository {
                         callback.onProgress("Cleaning up saved playlist references...");
 
                         // Create a batch operation to delete all saved references
-                        com.google.firebase.firestore.WriteBatch batch = firestore.batch();
+                        WriteBatch batch = firestore.batch();
 
                         for (DocumentSnapshot document : task.getResult().getDocuments()) {
                             batch.delete(document.getReference());
@@ -466,13 +711,13 @@ public class PlaylistRepository {
     // Check if a playlist is saved by a user
     public void isPlaylistSaved(String userId, String playlistId, IsPlaylistSavedCallback callback) {
         firestore.collection("savedPlaylists")
-                .whereEqualTo("userId", userId)
-                .whereEqualTo("playlistId", playlistId)
-                .limit(1)
+                .document(SavedPlaylist.documentId(userId, playlistId))
                 .get()
                 .addOnCompleteListener(task -> {
                     if (task.isSuccessful()) {
-                        boolean isSaved = !task.getResult().isEmpty();
+                        // Bookmarks not yet moved to their deterministic id still count
+                        boolean isSaved = task.getResult().exists()
+                                || !savedStateStore.getLegacyPlaylistBookmarkIds(userId, playlistId).isEmpty();
                         callback.onResult(isSaved);
                     } else {
                         callback.onError(task.getException().getMessage());
@@ -482,70 +727,67 @@ public class PlaylistRepository {
 
     // Save a playlist for a user
     public void savePlaylist(String userId, String playlistId, PlaylistCallback callback) {
-        // First check if it's already saved
-        isPlaylistSaved(userId, playlistId, new IsPlaylistSavedCallback() {
-            @Override
-            public void onResult(boolean isSaved) {
-                if (isSaved) {
-                    // Already saved, just return success
+        // The document id is derived from user and playlist, so saving again just rewrites the same bookmark
+        firestore.collection("savedPlaylists")
+                .document(SavedPlaylist.documentId(userId, playlistId))
+                .set(new SavedPlaylist(userId, playlistId))
+                .addOnSuccessListener(aVoid -> {
                     callback.onSuccess();
-                    return;
-                }
-
-                // Create a new SavedPlaylist object
-                SavedPlaylist savedPlaylist = new SavedPlaylist(userId, playlistId);
-
-                // Add to Firestore
-                firestore.collection("savedPlaylists")
-                        .add(savedPlaylist)
-                        .addOnSuccessListener(documentReference -> {
-                            callback.onSuccess();
-                        })
-                        .addOnFailureListener(e -> {
-                            callback.onError(e.getMessage());
-                        });
-            }
-
-            @Override
-            public void onError(String errorMessage) {
-                callback.onError(errorMessage);
-            }
-        });
+                })
+                .addOnFailureListener(e -> {
+                    callback.onError(e.getMessage());
+                });
     }
 
     // Unsave a playlist for a user
     public void unsavePlaylist(String userId, String playlistId, PlaylistCallback callback) {
+        if (savedStateStore.hasLoadedPlaylists(userId)) {
+            deletePlaylistBookmarks(userId, playlistId,
+                    savedStateStore.getLegacyPlaylistBookmarkIds(userId, playlistId), callback);
+            return;
+        }
+
+        // The store hasn't read the user's bookmarks yet, so look up any the migration hasn't reached
         firestore.collection("savedPlaylists")
                 .whereEqualTo("userId", userId)
                 .whereEqualTo("playlistId", playlistId)
                 .get()
-                .addOnCompleteListener(task -> {
-                    if (task.isSuccessful()) {
-                        if (task.getResult().isEmpty()) {
-                            // Not saved, just return success
-                            callback.onSuccess();
-                            return;
+                .addOnSuccessListener(snapshots -> {
+                    List<String> legacyIds = new ArrayList<>();
+                    for (DocumentSnapshot document : snapshots.getDocuments()) {
+                        if (!document.getId().equals(SavedPlaylist.documentId(userId, playlistId))) {
+                            legacyIds.add(document.getId());
                         }
+                    }
+                    deletePlaylistBookmarks(userId, playlistId, legacyIds, callback);
+                })
+                .addOnFailureListener(e -> callback.onError(e.getMessage()));
+    }
 
-                        // Get the SavedPlaylist document ID
-                        String savedPlaylistId = task.getResult().getDocuments().get(0).getId();
+    // Delete a playlist's bookmark and the random-id ones the migration hasn't reached yet
+    private void deletePlaylistBookmarks(String userId, String playlistId, List<String> legacyIds,
+                                         PlaylistCallback callback) {
+        WriteBatch batch = firestore.batch();
+        batch.delete(firestore.collection("savedPlaylists").document(SavedPlaylist.documentId(userId, playlistId)));
+        for (String legacyId : legacyIds) {
+            batch.delete(firestore.collection("savedPlaylists").document(legacyId));
+        }
 
-                        // Delete from Firestore
-                        firestore.collection("savedPlaylists")
-                                .document(savedPlaylistId)
-                                .delete()
-                                .addOnSuccessListener(aVoid -> {
-                                    callback.onSuccess();
-                                })
-                                .addOnFailureListener(e -> {
-                                    callback.onError(e.getMessage());
-                                });
-                    } else {
-                        callback.onError(task.getException().getMessage());
-                    }
+        // Deleting a missing document succeeds, so unsaving twice is harmless
+        batch.commit()
+                .addOnSuccessListener(aVoid -> {
+                    callback.onSuccess();
+                })
+                .addOnFailureListener(e -> {
+                    callback.onError(e.getMessage());
                 });
     }
 
+    // Saved playlists from the on-disk mirror, to show while getSavedPlaylists loads
+    public void getLocalSavedPlaylists(String userId, PlaylistsCallback callback) {
+        localStore.getSavedPlaylists(userId, callback);
+    }
+
     // Get saved playlists for a user (includes both public and private playlists they've saved)
     public void getSavedPlaylists(String userId, PlaylistsCallback callback) {
         // First get all saved playlist IDs for the user
@@ -603,45 +845,6 @@ public class PlaylistRepository {
                 });
     }
 
-    // Interface for unique access code generation
-    public interface UniqueAccessCodeCallback {
-        void onUniqueCodeGenerated(String accessCode);
-        void onError(String errorMessage);
-    }
-
-    // Generate a unique access code for playlists
-    private void generateUniqueAccessCode(UniqueAccessCodeCallback callback) {
-        generateUniqueAccessCode(callback, 0);
-    }
-
-    private void generateUniqueAccessCode(UniqueAccessCodeCallback callback, int attempts) {
-        if (attempts >= 10) {
-            callback.onError("Failed to generate unique access code after 10 attempts");
-            return;
-        }
-
-        String accessCode = Playlist.generateAccessCode();
-
-        // Check if this access code already exists
-        firestore.collection("playlists")
-                .whereEqualTo("accessCode", accessCode)
-                .limit(1)
-                .get()
-                .addOnCompleteListener(task -> {
-                    if (task.isSuccessful()) {
-                        if (task.getResult().isEmpty()) {
-                            // Access code is unique
-                            callback.onUniqueCodeGenerated(accessCode);
-                        } else {
-                            // Access code already exists, try again
-                            generateUniqueAccessCode(callback, attempts + 1);
-                        }
-                    } else {
-                        callback.onError(task.getException().getMessage());
-                    }
-                });
-    }
-
     // Updated createPlaylistWithProgress method to generate unique access codes
     public void createPlaylistWithProgress(Playlist playlist, PlaylistCreationProgressCallback callback) {
         callback.onProgress("Preparing playlist creation...");
@@ -657,12 +860,16 @@ public class PlaylistRepository {
             return;
         }
 
-        // Generate unique access code if playlist is private
+        // The id is needed up front so the access code can point at it
+        playlist.setId(firestore.collection("playlists").document().getId());
+
+        // Reserve a unique access code if playlist is private
         if (playlist.isPrivate()) {
             callback.onProgress("Generating unique access code...");
-            generateUniqueAccessCode(new UniqueAccessCodeCallback() {
+            accessCodeIndex.reserve(AccessCode.TYPE_PLAYLIST, playlist.getId(), playlist.getCreatorUid(),
+                    new AccessCodeIndex.ReserveCallback() {
                 @Override
-                public void onUniqueCodeGenerated(String accessCode) {
+                public void onReserved(String accessCode) {
                     playlist.setAccessCode(accessCode);
                     proceedWithPlaylistCreation(playlist, callback);
                 }
@@ -681,8 +888,8 @@ public class PlaylistRepository {
     private void proceedWithPlaylistCreation(Playlist playlist, PlaylistCreationProgressCallback callback) {
         callback.onProgress("Creating playlist in database...");
 
-        DocumentReference playlistRef = firestore.collection("playlists").document();
-        playlist.setId(playlistRef.getId());
+        DocumentReference playlistRef = firestore.collection("playlists").document(playlist.getId());
+        playlist.setUpdatedAt(null); // Stamped by the server
 
         playlistRef.set(playlist)
                 .addOnSuccessListener(aVoid -> {
@@ -690,6 +897,8 @@ public class PlaylistRepository {
                     callback.onSuccess();
                 })
                 .addOnFailureListener(e -> {
+                    // The playlist was never created, so nothing can use its code
+                    accessCodeIndex.release(playlist.getAccessCode());
                     callback.onError("Failed to create playlist: " + e.getMessage());
                 });
     }
@@ -0,0 +1,335 @@
+package com.example.coursesharingapp.repository;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.google.firebase.storage.FirebaseStorage;
+import com.google.firebase.storage.StorageException;
+import com.google.firebase.storage.StorageMetadata;
+import com.google.firebase.storage.StorageReference;
+import com.google.firebase.storage.UploadTask;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Map;
+
+/**
+ * Uploads large files to Firebase Storage so that an interrupted upload
+ * continues where it stopped instead of starting again from byte 0.
+ *
+ * The Storage SDK already sends a file in chunks over a resumable session
+ * and retries individual chunks. This class persists that session URI and
+ * the confirmed byte offset, so the session survives process death:
+ * uploading the same file to the same path again resumes the saved session.
+ * Failed uploads are retried from the session with exponential backoff.
+ */
+public class ResumableUploader {
+    private static final String TAG = "ResumableUploader";
+
+    private static final String PREF_NAME = "resumable_uploads";
+
+    // Upload sessions expire on the server after about a week; don't try to resume older ones
+    private static final long SESSION_MAX_AGE_MS = 6L * 24 * 60 * 60 * 1000; // 6 days
+
+    // How long the SDK keeps retrying a single chunk before failing the task
+    private static final long CHUNK_RETRY_TIME_MS = 60 * 1000; // 1 minute
+
+    // Retries of a failed task, resumed from the session each time
+    private static final int MAX_ATTEMPTS = 5;
+    private static final long INITIAL_BACKOFF_MS = 2000;
+    private static final long MAX_BACKOFF_MS = 60 * 1000;
+
+    // Persist the offset at most once per this many bytes, plus whenever the session changes
+    private static final long PERSIST_INTERVAL_BYTES = 8L * 1024 * 1024; // 8MB
+
+    private static ResumableUploader instance;
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private SharedPreferences prefs;
+
+    // Interface for upload results reported in bytes
+    public interface ResumableUploadCallback {
+        void onProgress(long bytesTransferred, long totalBytes);
+        void onSuccess(Uri downloadUri);
+        void onError(String errorMessage);
+    }
+
+    /**
+     * An upload in progress, which can be stopped and later resumed from its saved session.
+     */
+    public static class Transfer {
+        private final Handler handler;
+        private UploadTask task; // The current attempt
+        private boolean running; // An attempt is sending or finishing
+        private Runnable pendingRetry;
+        private boolean stopped;
+        private Runnable onStopped;
+
+        Transfer(Handler handler) {
+            this.handler = handler;
+        }
+
+        /**
+         * Stop sending, keeping the session so uploading the same file to the
+         * same path resumes it. No further upload callbacks are made. Call on
+         * the main thread.
+         * @param onStopped Run on the main thread once nothing is being sent any more
+         */
+        public void stop(Runnable onStopped) {
+            if (stopped) {
+                return;
+            }
+            stopped = true;
+            this.onStopped = onStopped;
+            if (pendingRetry != null) {
+                handler.removeCallbacks(pendingRetry);
+                pendingRetry = null;
+            }
+            if (!running) {
+                idle();
+            } else if (task.isInProgress()) {
+                // Pausing keeps the session open on the server; cancelling would discard it
+                task.pause();
+            }
+            // Otherwise the attempt is finishing and reports in when it has
+        }
+
+        // Nothing is being sent; tell whoever stopped the transfer
+        private void idle() {
+            if (onStopped != null) {
+                Runnable callback = onStopped;
+                onStopped = null;
+                callback.run();
+            }
+        }
+    }
+
+    // A saved upload session
+    private static class Session {
+        final Uri sessionUri;
+        final long bytesTransferred;
+        final long totalBytes;
+        final long updatedAt;
+
+        Session(Uri sessionUri, long bytesTransferred, long totalBytes, long updatedAt) {
+            this.sessionUri = sessionUri;
+            this.bytesTransferred = bytesTransferred;
+            this.totalBytes = totalBytes;
+            this.updatedAt = updatedAt;
+        }
+    }
+
+    public static synchronized ResumableUploader getInstance() {
+        if (instance == null) {
+            instance = new ResumableUploader();
+        }
+        return instance;
+    }
+
+    private ResumableUploader() {
+        FirebaseStorage.getInstance().setMaxUploadRetryTimeMillis(CHUNK_RETRY_TIME_MS);
+    }
+
+    /**
+     * Enable persisting sessions to disk. Without this, uploads still retry
+     * with backoff but cannot resume after the process dies.
+     * @param context Any context; the application context is kept
+     */
+    public synchronized void init(Context context) {
+        if (prefs == null) {
+            prefs = context.getApplicationContext().getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
+            pruneSessions();
+        }
+    }
+
+    // Drop sessions too old to resume, including those of uploads that failed and were never tried again
+    private void pruneSessions() {
+        long now = System.currentTimeMillis();
+        SharedPreferences.Editor editor = prefs.edit();
+        for (Map.Entry<String, ?> entry : prefs.getAll().entrySet()) {
+            try {
+                long updatedAt = new JSONObject(String.valueOf(entry.getValue())).getLong("updatedAt");
+                if (now - updatedAt > SESSION_MAX_AGE_MS) {
+                    editor.remove(entry.getKey());
+                }
+            } catch (JSONException e) {
+                editor.remove(entry.getKey());
+            }
+        }
+        editor.apply();
+    }
+
+    /**
+     * Upload a file, resuming an earlier session for the same file and path if one was saved
+     * @param fileUri The local file to upload
+     * @param storagePath Where to store the file
+     * @param metadata Metadata for the uploaded object
+     * @param callback Progress and result callback, called on the main thread
+     * @return The running upload, which the caller may stop
+     */
+    public Transfer upload(Uri fileUri, String storagePath, StorageMetadata metadata,
+                           ResumableUploadCallback callback) {
+        // A session belongs to one destination; the same file sent elsewhere is a new upload
+        String sessionKey = fileUri + "\n" + storagePath;
+        StorageReference storageRef = FirebaseStorage.getInstance().getReference(storagePath);
+        Transfer transfer = new Transfer(handler);
+        Session saved = loadSession(sessionKey);
+        if (saved != null) {
+            Log.d(TAG, "Resuming upload of " + fileUri + " to " + storagePath + " at byte "
+                    + saved.bytesTransferred + " of " + saved.totalBytes);
+            startUpload(fileUri, sessionKey, storageRef, metadata, saved.sessionUri, 1, transfer, callback);
+        } else {
+            startUpload(fileUri, sessionKey, storageRef, metadata, null, 1, transfer, callback);
+        }
+        return transfer;
+    }
+
+    private void startUpload(Uri fileUri, String sessionKey, StorageReference storageRef, StorageMetadata metadata,
+                             Uri sessionUri, int attempt, Transfer transfer, ResumableUploadCallback callback) {
+        UploadTask uploadTask = sessionUri != null
+                ? storageRef.putFile(fileUri, metadata, sessionUri)
+                : storageRef.putFile(fileUri, metadata);
+        transfer.task = uploadTask;
+        transfer.running = true;
+        uploadTask.addOnPausedListener(taskSnapshot -> {
+            if (transfer.stopped) {
+                transfer.idle();
+            }
+        });
+
+        // Latest session and the offset last written to disk
+        final Uri[] currentSession = {sessionUri};
+        final long[] persistedBytes = {-1};
+
+        uploadTask.addOnProgressListener(taskSnapshot -> {
+            long transferred = taskSnapshot.getBytesTransferred();
+            long total = taskSnapshot.getTotalByteCount();
+            Uri snapshotSession = taskSnapshot.getUploadSessionUri();
+
+            if (snapshotSession != null) {
+                boolean sessionChanged = !snapshotSession.equals(currentSession[0]);
+                if (sessionChanged || transferred - persistedBytes[0] >= PERSIST_INTERVAL_BYTES) {
+                    currentSession[0] = snapshotSession;
+                    persistedBytes[0] = transferred;
+                    saveSession(sessionKey, new Session(snapshotSession, transferred, total,
+                            System.currentTimeMillis()));
+                }
+            }
+            if (!transfer.stopped) {
+                callback.onProgress(transferred, total);
+            }
+        }).continueWithTask(task -> {
+            if (!task.isSuccessful()) {
+                throw task.getException();
+            }
+            // The object is complete; the session can't be resumed any more
+            clearSession(sessionKey);
+            return storageRef.getDownloadUrl();
+        }).addOnCompleteListener(task -> {
+            transfer.running = false;
+            if (transfer.stopped) {
+                // Whoever stopped the upload decides what happens next
+                transfer.idle();
+                return;
+            }
+            if (task.isSuccessful()) {
+                callback.onSuccess(task.getResult());
+                return;
+            }
+
+            Exception e = task.getException();
+            if (sessionUri != null && isSessionRejected(e)) {
+                // The saved session expired or no longer matches the file; start over once
+                Log.w(TAG, "Upload session rejected, restarting upload: " + e.getMessage());
+                clearSession(sessionKey);
+                startUpload(fileUri, sessionKey, storageRef, metadata, null, attempt + 1, transfer, callback);
+            } else if (attempt < MAX_ATTEMPTS && isRetryable(e)) {
+                long delay = Math.min(INITIAL_BACKOFF_MS << (attempt - 1), MAX_BACKOFF_MS);
+                Log.w(TAG, "Upload attempt " + attempt + " failed, retrying in " + delay + "ms: "
+                        + e.getMessage());
+                transfer.pendingRetry = () -> {
+                    transfer.pendingRetry = null;
+                    startUpload(fileUri, sessionKey, storageRef, metadata, currentSession[0], attempt + 1,
+                            transfer, callback);
+                };
+                handler.postDelayed(transfer.pendingRetry, delay);
+            } else {
+                // The session stays saved, so uploading the same file to the same path later still resumes
+                callback.onError(e != null ? e.getMessage() : "Upload failed");
+            }
+        });
+    }
+
+    // Network trouble and server hiccups are worth another attempt; permission or quota errors are not
+    private static boolean isRetryable(Exception e) {
+        if (!(e instanceof StorageException)) {
+            return true;
+        }
+        int errorCode = ((StorageException) e).getErrorCode();
+        return errorCode == StorageException.ERROR_RETRY_LIMIT_EXCEEDED
+                || errorCode == StorageException.ERROR_UNKNOWN;
+    }
+
+    private static boolean isSessionRejected(Exception e) {
+        if (!(e instanceof StorageException)) {
+            return false;
+        }
+        int httpCode = ((StorageException) e).getHttpResultCode();
+        return httpCode == 404 || httpCode == 410;
+    }
+
+    private synchronized Session loadSession(String sessionKey) {
+        if (prefs == null) {
+            return null;
+        }
+        String json = prefs.getString(sessionKey, null);
+        if (json == null) {
+            return null;
+        }
+
+        try {
+            JSONObject object = new JSONObject(json);
+            Session session = new Session(
+                    Uri.parse(object.getString("sessionUri")),
+                    object.getLong("bytesTransferred"),
+                    object.getLong("totalBytes"),
+                    object.getLong("updatedAt"));
+            if (System.currentTimeMillis() - session.updatedAt > SESSION_MAX_AGE_MS) {
+                clearSession(sessionKey);
+                return null;
+            }
+            return session;
+        } catch (JSONException e) {
+            Log.e(TAG, "Discarding unreadable upload session: " + e.getMessage());
+            clearSession(sessionKey);
+            return null;
+        }
+    }
+
+    private synchronized void saveSession(String sessionKey, Session session) {
+        if (prefs == null) {
+            return;
+        }
+        try {
+            JSONObject object = new JSONObject();
+            object.put("sessionUri", session.sessionUri.toString());
+            object.put("bytesTransferred", session.bytesTransferred);
+            object.put("totalBytes", session.totalBytes);
+            object.put("updatedAt", session.updatedAt);
+            prefs.edit().putString(sessionKey, object.toString()).apply();
+        } catch (JSONException e) {
+            Log.e(TAG, "Failed to save upload session: " + e.getMessage());
+        }
+    }
+
+    private synchronized void clearSession(String sessionKey) {
+        if (prefs != null) {
+            prefs.edit().remove(sessionKey).apply();
+        }
+    }
+}
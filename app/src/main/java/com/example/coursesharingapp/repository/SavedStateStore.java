@@ -0,0 +1,456 @@
+package com.example.coursesharingapp.repository;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.example.coursesharingapp.model.SavedCourse;
+import com.example.coursesharingapp.model.SavedPlaylist;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.QueryDocumentSnapshot;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Process-wide store of the ids of the courses and playlists the signed-in
+ * user has saved. Kept current by snapshot listeners on the user's
+ * savedCourses and savedPlaylists documents, so list adapters can show saved
+ * indicators without reading any course or playlist documents.
+ *
+ * Listeners are attached on {@link #start()} or when the first observer
+ * subscribes, and follow sign-in and sign-out. Callbacks run on the main thread.
+ *
+ * Bookmarks written before they were keyed by {@code userId_itemId} are moved
+ * to their deterministic id the first time the listener sees them. A move
+ * that fails is tried again after a delay from a fresh read.
+ */
+public class SavedStateStore {
+    private static final String TAG = "SavedStateStore";
+
+    // Stay well under Firestore's 500 writes per batch; each migrated bookmark takes two
+    private static final int MIGRATION_BATCH_SIZE = 200;
+
+    // A failed migration is read and tried again after a growing delay, this many times at most
+    private static final int MAX_MIGRATION_RETRIES = 5;
+    private static final long INITIAL_MIGRATION_RETRY_MS = 5_000;
+
+    private static SavedStateStore instance;
+
+    private final FirebaseFirestore firestore;
+    private final FirebaseAuth firebaseAuth;
+    private final LocalStore localStore;
+
+    // Bookmark document id -> saved course/playlist id, so removals can be applied without the old data
+    private final Map<String, String> savedCourseDocs = new HashMap<>();
+    private final Map<String, String> savedPlaylistDocs = new HashMap<>();
+    private final Set<String> savedCourseIds = new HashSet<>();
+    private final Set<String> savedPlaylistIds = new HashSet<>();
+
+    // Legacy bookmark documents with a migration in flight
+    private final Set<String> migratingDocIds = new HashSet<>();
+    // Collection name -> failed migrations retried so far for the current user
+    private final Map<String, Integer> migrationRetries = new HashMap<>();
+    // Collections with a retry waiting to run
+    private final Set<String> pendingMigrationRetries = new HashSet<>();
+    private final Handler handler = new Handler(Looper.getMainLooper());
+
+    // Whether the current user's bookmarks have been read from the server, so legacy ids are known
+    private boolean coursesLoaded;
+    private boolean playlistsLoaded;
+
+    private final List<SavedStateObserver> observers = new ArrayList<>();
+    private ListenerRegistration savedCoursesRegistration;
+    private ListenerRegistration savedPlaylistsRegistration;
+    private String listeningUid;
+    private boolean started;
+
+    // Interface for components showing saved indicators
+    public interface SavedStateObserver {
+        void onSavedCoursesChanged();
+        void onSavedPlaylistsChanged();
+    }
+
+    public static synchronized SavedStateStore getInstance() {
+        if (instance == null) {
+            instance = new SavedStateStore();
+        }
+        return instance;
+    }
+
+    private SavedStateStore() {
+        firestore = FirebaseFirestore.getInstance();
+        firebaseAuth = FirebaseAuth.getInstance();
+        localStore = LocalStore.getInstance();
+    }
+
+    /**
+     * Start receiving change notifications. Observers are held strongly, so
+     * every call must be paired with {@link #removeObserver(SavedStateObserver)}.
+     * @param observer The observer to notify
+     */
+    public void addObserver(SavedStateObserver observer) {
+        if (!observers.contains(observer)) {
+            observers.add(observer);
+        }
+        start();
+    }
+
+    public void removeObserver(SavedStateObserver observer) {
+        observers.remove(observer);
+    }
+
+    /**
+     * Start following the signed-in user's bookmarks. Safe to call more than once.
+     */
+    public void start() {
+        if (started) {
+            return;
+        }
+        started = true;
+        // Fires right away with the current user, then on every sign-in and sign-out
+        firebaseAuth.addAuthStateListener(auth -> onUserChanged(auth.getCurrentUser()));
+    }
+
+    /**
+     * @param courseId The course document id
+     * @return True if the signed-in user has saved the course
+     */
+    public boolean isCourseSaved(String courseId) {
+        return savedCourseIds.contains(courseId);
+    }
+
+    /**
+     * @param playlistId The playlist document id
+     * @return True if the signed-in user has saved the playlist
+     */
+    public boolean isPlaylistSaved(String playlistId) {
+        return savedPlaylistIds.contains(playlistId);
+    }
+
+    /**
+     * Ids of bookmark documents for a course that still use a random id
+     * @param userId The user the bookmarks belong to
+     * @param courseId The course document id
+     * @return Legacy document ids, empty once migrated or if the store follows another user
+     */
+    public List<String> getLegacyCourseBookmarkIds(String userId, String courseId) {
+        return legacyDocIds(savedCourseDocs, userId, courseId, SavedCourse.documentId(userId, courseId));
+    }
+
+    /**
+     * Ids of bookmark documents for a playlist that still use a random id
+     * @param userId The user the bookmarks belong to
+     * @param playlistId The playlist document id
+     * @return Legacy document ids, empty once migrated or if the store follows another user
+     */
+    public List<String> getLegacyPlaylistBookmarkIds(String userId, String playlistId) {
+        return legacyDocIds(savedPlaylistDocs, userId, playlistId, SavedPlaylist.documentId(userId, playlistId));
+    }
+
+    /**
+     * @param userId The user the bookmarks belong to
+     * @return True once the store has read that user's course bookmarks from the server, so
+     *         {@link #getLegacyCourseBookmarkIds} lists every legacy bookmark
+     */
+    public boolean hasLoadedCourses(String userId) {
+        return coursesLoaded && userId != null && userId.equals(listeningUid);
+    }
+
+    /**
+     * @param userId The user the bookmarks belong to
+     * @return True once the store has read that user's playlist bookmarks from the server, so
+     *         {@link #getLegacyPlaylistBookmarkIds} lists every legacy bookmark
+     */
+    public boolean hasLoadedPlaylists(String userId) {
+        return playlistsLoaded && userId != null && userId.equals(listeningUid);
+    }
+
+    private List<String> legacyDocIds(Map<String, String> docs, String userId, String savedId, String expectedDocId) {
+        List<String> docIds = new ArrayList<>();
+        if (userId == null || !userId.equals(listeningUid)) {
+            return docIds;
+        }
+        for (Map.Entry<String, String> entry : docs.entrySet()) {
+            if (entry.getValue().equals(savedId) && !entry.getKey().equals(expectedDocId)) {
+                docIds.add(entry.getKey());
+            }
+        }
+        return docIds;
+    }
+
+    private void onUserChanged(FirebaseUser user) {
+        String uid = user != null ? user.getUid() : null;
+        if (uid != null && uid.equals(listeningUid)) {
+            return;
+        }
+
+        // Drop the previous user's state before following the new one
+        stopListening();
+        if (listeningUid != null) {
+            localStore.clearBookmarks();
+        }
+        listeningUid = uid;
+        migratingDocIds.clear();
+        migrationRetries.clear();
+        pendingMigrationRetries.clear();
+        handler.removeCallbacksAndMessages(null);
+        coursesLoaded = false;
+        playlistsLoaded = false;
+        if (!savedCourseIds.isEmpty() || !savedPlaylistIds.isEmpty()) {
+            savedCourseDocs.clear();
+            savedPlaylistDocs.clear();
+            savedCourseIds.clear();
+            savedPlaylistIds.clear();
+            notifyCoursesChanged();
+            notifyPlaylistsChanged();
+        }
+        if (uid == null) {
+            return;
+        }
+
+        // Whether the on-disk mirror has been matched against a server snapshot yet
+        boolean[] coursesMirrored = {false};
+        boolean[] playlistsMirrored = {false};
+
+        savedCoursesRegistration = firestore.collection("savedCourses")
+                .whereEqualTo("userId", uid)
+                .addSnapshotListener((snapshots, error) -> {
+                    if (error != null) {
+                        Log.e(TAG, "Saved courses listener failed: " + error.getMessage());
+                        return;
+                    }
+                    if (applyChanges(snapshots, "courseId", savedCourseDocs, savedCourseIds)) {
+                        notifyCoursesChanged();
+                    }
+                    if (snapshots != null && !snapshots.getMetadata().isFromCache()) {
+                        coursesLoaded = true;
+                    }
+                    mirrorSavedCourses(uid, snapshots, coursesMirrored);
+                    migrateLegacyBookmarks(uid, "savedCourses", "courseId", snapshots);
+                });
+
+        savedPlaylistsRegistration = firestore.collection("savedPlaylists")
+                .whereEqualTo("userId", uid)
+                .addSnapshotListener((snapshots, error) -> {
+                    if (error != null) {
+                        Log.e(TAG, "Saved playlists listener failed: " + error.getMessage());
+                        return;
+                    }
+                    if (applyChanges(snapshots, "playlistId", savedPlaylistDocs, savedPlaylistIds)) {
+                        notifyPlaylistsChanged();
+                    }
+                    if (snapshots != null && !snapshots.getMetadata().isFromCache()) {
+                        playlistsLoaded = true;
+                    }
+                    mirrorSavedPlaylists(uid, snapshots, playlistsMirrored);
+                    migrateLegacyBookmarks(uid, "savedPlaylists", "playlistId", snapshots);
+                });
+    }
+
+    // Copy the changed bookmarks to the on-disk mirror. The first server snapshot also drops
+    // bookmarks removed while the app wasn't listening.
+    private void mirrorSavedCourses(String uid, QuerySnapshot snapshots, boolean[] reconciled) {
+        if (snapshots == null) {
+            return;
+        }
+        List<SavedCourse> savedCourses = new ArrayList<>();
+        List<String> removedIds = new ArrayList<>();
+        for (DocumentChange change : snapshots.getDocumentChanges()) {
+            if (change.getType() == DocumentChange.Type.REMOVED) {
+                removedIds.add(change.getDocument().getId());
+            } else {
+                SavedCourse savedCourse = change.getDocument().toObject(SavedCourse.class);
+                savedCourse.setId(change.getDocument().getId());
+                savedCourses.add(savedCourse);
+            }
+        }
+        if (!savedCourses.isEmpty()) {
+            localStore.putSavedCourses(savedCourses);
+        }
+        if (!removedIds.isEmpty()) {
+            localStore.deleteSavedCourses(removedIds);
+        }
+        if (!reconciled[0] && !snapshots.getMetadata().isFromCache()) {
+            reconciled[0] = true;
+            localStore.removeMissingSavedCourses(uid, documentIds(snapshots));
+        }
+    }
+
+    private void mirrorSavedPlaylists(String uid, QuerySnapshot snapshots, boolean[] reconciled) {
+        if (snapshots == null) {
+            return;
+        }
+        List<SavedPlaylist> savedPlaylists = new ArrayList<>();
+        List<String> removedIds = new ArrayList<>();
+        for (DocumentChange change : snapshots.getDocumentChanges()) {
+            if (change.getType() == DocumentChange.Type.REMOVED) {
+                removedIds.add(change.getDocument().getId());
+            } else {
+                SavedPlaylist savedPlaylist = change.getDocument().toObject(SavedPlaylist.class);
+                savedPlaylist.setId(change.getDocument().getId());
+                savedPlaylists.add(savedPlaylist);
+            }
+        }
+        if (!savedPlaylists.isEmpty()) {
+            localStore.putSavedPlaylists(savedPlaylists);
+        }
+        if (!removedIds.isEmpty()) {
+            localStore.deleteSavedPlaylists(removedIds);
+        }
+        if (!reconciled[0] && !snapshots.getMetadata().isFromCache()) {
+            reconciled[0] = true;
+            localStore.removeMissingSavedPlaylists(uid, documentIds(snapshots));
+        }
+    }
+
+    private static List<String> documentIds(QuerySnapshot snapshots) {
+        List<String> ids = new ArrayList<>();
+        for (QueryDocumentSnapshot document : snapshots) {
+            ids.add(document.getId());
+        }
+        return ids;
+    }
+
+    // Apply the changed bookmark documents; returns true if the set of saved ids changed
+    private static boolean applyChanges(QuerySnapshot snapshots, String idField,
+                                        Map<String, String> docs, Set<String> ids) {
+        if (snapshots == null || snapshots.getDocumentChanges().isEmpty()) {
+            return false;
+        }
+        for (DocumentChange change : snapshots.getDocumentChanges()) {
+            String docId = change.getDocument().getId();
+            if (change.getType() == DocumentChange.Type.REMOVED) {
+                docs.remove(docId);
+            } else {
+                String savedId = change.getDocument().getString(idField);
+                if (savedId != null) {
+                    docs.put(docId, savedId);
+                } else {
+                    docs.remove(docId);
+                }
+            }
+        }
+
+        // Rebuild from the documents; duplicate bookmarks of the same item are possible
+        Set<String> updated = new HashSet<>(docs.values());
+        if (updated.equals(ids)) {
+            return false;
+        }
+        ids.clear();
+        ids.addAll(updated);
+        return true;
+    }
+
+    // Copy random-id bookmarks to their userId_itemId document and delete the originals
+    private void migrateLegacyBookmarks(String uid, String collectionName, String idField, QuerySnapshot snapshots) {
+        if (snapshots == null || !uid.equals(listeningUid)) {
+            return;
+        }
+
+        CollectionReference collection = firestore.collection(collectionName);
+        WriteBatch batch = firestore.batch();
+        List<String> batchDocIds = new ArrayList<>();
+        for (DocumentChange change : snapshots.getDocumentChanges()) {
+            if (change.getType() == DocumentChange.Type.REMOVED) {
+                continue;
+            }
+            QueryDocumentSnapshot document = change.getDocument();
+            String savedId = document.getString(idField);
+            if (savedId == null || document.getMetadata().hasPendingWrites()) {
+                continue;
+            }
+            String expectedDocId = uid + "_" + savedId;
+            if (document.getId().equals(expectedDocId) || migratingDocIds.contains(document.getId())) {
+                continue;
+            }
+
+            // Same fields, including the original savedAt, under the deterministic id
+            batch.set(collection.document(expectedDocId), document.getData());
+            batch.delete(document.getReference());
+            batchDocIds.add(document.getId());
+            migratingDocIds.add(document.getId());
+
+            if (batchDocIds.size() == MIGRATION_BATCH_SIZE) {
+                commitMigration(uid, batch, batchDocIds, collectionName, idField);
+                batch = firestore.batch();
+                batchDocIds = new ArrayList<>();
+            }
+        }
+        if (!batchDocIds.isEmpty()) {
+            commitMigration(uid, batch, batchDocIds, collectionName, idField);
+        }
+    }
+
+    private void commitMigration(String uid, WriteBatch batch, List<String> docIds, String collectionName,
+                                 String idField) {
+        batch.commit()
+                .addOnSuccessListener(aVoid ->
+                        Log.d(TAG, "Migrated " + docIds.size() + " " + collectionName + " bookmarks"))
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "Failed to migrate " + collectionName + " bookmarks: " + e.getMessage());
+                    migratingDocIds.removeAll(docIds);
+                    // The listener won't deliver the unchanged documents again, so read them again later
+                    scheduleMigrationRetry(uid, collectionName, idField);
+                });
+    }
+
+    // Read the user's bookmarks again after a delay and migrate whatever still needs it.
+    // Failed batches of the same collection share one pending retry.
+    private void scheduleMigrationRetry(String uid, String collectionName, String idField) {
+        if (!uid.equals(listeningUid) || pendingMigrationRetries.contains(collectionName)) {
+            return;
+        }
+        Integer retries = migrationRetries.get(collectionName);
+        int attempt = retries != null ? retries : 0;
+        if (attempt >= MAX_MIGRATION_RETRIES) {
+            Log.w(TAG, "Giving up migrating " + collectionName + " bookmarks until the next sign-in");
+            return;
+        }
+        pendingMigrationRetries.add(collectionName);
+
+        handler.postDelayed(() -> {
+            pendingMigrationRetries.remove(collectionName);
+            migrationRetries.put(collectionName, attempt + 1);
+            firestore.collection(collectionName)
+                    .whereEqualTo("userId", uid)
+                    .get()
+                    .addOnSuccessListener(snapshots -> migrateLegacyBookmarks(uid, collectionName, idField, snapshots))
+                    .addOnFailureListener(e -> scheduleMigrationRetry(uid, collectionName, idField));
+        }, INITIAL_MIGRATION_RETRY_MS << attempt);
+    }
+
+    private void stopListening() {
+        if (savedCoursesRegistration != null) {
+            savedCoursesRegistration.remove();
+            savedCoursesRegistration = null;
+        }
+        if (savedPlaylistsRegistration != null) {
+            savedPlaylistsRegistration.remove();
+            savedPlaylistsRegistration = null;
+        }
+    }
+
+    private void notifyCoursesChanged() {
+        for (SavedStateObserver observer : new ArrayList<>(observers)) {
+            observer.onSavedCoursesChanged();
+        }
+    }
+
+    private void notifyPlaylistsChanged() {
+        for (SavedStateObserver observer : new ArrayList<>(observers)) {
+            observer.onSavedPlaylistsChanged();
+        }
+    }
+}
@@ -0,0 +1,464 @@
+package com.example.coursesharingapp.repository;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.net.Uri;
+import android.util.Log;
+
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+import androidx.work.Constraints;
+import androidx.work.Data;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.OutOfQuotaPolicy;
+import androidx.work.WorkManager;
+
+import com.example.coursesharingapp.model.Course;
+import com.example.coursesharingapp.model.UploadJob;
+import com.example.coursesharingapp.util.LocalFiles;
+import com.google.firebase.firestore.FirebaseFirestore;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Queue of course uploads that run in the background through WorkManager,
+ * so an upload keeps going when the user leaves the upload screen.
+ *
+ * Every job is stored in a persistent job table and scheduled as its own
+ * work request with the job's network and charging constraints. The picked
+ * files are copied into app storage first, since the picker's read grant
+ * ends long before a deferred job runs; the copies are deleted with the job. At most
+ * {@link #getMaxConcurrentUploads()} uploads run at once: a started upload
+ * worker waits for a free upload slot before sending anything, so the limit
+ * holds whatever else shares WorkManager's threads. The state of all jobs is
+ * exposed as LiveData that any screen can observe.
+ */
+public class UploadQueue {
+    private static final String TAG = "UploadQueue";
+
+    private static final String PREF_NAME = "upload_queue";
+    private static final String KEY_JOB_PREFIX = "job_";
+    private static final String KEY_MAX_CONCURRENT_UPLOADS = "max_concurrent_uploads";
+    private static final String FILES_DIR = "uploads";
+
+    public static final int DEFAULT_MAX_CONCURRENT_UPLOADS = 2;
+    public static final String WORK_TAG = "course_upload";
+
+    private static UploadQueue instance;
+
+    // Job id -> job, in the order they were queued
+    private final Map<String, UploadJob> jobs = new LinkedHashMap<>();
+    private final MutableLiveData<List<UploadJob>> jobsLiveData = new MutableLiveData<>(new ArrayList<>());
+    private final ExecutorService copyExecutor = Executors.newSingleThreadExecutor();
+    // Guards runningUploads; upload workers wait on it for a free slot
+    private final Object uploadSlots = new Object();
+    private int runningUploads;
+    private Context appContext;
+    private SharedPreferences prefs;
+
+    public static synchronized UploadQueue getInstance() {
+        if (instance == null) {
+            instance = new UploadQueue();
+        }
+        return instance;
+    }
+
+    private UploadQueue() {
+    }
+
+    /**
+     * Load the job table. Safe to call more than once.
+     * @param context Any context; the application context is kept
+     */
+    public synchronized void init(Context context) {
+        if (prefs != null) {
+            return;
+        }
+        appContext = context.getApplicationContext();
+        prefs = appContext.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
+
+        List<UploadJob> loaded = new ArrayList<>();
+        for (Map.Entry<String, ?> entry : prefs.getAll().entrySet()) {
+            if (!entry.getKey().startsWith(KEY_JOB_PREFIX)) {
+                continue;
+            }
+            try {
+                loaded.add(fromJson(new JSONObject((String) entry.getValue())));
+            } catch (JSONException | ClassCastException e) {
+                Log.e(TAG, "Dropping unreadable upload job " + entry.getKey() + ": " + e.getMessage());
+                prefs.edit().remove(entry.getKey()).apply();
+            }
+        }
+        Collections.sort(loaded, (a, b) -> Long.compare(a.getCreatedAt(), b.getCreatedAt()));
+        for (UploadJob job : loaded) {
+            jobs.put(job.getId(), job);
+            if (UploadJob.STATUS_PREPARING.equals(job.getStatus())) {
+                // The process died while copying; the picker's grant died with it
+                job.setStatus(UploadJob.STATUS_FAILED);
+                job.setErrorMessage("The app closed before the selected files were copied. "
+                        + "Please queue the course again.");
+                save(job);
+                LocalFiles.deleteRecursively(filesDir(job.getId()));
+            }
+        }
+        publish();
+    }
+
+    /**
+     * @return Observable snapshot of every job, oldest first
+     */
+    public LiveData<List<UploadJob>> getJobs() {
+        return jobsLiveData;
+    }
+
+    public synchronized int getMaxConcurrentUploads() {
+        if (prefs == null) {
+            return DEFAULT_MAX_CONCURRENT_UPLOADS;
+        }
+        return prefs.getInt(KEY_MAX_CONCURRENT_UPLOADS, DEFAULT_MAX_CONCURRENT_UPLOADS);
+    }
+
+    /**
+     * Change how many uploads may run at once. Uploads already running are
+     * not stopped when the limit is lowered; waiting ones start when raised.
+     * @param maxConcurrentUploads The limit, at least 1
+     */
+    public void setMaxConcurrentUploads(int maxConcurrentUploads) {
+        synchronized (this) {
+            prefs.edit().putInt(KEY_MAX_CONCURRENT_UPLOADS, Math.max(1, maxConcurrentUploads)).apply();
+        }
+        wakeUploadSlotWaiters();
+    }
+
+    // Wait for fewer than the limit of uploads to be running, then count this one in.
+    // Returns false without taking a slot once the worker was stopped or interrupted.
+    boolean acquireUploadSlot(CourseUploadWorker worker) {
+        synchronized (uploadSlots) {
+            while (!worker.isStopped() && runningUploads >= getMaxConcurrentUploads()) {
+                try {
+                    uploadSlots.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+            if (worker.isStopped()) {
+                return false;
+            }
+            runningUploads++;
+            return true;
+        }
+    }
+
+    // Give back a slot taken by acquireUploadSlot
+    void releaseUploadSlot() {
+        synchronized (uploadSlots) {
+            runningUploads--;
+            uploadSlots.notifyAll();
+        }
+    }
+
+    // Let waiting workers look again at the limit and whether they were stopped
+    void wakeUploadSlotWaiters() {
+        synchronized (uploadSlots) {
+            uploadSlots.notifyAll();
+        }
+    }
+
+    /**
+     * Queue a new course for upload. The files are copied into app storage
+     * in the background before the job is scheduled, so call this while
+     * they are still readable, i.e. right after they were picked.
+     * @param course The course to create; its id is assigned here
+     * @param thumbnailUri The thumbnail image
+     * @param videoUri The video
+     * @param wifiOnly Wait for an unmetered network
+     * @param chargingOnly Wait until the device is charging
+     * @return The queued job
+     */
+    public synchronized UploadJob enqueue(Course course, Uri thumbnailUri, Uri videoUri,
+                                          boolean wifiOnly, boolean chargingOnly) {
+        // Reserve the course document id now so a re-run of the job can't create a duplicate course
+        String courseId = FirebaseFirestore.getInstance().collection("courses").document().getId();
+        String jobId = UUID.randomUUID().toString();
+        File thumbnailCopy = new File(filesDir(jobId), "thumbnail");
+        File videoCopy = new File(filesDir(jobId), "video");
+
+        UploadJob job = new UploadJob(jobId, courseId, course, Uri.fromFile(thumbnailCopy).toString(),
+                Uri.fromFile(videoCopy).toString(), wifiOnly, chargingOnly);
+        job.setStatus(UploadJob.STATUS_PREPARING);
+        jobs.put(jobId, job);
+        save(job);
+        publish();
+
+        copyExecutor.execute(() -> {
+            try {
+                LocalFiles.copy(appContext, thumbnailUri, thumbnailCopy);
+                LocalFiles.copy(appContext, videoUri, videoCopy);
+            } catch (IOException e) {
+                Log.e(TAG, "Failed to copy the files of upload job " + jobId + ": " + e.getMessage());
+                markFailed(jobId, "Could not read the selected files: " + e.getMessage());
+                LocalFiles.deleteRecursively(filesDir(jobId));
+                return;
+            }
+            synchronized (this) {
+                if (jobs.get(jobId) != job) {
+                    // Cancelled while copying
+                    LocalFiles.deleteRecursively(filesDir(jobId));
+                    return;
+                }
+                job.setStatus(UploadJob.STATUS_QUEUED);
+                schedule(job);
+            }
+        });
+        return job;
+    }
+
+    // Where a job's copies of its files live
+    private File filesDir(String jobId) {
+        return new File(new File(appContext.getFilesDir(), FILES_DIR), jobId);
+    }
+
+    /**
+     * Run a failed job again
+     * @param jobId The job id
+     */
+    public synchronized void retry(String jobId) {
+        UploadJob job = jobs.get(jobId);
+        if (job == null || !UploadJob.STATUS_FAILED.equals(job.getStatus())) {
+            return;
+        }
+        if (!new File(filesDir(jobId), "video").exists()) {
+            // The copy never completed; only picking the files again can fix that
+            return;
+        }
+        job.setStatus(UploadJob.STATUS_QUEUED);
+        job.setErrorMessage(null);
+        schedule(job);
+    }
+
+    /**
+     * Cancel a job that hasn't finished and remove it from the queue
+     * @param jobId The job id
+     */
+    public synchronized void cancel(String jobId) {
+        UploadJob job = jobs.remove(jobId);
+        if (job == null) {
+            return;
+        }
+        if (job.getWorkId() != null) {
+            WorkManager.getInstance(appContext).cancelWorkById(UUID.fromString(job.getWorkId()));
+        }
+        // A job that isn't running and didn't succeed never created its course, so nothing uses its code
+        if (UploadJob.STATUS_QUEUED.equals(job.getStatus()) || UploadJob.STATUS_FAILED.equals(job.getStatus())) {
+            AccessCodeIndex.getInstance().release(job.getAccessCode());
+        }
+        // A copy still being made is deleted by the copying thread once it sees the job is gone
+        if (!UploadJob.STATUS_PREPARING.equals(job.getStatus())) {
+            LocalFiles.deleteRecursively(filesDir(jobId));
+        }
+        prefs.edit().remove(KEY_JOB_PREFIX + jobId).apply();
+        publish();
+    }
+
+    /**
+     * Remove finished jobs from the queue
+     */
+    public synchronized void clearFinished() {
+        SharedPreferences.Editor editor = prefs.edit();
+        List<String> finishedIds = new ArrayList<>();
+        for (UploadJob job : jobs.values()) {
+            if (job.isFinished()) {
+                finishedIds.add(job.getId());
+            }
+        }
+        for (String jobId : finishedIds) {
+            jobs.remove(jobId);
+            editor.remove(KEY_JOB_PREFIX + jobId);
+            LocalFiles.deleteRecursively(filesDir(jobId));
+        }
+        editor.apply();
+        publish();
+    }
+
+    synchronized UploadJob getJob(String jobId) {
+        return jobs.get(jobId);
+    }
+
+    synchronized void markQueued(String jobId) {
+        UploadJob job = jobs.get(jobId);
+        if (job != null && !job.isFinished()) {
+            job.setStatus(UploadJob.STATUS_QUEUED);
+            save(job);
+            publish();
+        }
+    }
+
+    synchronized void markRunning(String jobId) {
+        UploadJob job = jobs.get(jobId);
+        if (job != null) {
+            job.setStatus(UploadJob.STATUS_RUNNING);
+            save(job);
+            publish();
+        }
+    }
+
+    // Saved right away, so a re-run after the process died claims the same code instead of a new one
+    synchronized void setAccessCode(String jobId, String accessCode) {
+        UploadJob job = jobs.get(jobId);
+        if (job != null) {
+            job.setAccessCode(accessCode);
+            save(job);
+        }
+    }
+
+    // Progress is only kept in memory; the resumable uploader persists the real offset
+    synchronized void updateProgress(String jobId, int progress, long bytesTransferred, long totalBytes) {
+        UploadJob job = jobs.get(jobId);
+        if (job != null) {
+            job.setProgress(progress);
+            job.setBytesTransferred(bytesTransferred);
+            job.setTotalBytes(totalBytes);
+            publish();
+        }
+    }
+
+    synchronized void markSucceeded(String jobId) {
+        UploadJob job = jobs.get(jobId);
+        if (job != null) {
+            job.setStatus(UploadJob.STATUS_SUCCEEDED);
+            job.setProgress(100);
+            save(job);
+            publish();
+            // Whatever still needs the video took it out of here before the job was marked done
+            LocalFiles.deleteRecursively(filesDir(jobId));
+        }
+    }
+
+    synchronized void markFailed(String jobId, String errorMessage) {
+        UploadJob job = jobs.get(jobId);
+        if (job != null) {
+            job.setStatus(UploadJob.STATUS_FAILED);
+            job.setErrorMessage(errorMessage);
+            save(job);
+            publish();
+        }
+    }
+
+    private void schedule(UploadJob job) {
+        Constraints constraints = new Constraints.Builder()
+                .setRequiredNetworkType(job.isWifiOnly() ? NetworkType.UNMETERED : NetworkType.CONNECTED)
+                .setRequiresCharging(job.isChargingOnly())
+                .build();
+
+        OneTimeWorkRequest.Builder builder = new OneTimeWorkRequest.Builder(CourseUploadWorker.class)
+                .setConstraints(constraints)
+                .setInputData(new Data.Builder()
+                        .putString(CourseUploadWorker.KEY_JOB_ID, job.getId())
+                        .build())
+                .addTag(WORK_TAG);
+        if (!job.isWifiOnly() && !job.isChargingOnly()) {
+            // Start right away when possible; expedited work can't carry a charging constraint
+            builder.setExpedited(OutOfQuotaPolicy.RUN_AS_NON_EXPEDITED_WORK_REQUEST);
+        }
+        OneTimeWorkRequest request = builder.build();
+
+        job.setWorkId(request.getId().toString());
+        save(job);
+        WorkManager.getInstance(appContext).enqueue(request);
+        publish();
+    }
+
+    private void save(UploadJob job) {
+        try {
+            prefs.edit().putString(KEY_JOB_PREFIX + job.getId(), toJson(job).toString()).apply();
+        } catch (JSONException e) {
+            Log.e(TAG, "Failed to save upload job: " + e.getMessage());
+        }
+    }
+
+    // Hand observers a copy so they never see a list that's being modified
+    private void publish() {
+        List<UploadJob> snapshot = new ArrayList<>();
+        for (UploadJob job : jobs.values()) {
+            snapshot.add(copyOf(job));
+        }
+        jobsLiveData.postValue(snapshot);
+    }
+
+    private static UploadJob copyOf(UploadJob job) {
+        try {
+            return fromJson(toJson(job));
+        } catch (JSONException e) {
+            return job;
+        }
+    }
+
+    private static JSONObject toJson(UploadJob job) throws JSONException {
+        JSONObject object = new JSONObject();
+        object.put("id", job.getId());
+        object.put("workId", job.getWorkId());
+        object.put("courseId", job.getCourseId());
+        object.put("videoPath", job.getVideoPath());
+        object.put("title", job.getTitle());
+        object.put("shortDescription", job.getShortDescription());
+        object.put("longDescription", job.getLongDescription());
+        object.put("uploaderUid", job.getUploaderUid());
+        object.put("uploaderUsername", job.getUploaderUsername());
+        object.put("category", job.getCategory());
+        object.put("private", job.isPrivate());
+        object.put("accessCode", job.getAccessCode());
+        object.put("thumbnailUri", job.getThumbnailUri());
+        object.put("videoUri", job.getVideoUri());
+        object.put("wifiOnly", job.isWifiOnly());
+        object.put("chargingOnly", job.isChargingOnly());
+        object.put("status", job.getStatus());
+        object.put("progress", job.getProgress());
+        object.put("bytesTransferred", job.getBytesTransferred());
+        object.put("totalBytes", job.getTotalBytes());
+        object.put("errorMessage", job.getErrorMessage());
+        object.put("createdAt", job.getCreatedAt());
+        return object;
+    }
+
+    private static UploadJob fromJson(JSONObject object) throws JSONException {
+        UploadJob job = new UploadJob();
+        job.setId(object.getString("id"));
+        job.setWorkId(object.optString("workId", null));
+        job.setCourseId(object.getString("courseId"));
+        // Jobs saved before paths were stored get the path their constructor would have picked
+        job.setVideoPath(object.optString("videoPath", "videos/" + job.getCourseId() + "_" + job.getId()));
+        job.setTitle(object.optString("title", null));
+        job.setShortDescription(object.optString("shortDescription", null));
+        job.setLongDescription(object.optString("longDescription", null));
+        job.setUploaderUid(object.optString("uploaderUid", null));
+        job.setUploaderUsername(object.optString("uploaderUsername", null));
+        job.setCategory(object.optString("category", null));
+        job.setPrivate(object.optBoolean("private"));
+        job.setAccessCode(object.optString("accessCode", null));
+        job.setThumbnailUri(object.getString("thumbnailUri"));
+        job.setVideoUri(object.getString("videoUri"));
+        job.setWifiOnly(object.optBoolean("wifiOnly"));
+        job.setChargingOnly(object.optBoolean("chargingOnly"));
+        job.setStatus(object.optString("status", UploadJob.STATUS_QUEUED));
+        job.setProgress(object.optInt("progress"));
+        job.setBytesTransferred(object.optLong("bytesTransferred"));
+        job.setTotalBytes(object.optLong("totalBytes"));
+        job.setErrorMessage(object.optString("errorMessage", null));
+        job.setCreatedAt(object.optLong("createdAt"));
+        return job;
+    }
+}
@@ -7,9 +7,11 @@ import com.google.firebase.firestore.DocumentSnapshot;
 public class UserRepository {
     private static final String TAG = "UserRepository";
     private final FirebaseFirestore firestore;
+    private final LocalStore localStore;
 
     public UserRepository() {
         firestore = FirebaseFirestore.getInstance();
+        localStore = LocalStore.getInstance();
     }
 
     public interface UserCallback {
@@ -34,6 +36,8 @@ public class UserRepository {
                         DocumentSnapshot document = task.getResult();
                         if (document.exists()) {
                             User user = document.toObject(User.class);
+                            user.setId(document.getId());
+                            localStore.putUser(user);
                             callback.onUserLoaded(user);
                         } else {
                             callback.onError("User not found");
@@ -44,6 +48,11 @@ public class UserRepository {
                 });
     }
 
+    // A user from the on-disk mirror, to show while getUserById loads; nothing if it isn't mirrored
+    public void getLocalUser(String userId, UserCallback callback) {
+        localStore.getUser(userId, callback);
+    }
+
     public void getUserByUsername(String username, UserCallback callback) {
         firestore.collection("users")
                 .whereEqualTo("username", username)
@@ -0,0 +1,166 @@
+package com.example.coursesharingapp.repository;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.Uri;
+import android.util.Log;
+
+import androidx.annotation.OptIn;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.database.StandaloneDatabaseProvider;
+import androidx.media3.datasource.DataSpec;
+import androidx.media3.datasource.DefaultDataSource;
+import androidx.media3.datasource.DefaultHttpDataSource;
+import androidx.media3.datasource.cache.CacheDataSource;
+import androidx.media3.datasource.cache.CacheWriter;
+import androidx.media3.datasource.cache.LeastRecentlyUsedCacheEvictor;
+import androidx.media3.datasource.cache.SimpleCache;
+import androidx.media3.exoplayer.source.DefaultMediaSourceFactory;
+import androidx.media3.exoplayer.source.MediaSource;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Process-wide disk cache for course videos, shared by every player.
+ *
+ * Players read through a {@link CacheDataSource}, so each byte of a video is
+ * downloaded from Firebase Storage once and served from disk on every later
+ * view. The cache is bounded in bytes and evicts the least recently used
+ * videos. {@link #prefetch(String)} downloads the beginning of a video ahead
+ * of time so playback can start without waiting for the network.
+ */
+@OptIn(markerClass = UnstableApi.class)
+public class VideoCache {
+    private static final String TAG = "VideoCache";
+
+    private static final String CACHE_DIR = "video_cache";
+    private static final long MAX_CACHE_BYTES = 512L * 1024 * 1024; // 512MB
+
+    // How much of a video to prefetch. Storage doesn't expose the bitrate, so the
+    // byte count is estimated from a typical upload bitrate.
+    public static final int PREFETCH_SECONDS = 5;
+    private static final long ASSUMED_BITRATE_BPS = 4_000_000; // 4 Mbit/s
+    private static final long PREFETCH_BYTES = PREFETCH_SECONDS * ASSUMED_BITRATE_BPS / 8;
+
+    // Only the rows that most recently came into view are worth prefetching
+    private static final int MAX_PENDING_PREFETCHES = 4;
+    private static final int PREFETCH_THREADS = 2;
+
+    private static VideoCache instance;
+
+    private SimpleCache cache;
+    private CacheDataSource.Factory cacheDataSourceFactory;
+    private ConnectivityManager connectivityManager;
+    private final ExecutorService prefetchExecutor = Executors.newFixedThreadPool(PREFETCH_THREADS);
+
+    // Newest first; guarded by itself
+    private final Deque<String> pendingPrefetches = new ArrayDeque<>();
+    private final Set<String> activePrefetches = new HashSet<>();
+
+    public static synchronized VideoCache getInstance() {
+        if (instance == null) {
+            instance = new VideoCache();
+        }
+        return instance;
+    }
+
+    private VideoCache() {
+    }
+
+    /**
+     * Open the cache. Safe to call more than once.
+     * @param context Any context; the application context is kept
+     */
+    public synchronized void init(Context context) {
+        if (cache != null) {
+            return;
+        }
+        Context appContext = context.getApplicationContext();
+        connectivityManager = appContext.getSystemService(ConnectivityManager.class);
+
+        // A cache directory must only ever be opened by one SimpleCache instance
+        cache = new SimpleCache(new File(appContext.getCacheDir(), CACHE_DIR),
+                new LeastRecentlyUsedCacheEvictor(MAX_CACHE_BYTES),
+                new StandaloneDatabaseProvider(appContext));
+
+        DefaultDataSource.Factory upstreamFactory = new DefaultDataSource.Factory(appContext,
+                new DefaultHttpDataSource.Factory().setAllowCrossProtocolRedirects(true));
+        cacheDataSourceFactory = new CacheDataSource.Factory()
+                .setCache(cache)
+                .setUpstreamDataSourceFactory(upstreamFactory)
+                // A damaged cache file shouldn't stop playback; stream that part instead
+                .setFlags(CacheDataSource.FLAG_IGNORE_CACHE_ON_ERROR);
+    }
+
+    /**
+     * @param context Any context, used if the cache isn't open yet
+     * @return A media source factory whose players read through the cache
+     */
+    public MediaSource.Factory getMediaSourceFactory(Context context) {
+        init(context);
+        return new DefaultMediaSourceFactory(cacheDataSourceFactory);
+    }
+
+    /**
+     * Download the first {@link #PREFETCH_SECONDS} seconds of a video into the cache
+     * in the background. Skipped on metered networks and for videos already cached.
+     * @param videoUrl The video's download URL
+     */
+    public void prefetch(String videoUrl) {
+        if (cache == null || videoUrl == null || videoUrl.isEmpty()) {
+            return;
+        }
+        if (connectivityManager != null && connectivityManager.isActiveNetworkMetered()) {
+            return;
+        }
+
+        synchronized (pendingPrefetches) {
+            if (activePrefetches.contains(videoUrl) || pendingPrefetches.contains(videoUrl)) {
+                return;
+            }
+            pendingPrefetches.addFirst(videoUrl);
+            while (pendingPrefetches.size() > MAX_PENDING_PREFETCHES) {
+                pendingPrefetches.removeLast();
+            }
+        }
+        prefetchExecutor.execute(this::runNextPrefetch);
+    }
+
+    private void runNextPrefetch() {
+        String videoUrl;
+        synchronized (pendingPrefetches) {
+            videoUrl = pendingPrefetches.pollFirst();
+            if (videoUrl == null) {
+                return;
+            }
+            activePrefetches.add(videoUrl);
+        }
+
+        try {
+            // The download URL is stable for the life of the file, so it doubles as the cache key
+            if (cache.isCached(videoUrl, 0, PREFETCH_BYTES)) {
+                return;
+            }
+            DataSpec dataSpec = new DataSpec.Builder()
+                    .setUri(Uri.parse(videoUrl))
+                    .setPosition(0)
+                    .setLength(PREFETCH_BYTES)
+                    .build();
+            new CacheWriter(cacheDataSourceFactory.createDataSourceForDownloading(), dataSpec, null, null).cache();
+        } catch (IOException e) {
+            // Playback streams whatever isn't cached, so a failed prefetch only costs the head start
+            Log.w(TAG, "Prefetch failed for " + videoUrl + ": " + e.getMessage());
+        } finally {
+            synchronized (pendingPrefetches) {
+                activePrefetches.remove(videoUrl);
+            }
+        }
+    }
+}
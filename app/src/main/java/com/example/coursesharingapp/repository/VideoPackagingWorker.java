@@ -0,0 +1,297 @@
+package com.example.coursesharingapp.repository;
+
+import android.app.Notification;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.content.Context;
+import android.content.pm.ServiceInfo;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.core.app.NotificationCompat;
+import androidx.work.Constraints;
+import androidx.work.Data;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.ForegroundInfo;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.example.coursesharingapp.packaging.VideoPackager;
+import com.example.coursesharingapp.util.LocalFiles;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Encodes an uploaded course video into an adaptive bitrate HLS ladder and
+ * publishes it with {@link CourseRepository#publishHlsPackage}, as a
+ * foreground service. Courses play their progressive video until this
+ * finishes, so a failed run only costs the adaptive playback.
+ *
+ * Each uploaded video gets its own directory in app storage holding a copy
+ * of the source and the encoded renditions. It outlives a stopped run, so
+ * the next run reuses what was encoded and resumes what was being uploaded;
+ * it is deleted once the video is packaged or packaging has failed.
+ */
+public class VideoPackagingWorker extends Worker {
+    private static final String TAG = "VideoPackagingWorker";
+
+    private static final String KEY_COURSE_ID = "course_id";
+    private static final String KEY_TITLE = "title";
+    private static final String KEY_VIDEO_URL = "video_url";
+
+    private static final String CHANNEL_ID = "course_uploads";
+    private static final String WORK_NAME_PREFIX = "package_video_";
+    private static final String PACKAGES_DIR = "packaging";
+    private static final String SOURCE_FILE = "source.mp4";
+    private static final String OUTPUT_DIR = "hls";
+
+    // Copies sources and tidies up old packages in the order packaging was requested
+    private static final ExecutorService prepareExecutor = Executors.newSingleThreadExecutor();
+
+    // The encoded renditions are uploaded after packaging, so half the bar is each
+    private static final int PACKAGING_PROGRESS_SHARE = 50;
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final CountDownLatch finished = new CountDownLatch(1);
+    // Only touched on the main thread
+    private VideoPackager packager;
+    private CourseRepository.CourseUpload publish;
+
+    public VideoPackagingWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    /**
+     * App-owned copy of a course's video for packaging to read, since the
+     * grant on a picked file is long gone by the time packaging runs. Moving
+     * the file here before {@link #enqueue} saves copying it.
+     * @param context Any context
+     * @param courseId The course
+     * @param videoUrl The uploaded video the file is the source of
+     * @return The file; it may not exist
+     */
+    public static File sourceFile(Context context, String courseId, String videoUrl) {
+        return new File(packageDir(context, courseId, videoUrl), SOURCE_FILE);
+    }
+
+    // Everything packaging one uploaded video keeps between runs
+    private static File packageDir(Context context, String courseId, String videoUrl) {
+        String videoKey = UUID.nameUUIDFromBytes(videoUrl.getBytes(StandardCharsets.UTF_8)).toString();
+        return new File(new File(context.getApplicationContext().getFilesDir(), PACKAGES_DIR),
+                courseId + "_" + videoKey);
+    }
+
+    /**
+     * Package a course's video in the background. A newer request for the same course replaces an older one.
+     * @param context Any context
+     * @param courseId The course
+     * @param title The course title, shown in the notification
+     * @param videoUri The source video; copied into {@link #sourceFile} unless it already is that file,
+     *                 so it only needs to be readable until the copy is made
+     * @param videoUrl The uploaded video the package is for
+     * @param wifiOnly Wait for an unmetered network before uploading the renditions
+     */
+    public static void enqueue(Context context, String courseId, String title, Uri videoUri, String videoUrl,
+                               boolean wifiOnly) {
+        Context appContext = context.getApplicationContext();
+        prepareExecutor.execute(() -> {
+            File source = sourceFile(appContext, courseId, videoUrl);
+            if (!videoUri.equals(Uri.fromFile(source))) {
+                try {
+                    LocalFiles.copy(appContext, videoUri, source);
+                } catch (IOException e) {
+                    // The course keeps playing its progressive video
+                    Log.e(TAG, "Could not copy the video of course " + courseId + " for packaging: "
+                            + e.getMessage());
+                    LocalFiles.deleteRecursively(source.getParentFile());
+                    return;
+                }
+            }
+            deleteOtherPackages(courseId, source.getParentFile());
+            schedule(appContext, courseId, title, videoUrl, wifiOnly);
+        });
+    }
+
+    // Packages of videos the course no longer has will never be published
+    private static void deleteOtherPackages(String courseId, File keep) {
+        File[] packages = keep.getParentFile().listFiles();
+        if (packages == null) {
+            return;
+        }
+        for (File other : packages) {
+            if (other.getName().startsWith(courseId + "_") && !other.equals(keep)) {
+                LocalFiles.deleteRecursively(other);
+            }
+        }
+    }
+
+    private static void schedule(Context context, String courseId, String title, String videoUrl,
+                                 boolean wifiOnly) {
+        // Encoding every rendition is heavy, so wait until the device can afford it
+        Constraints constraints = new Constraints.Builder()
+                .setRequiredNetworkType(wifiOnly ? NetworkType.UNMETERED : NetworkType.CONNECTED)
+                .setRequiresBatteryNotLow(true)
+                .setRequiresStorageNotLow(true)
+                .build();
+
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(VideoPackagingWorker.class)
+                .setConstraints(constraints)
+                .setInputData(new Data.Builder()
+                        .putString(KEY_COURSE_ID, courseId)
+                        .putString(KEY_TITLE, title)
+                        .putString(KEY_VIDEO_URL, videoUrl)
+                        .build())
+                .build();
+        WorkManager.getInstance(context)
+                .enqueueUniqueWork(WORK_NAME_PREFIX + courseId, ExistingWorkPolicy.REPLACE, request);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        String courseId = getInputData().getString(KEY_COURSE_ID);
+        String title = getInputData().getString(KEY_TITLE);
+        String videoUrl = getInputData().getString(KEY_VIDEO_URL);
+        if (courseId == null || videoUrl == null) {
+            return Result.failure();
+        }
+        File packageDir = packageDir(getApplicationContext(), courseId, videoUrl);
+        File source = new File(packageDir, SOURCE_FILE);
+        if (!source.exists()) {
+            Log.e(TAG, "The source video of course " + courseId + " is gone; it stays progressive");
+            LocalFiles.deleteRecursively(packageDir);
+            return Result.failure();
+        }
+
+        setForegroundAsync(createForegroundInfo(title, 0));
+
+        // Kept when stopped, so the next run neither re-encodes nor re-sends finished renditions
+        File outputDir = new File(packageDir, OUTPUT_DIR);
+        final String[] error = new String[1];
+        final int[] lastProgress = {-1};
+
+        // Transformer and Firebase both call back on the main thread; this worker thread just waits
+        mainHandler.post(() -> {
+            if (isStopped()) {
+                // onStopped has already released the worker thread
+                return;
+            }
+            packager = new VideoPackager(getApplicationContext());
+            packager.packageVideo(Uri.fromFile(source), outputDir, new VideoPackager.PackagingCallback() {
+                @Override
+                public void onProgress(int progress) {
+                    int overall = progress * PACKAGING_PROGRESS_SHARE / 100;
+                    if (overall != lastProgress[0]) {
+                        lastProgress[0] = overall;
+                        setForegroundAsync(createForegroundInfo(title, overall));
+                    }
+                }
+
+                @Override
+                public void onPackaged(List<VideoPackager.PackagedRendition> renditions) {
+                    if (isStopped()) {
+                        finished.countDown();
+                        return;
+                    }
+                    setForegroundAsync(createForegroundInfo(title, PACKAGING_PROGRESS_SHARE));
+                    publish = new CourseRepository().publishHlsPackage(courseId, videoUrl, renditions,
+                            new CourseRepository.CourseCallback() {
+                                @Override
+                                public void onSuccess() {
+                                    finished.countDown();
+                                }
+
+                                @Override
+                                public void onError(String errorMessage) {
+                                    error[0] = errorMessage != null ? errorMessage : "Publishing failed";
+                                    finished.countDown();
+                                }
+                            });
+                }
+
+                @Override
+                public void onError(String errorMessage) {
+                    error[0] = errorMessage != null ? errorMessage : "Packaging failed";
+                    finished.countDown();
+                }
+            });
+        });
+
+        try {
+            finished.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Result.retry();
+        }
+
+        if (isStopped()) {
+            // Nothing reads the package any more, and the next run carries on from it
+            return Result.retry();
+        }
+        // Done for good either way
+        LocalFiles.deleteRecursively(packageDir);
+        if (error[0] != null) {
+            // The course keeps playing its progressive video
+            Log.e(TAG, "Packaging course " + courseId + " failed: " + error[0]);
+            return Result.failure();
+        }
+        return Result.success();
+    }
+
+    @Override
+    public void onStopped() {
+        super.onStopped();
+        // Release the worker thread only once encoding is cancelled and the renditions are no
+        // longer being sent, so the next run can pick up the package while nothing else uses it
+        mainHandler.post(() -> {
+            if (packager != null) {
+                packager.cancel();
+            }
+            if (publish != null) {
+                publish.stop(finished::countDown);
+            } else {
+                finished.countDown();
+            }
+        });
+    }
+
+    @NonNull
+    @Override
+    public ForegroundInfo getForegroundInfo() {
+        return createForegroundInfo(getInputData().getString(KEY_TITLE), 0);
+    }
+
+    private ForegroundInfo createForegroundInfo(String title, int progress) {
+        Context context = getApplicationContext();
+        NotificationManager notificationManager = context.getSystemService(NotificationManager.class);
+        if (notificationManager.getNotificationChannel(CHANNEL_ID) == null) {
+            notificationManager.createNotificationChannel(new NotificationChannel(
+                    CHANNEL_ID, "Course uploads", NotificationManager.IMPORTANCE_LOW));
+        }
+
+        Notification notification = new NotificationCompat.Builder(context, CHANNEL_ID)
+                .setSmallIcon(android.R.drawable.stat_sys_upload)
+                .setContentTitle(title != null ? "Optimizing " + title + " for streaming" : "Optimizing course video")
+                .setProgress(100, progress, progress == 0)
+                .setOngoing(true)
+                .setOnlyAlertOnce(true)
+                .build();
+
+        int notificationId = getId().hashCode();
+        return new ForegroundInfo(notificationId, notification, ServiceInfo.FOREGROUND_SERVICE_TYPE_DATA_SYNC);
+    }
+
+}
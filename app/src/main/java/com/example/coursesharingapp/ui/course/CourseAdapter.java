@@ -9,41 +9,72 @@ import android.view.ViewGroup;
 import android.widget.Toast;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
-import com.bumptech.glide.Glide;
 import com.example.coursesharingapp.R;
 import com.example.coursesharingapp.databinding.ItemCourseBinding;
 import com.example.coursesharingapp.model.Course;
 import com.example.coursesharingapp.repository.AuthRepository;
-import com.example.coursesharingapp.repository.CourseRepository;
+import com.example.coursesharingapp.repository.SavedStateStore;
+import com.example.coursesharingapp.repository.VideoCache;
+import com.example.coursesharingapp.util.ListChange;
+import com.example.coursesharingapp.util.LiveListDiffer;
+import com.example.coursesharingapp.util.StableIds;
+import com.example.coursesharingapp.util.ThumbnailLoader;
 import com.google.android.material.chip.Chip;
 import com.google.firebase.auth.FirebaseUser;
 
-import java.util.HashSet;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Set;
+import java.util.Objects;
 
 public class CourseAdapter extends RecyclerView.Adapter<CourseAdapter.CourseViewHolder> {
 
+    // Payload for rebinding only the saved indicator of a row
+    private static final Object PAYLOAD_SAVED_STATE = new Object();
+
+    // Rows are the same course if the ids match; only displayed fields decide whether to rebind
+    public static final DiffUtil.ItemCallback<Course> DIFF_CALLBACK = new DiffUtil.ItemCallback<Course>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Course oldItem, @NonNull Course newItem) {
+            return Objects.equals(oldItem.getId(), newItem.getId());
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Course oldItem, @NonNull Course newItem) {
+            return Objects.equals(oldItem.getTitle(), newItem.getTitle())
+                    && Objects.equals(oldItem.getShortDescription(), newItem.getShortDescription())
+                    && Objects.equals(oldItem.getUploaderUsername(), newItem.getUploaderUsername())
+                    && Objects.equals(oldItem.getThumbnailUrl(), newItem.getThumbnailUrl())
+                    && Objects.equals(oldItem.getCategory(), newItem.getCategory())
+                    && oldItem.isPrivate() == newItem.isPrivate()
+                    && Objects.equals(oldItem.getAccessCode(), newItem.getAccessCode());
+        }
+    };
+
     private Context context;
-    private List<Course> courses;
     private OnCourseClickListener clickListener;
     private OnCourseDeleteListener deleteListener;
     private OnCourseEditListener editListener;
     private boolean showDeleteButton;
     private boolean showEditButton;
     private FirebaseUser currentUser;
-    private CourseRepository courseRepository;
-    private Set<String> savedCourseIds = new HashSet<>();
+    private final SavedStateStore savedStateStore = SavedStateStore.getInstance();
     private boolean isMyCoursesView; // New flag to track if this is "My Courses" view
+    private final StableIds stableIds = new StableIds();
+
+    // Full lists are diffed in the background; live feeds apply their changes directly
+    private final LiveListDiffer<Course> differ = new LiveListDiffer<>(this, DIFF_CALLBACK);
+
+    private boolean prefetchVideos;
 
     // Constructor with delete and edit functionality
     public CourseAdapter(Context context, List<Course> courses, OnCourseClickListener clickListener,
                          OnCourseDeleteListener deleteListener, OnCourseEditListener editListener,
                          boolean showDeleteButton, boolean showEditButton) {
+        setHasStableIds(true);
         this.context = context;
-        this.courses = courses;
         this.clickListener = clickListener;
         this.deleteListener = deleteListener;
         this.editListener = editListener;
@@ -54,12 +85,8 @@ public class CourseAdapter extends RecyclerView.Adapter<CourseAdapter.CourseView
         // Initialize Firebase-related objects
         AuthRepository authRepository = new AuthRepository();
         this.currentUser = authRepository.getCurrentUser();
-        this.courseRepository = new CourseRepository();
 
-        // Load saved state for all courses if the user is logged in
-        if (currentUser != null) {
-            loadSavedCourses();
-        }
+        submitList(new ArrayList<>(courses));
     }
 
     // Constructor with delete button parameter
@@ -73,25 +100,69 @@ public class CourseAdapter extends RecyclerView.Adapter<CourseAdapter.CourseView
         this(context, courses, clickListener, null, null, false, false);
     }
 
-    private void loadSavedCourses() {
-        if (currentUser == null) return;
+    // Refresh saved indicators whenever the user's bookmarks change
+    private final SavedStateStore.SavedStateObserver savedStateObserver = new SavedStateStore.SavedStateObserver() {
+        @Override
+        public void onSavedCoursesChanged() {
+            notifyItemRangeChanged(0, getItemCount(), PAYLOAD_SAVED_STATE);
+        }
 
-        courseRepository.getSavedCourses(currentUser.getUid(), new CourseRepository.CoursesCallback() {
-            @Override
-            public void onCoursesLoaded(List<Course> savedCourses) {
-                savedCourseIds.clear();
-                for (Course course : savedCourses) {
-                    savedCourseIds.add(course.getId());
-                }
-                notifyDataSetChanged();
-            }
+        @Override
+        public void onSavedPlaylistsChanged() {
+            // Not shown in course rows
+        }
+    };
+
+    @Override
+    public void onAttachedToRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onAttachedToRecyclerView(recyclerView);
+        savedStateStore.addObserver(savedStateObserver);
+    }
+
+    @Override
+    public void onDetachedFromRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onDetachedFromRecyclerView(recyclerView);
+        savedStateStore.removeObserver(savedStateObserver);
+    }
+
+    // Prefetch the start of each course's video as its row scrolls into view
+    public void setPrefetchVideos(boolean prefetchVideos) {
+        this.prefetchVideos = prefetchVideos;
+    }
 
-            @Override
-            public void onError(String errorMessage) {
-                // Just log error, no need to show message for this silent feature
-                android.util.Log.e("CourseAdapter", "Error loading saved courses: " + errorMessage);
+    @Override
+    public void onViewAttachedToWindow(@NonNull CourseViewHolder holder) {
+        super.onViewAttachedToWindow(holder);
+        int position = holder.getBindingAdapterPosition();
+        if (prefetchVideos && position != RecyclerView.NO_POSITION) {
+            Course course = getItem(position);
+            // Packaged courses stream HLS, which doesn't read the progressive file at all
+            if (course.getHlsManifestUrl() == null) {
+                VideoCache.getInstance().prefetch(course.getVideoUrl());
             }
-        });
+        }
+    }
+
+    public void submitList(List<Course> courses) {
+        differ.submitList(courses);
+    }
+
+    // Apply the changes a live feed reported since the list was last submitted or changed
+    public void applyChanges(List<ListChange<Course>> changes) {
+        differ.applyChanges(changes);
+    }
+
+    public List<Course> getCurrentList() {
+        return differ.getCurrentList();
+    }
+
+    public Course getItem(int position) {
+        return differ.getItem(position);
+    }
+
+    @Override
+    public int getItemCount() {
+        return differ.getItemCount();
     }
 
     @NonNull
@@ -104,13 +175,22 @@ public class CourseAdapter extends RecyclerView.Adapter<CourseAdapter.CourseView
 
     @Override
     public void onBindViewHolder(@NonNull CourseViewHolder holder, int position) {
-        Course course = courses.get(position);
-        holder.bind(course, position);
+        holder.bind(getItem(position));
     }
 
     @Override
-    public int getItemCount() {
-        return courses.size();
+    public void onBindViewHolder(@NonNull CourseViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (!payloads.isEmpty() && payloads.stream().allMatch(payload -> payload == PAYLOAD_SAVED_STATE)) {
+            // Only the saved indicator changed, keep the thumbnail request as is
+            holder.bindSavedState(getItem(position));
+            return;
+        }
+        super.onBindViewHolder(holder, position, payloads);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return stableIds.getId(getItem(position).getId());
     }
 
     public class CourseViewHolder extends RecyclerView.ViewHolder {
@@ -121,18 +201,13 @@ public class CourseAdapter extends RecyclerView.Adapter<CourseAdapter.CourseView
             this.binding = binding;
         }
 
-        public void bind(Course course, int position) {
+        public void bind(Course course) {
             // Set course data
             binding.courseTitleTv.setText(course.getTitle());
             binding.courseDescriptionTv.setText(course.getShortDescription());
             binding.courseUploaderTv.setText("By: " + course.getUploaderUsername());
 
-            // Show saved indicator if the course is saved
-            if (currentUser != null && savedCourseIds.contains(course.getId())) {
-                binding.savedIndicatorIv.setVisibility(View.VISIBLE);
-            } else {
-                binding.savedIndicatorIv.setVisibility(View.GONE);
-            }
+            bindSavedState(course);
 
             // Handle access code display for private courses in My Courses view
             if (isMyCoursesView && course.isPrivate() && course.getAccessCode() != null &&
@@ -163,28 +238,19 @@ public class CourseAdapter extends RecyclerView.Adapter<CourseAdapter.CourseView
             }
 
             // Load thumbnail
-            if (course.getThumbnailUrl() != null && !course.getThumbnailUrl().isEmpty()) {
-                Glide.with(context)
-                        .load(course.getThumbnailUrl())
-                        .placeholder(R.drawable.ic_placeholder_thumbnail)
-                        .error(R.drawable.ic_error_thumbnail)
-                        .centerCrop()
-                        .into(binding.courseThumbnailIv);
-            } else {
-                binding.courseThumbnailIv.setImageResource(R.drawable.ic_placeholder_thumbnail);
-            }
+            ThumbnailLoader.load(binding.courseThumbnailIv, course);
 
             // Set click listener
             binding.getRoot().setOnClickListener(v -> {
                 if (clickListener != null) {
-                    clickListener.onCourseClick(course, position);
+                    clickListener.onCourseClick(course, getBindingAdapterPosition());
                 }
             });
 
             // Show/hide delete button based on flag
             if (showDeleteButton && deleteListener != null) {
                 binding.deleteCourseButton.setVisibility(View.VISIBLE);
-                binding.deleteCourseButton.setOnClickListener(v -> deleteListener.onCourseDelete(course, position));
+                binding.deleteCourseButton.setOnClickListener(v -> deleteListener.onCourseDelete(course, getBindingAdapterPosition()));
             } else {
                 binding.deleteCourseButton.setVisibility(View.GONE);
             }
@@ -192,12 +258,21 @@ public class CourseAdapter extends RecyclerView.Adapter<CourseAdapter.CourseView
             // Show/hide edit button based on flag
             if (showEditButton && editListener != null) {
                 binding.editCourseButton.setVisibility(View.VISIBLE);
-                binding.editCourseButton.setOnClickListener(v -> editListener.onCourseEdit(course, position));
+                binding.editCourseButton.setOnClickListener(v -> editListener.onCourseEdit(course, getBindingAdapterPosition()));
             } else {
                 binding.editCourseButton.setVisibility(View.GONE);
             }
         }
 
+        // Show saved indicator if the course is saved
+        public void bindSavedState(Course course) {
+            if (currentUser != null && savedStateStore.isCourseSaved(course.getId())) {
+                binding.savedIndicatorIv.setVisibility(View.VISIBLE);
+            } else {
+                binding.savedIndicatorIv.setVisibility(View.GONE);
+            }
+        }
+
         private void copyAccessCodeToClipboard(String accessCode) {
             ClipboardManager clipboard = (ClipboardManager) context.getSystemService(Context.CLIPBOARD_SERVICE);
             ClipData clip = ClipData.newPlainText("Course Access Code", accessCode);
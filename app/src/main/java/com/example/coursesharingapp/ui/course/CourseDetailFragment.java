@@ -1,6 +1,5 @@
 package com.example.coursesharingapp.ui.course;
 
-import android.net.Uri;
 import android.os.Bundle;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -19,6 +18,9 @@ import com.example.coursesharingapp.databinding.FragmentCourseDetailBinding;
 import com.example.coursesharingapp.model.Course;
 import com.example.coursesharingapp.repository.AuthRepository;
 import com.example.coursesharingapp.repository.CourseRepository;
+import com.example.coursesharingapp.repository.PlaybackPositionStore;
+import com.example.coursesharingapp.util.PlayerFactory;
+import com.example.coursesharingapp.util.PlayerPool;
 import com.google.firebase.auth.FirebaseUser;
 
 public class CourseDetailFragment extends Fragment {
@@ -64,9 +66,6 @@ public class CourseDetailFragment extends Fragment {
             return;
         }
 
-        // Initialize player
-        initializePlayer();
-
         // Setup save button click listener
         binding.saveCourseButton.setOnClickListener(v -> {
             if (currentUser == null) {
@@ -83,9 +82,22 @@ public class CourseDetailFragment extends Fragment {
         loadCourseDetails();
     }
 
+    @Override
+    public void onStart() {
+        super.onStart();
+        initializePlayer();
+    }
+
+    // Borrow a warm player from the activity's pool; it may already hold this course's video
     private void initializePlayer() {
-        player = new ExoPlayer.Builder(requireContext()).build();
+        if (player != null || binding == null || courseId == null) {
+            return;
+        }
+        player = PlayerPool.get(requireActivity()).acquire(courseId);
         binding.videoView.setPlayer(player);
+        if (currentCourse != null) {
+            loadVideo(currentCourse);
+        }
     }
 
     private void checkIfCourseSaved() {
@@ -195,17 +207,29 @@ public class CourseDetailFragment extends Fragment {
         }
 
         // Load video
-        if (course.getVideoUrl() != null && !course.getVideoUrl().isEmpty()) {
-            MediaItem mediaItem = MediaItem.fromUri(Uri.parse(course.getVideoUrl()));
-            player.setMediaItem(mediaItem);
-            player.prepare();
-            // Don't auto-play, wait for user to press play
+        if (PlayerFactory.createMediaItem(course) != null) {
+            loadVideo(course);
         } else {
             binding.videoNotAvailableTv.setVisibility(View.VISIBLE);
             binding.videoView.setVisibility(View.GONE);
         }
     }
 
+    private void loadVideo(Course course) {
+        MediaItem mediaItem = PlayerFactory.createMediaItem(course);
+        if (player == null || mediaItem == null) {
+            return;
+        }
+        if (player.getMediaItemCount() == 1 && mediaItem.equals(player.getCurrentMediaItem())) {
+            // A pooled player that last played this video; its buffer and position are still good
+            return;
+        }
+        // Continue where the course was left off, here or in a playlist
+        player.setMediaItem(mediaItem, PlaybackPositionStore.getInstance().getPosition(course.getId()));
+        player.prepare();
+        // Don't auto-play, wait for user to press play
+    }
+
     private int getCategoryColor(String category) {
         switch (category) {
             case Course.CATEGORY_ART:
@@ -236,9 +260,17 @@ public class CourseDetailFragment extends Fragment {
         releasePlayer();
     }
 
+    // Detach the player from the view and hand it back to the pool, still prepared
     private void releasePlayer() {
         if (player != null) {
-            player.release();
+            if (player.getCurrentMediaItem() != null) {
+                PlaybackPositionStore.getInstance().savePosition(courseId,
+                        player.getCurrentPosition(), player.getDuration());
+            }
+            if (binding != null) {
+                binding.videoView.setPlayer(null);
+            }
+            PlayerPool.get(requireActivity()).release(player);
             player = null;
         }
     }
@@ -15,6 +15,7 @@ import com.example.coursesharingapp.R;
 import com.example.coursesharingapp.databinding.FragmentPrivateCourseAccessBinding;
 import com.example.coursesharingapp.model.Course;
 import com.example.coursesharingapp.repository.CourseRepository;
+import com.example.coursesharingapp.util.AccessCodeFormat;
 
 public class PrivateCourseAccessFragment extends Fragment {
 
@@ -40,7 +41,7 @@ public class PrivateCourseAccessFragment extends Fragment {
 
         // Set up access button click listener
         binding.accessCourseButton.setOnClickListener(v -> {
-            String accessCode = binding.accessCodeEditText.getText().toString().trim();
+            String accessCode = AccessCodeFormat.DEFAULT.normalize(binding.accessCodeEditText.getText().toString());
             if (validateInput(accessCode)) {
                 validateAccessCode(accessCode);
             }
@@ -53,13 +54,10 @@ public class PrivateCourseAccessFragment extends Fragment {
             return false;
         }
 
-        if (accessCode.length() != 6) {
-            binding.accessCodeEditText.setError("Access code must be 6 digits");
-            return false;
-        }
-
-        if (!accessCode.matches("\\d{6}")) {
-            binding.accessCodeEditText.setError("Access code must contain only numbers");
+        // Older codes are six digits
+        if (!AccessCodeFormat.DEFAULT.matches(accessCode) && !AccessCodeFormat.isLegacy(accessCode)) {
+            binding.accessCodeEditText.setError("Access code must be " + AccessCodeFormat.DEFAULT.getLength()
+                    + " letters and digits");
             return false;
         }
 
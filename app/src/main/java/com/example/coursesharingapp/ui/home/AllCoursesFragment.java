@@ -1,6 +1,10 @@
 package com.example.coursesharingapp.ui.home;
 
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.Editable;
+import android.text.TextWatcher;
 import android.view.KeyEvent;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -14,13 +18,18 @@ import androidx.fragment.app.Fragment;
 import androidx.navigation.NavController;
 import androidx.navigation.Navigation;
 import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.coursesharingapp.R;
 import com.example.coursesharingapp.databinding.FragmentAllCoursesBinding;
 import com.example.coursesharingapp.model.Course;
 import com.example.coursesharingapp.repository.CourseRepository;
 import com.example.coursesharingapp.ui.course.CourseAdapter;
+import com.example.coursesharingapp.util.ListChange;
+import com.example.coursesharingapp.util.SearchTokenizer;
 import com.google.android.material.chip.Chip;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.ListenerRegistration;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -30,7 +39,6 @@ public class AllCoursesFragment extends Fragment implements CourseAdapter.OnCour
     private FragmentAllCoursesBinding binding;
     private CourseRepository courseRepository;
     private CourseAdapter courseAdapter;
-    private List<Course> courseList;
 
     // Filter states
     private static final int FILTER_ALL = 0;
@@ -41,11 +49,32 @@ public class AllCoursesFragment extends Fragment implements CourseAdapter.OnCour
     private String currentCategory = "";
     private String currentSearchQuery = "";
 
+    // State for the all/category feeds. The head of the feed is live; older pages below it are read
+    // once with startAfter cursors, so loading page k costs one page of reads, not k.
+    private static final int PREFETCH_DISTANCE = 5; // Load the next page this many rows before the end
+    private ListenerRegistration feedRegistration;
+    private boolean feedStarted = false;
+    private int headCount = 0; // Rows at the top of the list that belong to the live head
+    private DocumentSnapshot headEnd; // Last course of the head as last reported
+    private DocumentSnapshot headBoundary; // Where the head stops once older pages are read; null before
+    private final List<Course> olderCourses = new ArrayList<>();
+    private DocumentSnapshot olderCursor; // Last course of the older pages read so far
+    private boolean isLoadingPage = false;
+    private boolean hasMorePages = true;
+    private int feedGeneration = 0; // Bumped whenever the feed changes so stale results are dropped
+
+    // Live search state
+    private static final long SEARCH_DEBOUNCE_MS = 300;
+    private final Handler searchHandler = new Handler(Looper.getMainLooper());
+    private Runnable pendingSearch;
+    private String lastSearchQuery; // Query that produced lastSearchResults
+    private List<Course> lastSearchResults;
+    private boolean lastSearchComplete; // The lookup behind lastSearchResults wasn't cut off at the limit
+
     @Override
     public void onCreate(@Nullable Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         courseRepository = new CourseRepository();
-        courseList = new ArrayList<>();
     }
 
     @Nullable
@@ -71,9 +100,25 @@ public class AllCoursesFragment extends Fragment implements CourseAdapter.OnCour
     }
 
     private void setupRecyclerView() {
-        courseAdapter = new CourseAdapter(requireContext(), courseList, this);
-        binding.coursesRecyclerView.setLayoutManager(new LinearLayoutManager(requireContext()));
+        courseAdapter = new CourseAdapter(requireContext(), new ArrayList<>(), this);
+        courseAdapter.setPrefetchVideos(true);
+        LinearLayoutManager layoutManager = new LinearLayoutManager(requireContext());
+        binding.coursesRecyclerView.setLayoutManager(layoutManager);
         binding.coursesRecyclerView.setAdapter(courseAdapter);
+
+        // Infinite scroll: prefetch the next page when nearing the end of the list
+        binding.coursesRecyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                if (dy <= 0) {
+                    return;
+                }
+                int lastVisiblePosition = layoutManager.findLastVisibleItemPosition();
+                if (lastVisiblePosition >= courseAdapter.getItemCount() - PREFETCH_DISTANCE) {
+                    loadNextPage();
+                }
+            }
+        });
     }
 
     private void setupFilterToolbar() {
@@ -111,112 +156,347 @@ public class AllCoursesFragment extends Fragment implements CourseAdapter.OnCour
     }
 
     private void setupSearchBar() {
-        // Set up search functionality
-        binding.searchLayout.setEndIconOnClickListener(v -> {
-            String query = binding.searchEditText.getText().toString().trim();
-            if (!query.isEmpty()) {
-                performSearch(query);
-            } else {
-                // If search bar is empty, reset to showing all courses
-                currentFilter = FILTER_ALL;
-                binding.filterToolbar.setTitle(R.string.all_courses);
-                // Uncheck all category chips
-                binding.categoryChipGroup.clearCheck();
-                // Check the "All" chip
-                binding.chipAll.setChecked(true);
-                // Load all courses
-                loadCourses();
+        // Search as the user types, once typing pauses
+        binding.searchEditText.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                scheduleSearch(s.toString().trim(), SEARCH_DEBOUNCE_MS);
             }
         });
 
+        // Search immediately from the search icon
+        binding.searchLayout.setEndIconOnClickListener(v -> {
+            scheduleSearch(binding.searchEditText.getText().toString().trim(), 0);
+        });
+
         // Also allow search on keyboard action
         binding.searchEditText.setOnEditorActionListener((v, actionId, event) -> {
             if (actionId == EditorInfo.IME_ACTION_SEARCH ||
                     (event != null && event.getKeyCode() == KeyEvent.KEYCODE_ENTER)) {
-                String query = binding.searchEditText.getText().toString().trim();
-                if (!query.isEmpty()) {
-                    performSearch(query);
-                } else {
-                    // If search bar is empty, reset to showing all courses
-                    currentFilter = FILTER_ALL;
-                    binding.filterToolbar.setTitle(R.string.all_courses);
-                    // Uncheck all category chips
-                    binding.categoryChipGroup.clearCheck();
-                    // Check the "All" chip
-                    binding.chipAll.setChecked(true);
-                    // Load all courses
-                    loadCourses();
-                }
+                scheduleSearch(binding.searchEditText.getText().toString().trim(), 0);
                 return true;
             }
             return false;
         });
     }
 
+    // Replace any pending search with this one
+    private void scheduleSearch(String query, long delayMs) {
+        if (pendingSearch != null) {
+            searchHandler.removeCallbacks(pendingSearch);
+        }
+        pendingSearch = () -> {
+            pendingSearch = null;
+            if (binding == null) {
+                return;
+            }
+            if (!query.isEmpty()) {
+                performSearch(query);
+            } else if (currentFilter == FILTER_BY_SEARCH) {
+                showAllCourses();
+            }
+        };
+        searchHandler.postDelayed(pendingSearch, delayMs);
+    }
+
+    // If search bar is empty, reset to showing all courses
+    private void showAllCourses() {
+        currentFilter = FILTER_ALL;
+        binding.filterToolbar.setTitle(R.string.all_courses);
+        // Uncheck all category chips
+        binding.categoryChipGroup.clearCheck();
+        // Check the "All" chip
+        binding.chipAll.setChecked(true);
+        // Load all courses
+        loadCourses();
+    }
+
     private void performSearch(String query) {
+        if (currentFilter == FILTER_BY_SEARCH && query.equals(currentSearchQuery)) {
+            // Same query as what's already shown or loading
+            return;
+        }
+
         currentFilter = FILTER_BY_SEARCH;
         currentSearchQuery = query;
         binding.filterToolbar.setTitle("Searching: " + query);
         // Uncheck all category chips when searching
         binding.categoryChipGroup.clearCheck();
-        searchCourses(query);
+
+        if (canNarrowLastSearch(query)) {
+            narrowLastSearch(query);
+        } else {
+            searchCourses(query);
+        }
+    }
+
+    // Extending the previous query can only remove results, so filter them locally.
+    // Not possible if the lookup behind the previous results was cut off at the result limit,
+    // however few of its documents matched every word.
+    private boolean canNarrowLastSearch(String query) {
+        if (lastSearchQuery == null || lastSearchResults == null || !lastSearchComplete) {
+            return false;
+        }
+        return SearchTokenizer.normalize(query).startsWith(SearchTokenizer.normalize(lastSearchQuery));
+    }
+
+    private void narrowLastSearch(String query) {
+        // Drop any search or page still in flight
+        feedGeneration++;
+        stopFeed();
+        binding.progressBar.setVisibility(View.GONE);
+
+        List<String> queryTokens = SearchTokenizer.queryTokens(query);
+        List<Course> narrowed = new ArrayList<>();
+        for (Course course : lastSearchResults) {
+            if (SearchTokenizer.matchesAll(queryTokens, course.getTitle(),
+                    course.getShortDescription(), course.getUploaderUsername())) {
+                narrowed.add(course);
+            }
+        }
+
+        lastSearchQuery = query;
+        lastSearchResults = narrowed;
+        updateCoursesList(narrowed);
     }
 
     private void filterByCategory(String category) {
         currentFilter = FILTER_BY_CATEGORY;
         currentCategory = category;
         binding.filterToolbar.setTitle("Category: " + category);
-        loadCoursesByCategory(category);
+        // The feed takes the category from currentFilter and currentCategory
+        loadCourses();
     }
 
     private void loadCourses() {
-        binding.progressBar.setVisibility(View.VISIBLE);
+        resetPaging();
+        loadNextPage();
+    }
+
+    private void resetPaging() {
+        stopFeed();
+        feedGeneration++;
+        currentSearchQuery = "";
+        lastSearchQuery = null;
+        lastSearchResults = null;
+        feedStarted = false;
+        headCount = 0;
+        headEnd = null;
+        headBoundary = null;
+        olderCourses.clear();
+        olderCursor = null;
+        isLoadingPage = false;
+        hasMorePages = true;
+    }
 
-        courseRepository.getAllCourses(new CourseRepository.CoursesCallback() {
+    // Load the next page of the current feed (all courses or a category)
+    private void loadNextPage() {
+        if (isLoadingPage || !hasMorePages || currentFilter == FILTER_BY_SEARCH) {
+            return;
+        }
+        if (!feedStarted) {
+            startFeed();
+        } else {
+            loadOlderPage();
+        }
+    }
+
+    // Listen to the head of the current feed: the newest page, or everything down to headBoundary once
+    // older pages are shown. After the first snapshot only changed courses are delivered.
+    private void startFeed() {
+        stopFeed();
+        feedStarted = true;
+        final int generation = feedGeneration;
+        final boolean isFirstPage = headBoundary == null && headCount == 0;
+        if (isFirstPage) {
+            isLoadingPage = true;
+            binding.progressBar.setVisibility(View.VISIBLE);
+        }
+
+        String category = currentCategoryOrNull();
+        if (isFirstPage && courseAdapter.getItemCount() == 0) {
+            // Show the mirrored feed until the listener's first snapshot replaces it
+            courseRepository.getLocalCourses(category, CourseRepository.DEFAULT_PAGE_SIZE,
+                    new CourseRepository.CoursesCallback() {
+                @Override
+                public void onCoursesLoaded(List<Course> courses) {
+                    if (binding == null || generation != feedGeneration || !isLoadingPage || courses.isEmpty()) {
+                        return;
+                    }
+                    binding.progressBar.setVisibility(View.GONE);
+                    updateCoursesList(courses);
+                }
+
+                @Override
+                public void onError(String errorMessage) {
+                    // Local reads don't report errors
+                }
+            });
+        }
+        feedRegistration = courseRepository.listenToCourses(category, headBoundary,
+                new CourseRepository.CourseFeedCallback() {
             @Override
-            public void onCoursesLoaded(List<Course> courses) {
+            public void onHeadEnd(DocumentSnapshot lastDocument) {
+                if (generation == feedGeneration) {
+                    headEnd = lastDocument;
+                }
+            }
+
+            @Override
+            public void onCoursesLoaded(List<Course> courses, boolean hasMore) {
+                // Ignore results from a feed the user has already switched away from
+                if (binding == null || generation != feedGeneration) {
+                    return;
+                }
+                if (isFirstPage) {
+                    isLoadingPage = false;
+                }
+                // Past the first page, whether there is more is up to the older pages
+                if (headBoundary == null) {
+                    hasMorePages = hasMore;
+                }
                 binding.progressBar.setVisibility(View.GONE);
-                updateCoursesList(courses);
+                headCount = courses.size();
+                List<Course> all = new ArrayList<>(courses);
+                all.addAll(olderCourses);
+                updateCoursesList(all);
+            }
+
+            @Override
+            public void onCoursesChanged(List<ListChange<Course>> changes, boolean hasMore) {
+                if (binding == null || generation != feedGeneration) {
+                    return;
+                }
+                if (headBoundary == null) {
+                    hasMorePages = hasMore;
+                }
+                // The head is the top of the list, so its indexes are the adapter's
+                for (ListChange<Course> change : changes) {
+                    if (change.getType() == ListChange.Type.ADDED) {
+                        headCount++;
+                    } else if (change.getType() == ListChange.Type.REMOVED) {
+                        headCount--;
+                    }
+                }
+                courseAdapter.applyChanges(changes);
+                updateEmptyState(courseAdapter.getItemCount() == 0);
             }
 
             @Override
             public void onError(String errorMessage) {
+                if (binding == null || generation != feedGeneration) {
+                    return;
+                }
+                if (isFirstPage) {
+                    isLoadingPage = false;
+                }
                 binding.progressBar.setVisibility(View.GONE);
                 Toast.makeText(requireContext(), errorMessage, Toast.LENGTH_SHORT).show();
             }
         });
     }
 
-    private void loadCoursesByCategory(String category) {
-        binding.progressBar.setVisibility(View.VISIBLE);
+    // Read the next page below what is shown, once; these courses aren't live
+    private void loadOlderPage() {
+        if (headBoundary == null) {
+            if (headEnd == null) {
+                return;
+            }
+            // Pin the head where it ends now, so new courses grow it rather than push courses out of it
+            headBoundary = headEnd;
+            startFeed();
+        }
 
-        courseRepository.getCoursesByCategory(category, new CourseRepository.CoursesCallback() {
+        isLoadingPage = true;
+        final int generation = feedGeneration;
+        DocumentSnapshot cursor = olderCursor != null ? olderCursor : headBoundary;
+        CourseRepository.CoursePageCallback pageCallback = new CourseRepository.CoursePageCallback() {
             @Override
-            public void onCoursesLoaded(List<Course> courses) {
-                binding.progressBar.setVisibility(View.GONE);
-                updateCoursesList(courses);
+            public void onPageLoaded(List<Course> courses, DocumentSnapshot lastDocument, boolean hasMore) {
+                if (binding == null || generation != feedGeneration) {
+                    return;
+                }
+                isLoadingPage = false;
+                hasMorePages = hasMore;
+                olderCursor = lastDocument;
+
+                List<ListChange<Course>> appended = new ArrayList<>();
+                int position = headCount + olderCourses.size();
+                for (Course course : courses) {
+                    appended.add(new ListChange<>(ListChange.Type.ADDED, course, -1, position++));
+                }
+                olderCourses.addAll(courses);
+                courseAdapter.applyChanges(appended);
+                updateEmptyState(courseAdapter.getItemCount() == 0);
             }
 
             @Override
             public void onError(String errorMessage) {
-                binding.progressBar.setVisibility(View.GONE);
+                if (binding == null || generation != feedGeneration) {
+                    return;
+                }
+                isLoadingPage = false;
                 Toast.makeText(requireContext(), errorMessage, Toast.LENGTH_SHORT).show();
             }
-        });
+        };
+
+        String category = currentCategoryOrNull();
+        if (category != null) {
+            courseRepository.getCoursesByCategoryPage(category, cursor, CourseRepository.DEFAULT_PAGE_SIZE,
+                    pageCallback);
+        } else {
+            courseRepository.getAllCoursesPage(cursor, CourseRepository.DEFAULT_PAGE_SIZE, pageCallback);
+        }
+    }
+
+    private String currentCategoryOrNull() {
+        return currentFilter == FILTER_BY_CATEGORY ? currentCategory : null;
+    }
+
+    private void stopFeed() {
+        if (feedRegistration != null) {
+            feedRegistration.remove();
+            feedRegistration = null;
+        }
     }
 
     private void searchCourses(String query) {
+        // Drop any search or page still in flight; search results are a one-off, not live
+        stopFeed();
+        feedStarted = false;
+        isLoadingPage = false;
+        final int generation = ++feedGeneration;
         binding.progressBar.setVisibility(View.VISIBLE);
 
-        courseRepository.searchCourses(query, new CourseRepository.CoursesCallback() {
+        courseRepository.searchCourses(query, new CourseRepository.SearchCallback() {
             @Override
-            public void onCoursesLoaded(List<Course> courses) {
+            public void onCoursesLoaded(List<Course> courses, boolean complete) {
+                // A slower earlier search must not overwrite a newer one
+                if (binding == null || generation != feedGeneration) {
+                    return;
+                }
                 binding.progressBar.setVisibility(View.GONE);
+                lastSearchQuery = query;
+                lastSearchResults = courses;
+                lastSearchComplete = complete;
                 updateCoursesList(courses);
             }
 
             @Override
             public void onError(String errorMessage) {
+                if (binding == null || generation != feedGeneration) {
+                    return;
+                }
+                // Allow retrying the same query
+                currentSearchQuery = "";
                 binding.progressBar.setVisibility(View.GONE);
                 Toast.makeText(requireContext(), errorMessage, Toast.LENGTH_SHORT).show();
             }
@@ -224,7 +504,12 @@ public class AllCoursesFragment extends Fragment implements CourseAdapter.OnCour
     }
 
     private void updateCoursesList(List<Course> courses) {
-        if (courses.isEmpty()) {
+        updateEmptyState(courses.isEmpty());
+        courseAdapter.submitList(courses);
+    }
+
+    private void updateEmptyState(boolean isEmpty) {
+        if (isEmpty) {
             binding.noCoursesTv.setVisibility(View.VISIBLE);
 
             // Set appropriate "no courses" message based on current filter
@@ -240,10 +525,6 @@ public class AllCoursesFragment extends Fragment implements CourseAdapter.OnCour
             binding.noCoursesTv.setVisibility(View.GONE);
             binding.coursesRecyclerView.setVisibility(View.VISIBLE);
         }
-
-        courseList.clear();
-        courseList.addAll(courses);
-        courseAdapter.notifyDataSetChanged();
     }
 
     @Override
@@ -255,9 +536,30 @@ public class AllCoursesFragment extends Fragment implements CourseAdapter.OnCour
         navController.navigate(R.id.courseDetailFragment, args);
     }
 
+    @Override
+    public void onStart() {
+        super.onStart();
+        // Pick the live head back up; older pages stay as they were read
+        if (binding != null && feedRegistration == null && feedStarted
+                && currentFilter != FILTER_BY_SEARCH) {
+            startFeed();
+        }
+    }
+
+    @Override
+    public void onStop() {
+        super.onStop();
+        // No updates while off screen
+        stopFeed();
+    }
+
     @Override
     public void onDestroyView() {
         super.onDestroyView();
+        if (pendingSearch != null) {
+            searchHandler.removeCallbacks(pendingSearch);
+            pendingSearch = null;
+        }
         binding = null;
     }
 }
\ No newline at end of file
@@ -20,7 +20,9 @@ import com.example.coursesharingapp.model.Course;
 import com.example.coursesharingapp.repository.AuthRepository;
 import com.example.coursesharingapp.repository.CourseRepository;
 import com.example.coursesharingapp.ui.course.CourseAdapter;
+import com.example.coursesharingapp.util.ListChange;
 import com.google.firebase.auth.FirebaseUser;
+import com.google.firebase.firestore.ListenerRegistration;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -34,15 +36,14 @@ public class MyCoursesFragment extends Fragment implements
     private CourseRepository courseRepository;
     private AuthRepository authRepository;
     private CourseAdapter courseAdapter;
-    private List<Course> courseList;
     private FirebaseUser currentUser;
+    private ListenerRegistration coursesRegistration;
 
     @Override
     public void onCreate(@Nullable Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         courseRepository = new CourseRepository();
         authRepository = new AuthRepository();
-        courseList = new ArrayList<>();
         currentUser = authRepository.getCurrentUser();
     }
 
@@ -65,35 +66,45 @@ public class MyCoursesFragment extends Fragment implements
         }
 
         setupRecyclerView();
+    }
 
-        loadMyCourses();
+    @Override
+    public void onStart() {
+        super.onStart();
+        if (courseAdapter != null) {
+            startListening();
+        }
     }
 
     private void setupRecyclerView() {
-        courseAdapter = new CourseAdapter(requireContext(), courseList,
+        courseAdapter = new CourseAdapter(requireContext(), new ArrayList<>(),
                 this, this, this, true, true);
         binding.coursesRecyclerView.setLayoutManager(new LinearLayoutManager(requireContext()));
         binding.coursesRecyclerView.setAdapter(courseAdapter);
     }
 
-    private void loadMyCourses() {
-        binding.progressBar.setVisibility(View.VISIBLE);
+    // Keep the list live while the screen is visible; uploads, edits and deletes show up by themselves
+    private void startListening() {
+        if (coursesRegistration != null) {
+            return;
+        }
+        if (courseAdapter.getItemCount() == 0) {
+            binding.progressBar.setVisibility(View.VISIBLE);
+        }
 
-        courseRepository.getCoursesByUploader(currentUser.getUid(), new CourseRepository.CoursesCallback() {
+        coursesRegistration = courseRepository.listenToCoursesByUploader(currentUser.getUid(),
+                new CourseRepository.CourseChangesCallback() {
             @Override
-            public void onCoursesLoaded(List<Course> courses) {
+            public void onCoursesLoaded(List<Course> courses, boolean hasMore) {
                 binding.progressBar.setVisibility(View.GONE);
+                courseAdapter.submitList(courses);
+                updateEmptyState(courses.isEmpty());
+            }
 
-                if (courses.isEmpty()) {
-                    binding.noCoursesTv.setVisibility(View.VISIBLE);
-                    binding.coursesRecyclerView.setVisibility(View.GONE);
-                } else {
-                    binding.noCoursesTv.setVisibility(View.GONE);
-                    binding.coursesRecyclerView.setVisibility(View.VISIBLE);
-                    courseList.clear();
-                    courseList.addAll(courses);
-                    courseAdapter.notifyDataSetChanged();
-                }
+            @Override
+            public void onCoursesChanged(List<ListChange<Course>> changes, boolean hasMore) {
+                courseAdapter.applyChanges(changes);
+                updateEmptyState(courseAdapter.getItemCount() == 0);
             }
 
             @Override
@@ -104,6 +115,23 @@ public class MyCoursesFragment extends Fragment implements
         });
     }
 
+    private void stopListening() {
+        if (coursesRegistration != null) {
+            coursesRegistration.remove();
+            coursesRegistration = null;
+        }
+    }
+
+    private void updateEmptyState(boolean isEmpty) {
+        if (isEmpty) {
+            binding.noCoursesTv.setVisibility(View.VISIBLE);
+            binding.coursesRecyclerView.setVisibility(View.GONE);
+        } else {
+            binding.noCoursesTv.setVisibility(View.GONE);
+            binding.coursesRecyclerView.setVisibility(View.VISIBLE);
+        }
+    }
+
     @Override
     public void onCourseClick(Course course, int position) {
         // Navigate to course detail using the root NavController
@@ -143,16 +171,7 @@ public class MyCoursesFragment extends Fragment implements
             public void onSuccess() {
                 binding.progressBar.setVisibility(View.GONE);
                 Toast.makeText(requireContext(), R.string.course_deleted_successfully, Toast.LENGTH_SHORT).show();
-
-                // Remove the course from the list
-                courseList.remove(position);
-                courseAdapter.notifyItemRemoved(position);
-
-                // Check if list is now empty
-                if (courseList.isEmpty()) {
-                    binding.noCoursesTv.setVisibility(View.VISIBLE);
-                    binding.coursesRecyclerView.setVisibility(View.GONE);
-                }
+                // The listener removes the course from the list
             }
 
             @Override
@@ -163,6 +182,12 @@ public class MyCoursesFragment extends Fragment implements
         });
     }
 
+    @Override
+    public void onStop() {
+        super.onStop();
+        stopListening();
+    }
+
     @Override
     public void onDestroyView() {
         super.onDestroyView();
@@ -13,10 +13,12 @@ import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.ItemTouchHelper;
 import androidx.recyclerview.widget.RecyclerView;
 
-import com.bumptech.glide.Glide;
-import com.example.coursesharingapp.R;
 import com.example.coursesharingapp.databinding.ItemOrderableCourseBinding;
 import com.example.coursesharingapp.model.Course;
+import com.example.coursesharingapp.ui.course.CourseAdapter;
+import com.example.coursesharingapp.util.LiveListDiffer;
+import com.example.coursesharingapp.util.StableIds;
+import com.example.coursesharingapp.util.ThumbnailLoader;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -30,14 +32,18 @@ import java.util.Map;
 public class OrderableCourseAdapter extends RecyclerView.Adapter<OrderableCourseAdapter.CourseViewHolder> {
 
     private Context context;
-    private List<Course> courses;
     private List<Course> selectedCourses; // Maintains order of selected courses
     private Map<String, Boolean> selectedMap; // Maps course ID to selection state
     private ItemTouchHelper touchHelper;
+    private final StableIds stableIds = new StableIds();
+    private final LiveListDiffer<Course> differ = new LiveListDiffer<>(this, CourseAdapter.DIFF_CALLBACK);
+
+    // Payload for rebinding only the checkbox and drag handle of a row
+    private static final Object PAYLOAD_SELECTION = new Object();
 
     public OrderableCourseAdapter(Context context, List<Course> courses) {
+        setHasStableIds(true);
         this.context = context;
-        this.courses = courses;
         this.selectedCourses = new ArrayList<>();
         this.selectedMap = new HashMap<>();
 
@@ -45,6 +51,8 @@ public class OrderableCourseAdapter extends RecyclerView.Adapter<OrderableCourse
         for (Course course : courses) {
             selectedMap.put(course.getId(), false);
         }
+
+        differ.submitList(courses);
     }
 
     public void setTouchHelper(ItemTouchHelper touchHelper) {
@@ -61,13 +69,28 @@ public class OrderableCourseAdapter extends RecyclerView.Adapter<OrderableCourse
 
     @Override
     public void onBindViewHolder(@NonNull CourseViewHolder holder, int position) {
-        Course course = courses.get(position);
+        Course course = differ.getItem(position);
         holder.bind(course, position);
     }
 
+    @Override
+    public void onBindViewHolder(@NonNull CourseViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (!payloads.isEmpty() && payloads.stream().allMatch(payload -> payload == PAYLOAD_SELECTION)) {
+            // Only the selection changed, keep the thumbnail request as is
+            holder.bindSelection(differ.getItem(position));
+            return;
+        }
+        super.onBindViewHolder(holder, position, payloads);
+    }
+
     @Override
     public int getItemCount() {
-        return courses.size();
+        return differ.getItemCount();
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return stableIds.getId(differ.getItem(position).getId());
     }
 
     /**
@@ -80,6 +103,7 @@ public class OrderableCourseAdapter extends RecyclerView.Adapter<OrderableCourse
         selectedCourses.clear();
 
         // Initialize all as unselected first
+        List<Course> courses = differ.getCurrentList();
         for (Course course : courses) {
             selectedMap.put(course.getId(), false);
         }
@@ -100,7 +124,7 @@ public class OrderableCourseAdapter extends RecyclerView.Adapter<OrderableCourse
             }
         }
 
-        notifyDataSetChanged();
+        notifyItemRangeChanged(0, courses.size(), PAYLOAD_SELECTION);
     }
 
 
@@ -125,7 +149,7 @@ public class OrderableCourseAdapter extends RecyclerView.Adapter<OrderableCourse
                 Collections.swap(selectedCourses, i, i - 1);
             }
         }
-        notifyItemMoved(fromPosition, toPosition);
+        differ.moveItem(fromPosition, toPosition);
     }
 
     public class CourseViewHolder extends RecyclerView.ViewHolder {
@@ -141,27 +165,9 @@ public class OrderableCourseAdapter extends RecyclerView.Adapter<OrderableCourse
             binding.courseTitleTv.setText(course.getTitle());
 
             // Load thumbnail
-            if (course.getThumbnailUrl() != null && !course.getThumbnailUrl().isEmpty()) {
-                Glide.with(context)
-                        .load(course.getThumbnailUrl())
-                        .placeholder(R.drawable.ic_placeholder_thumbnail)
-                        .error(R.drawable.ic_error_thumbnail)
-                        .centerCrop()
-                        .into(binding.courseThumbnailIv);
-            } else {
-                binding.courseThumbnailIv.setImageResource(R.drawable.ic_placeholder_thumbnail);
-            }
+            ThumbnailLoader.load(binding.courseThumbnailIv, course);
 
-            // Set checkbox state from our selection map
-            Boolean isSelected = selectedMap.get(course.getId());
-            binding.courseCheckbox.setChecked(isSelected != null && isSelected);
-
-            // Show/hide drag handle based on selection status
-            if (isSelected != null && isSelected) {
-                binding.dragHandle.setVisibility(View.VISIBLE);
-            } else {
-                binding.dragHandle.setVisibility(View.GONE);
-            }
+            bindSelection(course);
 
             // Set up checkbox click listener
             binding.courseCheckbox.setOnClickListener(v -> {
@@ -210,5 +216,18 @@ public class OrderableCourseAdapter extends RecyclerView.Adapter<OrderableCourse
                 return false;
             });
         }
+
+        public void bindSelection(Course course) {
+            // Set checkbox state from our selection map
+            Boolean isSelected = selectedMap.get(course.getId());
+            binding.courseCheckbox.setChecked(isSelected != null && isSelected);
+
+            // Show/hide drag handle based on selection status
+            if (isSelected != null && isSelected) {
+                binding.dragHandle.setVisibility(View.VISIBLE);
+            } else {
+                binding.dragHandle.setVisibility(View.GONE);
+            }
+        }
     }
 }
\ No newline at end of file
@@ -11,12 +11,13 @@ import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.ItemTouchHelper;
 import androidx.recyclerview.widget.RecyclerView;
 
-import com.bumptech.glide.Glide;
-import com.example.coursesharingapp.R;
 import com.example.coursesharingapp.databinding.ItemOrderedCourseBinding;
 import com.example.coursesharingapp.model.Course;
+import com.example.coursesharingapp.ui.course.CourseAdapter;
+import com.example.coursesharingapp.util.LiveListDiffer;
+import com.example.coursesharingapp.util.StableIds;
+import com.example.coursesharingapp.util.ThumbnailLoader;
 
-import java.util.Collections;
 import java.util.List;
 
 /**
@@ -26,13 +27,18 @@ public class OrderableCourseDisplayAdapter extends RecyclerView.Adapter<Orderabl
 
     private static final String TAG = "CourseDisplayAdapter";
     private final Context context;
-    private final List<Course> courses; // Direct reference to the list passed in constructor
     private ItemTouchHelper touchHelper;
+    private final StableIds stableIds = new StableIds();
+    private final LiveListDiffer<Course> differ = new LiveListDiffer<>(this, CourseAdapter.DIFF_CALLBACK);
+
+    // Payload for rebinding only the order number of a row
+    private static final Object PAYLOAD_ORDER = new Object();
 
     public OrderableCourseDisplayAdapter(Context context, List<Course> courses) {
+        setHasStableIds(true);
         this.context = context;
-        this.courses = courses; // Store direct reference - we'll manipulate the original list
-        Log.d(TAG, "Adapter created with list of size: " + this.courses.size());
+        differ.submitList(courses);
+        Log.d(TAG, "Adapter created with list of size: " + courses.size());
     }
 
     public void setTouchHelper(ItemTouchHelper touchHelper) {
@@ -50,28 +56,51 @@ public class OrderableCourseDisplayAdapter extends RecyclerView.Adapter<Orderabl
 
     @Override
     public void onBindViewHolder(@NonNull CourseViewHolder holder, int position) {
-        if (position < 0 || position >= courses.size()) {
-            Log.e(TAG, "Invalid position: " + position + ", list size: " + courses.size());
+        if (position < 0 || position >= getItemCount()) {
+            Log.e(TAG, "Invalid position: " + position + ", list size: " + getItemCount());
             return;
         }
 
-        Course course = courses.get(position);
+        Course course = differ.getItem(position);
         Log.d(TAG, "Binding position " + position + ", course: " + course.getTitle());
         holder.bind(course, position);
     }
 
+    @Override
+    public void onBindViewHolder(@NonNull CourseViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (!payloads.isEmpty() && payloads.stream().allMatch(payload -> payload == PAYLOAD_ORDER)) {
+            holder.bindOrder(position);
+            return;
+        }
+        super.onBindViewHolder(holder, position, payloads);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return stableIds.getId(differ.getItem(position).getId());
+    }
+
     @Override
     public int getItemCount() {
-        int size = courses.size();
+        int size = differ.getItemCount();
         Log.d(TAG, "getItemCount called, returning: " + size);
         return size;
     }
 
 
+    /**
+     * Replace the displayed courses, animating only the rows that changed
+     * @param newCourses The courses in their new order
+     */
+    public void setCourses(List<Course> newCourses) {
+        // Moves and removals shift the numbers of rows the diff left untouched
+        differ.submitList(newCourses, () -> notifyItemRangeChanged(0, getItemCount(), PAYLOAD_ORDER));
+    }
+
     //Get course IDs in their current order
 
     public List<String> getCourseIds() {
-        return courses.stream()
+        return differ.getCurrentList().stream()
                 .map(Course::getId)
                 .collect(java.util.stream.Collectors.toList());
     }
@@ -80,24 +109,15 @@ public class OrderableCourseDisplayAdapter extends RecyclerView.Adapter<Orderabl
     //Move a course in the list
 
     public void moveItem(int fromPosition, int toPosition) {
-        if (fromPosition < 0 || fromPosition >= courses.size() ||
-                toPosition < 0 || toPosition >= courses.size()) {
+        if (fromPosition < 0 || fromPosition >= getItemCount() ||
+                toPosition < 0 || toPosition >= getItemCount()) {
             Log.e(TAG, "Invalid positions: from=" + fromPosition + ", to=" + toPosition);
             return;
         }
 
         Log.d(TAG, "Moving item from " + fromPosition + " to " + toPosition);
 
-        if (fromPosition < toPosition) {
-            for (int i = fromPosition; i < toPosition; i++) {
-                Collections.swap(courses, i, i + 1);
-            }
-        } else {
-            for (int i = fromPosition; i > toPosition; i--) {
-                Collections.swap(courses, i, i - 1);
-            }
-        }
-        notifyItemMoved(fromPosition, toPosition);
+        differ.moveItem(fromPosition, toPosition);
     }
 
     public class CourseViewHolder extends RecyclerView.ViewHolder {
@@ -109,23 +129,13 @@ public class OrderableCourseDisplayAdapter extends RecyclerView.Adapter<Orderabl
         }
 
         public void bind(Course course, int position) {
-            // Set position number
-            binding.orderNumberTv.setText(String.valueOf(position + 1));
+            bindOrder(position);
 
             // Set course title
             binding.courseTitleTv.setText(course.getTitle());
 
             // Load thumbnail
-            if (course.getThumbnailUrl() != null && !course.getThumbnailUrl().isEmpty()) {
-                Glide.with(context)
-                        .load(course.getThumbnailUrl())
-                        .placeholder(R.drawable.ic_placeholder_thumbnail)
-                        .error(R.drawable.ic_error_thumbnail)
-                        .centerCrop()
-                        .into(binding.courseThumbnailIv);
-            } else {
-                binding.courseThumbnailIv.setImageResource(R.drawable.ic_placeholder_thumbnail);
-            }
+            ThumbnailLoader.load(binding.courseThumbnailIv, course);
 
             // Setup drag handle
             binding.dragHandle.setOnTouchListener((v, event) -> {
@@ -137,5 +147,10 @@ public class OrderableCourseDisplayAdapter extends RecyclerView.Adapter<Orderabl
                 return false;
             });
         }
+
+        public void bindOrder(int position) {
+            // Set position number
+            binding.orderNumberTv.setText(String.valueOf(position + 1));
+        }
     }
 }
\ No newline at end of file
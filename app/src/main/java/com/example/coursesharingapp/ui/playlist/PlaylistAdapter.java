@@ -9,22 +9,47 @@ import android.view.ViewGroup;
 import android.widget.Toast;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.coursesharingapp.databinding.ItemPlaylistBinding;
 import com.example.coursesharingapp.model.Playlist;
 import com.example.coursesharingapp.repository.AuthRepository;
-import com.example.coursesharingapp.repository.PlaylistRepository;
+import com.example.coursesharingapp.repository.SavedStateStore;
+import com.example.coursesharingapp.util.ListChange;
+import com.example.coursesharingapp.util.LiveListDiffer;
+import com.example.coursesharingapp.util.StableIds;
 import com.google.firebase.auth.FirebaseUser;
 
-import java.util.HashSet;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Set;
+import java.util.Objects;
 
 public class PlaylistAdapter extends RecyclerView.Adapter<PlaylistAdapter.PlaylistViewHolder> {
 
+    // Payload for rebinding only the saved indicator of a row
+    private static final Object PAYLOAD_SAVED_STATE = new Object();
+
+    // Rows are the same playlist if the ids match; only displayed fields decide whether to rebind
+    public static final DiffUtil.ItemCallback<Playlist> DIFF_CALLBACK = new DiffUtil.ItemCallback<Playlist>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Playlist oldItem, @NonNull Playlist newItem) {
+            return Objects.equals(oldItem.getId(), newItem.getId());
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Playlist oldItem, @NonNull Playlist newItem) {
+            return Objects.equals(oldItem.getTitle(), newItem.getTitle())
+                    && Objects.equals(oldItem.getDescription(), newItem.getDescription())
+                    && Objects.equals(oldItem.getCreatorUid(), newItem.getCreatorUid())
+                    && Objects.equals(oldItem.getCreatorUsername(), newItem.getCreatorUsername())
+                    && oldItem.getCoursesCount() == newItem.getCoursesCount()
+                    && oldItem.isPrivate() == newItem.isPrivate()
+                    && Objects.equals(oldItem.getAccessCode(), newItem.getAccessCode());
+        }
+    };
+
     private Context context;
-    private List<Playlist> playlists;
     private OnPlaylistClickListener listener;
     private OnPlaylistDeleteListener deleteListener;
     private OnPlaylistEditListener editListener;
@@ -32,16 +57,19 @@ public class PlaylistAdapter extends RecyclerView.Adapter<PlaylistAdapter.Playli
     private boolean showEditButton;
     private String currentUserUid;
     private FirebaseUser currentUser;
-    private PlaylistRepository playlistRepository;
-    private Set<String> savedPlaylistIds = new HashSet<>();
+    private final SavedStateStore savedStateStore = SavedStateStore.getInstance();
     private boolean isMyPlaylistsView; // New flag to track if this is "My Playlists" view
+    private final StableIds stableIds = new StableIds();
+
+    // Full lists are diffed in the background; live feeds apply their changes directly
+    private final LiveListDiffer<Playlist> differ = new LiveListDiffer<>(this, DIFF_CALLBACK);
 
     public PlaylistAdapter(Context context, List<Playlist> playlists,
                            OnPlaylistClickListener listener, OnPlaylistDeleteListener deleteListener,
                            OnPlaylistEditListener editListener, boolean showDeleteButton,
                            boolean showEditButton, String currentUserUid) {
+        setHasStableIds(true);
         this.context = context;
-        this.playlists = playlists;
         this.listener = listener;
         this.deleteListener = deleteListener;
         this.editListener = editListener;
@@ -53,12 +81,8 @@ public class PlaylistAdapter extends RecyclerView.Adapter<PlaylistAdapter.Playli
         // Initialize Firebase-related objects
         AuthRepository authRepository = new AuthRepository();
         this.currentUser = authRepository.getCurrentUser();
-        this.playlistRepository = new PlaylistRepository();
 
-        // Load saved state for all playlists if the user is logged in
-        if (currentUser != null) {
-            loadSavedPlaylists();
-        }
+        submitList(new ArrayList<>(playlists));
     }
 
     // Original constructor for backward compatibility
@@ -66,25 +90,51 @@ public class PlaylistAdapter extends RecyclerView.Adapter<PlaylistAdapter.Playli
         this(context, playlists, listener, null, null, false, false, null);
     }
 
-    private void loadSavedPlaylists() {
-        if (currentUser == null) return;
+    // Refresh saved indicators whenever the user's bookmarks change
+    private final SavedStateStore.SavedStateObserver savedStateObserver = new SavedStateStore.SavedStateObserver() {
+        @Override
+        public void onSavedCoursesChanged() {
+            // Not shown in playlist rows
+        }
 
-        playlistRepository.getSavedPlaylists(currentUser.getUid(), new PlaylistRepository.PlaylistsCallback() {
-            @Override
-            public void onPlaylistsLoaded(List<Playlist> savedPlaylists) {
-                savedPlaylistIds.clear();
-                for (Playlist playlist : savedPlaylists) {
-                    savedPlaylistIds.add(playlist.getId());
-                }
-                notifyDataSetChanged();
-            }
+        @Override
+        public void onSavedPlaylistsChanged() {
+            notifyItemRangeChanged(0, getItemCount(), PAYLOAD_SAVED_STATE);
+        }
+    };
 
-            @Override
-            public void onError(String errorMessage) {
-                // Just log error, no need to show message for this silent feature
-                android.util.Log.e("PlaylistAdapter", "Error loading saved playlists: " + errorMessage);
-            }
-        });
+    @Override
+    public void onAttachedToRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onAttachedToRecyclerView(recyclerView);
+        savedStateStore.addObserver(savedStateObserver);
+    }
+
+    @Override
+    public void onDetachedFromRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onDetachedFromRecyclerView(recyclerView);
+        savedStateStore.removeObserver(savedStateObserver);
+    }
+
+    public void submitList(List<Playlist> playlists) {
+        differ.submitList(playlists);
+    }
+
+    // Apply the changes a live feed reported since the list was last submitted or changed
+    public void applyChanges(List<ListChange<Playlist>> changes) {
+        differ.applyChanges(changes);
+    }
+
+    public List<Playlist> getCurrentList() {
+        return differ.getCurrentList();
+    }
+
+    public Playlist getItem(int position) {
+        return differ.getItem(position);
+    }
+
+    @Override
+    public int getItemCount() {
+        return differ.getItemCount();
     }
 
     @NonNull
@@ -97,13 +147,22 @@ public class PlaylistAdapter extends RecyclerView.Adapter<PlaylistAdapter.Playli
 
     @Override
     public void onBindViewHolder(@NonNull PlaylistViewHolder holder, int position) {
-        Playlist playlist = playlists.get(position);
-        holder.bind(playlist, position);
+        holder.bind(getItem(position));
     }
 
     @Override
-    public int getItemCount() {
-        return playlists.size();
+    public void onBindViewHolder(@NonNull PlaylistViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (!payloads.isEmpty() && payloads.stream().allMatch(payload -> payload == PAYLOAD_SAVED_STATE)) {
+            // Only the saved indicator changed
+            holder.bindSavedState(getItem(position));
+            return;
+        }
+        super.onBindViewHolder(holder, position, payloads);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return stableIds.getId(getItem(position).getId());
     }
 
     public class PlaylistViewHolder extends RecyclerView.ViewHolder {
@@ -114,17 +173,12 @@ public class PlaylistAdapter extends RecyclerView.Adapter<PlaylistAdapter.Playli
             this.binding = binding;
         }
 
-        public void bind(Playlist playlist, int position) {
+        public void bind(Playlist playlist) {
             // Set playlist data
             binding.playlistTitleTv.setText(playlist.getTitle());
             binding.playlistCreatorTv.setText("By: " + playlist.getCreatorUsername());
 
-            // Show saved indicator if the playlist is saved
-            if (currentUser != null && savedPlaylistIds.contains(playlist.getId())) {
-                binding.savedIndicatorIv.setVisibility(View.VISIBLE);
-            } else {
-                binding.savedIndicatorIv.setVisibility(View.GONE);
-            }
+            bindSavedState(playlist);
 
             // Set course count
             int courseCount = playlist.getCoursesCount();
@@ -159,7 +213,7 @@ public class PlaylistAdapter extends RecyclerView.Adapter<PlaylistAdapter.Playli
             if (showDeleteButton && deleteListener != null && isOwner) {
                 binding.deletePlaylistButton.setVisibility(View.VISIBLE);
                 binding.deletePlaylistButton.setOnClickListener(v ->
-                        deleteListener.onPlaylistDelete(playlist, position));
+                        deleteListener.onPlaylistDelete(playlist, getBindingAdapterPosition()));
             } else {
                 binding.deletePlaylistButton.setVisibility(View.GONE);
             }
@@ -167,7 +221,7 @@ public class PlaylistAdapter extends RecyclerView.Adapter<PlaylistAdapter.Playli
             if (showEditButton && editListener != null && isOwner) {
                 binding.editPlaylistButton.setVisibility(View.VISIBLE);
                 binding.editPlaylistButton.setOnClickListener(v ->
-                        editListener.onPlaylistEdit(playlist, position));
+                        editListener.onPlaylistEdit(playlist, getBindingAdapterPosition()));
             } else {
                 binding.editPlaylistButton.setVisibility(View.GONE);
             }
@@ -175,11 +229,20 @@ public class PlaylistAdapter extends RecyclerView.Adapter<PlaylistAdapter.Playli
             // Set click listener
             binding.getRoot().setOnClickListener(v -> {
                 if (listener != null) {
-                    listener.onPlaylistClick(playlist, position);
+                    listener.onPlaylistClick(playlist, getBindingAdapterPosition());
                 }
             });
         }
 
+        // Show saved indicator if the playlist is saved
+        public void bindSavedState(Playlist playlist) {
+            if (currentUser != null && savedStateStore.isPlaylistSaved(playlist.getId())) {
+                binding.savedIndicatorIv.setVisibility(View.VISIBLE);
+            } else {
+                binding.savedIndicatorIv.setVisibility(View.GONE);
+            }
+        }
+
         private void copyAccessCodeToClipboard(String accessCode) {
             ClipboardManager clipboard = (ClipboardManager) context.getSystemService(Context.CLIPBOARD_SERVICE);
             ClipData clip = ClipData.newPlainText("Playlist Access Code", accessCode);
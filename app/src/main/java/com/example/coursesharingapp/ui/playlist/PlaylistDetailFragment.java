@@ -78,6 +78,13 @@ public class PlaylistDetailFragment extends Fragment implements CourseAdapter.On
             toggleSavePlaylist();
         });
 
+        // Play the whole playlist in order in one player
+        binding.playAllButton.setOnClickListener(v -> {
+            Bundle args = new Bundle();
+            args.putString("playlistId", playlistId);
+            Navigation.findNavController(requireView()).navigate(R.id.action_to_playlistPlayer, args);
+        });
+
         setupRecyclerView();
 
         checkIfPlaylistSaved();
@@ -87,6 +94,7 @@ public class PlaylistDetailFragment extends Fragment implements CourseAdapter.On
 
     private void setupRecyclerView() {
         courseAdapter = new CourseAdapter(requireContext(), coursesList, this);
+        courseAdapter.setPrefetchVideos(true);
         binding.playlistCoursesRecyclerView.setLayoutManager(new LinearLayoutManager(requireContext()));
         binding.playlistCoursesRecyclerView.setAdapter(courseAdapter);
     }
@@ -163,6 +171,25 @@ public class PlaylistDetailFragment extends Fragment implements CourseAdapter.On
     private void loadPlaylistWithCourses() {
         binding.progressBar.setVisibility(View.VISIBLE);
 
+        // Show the mirrored playlist until Firestore answers. Edits wait for the
+        // fresh copy, so currentPlaylist is only set from Firestore.
+        playlistRepository.getLocalPlaylistWithCourses(playlistId, new PlaylistRepository.PlaylistWithCoursesCallback() {
+            @Override
+            public void onPlaylistWithCoursesLoaded(Playlist playlist, List<Course> courses) {
+                if (binding == null || currentPlaylist != null) {
+                    return;
+                }
+                binding.progressBar.setVisibility(View.GONE);
+                displayPlaylistDetails(playlist);
+                displayCourses(courses, playlist);
+            }
+
+            @Override
+            public void onError(String errorMessage) {
+                // Local reads don't report errors
+            }
+        });
+
         playlistRepository.getPlaylistWithCourses(playlistId, new PlaylistRepository.PlaylistWithCoursesCallback() {
             @Override
             public void onPlaylistWithCoursesLoaded(Playlist playlist, List<Course> courses) {
@@ -200,9 +227,11 @@ public class PlaylistDetailFragment extends Fragment implements CourseAdapter.On
         if (courses.isEmpty()) {
             binding.noCoursesTv.setVisibility(View.VISIBLE);
             binding.playlistCoursesRecyclerView.setVisibility(View.GONE);
+            binding.playAllButton.setVisibility(View.GONE);
         } else {
             binding.noCoursesTv.setVisibility(View.GONE);
             binding.playlistCoursesRecyclerView.setVisibility(View.VISIBLE);
+            binding.playAllButton.setVisibility(View.VISIBLE);
 
             // Create a map for quick lookups of courses by id
             Map<String, Course> courseMap = new HashMap<>();
@@ -222,7 +251,7 @@ public class PlaylistDetailFragment extends Fragment implements CourseAdapter.On
             // Update the adapter with ordered courses
             coursesList.clear();
             coursesList.addAll(orderedCourses);
-            courseAdapter.notifyDataSetChanged();
+            courseAdapter.submitList(new ArrayList<>(coursesList));
         }
     }
 
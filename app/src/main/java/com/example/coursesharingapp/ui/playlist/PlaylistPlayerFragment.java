@@ -0,0 +1,280 @@
+package com.example.coursesharingapp.ui.playlist;
+
+import android.os.Bundle;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.Toast;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.fragment.app.Fragment;
+import androidx.media3.common.MediaItem;
+import androidx.media3.common.Player;
+import androidx.media3.exoplayer.ExoPlayer;
+import androidx.recyclerview.widget.LinearLayoutManager;
+
+import com.example.coursesharingapp.R;
+import com.example.coursesharingapp.databinding.FragmentPlaylistPlayerBinding;
+import com.example.coursesharingapp.model.Course;
+import com.example.coursesharingapp.model.Playlist;
+import com.example.coursesharingapp.repository.PlaybackPositionStore;
+import com.example.coursesharingapp.repository.PlaylistRepository;
+import com.example.coursesharingapp.repository.VideoCache;
+import com.example.coursesharingapp.ui.course.CourseAdapter;
+import com.example.coursesharingapp.util.PlayerFactory;
+import com.example.coursesharingapp.util.PlayerPool;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Plays a whole playlist in one player. The playlist's courses are queued as
+ * media items in order, so ExoPlayer buffers the next lecture before the
+ * current one ends and moves on without rebuffering. Each course's position
+ * is remembered in {@link PlaybackPositionStore}.
+ */
+public class PlaylistPlayerFragment extends Fragment implements CourseAdapter.OnCourseClickListener {
+
+    private FragmentPlaylistPlayerBinding binding;
+    private PlaylistRepository playlistRepository;
+    private PlaybackPositionStore positionStore;
+    private CourseAdapter courseAdapter;
+    private String playlistId;
+    private ExoPlayer player;
+
+    // Courses with a video, in playlist order; index i is media item i
+    private final List<Course> queue = new ArrayList<>();
+    private boolean queueLoaded = false;
+
+    // Where to pick up when the player is re-created after the fragment was stopped
+    private String currentCourseId;
+    private boolean playWhenReady = true;
+
+    private final Player.Listener playerListener = new Player.Listener() {
+        @Override
+        public void onMediaItemTransition(@Nullable MediaItem mediaItem, int reason) {
+            if (reason == Player.MEDIA_ITEM_TRANSITION_REASON_AUTO) {
+                // The previous lecture played to the end
+                positionStore.clearPosition(currentCourseId);
+            }
+            currentCourseId = mediaItem != null ? mediaItem.mediaId : null;
+            showNowPlaying();
+            prefetchNext();
+        }
+
+        @Override
+        public void onPlaybackStateChanged(int playbackState) {
+            if (playbackState == Player.STATE_ENDED) {
+                // The last lecture played to the end
+                positionStore.clearPosition(currentCourseId);
+            }
+        }
+    };
+
+    @Override
+    public void onCreate(@Nullable Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        playlistRepository = new PlaylistRepository();
+        positionStore = PlaybackPositionStore.getInstance();
+
+        // Get playlistId from arguments
+        if (getArguments() != null) {
+            playlistId = getArguments().getString("playlistId");
+        }
+    }
+
+    @Nullable
+    @Override
+    public View onCreateView(@NonNull LayoutInflater inflater, @Nullable ViewGroup container, @Nullable Bundle savedInstanceState) {
+        binding = FragmentPlaylistPlayerBinding.inflate(inflater, container, false);
+        return binding.getRoot();
+    }
+
+    @Override
+    public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
+        super.onViewCreated(view, savedInstanceState);
+
+        if (playlistId == null) {
+            Toast.makeText(requireContext(), "Playlist ID is missing", Toast.LENGTH_SHORT).show();
+            requireActivity().onBackPressed();
+            return;
+        }
+
+        courseAdapter = new CourseAdapter(requireContext(), new ArrayList<>(), this);
+        binding.queueRecyclerView.setLayoutManager(new LinearLayoutManager(requireContext()));
+        binding.queueRecyclerView.setAdapter(courseAdapter);
+
+        loadQueue();
+    }
+
+    @Override
+    public void onStart() {
+        super.onStart();
+        initializePlayer();
+    }
+
+    private void initializePlayer() {
+        if (player != null || binding == null) {
+            return;
+        }
+        player = PlayerPool.get(requireActivity()).acquire(currentCourseId);
+        player.addListener(playerListener);
+        binding.videoView.setPlayer(player);
+        if (queueLoaded) {
+            startQueue();
+        }
+    }
+
+    private void loadQueue() {
+        binding.progressBar.setVisibility(View.VISIBLE);
+
+        playlistRepository.getPlaylistWithCourses(playlistId, new PlaylistRepository.PlaylistWithCoursesCallback() {
+            @Override
+            public void onPlaylistWithCoursesLoaded(Playlist playlist, List<Course> courses) {
+                if (binding == null) {
+                    return;
+                }
+                binding.progressBar.setVisibility(View.GONE);
+
+                // Queue the courses in the playlist's order, skipping any without a video
+                Map<String, Course> courseMap = new HashMap<>();
+                for (Course course : courses) {
+                    courseMap.put(course.getId(), course);
+                }
+                queue.clear();
+                for (String courseId : playlist.getCourseIds()) {
+                    Course course = courseMap.get(courseId);
+                    if (course != null && PlayerFactory.createMediaItem(course) != null) {
+                        queue.add(course);
+                    }
+                }
+                queueLoaded = true;
+                courseAdapter.submitList(new ArrayList<>(queue));
+
+                if (queue.isEmpty()) {
+                    binding.nowPlayingTv.setText(R.string.no_playable_courses);
+                    return;
+                }
+                if (player != null) {
+                    startQueue();
+                }
+            }
+
+            @Override
+            public void onError(String errorMessage) {
+                if (binding == null) {
+                    return;
+                }
+                binding.progressBar.setVisibility(View.GONE);
+                Toast.makeText(requireContext(), errorMessage, Toast.LENGTH_SHORT).show();
+            }
+        });
+    }
+
+    // Hand the whole queue to the player, starting at the current course where it was left off
+    private void startQueue() {
+        if (queue.isEmpty()) {
+            return;
+        }
+        List<MediaItem> mediaItems = new ArrayList<>();
+        int startIndex = 0;
+        for (int i = 0; i < queue.size(); i++) {
+            Course course = queue.get(i);
+            mediaItems.add(PlayerFactory.createMediaItem(course));
+            if (course.getId().equals(currentCourseId)) {
+                startIndex = i;
+            }
+        }
+        currentCourseId = queue.get(startIndex).getId();
+
+        if (mediaItems.equals(currentMediaItems())) {
+            // A pooled player that last played this queue; carry on from its buffer
+            currentCourseId = player.getCurrentMediaItem().mediaId;
+            showNowPlaying();
+            player.setPlayWhenReady(playWhenReady);
+            return;
+        }
+        player.setMediaItems(mediaItems, startIndex, positionStore.getPosition(currentCourseId));
+        player.setPlayWhenReady(playWhenReady);
+        player.prepare();
+    }
+
+    private List<MediaItem> currentMediaItems() {
+        List<MediaItem> mediaItems = new ArrayList<>();
+        for (int i = 0; i < player.getMediaItemCount(); i++) {
+            mediaItems.add(player.getMediaItemAt(i));
+        }
+        return mediaItems;
+    }
+
+    // Jump to a course in the queue, resuming it where it was left off
+    @Override
+    public void onCourseClick(Course course, int position) {
+        if (player == null || position < 0 || position >= queue.size()) {
+            return;
+        }
+        saveCurrentPosition();
+        player.seekTo(position, positionStore.getPosition(course.getId()));
+        player.play();
+    }
+
+    private void showNowPlaying() {
+        if (binding == null) {
+            return;
+        }
+        for (Course course : queue) {
+            if (course.getId().equals(currentCourseId)) {
+                binding.nowPlayingTv.setText(getString(R.string.now_playing, course.getTitle()));
+                return;
+            }
+        }
+    }
+
+    // The player buffers the next lecture near the end of this one; warming the disk cache now
+    // also covers skipping ahead early. HLS items are left to the player.
+    private void prefetchNext() {
+        int nextIndex = player.getNextMediaItemIndex();
+        if (nextIndex == Player.INDEX_UNSET || nextIndex >= queue.size()) {
+            return;
+        }
+        Course next = queue.get(nextIndex);
+        if (next.getHlsManifestUrl() == null) {
+            VideoCache.getInstance().prefetch(next.getVideoUrl());
+        }
+    }
+
+    private void saveCurrentPosition() {
+        if (player != null && player.getCurrentMediaItem() != null) {
+            positionStore.savePosition(player.getCurrentMediaItem().mediaId,
+                    player.getCurrentPosition(), player.getDuration());
+        }
+    }
+
+    @Override
+    public void onStop() {
+        super.onStop();
+        releasePlayer();
+    }
+
+    private void releasePlayer() {
+        if (player != null) {
+            saveCurrentPosition();
+            playWhenReady = player.getPlayWhenReady();
+            player.removeListener(playerListener);
+            if (binding != null) {
+                binding.videoView.setPlayer(null);
+            }
+            PlayerPool.get(requireActivity()).release(player);
+            player = null;
+        }
+    }
+
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        binding = null;
+    }
+}
@@ -29,10 +29,13 @@ import com.example.coursesharingapp.model.Playlist;
 import com.example.coursesharingapp.model.User;
 import com.example.coursesharingapp.repository.AuthRepository;
 import com.example.coursesharingapp.repository.CourseRepository;
+import com.example.coursesharingapp.repository.PlaylistMutation;
 import com.example.coursesharingapp.repository.PlaylistRepository;
 import com.example.coursesharingapp.repository.UserRepository;
+import com.example.coursesharingapp.util.ListChange;
 import com.google.android.material.tabs.TabLayout;
 import com.google.firebase.auth.FirebaseUser;
+import com.google.firebase.firestore.ListenerRegistration;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -49,8 +52,12 @@ public class PlaylistsFragment extends Fragment implements PlaylistAdapter.OnPla
     private CourseRepository courseRepository;
     private AuthRepository authRepository;
     private PlaylistAdapter playlistAdapter;
-    private List<Playlist> playlistsList;
     private FirebaseUser currentUser;
+    private ListenerRegistration playlistsRegistration;
+
+    // Button flags the current adapter was built with
+    private boolean adapterShowsDelete;
+    private boolean adapterShowsEdit;
 
     // Search state variables
     private String currentSearchQuery = "";
@@ -65,7 +72,6 @@ public class PlaylistsFragment extends Fragment implements PlaylistAdapter.OnPla
         playlistRepository = new PlaylistRepository();
         courseRepository = new CourseRepository();
         authRepository = new AuthRepository();
-        playlistsList = new ArrayList<>();
         userRepository = new UserRepository();
 
         // Check if user is authenticated
@@ -111,7 +117,9 @@ public class PlaylistsFragment extends Fragment implements PlaylistAdapter.OnPla
         boolean showDelete = binding.tabs.getSelectedTabPosition() == TAB_MY_PLAYLISTS;
         String uid = currentUser != null ? currentUser.getUid() : null;
 
-        playlistAdapter = new PlaylistAdapter(requireContext(), playlistsList, this, this, this, showDelete, showEdit, uid);
+        playlistAdapter = new PlaylistAdapter(requireContext(), new ArrayList<>(), this, this, this, showDelete, showEdit, uid);
+        adapterShowsDelete = showDelete;
+        adapterShowsEdit = showEdit;
         binding.playlistsRecyclerView.setLayoutManager(new LinearLayoutManager(requireContext()));
         binding.playlistsRecyclerView.setAdapter(playlistAdapter);
     }
@@ -196,6 +204,8 @@ public class PlaylistsFragment extends Fragment implements PlaylistAdapter.OnPla
         Log.d(TAG, "Performing search with query: " + query);
         currentSearchQuery = query;
         isSearchActive = true;
+        // Search results are a one-off, not live
+        stopListening();
         binding.progressBar.setVisibility(View.VISIBLE);
 
         int currentTab = binding.tabs.getSelectedTabPosition();
@@ -255,19 +265,7 @@ public class PlaylistsFragment extends Fragment implements PlaylistAdapter.OnPla
             return;
         }
 
-        playlistRepository.getAllPlaylists(new PlaylistRepository.PlaylistsCallback() {
-            @Override
-            public void onPlaylistsLoaded(List<Playlist> playlists) {
-                binding.progressBar.setVisibility(View.GONE);
-                updatePlaylistsList(playlists, false, false);
-            }
-
-            @Override
-            public void onError(String errorMessage) {
-                binding.progressBar.setVisibility(View.GONE);
-                Toast.makeText(requireContext(), errorMessage, Toast.LENGTH_SHORT).show();
-            }
-        });
+        startListening(false);
     }
 
     private void loadMyPlaylists() {
@@ -279,11 +277,24 @@ public class PlaylistsFragment extends Fragment implements PlaylistAdapter.OnPla
             return;
         }
 
-        playlistRepository.getPlaylistsByCreator(currentUser.getUid(), new PlaylistRepository.PlaylistsCallback() {
+        startListening(true);
+    }
+
+    // Keep the tab's list live; only the playlists that change are delivered after the first load
+    private void startListening(boolean myPlaylists) {
+        stopListening();
+
+        PlaylistRepository.PlaylistChangesCallback changesCallback = new PlaylistRepository.PlaylistChangesCallback() {
             @Override
             public void onPlaylistsLoaded(List<Playlist> playlists) {
                 binding.progressBar.setVisibility(View.GONE);
-                updatePlaylistsList(playlists, true, true);
+                updatePlaylistsList(playlists, myPlaylists, myPlaylists);
+            }
+
+            @Override
+            public void onPlaylistsChanged(List<ListChange<Playlist>> changes) {
+                playlistAdapter.applyChanges(changes);
+                updateEmptyState(playlistAdapter.getItemCount() == 0);
             }
 
             @Override
@@ -291,25 +302,47 @@ public class PlaylistsFragment extends Fragment implements PlaylistAdapter.OnPla
                 binding.progressBar.setVisibility(View.GONE);
                 Toast.makeText(requireContext(), errorMessage, Toast.LENGTH_SHORT).show();
             }
-        });
+        };
+
+        if (myPlaylists) {
+            playlistsRegistration = playlistRepository.listenToPlaylistsByCreator(currentUser.getUid(), changesCallback);
+        } else {
+            playlistsRegistration = playlistRepository.listenToAllPlaylists(changesCallback);
+        }
+    }
+
+    private void stopListening() {
+        if (playlistsRegistration != null) {
+            playlistsRegistration.remove();
+            playlistsRegistration = null;
+        }
     }
 
     private void updatePlaylistsList(List<Playlist> playlists, boolean showDeleteButtons, boolean showEditButtons) {
-        if (playlists.isEmpty()) {
+        updateEmptyState(playlists.isEmpty());
+
+        if (playlistAdapter != null && adapterShowsDelete == showDeleteButtons && adapterShowsEdit == showEditButtons) {
+            // Same row layout, only diff the rows
+            playlistAdapter.submitList(playlists);
+            return;
+        }
+
+        // Create new adapter with updated settings
+        String uid = currentUser != null ? currentUser.getUid() : null;
+        playlistAdapter = new PlaylistAdapter(requireContext(), playlists, this, this, this, showDeleteButtons, showEditButtons, uid);
+        adapterShowsDelete = showDeleteButtons;
+        adapterShowsEdit = showEditButtons;
+        binding.playlistsRecyclerView.setAdapter(playlistAdapter);
+    }
+
+    private void updateEmptyState(boolean isEmpty) {
+        if (isEmpty) {
             binding.noPlaylistsTv.setVisibility(View.VISIBLE);
             binding.playlistsRecyclerView.setVisibility(View.GONE);
         } else {
             binding.noPlaylistsTv.setVisibility(View.GONE);
             binding.playlistsRecyclerView.setVisibility(View.VISIBLE);
         }
-
-        playlistsList.clear();
-        playlistsList.addAll(playlists);
-
-        // Create new adapter with updated settings
-        String uid = currentUser != null ? currentUser.getUid() : null;
-        playlistAdapter = new PlaylistAdapter(requireContext(), playlistsList, this, this, this, showDeleteButtons, showEditButtons, uid);
-        binding.playlistsRecyclerView.setAdapter(playlistAdapter);
     }
 
     @Override
@@ -354,17 +387,8 @@ public class PlaylistsFragment extends Fragment implements PlaylistAdapter.OnPla
                             binding.progressBar.setVisibility(View.GONE);
                             Toast.makeText(requireContext(), "Playlist deleted successfully", Toast.LENGTH_SHORT).show();
 
-                            // Remove the playlist from the list and refresh the adapter
-                            playlistsList.remove(position);
-                            playlistAdapter.notifyItemRemoved(position);
-
-                            // Check if list is empty
-                            if (playlistsList.isEmpty()) {
-                                binding.noPlaylistsTv.setVisibility(View.VISIBLE);
-                                binding.playlistsRecyclerView.setVisibility(View.GONE);
-                            }
-
-                            // If search is active, refresh the search
+                            // The listener removes the playlist from the list; search results aren't live,
+                            // so refresh them
                             if (isSearchActive) {
                                 performSearch(currentSearchQuery);
                             }
@@ -438,11 +462,9 @@ public class PlaylistsFragment extends Fragment implements PlaylistAdapter.OnPla
                                     Toast.makeText(requireContext(), successMessage, Toast.LENGTH_LONG).show();
                                     dialog.dismiss();
 
-                                    // Reload the current tab
-                                    if (binding.tabs.getSelectedTabPosition() == TAB_ALL_PLAYLISTS) {
-                                        loadAllPlaylists();
-                                    } else {
-                                        loadMyPlaylists();
+                                    // The listener adds the playlist to the list; search results aren't live
+                                    if (isSearchActive) {
+                                        performSearch(currentSearchQuery);
                                     }
                                 });
                             }
@@ -472,7 +494,6 @@ public class PlaylistsFragment extends Fragment implements PlaylistAdapter.OnPla
     }
 
     private void showManageCoursesDialog(Playlist playlist, int position, Dialog parentDialog,
-                                         List<Course> existingCourses,
                                          OrderableCourseDisplayAdapter displayAdapter) {
         Log.d(TAG, "showManageCoursesDialog started");
 
@@ -589,11 +610,7 @@ public class PlaylistsFragment extends Fragment implements PlaylistAdapter.OnPla
                         Log.d(TAG, "Created selected courses list with " + selectedCourses.size() + " items");
 
                         // Update existing courses list
-                        existingCourses.clear();
-                        existingCourses.addAll(selectedCourses);
-
-                        // Force adapter update
-                        displayAdapter.notifyDataSetChanged();
+                        displayAdapter.setCourses(selectedCourses);
 
                         // Update playlist course IDs (not saved to database yet)
                         playlist.setCourseIds(selectedCourseIds);
@@ -635,17 +652,15 @@ public class PlaylistsFragment extends Fragment implements PlaylistAdapter.OnPla
 
         // Setup privacy options
         boolean[] isPrivate = {false}; // Use array to allow modification in inner classes
-        String[] accessCode = {null};
 
         dialogBinding.privacyRadioGroup.setOnCheckedChangeListener((group, checkedId) -> {
             if (checkedId == R.id.public_radio_button) {
                 isPrivate[0] = false;
-                accessCode[0] = null;
                 dialogBinding.accessCodeCard.setVisibility(View.GONE);
             } else if (checkedId == R.id.private_radio_button) {
                 isPrivate[0] = true;
-                accessCode[0] = Playlist.generateNewAccessCode();
-                dialogBinding.accessCodeDisplayTv.setText(accessCode[0]);
+                // The code is allocated when the playlist is created
+                dialogBinding.accessCodeDisplayTv.setText(R.string.access_code_pending);
                 dialogBinding.accessCodeCard.setVisibility(View.VISIBLE);
             }
         });
@@ -749,6 +764,10 @@ public class PlaylistsFragment extends Fragment implements PlaylistAdapter.OnPla
         dialog.setContentView(dialogBinding.getRoot());
         dialog.setCancelable(true);
 
+        // What the editor starts from; only the difference is written back
+        List<String> originalCourseIds = playlist.getCourseIds() != null
+                ? new ArrayList<>(playlist.getCourseIds()) : new ArrayList<>();
+
         // Pre-fill current values
         dialogBinding.playlistTitleEt.setText(playlist.getTitle());
         dialogBinding.playlistDescriptionEt.setText(playlist.getDescription());
@@ -759,12 +778,9 @@ public class PlaylistsFragment extends Fragment implements PlaylistAdapter.OnPla
         RecyclerView selectedCoursesRecyclerView = dialogBinding.selectedCoursesRecyclerView;
         selectedCoursesRecyclerView.setLayoutManager(new LinearLayoutManager(requireContext()));
 
-        // Create a mutable list that will hold course data
-        List<Course> coursesList = new ArrayList<>();
-
-        // Create the adapter with the empty list
+        // Create the adapter with an empty list; courses are set once loaded
         OrderableCourseDisplayAdapter orderedAdapter = new OrderableCourseDisplayAdapter(
-                requireContext(), coursesList);
+                requireContext(), new ArrayList<>());
 
         // Set adapter to RecyclerView immediately
         selectedCoursesRecyclerView.setAdapter(orderedAdapter);
@@ -862,15 +878,11 @@ public class PlaylistsFragment extends Fragment implements PlaylistAdapter.OnPla
                                             orderedCourses.size() + " items");
 
                                     // Update adapter with ordered courses
-                                    coursesList.clear();
-                                    coursesList.addAll(orderedCourses);
-
-                                    // Explicitly notify adapter of changes
-                                    orderedAdapter.notifyDataSetChanged();
+                                    orderedAdapter.setCourses(orderedCourses);
 
                                     // Update title
                                     dialogBinding.currentCoursesTv.setText(
-                                            "Current Course Order (" + coursesList.size() + " courses)");
+                                            "Current Course Order (" + orderedCourses.size() + " courses)");
 
                                     // Hide progress bar
                                     dialogBinding.progressBar.setVisibility(View.GONE);
@@ -917,12 +929,10 @@ public class PlaylistsFragment extends Fragment implements PlaylistAdapter.OnPla
                                         }
                                     }
 
-                                    coursesList.clear();
-                                    coursesList.addAll(orderedCourses);
-                                    orderedAdapter.notifyDataSetChanged();
+                                    orderedAdapter.setCourses(orderedCourses);
 
                                     dialogBinding.currentCoursesTv.setText(
-                                            "Current Course Order (" + coursesList.size() + " courses)");
+                                            "Current Course Order (" + orderedCourses.size() + " courses)");
                                 }
                             });
                         }
@@ -934,7 +944,7 @@ public class PlaylistsFragment extends Fragment implements PlaylistAdapter.OnPla
         // Set up the manage courses button
         dialogBinding.manageCoursesButton.setOnClickListener(v -> {
             Log.d(TAG, "Manage courses button clicked");
-            showManageCoursesDialog(playlist, position, dialog, coursesList, orderedAdapter);
+            showManageCoursesDialog(playlist, position, dialog, orderedAdapter);
         });
 
         // Set up the update button
@@ -961,17 +971,21 @@ public class PlaylistsFragment extends Fragment implements PlaylistAdapter.OnPla
                 return;
             }
 
-            // Update the playlist
-            playlist.setTitle(title);
-            playlist.setDescription(description);
-            playlist.setCourseIds(orderedCourseIds);
+            // Only the edits are sent, so changes made elsewhere meanwhile aren't overwritten
+            PlaylistMutation mutation = PlaylistMutation.between(originalCourseIds, orderedCourseIds);
+            if (!title.equals(playlist.getTitle())) {
+                mutation.setTitle(title);
+            }
+            if (!description.equals(playlist.getDescription())) {
+                mutation.setDescription(description);
+            }
 
             // Show progress
             dialogBinding.progressBar.setVisibility(View.VISIBLE);
             dialogBinding.updatePlaylistButton.setEnabled(false);
 
             // Use the new method with progress tracking
-            playlistRepository.updatePlaylistWithProgress(playlist,
+            playlistRepository.updatePlaylistWithProgress(playlist.getId(), mutation,
                     new PlaylistRepository.PlaylistUpdateProgressCallback() {
                         @Override
                         public void onProgress(String message) {
@@ -995,9 +1009,17 @@ public class PlaylistsFragment extends Fragment implements PlaylistAdapter.OnPla
                                         "Playlist updated successfully", Toast.LENGTH_SHORT).show();
                                 dialog.dismiss();
 
-                                // Update UI list
-                                playlistsList.set(position, playlist);
-                                playlistAdapter.notifyItemChanged(position);
+                                // Only now that the write went through does the row show the edits
+                                playlist.setTitle(title);
+                                playlist.setDescription(description);
+                                playlist.setCourseIds(orderedCourseIds);
+
+                                // The edited playlist is the same object the adapter holds, so the
+                                // diff can't see the change; rebind its row explicitly
+                                int index = playlistAdapter.getCurrentList().indexOf(playlist);
+                                if (index >= 0) {
+                                    playlistAdapter.notifyItemChanged(index);
+                                }
 
                                 // Refresh results if in search mode
                                 if (isSearchActive) {
@@ -1026,6 +1048,26 @@ public class PlaylistsFragment extends Fragment implements PlaylistAdapter.OnPla
         });
     }
 
+    @Override
+    public void onStart() {
+        super.onStart();
+        // Resume the live list for the selected tab
+        if (binding != null && playlistsRegistration == null && !isSearchActive) {
+            if (binding.tabs.getSelectedTabPosition() == TAB_MY_PLAYLISTS && currentUser != null) {
+                loadMyPlaylists();
+            } else {
+                loadAllPlaylists();
+            }
+        }
+    }
+
+    @Override
+    public void onStop() {
+        super.onStop();
+        // No updates while off screen
+        stopListening();
+    }
+
     @Override
     public void onDestroyView() {
         super.onDestroyView();
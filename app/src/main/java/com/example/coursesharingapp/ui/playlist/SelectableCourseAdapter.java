@@ -11,9 +11,12 @@ import android.widget.TextView;
 import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 
-import com.bumptech.glide.Glide;
 import com.example.coursesharingapp.R;
 import com.example.coursesharingapp.model.Course;
+import com.example.coursesharingapp.ui.course.CourseAdapter;
+import com.example.coursesharingapp.util.LiveListDiffer;
+import com.example.coursesharingapp.util.StableIds;
+import com.example.coursesharingapp.util.ThumbnailLoader;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -23,18 +26,39 @@ import java.util.Map;
 public class SelectableCourseAdapter extends RecyclerView.Adapter<SelectableCourseAdapter.CourseViewHolder> {
 
     private Context context;
-    private List<Course> courses;
     private Map<String, Boolean> selectedCourses; // Maps course ID to selection state
+    private final StableIds stableIds = new StableIds();
+    private final LiveListDiffer<Course> differ = new LiveListDiffer<>(this, CourseAdapter.DIFF_CALLBACK);
 
     public SelectableCourseAdapter(Context context, List<Course> courses) {
+        setHasStableIds(true);
         this.context = context;
-        this.courses = courses;
         this.selectedCourses = new HashMap<>();
 
         // Initialize all courses as unselected
         for (Course course : courses) {
             selectedCourses.put(course.getId(), false);
         }
+
+        submitList(courses);
+    }
+
+    // Replace the courses shown, animating only the rows that changed
+    public void submitList(List<Course> courses) {
+        differ.submitList(courses);
+    }
+
+    public List<Course> getCurrentList() {
+        return differ.getCurrentList();
+    }
+
+    public Course getItem(int position) {
+        return differ.getItem(position);
+    }
+
+    @Override
+    public int getItemCount() {
+        return differ.getItemCount();
     }
 
     @NonNull
@@ -46,13 +70,12 @@ public class SelectableCourseAdapter extends RecyclerView.Adapter<SelectableCour
 
     @Override
     public void onBindViewHolder(@NonNull CourseViewHolder holder, int position) {
-        Course course = courses.get(position);
-        holder.bind(course, position);
+        holder.bind(getItem(position));
     }
 
     @Override
-    public int getItemCount() {
-        return courses.size();
+    public long getItemId(int position) {
+        return stableIds.getId(getItem(position).getId());
     }
 
     // Get list of selected course IDs
@@ -83,21 +106,12 @@ public class SelectableCourseAdapter extends RecyclerView.Adapter<SelectableCour
             selectCheckBox = itemView.findViewById(R.id.course_checkbox);
         }
 
-        public void bind(Course course, int position) {
+        public void bind(Course course) {
             // Set course title
             titleTextView.setText(course.getTitle());
 
             // Load thumbnail
-            if (course.getThumbnailUrl() != null && !course.getThumbnailUrl().isEmpty()) {
-                Glide.with(context)
-                        .load(course.getThumbnailUrl())
-                        .placeholder(R.drawable.ic_placeholder_thumbnail)
-                        .error(R.drawable.ic_error_thumbnail)
-                        .centerCrop()
-                        .into(thumbnailImageView);
-            } else {
-                thumbnailImageView.setImageResource(R.drawable.ic_placeholder_thumbnail);
-            }
+            ThumbnailLoader.load(thumbnailImageView, course);
 
             // Set checkbox state from our selection map
             Boolean isSelected = selectedCourses.get(course.getId());
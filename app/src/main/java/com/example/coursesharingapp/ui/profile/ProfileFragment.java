@@ -47,6 +47,11 @@ public class ProfileFragment extends Fragment implements
     private List<Playlist> savedPlaylistsList;
     private FirebaseUser currentUser;
 
+    // Set once Firestore has answered, so a late local read can't replace fresher data
+    private boolean profileLoaded;
+    private boolean savedCoursesLoaded;
+    private boolean savedPlaylistsLoaded;
+
     @Override
     public void onCreate(@Nullable Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -121,11 +126,31 @@ public class ProfileFragment extends Fragment implements
     }
 
     private void loadUserProfile(String userId) {
+        profileLoaded = false;
         binding.profileProgressBar.setVisibility(View.VISIBLE);
 
+        // Show the mirrored profile until Firestore answers
+        userRepository.getLocalUser(userId, new UserRepository.UserCallback() {
+            @Override
+            public void onUserLoaded(User user) {
+                if (binding == null || profileLoaded) {
+                    return;
+                }
+                binding.profileProgressBar.setVisibility(View.GONE);
+                binding.usernameTv.setText(user.getUsername());
+                binding.emailTv.setText(user.getEmail());
+            }
+
+            @Override
+            public void onError(String errorMessage) {
+                // Local reads don't report errors
+            }
+        });
+
         userRepository.getUserById(userId, new UserRepository.UserCallback() {
             @Override
             public void onUserLoaded(User user) {
+                profileLoaded = true;
                 binding.profileProgressBar.setVisibility(View.GONE);
 
                 // Display user info
@@ -142,23 +167,32 @@ public class ProfileFragment extends Fragment implements
     }
 
     private void loadSavedCourses(String userId) {
+        savedCoursesLoaded = false;
         binding.coursesProgressBar.setVisibility(View.VISIBLE);
 
-        courseRepository.getSavedCourses(userId, new CourseRepository.CoursesCallback() {
+        // Show the mirrored bookmarks until Firestore answers; an empty mirror keeps the spinner
+        courseRepository.getLocalSavedCourses(userId, new CourseRepository.CoursesCallback() {
             @Override
             public void onCoursesLoaded(List<Course> courses) {
+                if (binding == null || savedCoursesLoaded || courses.isEmpty()) {
+                    return;
+                }
                 binding.coursesProgressBar.setVisibility(View.GONE);
+                showSavedCourses(courses);
+            }
 
-                if (courses.isEmpty()) {
-                    binding.noUserCoursesTv.setVisibility(View.VISIBLE);
-                    binding.userCoursesRecyclerView.setVisibility(View.GONE);
-                } else {
-                    binding.noUserCoursesTv.setVisibility(View.GONE);
-                    binding.userCoursesRecyclerView.setVisibility(View.VISIBLE);
-                    savedCoursesList.clear();
-                    savedCoursesList.addAll(courses);
-                    courseAdapter.notifyDataSetChanged();
-                }
+            @Override
+            public void onError(String errorMessage) {
+                // Local reads don't report errors
+            }
+        });
+
+        courseRepository.getSavedCourses(userId, new CourseRepository.CoursesCallback() {
+            @Override
+            public void onCoursesLoaded(List<Course> courses) {
+                savedCoursesLoaded = true;
+                binding.coursesProgressBar.setVisibility(View.GONE);
+                showSavedCourses(courses);
             }
 
             @Override
@@ -170,23 +204,31 @@ public class ProfileFragment extends Fragment implements
     }
 
     private void loadSavedPlaylists(String userId) {
+        savedPlaylistsLoaded = false;
         binding.playlistsProgressBar.setVisibility(View.VISIBLE);
 
-        playlistRepository.getSavedPlaylists(userId, new PlaylistRepository.PlaylistsCallback() {
+        playlistRepository.getLocalSavedPlaylists(userId, new PlaylistRepository.PlaylistsCallback() {
             @Override
             public void onPlaylistsLoaded(List<Playlist> playlists) {
+                if (binding == null || savedPlaylistsLoaded || playlists.isEmpty()) {
+                    return;
+                }
                 binding.playlistsProgressBar.setVisibility(View.GONE);
+                showSavedPlaylists(playlists);
+            }
 
-                if (playlists.isEmpty()) {
-                    binding.noPlaylistsTv.setVisibility(View.VISIBLE);
-                    binding.savedPlaylistsRecyclerView.setVisibility(View.GONE);
-                } else {
-                    binding.noPlaylistsTv.setVisibility(View.GONE);
-                    binding.savedPlaylistsRecyclerView.setVisibility(View.VISIBLE);
-                    savedPlaylistsList.clear();
-                    savedPlaylistsList.addAll(playlists);
-                    playlistAdapter.notifyDataSetChanged();
-                }
+            @Override
+            public void onError(String errorMessage) {
+                // Local reads don't report errors
+            }
+        });
+
+        playlistRepository.getSavedPlaylists(userId, new PlaylistRepository.PlaylistsCallback() {
+            @Override
+            public void onPlaylistsLoaded(List<Playlist> playlists) {
+                savedPlaylistsLoaded = true;
+                binding.playlistsProgressBar.setVisibility(View.GONE);
+                showSavedPlaylists(playlists);
             }
 
             @Override
@@ -197,6 +239,23 @@ public class ProfileFragment extends Fragment implements
         });
     }
 
+    // Replace the saved courses shown; an empty list shows the empty state
+    private void showSavedCourses(List<Course> courses) {
+        savedCoursesList.clear();
+        savedCoursesList.addAll(courses);
+        courseAdapter.submitList(new ArrayList<>(savedCoursesList));
+        binding.noUserCoursesTv.setVisibility(courses.isEmpty() ? View.VISIBLE : View.GONE);
+        binding.userCoursesRecyclerView.setVisibility(courses.isEmpty() ? View.GONE : View.VISIBLE);
+    }
+
+    private void showSavedPlaylists(List<Playlist> playlists) {
+        savedPlaylistsList.clear();
+        savedPlaylistsList.addAll(playlists);
+        playlistAdapter.submitList(new ArrayList<>(savedPlaylistsList));
+        binding.noPlaylistsTv.setVisibility(playlists.isEmpty() ? View.VISIBLE : View.GONE);
+        binding.savedPlaylistsRecyclerView.setVisibility(playlists.isEmpty() ? View.GONE : View.VISIBLE);
+    }
+
     @Override
     public void onCourseClick(Course course, int position) {
         // Navigate to course detail
@@ -251,8 +310,8 @@ public class ProfileFragment extends Fragment implements
                 Toast.makeText(requireContext(), R.string.course_unsaved, Toast.LENGTH_SHORT).show();
 
                 // Remove the course from the list
-                savedCoursesList.remove(position);
-                courseAdapter.notifyItemRemoved(position);
+                savedCoursesList.remove(course);
+                courseAdapter.submitList(new ArrayList<>(savedCoursesList));
 
                 // Check if list is empty
                 if (savedCoursesList.isEmpty()) {
@@ -279,8 +338,8 @@ public class ProfileFragment extends Fragment implements
                 Toast.makeText(requireContext(), R.string.playlist_unsaved, Toast.LENGTH_SHORT).show();
 
                 // Remove the playlist from the list
-                savedPlaylistsList.remove(position);
-                playlistAdapter.notifyItemRemoved(position);
+                savedPlaylistsList.remove(playlist);
+                playlistAdapter.submitList(new ArrayList<>(savedPlaylistsList));
 
                 // Check if list is empty
                 if (savedPlaylistsList.isEmpty()) {
@@ -23,6 +23,7 @@ import com.example.coursesharingapp.R;
 import com.example.coursesharingapp.databinding.FragmentEditCourseBinding;
 import com.example.coursesharingapp.model.Course;
 import com.example.coursesharingapp.repository.CourseRepository;
+import com.example.coursesharingapp.repository.VideoPackagingWorker;
 
 import java.io.File;
 
@@ -343,9 +344,13 @@ public class EditCourseFragment extends Fragment {
         // Keep existing URLs if not changing files
         if (thumbnailUri == null) {
             updatedCourse.setThumbnailUrl(courseToEdit.getThumbnailUrl());
+            updatedCourse.setThumbnailVariants(courseToEdit.getThumbnailVariants());
+            updatedCourse.setThumbnailPlaceholder(courseToEdit.getThumbnailPlaceholder());
+            updatedCourse.setThumbnailAspectRatio(courseToEdit.getThumbnailAspectRatio());
         }
         if (videoUri == null) {
             updatedCourse.setVideoUrl(courseToEdit.getVideoUrl());
+            updatedCourse.setHlsManifestUrl(courseToEdit.getHlsManifestUrl());
         }
 
         // Display file sizes in progress message if new files are selected
@@ -372,6 +377,9 @@ public class EditCourseFragment extends Fragment {
                     new CourseRepository.EditProgressCallback() {
                         @Override
                         public void onThumbnailProgress(int progress) {
+                            if (videoUri != null) {
+                                return; // Shown as part of the combined progress
+                            }
                             requireActivity().runOnUiThread(() -> {
                                 binding.editProgressTv.setText(String.format("Updating thumbnail: %d%%", progress));
                             });
@@ -379,11 +387,24 @@ public class EditCourseFragment extends Fragment {
 
                         @Override
                         public void onVideoProgress(int progress) {
+                            if (thumbnailUri != null) {
+                                return; // Shown as part of the combined progress
+                            }
                             requireActivity().runOnUiThread(() -> {
                                 binding.editProgressTv.setText(String.format("Updating video: %d%%", progress));
                             });
                         }
 
+                        @Override
+                        public void onOverallProgress(int progress, long bytesTransferred, long totalBytes) {
+                            // Both files upload at the same time, so show their combined progress
+                            if (thumbnailUri != null && videoUri != null) {
+                                requireActivity().runOnUiThread(() -> {
+                                    binding.editProgressTv.setText(String.format("Updating files: %d%%", progress));
+                                });
+                            }
+                        }
+
                         @Override
                         public void onThumbnailComplete() {
                             requireActivity().runOnUiThread(() -> {
@@ -400,6 +421,11 @@ public class EditCourseFragment extends Fragment {
 
                         @Override
                         public void onSuccess() {
+                            if (videoUri != null) {
+                                // Re-package the replacement; it plays progressively until then
+                                VideoPackagingWorker.enqueue(requireContext(), courseId, updatedCourse.getTitle(),
+                                        videoUri, updatedCourse.getVideoUrl(), false);
+                            }
                             requireActivity().runOnUiThread(() -> {
                                 binding.progressBar.setVisibility(View.GONE);
                                 binding.editProgressTv.setVisibility(View.GONE);
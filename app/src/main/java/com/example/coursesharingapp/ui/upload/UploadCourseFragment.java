@@ -1,10 +1,13 @@
 package com.example.coursesharingapp.ui.upload;
 
+import android.Manifest;
 import android.app.Activity;
 import android.content.ContentResolver;
 import android.content.Intent;
+import android.content.pm.PackageManager;
 import android.database.Cursor;
 import android.net.Uri;
+import android.os.Build;
 import android.os.Bundle;
 import android.provider.MediaStore;
 import android.provider.OpenableColumns;
@@ -17,30 +20,33 @@ import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.core.content.ContextCompat;
 import androidx.fragment.app.Fragment;
 import androidx.navigation.Navigation;
 
 import com.example.coursesharingapp.R;
 import com.example.coursesharingapp.databinding.FragmentUploadCourseBinding;
 import com.example.coursesharingapp.model.Course;
+import com.example.coursesharingapp.model.UploadJob;
 import com.example.coursesharingapp.repository.AuthRepository;
-import com.example.coursesharingapp.repository.CourseRepository;
+import com.example.coursesharingapp.repository.UploadQueue;
 import com.example.coursesharingapp.repository.UserRepository;
 import com.example.coursesharingapp.util.FileSizeNotificationManager;
 import com.google.firebase.auth.FirebaseUser;
 
 import java.io.File;
+import java.util.List;
 
 public class UploadCourseFragment extends Fragment {
 
     private static final String TAG = "UploadCourseFragment";
     private static final int REQUEST_THUMBNAIL = 101;
     private static final int REQUEST_VIDEO = 102;
+    private static final int REQUEST_NOTIFICATIONS = 103;
 
     private FragmentUploadCourseBinding binding;
     private AuthRepository authRepository;
     private UserRepository userRepository;
-    private CourseRepository courseRepository;
 
     private Uri thumbnailUri;
     private Uri videoUri;
@@ -48,20 +54,13 @@ public class UploadCourseFragment extends Fragment {
     private String username;
     private String selectedCategory;
     private boolean isPrivate = false;
-    private String accessCode;
 
-    // Upload progress tracking
-    private int thumbnailProgress = 0;
-    private int videoProgress = 0;
-    private boolean thumbnailUploadComplete = false;
-    private boolean videoUploadComplete = false;
 
     @Override
     public void onCreate(@Nullable Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         authRepository = new AuthRepository();
         userRepository = new UserRepository();
-        courseRepository = new CourseRepository();
     }
 
     @Nullable
@@ -92,6 +91,9 @@ public class UploadCourseFragment extends Fragment {
         binding.selectThumbnailButton.setOnClickListener(v -> selectThumbnail());
         binding.selectVideoButton.setOnClickListener(v -> selectVideo());
         binding.uploadCourseButton.setOnClickListener(v -> validateAndUploadCourse());
+
+        // Uploads run in the background; show their progress while this screen is open
+        UploadQueue.getInstance().getJobs().observe(getViewLifecycleOwner(), this::showQueueState);
     }
 
     private void setupCategorySpinner() {
@@ -126,12 +128,11 @@ public class UploadCourseFragment extends Fragment {
         binding.privacyRadioGroup.setOnCheckedChangeListener((group, checkedId) -> {
             if (checkedId == R.id.public_radio_button) {
                 isPrivate = false;
-                accessCode = null;
                 binding.accessCodeCard.setVisibility(View.GONE);
             } else if (checkedId == R.id.private_radio_button) {
                 isPrivate = true;
-                accessCode = Course.generateNewAccessCode();
-                binding.accessCodeDisplayTv.setText(accessCode);
+                // The code is allocated when the course is created; it shows in My Courses afterwards
+                binding.accessCodeDisplayTv.setText(R.string.access_code_pending);
                 binding.accessCodeCard.setVisibility(View.VISIBLE);
             }
         });
@@ -150,6 +151,7 @@ public class UploadCourseFragment extends Fragment {
                 binding.progressBar.setVisibility(View.GONE);
                 binding.uploadProgressTv.setVisibility(View.GONE);
                 username = user.getUsername();
+                showQueueState(UploadQueue.getInstance().getJobs().getValue());
             }
 
             @Override
@@ -409,26 +411,52 @@ public class UploadCourseFragment extends Fragment {
         return isValid;
     }
 
-    private void updateUploadProgress() {
-        if (thumbnailUploadComplete && videoUploadComplete) {
-            binding.uploadProgressTv.setText("Finalizing upload...");
-            return;
+    // Show the state of the background upload queue
+    private void showQueueState(List<UploadJob> jobs) {
+        if (binding == null || username == null || jobs == null) {
+            return; // Still loading user information
         }
 
-        // Calculate overall progress (thumbnail is typically smaller, so weight it less)
-        // Assuming thumbnail is 10% of total upload, video is 90%
-        int overallProgress = (int) ((thumbnailProgress * 0.1) + (videoProgress * 0.9));
+        int activeCount = 0;
+        int failedCount = 0;
+        long uploadedBytes = 0;
+        long totalBytes = 0;
+        for (UploadJob job : jobs) {
+            if (UploadJob.STATUS_FAILED.equals(job.getStatus())) {
+                failedCount++;
+            } else if (!job.isFinished()) {
+                activeCount++;
+                uploadedBytes += job.getBytesTransferred();
+                totalBytes += job.getTotalBytes();
+            }
+        }
 
-        String progressText;
-        if (!thumbnailUploadComplete && !videoUploadComplete) {
-            progressText = String.format("Uploading thumbnail: %d%%", thumbnailProgress);
-        } else if (thumbnailUploadComplete && !videoUploadComplete) {
-            progressText = String.format("Uploading video: %d%%", videoProgress);
-        } else {
-            progressText = String.format("Upload progress: %d%%", overallProgress);
+        if (activeCount == 0 && failedCount == 0) {
+            binding.progressBar.setVisibility(View.GONE);
+            binding.uploadProgressTv.setVisibility(View.GONE);
+            return;
+        }
+
+        StringBuilder progressText = new StringBuilder();
+        if (activeCount > 0) {
+            progressText.append(activeCount == 1 ? "1 course uploading" : activeCount + " courses uploading");
+            if (totalBytes > 0) {
+                // Weighted by size across all running uploads
+                progressText.append(String.format(": %d%% (%s of %s)", (int) ((100.0 * uploadedBytes) / totalBytes),
+                        FileSizeNotificationManager.formatFileSize(uploadedBytes),
+                        FileSizeNotificationManager.formatFileSize(totalBytes)));
+            }
+        }
+        if (failedCount > 0) {
+            if (progressText.length() > 0) {
+                progressText.append("\n");
+            }
+            progressText.append(failedCount == 1 ? "1 upload failed" : failedCount + " uploads failed");
         }
 
-        binding.uploadProgressTv.setText(progressText);
+        binding.progressBar.setVisibility(activeCount > 0 ? View.VISIBLE : View.GONE);
+        binding.uploadProgressTv.setVisibility(View.VISIBLE);
+        binding.uploadProgressTv.setText(progressText.toString());
     }
 
     private void validateAndUploadCourse() {
@@ -436,17 +464,6 @@ public class UploadCourseFragment extends Fragment {
             return;
         }
 
-        // Reset progress tracking
-        thumbnailProgress = 0;
-        videoProgress = 0;
-        thumbnailUploadComplete = false;
-        videoUploadComplete = false;
-
-        binding.progressBar.setVisibility(View.VISIBLE);
-        binding.uploadProgressTv.setVisibility(View.VISIBLE);
-        binding.uploadProgressTv.setText("Starting upload...");
-        binding.uploadCourseButton.setEnabled(false);
-
         String title = binding.courseTitleEt.getText().toString().trim();
         String shortDescription = binding.shortDescriptionEt.getText().toString().trim();
         String longDescription = binding.longDescriptionEt.getText().toString().trim();
@@ -455,104 +472,48 @@ public class UploadCourseFragment extends Fragment {
         Course course = new Course(title, shortDescription, longDescription,
                 currentUser.getUid(), username, selectedCategory, isPrivate);
 
-        // If private course already has access code, make sure it's set
-        if (isPrivate && accessCode != null) {
-            course.setAccessCode(accessCode);
-        }
-
-        // Display file sizes in progress message
+        // Display file sizes in the queued message
+        String uploadMessage = "Course queued for upload";
         try {
-            StringBuilder uploadMessage = new StringBuilder("Starting upload");
-            if (isPrivate) {
-                uploadMessage.append(" of private course");
-            } else {
-                uploadMessage.append(" of public course");
-            }
-
-            long thumbnailSize = getFileSize(thumbnailUri);
-            long videoSize = getFileSize(videoUri);
-
-            uploadMessage.append(": Thumbnail (")
-                    .append(FileSizeNotificationManager.formatFileSize(thumbnailSize))
-                    .append("), Video (")
-                    .append(FileSizeNotificationManager.formatFileSize(videoSize))
-                    .append(")");
-
-            Toast.makeText(requireContext(), uploadMessage.toString(), Toast.LENGTH_LONG).show();
+            uploadMessage += ": Thumbnail (" + FileSizeNotificationManager.formatFileSize(getFileSize(thumbnailUri))
+                    + "), Video (" + FileSizeNotificationManager.formatFileSize(getFileSize(videoUri)) + ")";
         } catch (Exception e) {
-            // Continue with upload even if we can't display sizes
+            // Queue the upload even if we can't display sizes
             Log.e(TAG, "Error getting file sizes for upload message: " + e.getMessage());
         }
 
-        courseRepository.createCourseWithProgress(course, thumbnailUri, videoUri,
-                new CourseRepository.UploadProgressCallback() {
-                    @Override
-                    public void onThumbnailProgress(int progress) {
-                        requireActivity().runOnUiThread(() -> {
-                            thumbnailProgress = progress;
-                            updateUploadProgress();
-                        });
-                    }
-
-                    @Override
-                    public void onVideoProgress(int progress) {
-                        requireActivity().runOnUiThread(() -> {
-                            videoProgress = progress;
-                            updateUploadProgress();
-                        });
-                    }
+        // The upload runs in the background, so the user can leave this screen or queue another course
+        boolean wifiOnly = binding.wifiOnlyCheckbox.isChecked();
+        boolean chargingOnly = binding.chargingOnlyCheckbox.isChecked();
+        UploadQueue.getInstance().enqueue(course, thumbnailUri, videoUri, wifiOnly, chargingOnly);
 
-                    @Override
-                    public void onThumbnailComplete() {
-                        requireActivity().runOnUiThread(() -> {
-                            thumbnailUploadComplete = true;
-                            updateUploadProgress();
-                        });
-                    }
-
-                    @Override
-                    public void onVideoComplete() {
-                        requireActivity().runOnUiThread(() -> {
-                            videoUploadComplete = true;
-                            updateUploadProgress();
-                        });
-                    }
+        if (wifiOnly || chargingOnly) {
+            uploadMessage += "\nIt will start once the selected conditions are met.";
+        }
+        Toast.makeText(requireContext(), uploadMessage, Toast.LENGTH_LONG).show();
+        requestNotificationPermission();
+        clearForm();
+    }
 
-                    @Override
-                    public void onSuccess() {
-                        requireActivity().runOnUiThread(() -> {
-                            binding.progressBar.setVisibility(View.GONE);
-                            binding.uploadProgressTv.setVisibility(View.GONE);
-
-                            String successMessage = "Course uploaded successfully!";
-                            if (isPrivate) {
-                                successMessage += "\nAccess Code: " + accessCode + "\nShare this code with people you want to give access to your course.";
-                            }
-
-                            Toast.makeText(requireContext(), successMessage, Toast.LENGTH_LONG).show();
-                            Navigation.findNavController(requireView()).navigate(R.id.homeFragment);
-                        });
-                    }
+    // Without this permission the upload still runs, but its progress notification is hidden
+    private void requestNotificationPermission() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU
+                && ContextCompat.checkSelfPermission(requireContext(), Manifest.permission.POST_NOTIFICATIONS)
+                != PackageManager.PERMISSION_GRANTED) {
+            requestPermissions(new String[]{Manifest.permission.POST_NOTIFICATIONS}, REQUEST_NOTIFICATIONS);
+        }
+    }
 
-                    @Override
-                    public void onError(String errorMessage) {
-                        requireActivity().runOnUiThread(() -> {
-                            binding.progressBar.setVisibility(View.GONE);
-                            binding.uploadProgressTv.setVisibility(View.GONE);
-                            binding.uploadCourseButton.setEnabled(true);
-
-                            // Check if error is related to file size
-                            if (errorMessage.contains("file is too large") || errorMessage.contains("size exceeds")) {
-                                Toast.makeText(requireContext(), "Upload failed: File size exceeds the 5GB limit",
-                                        Toast.LENGTH_LONG).show();
-                            } else {
-                                Toast.makeText(requireContext(), errorMessage, Toast.LENGTH_SHORT).show();
-                            }
-
-                            Log.e(TAG, "Upload error: " + errorMessage);
-                        });
-                    }
-                });
+    // Reset the form so another course can be queued right away
+    private void clearForm() {
+        binding.courseTitleEt.setText("");
+        binding.shortDescriptionEt.setText("");
+        binding.longDescriptionEt.setText("");
+        thumbnailUri = null;
+        videoUri = null;
+        binding.thumbnailSelectedTv.setVisibility(View.GONE);
+        binding.videoSelectedTv.setVisibility(View.GONE);
+        binding.publicRadioButton.setChecked(true);
     }
 
     @Override
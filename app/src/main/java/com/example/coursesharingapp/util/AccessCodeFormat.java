@@ -0,0 +1,135 @@
+package com.example.coursesharingapp.util;
+
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Alphabet and shape of access codes. A code is an index part followed by a
+ * secret part. The index part encodes a number in [0, size), size being the
+ * alphabet size to the power of its length, so allocators can hand out
+ * unique numbers and encode them at the end. The secret part is random and
+ * is what keeps a code from being guessed: knowing which indexes were handed
+ * out doesn't reveal any code.
+ */
+public class AccessCodeFormat {
+
+    // No 0/O, 1/I/L or U, so a code read off a screen or aloud is typed back right
+    public static final AccessCodeFormat DEFAULT = new AccessCodeFormat("23456789ABCDEFGHJKMNPQRSTVWXYZ", 5, 5);
+
+    // Codes handed out before formats existed
+    private static final String LEGACY_PATTERN = "\\d{6}";
+
+    private final String alphabet;
+    private final int indexLength;
+    private final int secretLength;
+    private final long size;
+
+    /**
+     * @param alphabet Distinct characters codes are made of; no slashes, codes are document ids
+     * @param indexLength Characters encoding the unique index
+     * @param secretLength Random characters after the index
+     */
+    public AccessCodeFormat(String alphabet, int indexLength, int secretLength) {
+        if (alphabet == null || alphabet.length() < 2 || indexLength < 1 || secretLength < 0) {
+            throw new IllegalArgumentException("An access code format needs at least two characters and a length");
+        }
+        for (int i = 0; i < alphabet.length(); i++) {
+            char c = alphabet.charAt(i);
+            if (c == '/' || Character.isWhitespace(c) || alphabet.indexOf(c) != i) {
+                throw new IllegalArgumentException("Invalid or repeated character in alphabet: " + c);
+            }
+        }
+
+        long size = 1;
+        for (int i = 0; i < indexLength; i++) {
+            // Leave room for the permutation, which works on up to 62 bits
+            if (size > (1L << 62) / alphabet.length()) {
+                throw new IllegalArgumentException("Access code format has too many codes");
+            }
+            size *= alphabet.length();
+        }
+
+        this.alphabet = alphabet;
+        this.indexLength = indexLength;
+        this.secretLength = secretLength;
+        this.size = size;
+    }
+
+    public String getAlphabet() {
+        return alphabet;
+    }
+
+    // Number of characters in a whole code
+    public int getLength() {
+        return indexLength + secretLength;
+    }
+
+    public int getSecretLength() {
+        return secretLength;
+    }
+
+    // Number of distinct indexes, and so of codes that can be handed out
+    public long size() {
+        return size;
+    }
+
+    // Stable name of the format, usable as a document id
+    public String getId() {
+        return "l" + indexLength + "s" + secretLength + "_" + Integer.toHexString(alphabet.hashCode());
+    }
+
+    /**
+     * Turn an index into a code
+     * @param index A number in [0, size)
+     * @param secretSource Where the secret characters come from; pass a SecureRandom
+     * @return The code, always getLength() characters long
+     */
+    public String encode(long index, Random secretSource) {
+        if (index < 0 || index >= size) {
+            throw new IllegalArgumentException("Index out of range: " + index);
+        }
+        char[] code = new char[indexLength + secretLength];
+        int radix = alphabet.length();
+        for (int i = indexLength - 1; i >= 0; i--) {
+            code[i] = alphabet.charAt((int) (index % radix));
+            index /= radix;
+        }
+        for (int i = indexLength; i < code.length; i++) {
+            code[i] = alphabet.charAt(secretSource.nextInt(radix));
+        }
+        return new String(code);
+    }
+
+    /**
+     * Clean up a code the way a user might have typed it: surrounding blanks,
+     * spaces or dashes between groups, lowercase letters
+     * @param input The raw input
+     * @return The normalized code, never null
+     */
+    public String normalize(String input) {
+        if (input == null) {
+            return "";
+        }
+        String code = input.replaceAll("[\\s-]", "");
+        // Only uppercase if the alphabet has no lowercase letters of its own
+        return alphabet.equals(alphabet.toUpperCase(Locale.ROOT)) ? code.toUpperCase(Locale.ROOT) : code;
+    }
+
+    // Whether a normalized code could have been produced by this format
+    public boolean matches(String code) {
+        if (code == null || code.length() != getLength()) {
+            return false;
+        }
+        for (int i = 0; i < code.length(); i++) {
+            if (alphabet.indexOf(code.charAt(i)) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Whether a code is one of the 6-digit codes handed out before formats existed
+    public static boolean isLegacy(String code) {
+        return code != null && code.matches(LEGACY_PATTERN);
+    }
+}
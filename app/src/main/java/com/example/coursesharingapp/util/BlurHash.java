@@ -0,0 +1,201 @@
+package com.example.coursesharingapp.util;
+
+import android.graphics.Bitmap;
+
+/**
+ * Encoder and decoder for BlurHash strings: a few DCT components of an image
+ * packed into about 20-30 characters. Stored next to a thumbnail so lists can
+ * draw a blurred preview before the real image has been downloaded.
+ *
+ * See https://blurha.sh for the format.
+ */
+public final class BlurHash {
+
+    private static final String CHARACTERS =
+            "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz#$%*+,-.:;=?@[]^_{|}~";
+
+    private BlurHash() {
+    }
+
+    /**
+     * Encode an image. Cost grows with pixels times components, so pass a small bitmap.
+     * @param bitmap The image, ideally no more than a few dozen pixels wide
+     * @param componentsX Horizontal components, 1-9
+     * @param componentsY Vertical components, 1-9
+     * @return The hash
+     */
+    public static String encode(Bitmap bitmap, int componentsX, int componentsY) {
+        if (componentsX < 1 || componentsX > 9 || componentsY < 1 || componentsY > 9) {
+            throw new IllegalArgumentException("Components must be between 1 and 9");
+        }
+
+        int width = bitmap.getWidth();
+        int height = bitmap.getHeight();
+        int[] pixels = new int[width * height];
+        bitmap.getPixels(pixels, 0, width, 0, 0, width, height);
+
+        double[][] factors = new double[componentsX * componentsY][];
+        for (int j = 0; j < componentsY; j++) {
+            for (int i = 0; i < componentsX; i++) {
+                double normalisation = (i == 0 && j == 0) ? 1 : 2;
+                double r = 0;
+                double g = 0;
+                double b = 0;
+                for (int y = 0; y < height; y++) {
+                    double basisY = Math.cos(Math.PI * j * y / height);
+                    for (int x = 0; x < width; x++) {
+                        double basis = normalisation * Math.cos(Math.PI * i * x / width) * basisY;
+                        int pixel = pixels[y * width + x];
+                        r += basis * srgbToLinear((pixel >> 16) & 0xff);
+                        g += basis * srgbToLinear((pixel >> 8) & 0xff);
+                        b += basis * srgbToLinear(pixel & 0xff);
+                    }
+                }
+                double scale = 1.0 / (width * height);
+                factors[j * componentsX + i] = new double[]{r * scale, g * scale, b * scale};
+            }
+        }
+
+        StringBuilder hash = new StringBuilder();
+        encode83(hash, (componentsX - 1) + (componentsY - 1) * 9, 1);
+
+        double maximumValue;
+        if (factors.length > 1) {
+            double actualMaximum = 0;
+            for (int i = 1; i < factors.length; i++) {
+                for (double value : factors[i]) {
+                    actualMaximum = Math.max(actualMaximum, Math.abs(value));
+                }
+            }
+            int quantisedMaximum = (int) Math.max(0, Math.min(82, Math.floor(actualMaximum * 166 - 0.5)));
+            maximumValue = (quantisedMaximum + 1) / 166.0;
+            encode83(hash, quantisedMaximum, 1);
+        } else {
+            maximumValue = 1;
+            encode83(hash, 0, 1);
+        }
+
+        double[] dc = factors[0];
+        encode83(hash, (linearToSrgb(dc[0]) << 16) + (linearToSrgb(dc[1]) << 8) + linearToSrgb(dc[2]), 4);
+        for (int i = 1; i < factors.length; i++) {
+            double[] ac = factors[i];
+            int quantR = quantiseAc(ac[0], maximumValue);
+            int quantG = quantiseAc(ac[1], maximumValue);
+            int quantB = quantiseAc(ac[2], maximumValue);
+            encode83(hash, quantR * 19 * 19 + quantG * 19 + quantB, 2);
+        }
+        return hash.toString();
+    }
+
+    /**
+     * Render a hash as an opaque bitmap. A few dozen pixels is enough; it is
+     * scaled up by the view, which adds to the blur.
+     * @param hash The hash
+     * @param width Bitmap width in pixels
+     * @param height Bitmap height in pixels
+     * @return The bitmap, or null if the hash is malformed
+     */
+    public static Bitmap decode(String hash, int width, int height) {
+        if (hash == null || hash.length() < 6 || width <= 0 || height <= 0) {
+            return null;
+        }
+
+        try {
+            int sizeFlag = decode83(hash, 0, 1);
+            int componentsY = sizeFlag / 9 + 1;
+            int componentsX = sizeFlag % 9 + 1;
+            if (hash.length() != 4 + 2 * componentsX * componentsY) {
+                return null;
+            }
+
+            double maximumValue = (decode83(hash, 1, 2) + 1) / 166.0;
+            double[][] colors = new double[componentsX * componentsY][];
+            int dc = decode83(hash, 2, 6);
+            colors[0] = new double[]{
+                    srgbToLinear((dc >> 16) & 0xff), srgbToLinear((dc >> 8) & 0xff), srgbToLinear(dc & 0xff)};
+            for (int i = 1; i < colors.length; i++) {
+                int ac = decode83(hash, 4 + i * 2, 6 + i * 2);
+                colors[i] = new double[]{
+                        signPow(((ac / (19 * 19)) - 9) / 9.0, 2) * maximumValue,
+                        signPow((((ac / 19) % 19) - 9) / 9.0, 2) * maximumValue,
+                        signPow(((ac % 19) - 9) / 9.0, 2) * maximumValue};
+            }
+
+            // The cosines only depend on the column or row, so compute them once
+            double[] cosX = new double[width * componentsX];
+            for (int x = 0; x < width; x++) {
+                for (int i = 0; i < componentsX; i++) {
+                    cosX[x * componentsX + i] = Math.cos(Math.PI * x * i / width);
+                }
+            }
+            double[] cosY = new double[height * componentsY];
+            for (int y = 0; y < height; y++) {
+                for (int j = 0; j < componentsY; j++) {
+                    cosY[y * componentsY + j] = Math.cos(Math.PI * y * j / height);
+                }
+            }
+
+            int[] pixels = new int[width * height];
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    double r = 0;
+                    double g = 0;
+                    double b = 0;
+                    for (int j = 0; j < componentsY; j++) {
+                        for (int i = 0; i < componentsX; i++) {
+                            double basis = cosX[x * componentsX + i] * cosY[y * componentsY + j];
+                            double[] color = colors[j * componentsX + i];
+                            r += color[0] * basis;
+                            g += color[1] * basis;
+                            b += color[2] * basis;
+                        }
+                    }
+                    pixels[y * width + x] = 0xff000000
+                            | (linearToSrgb(r) << 16) | (linearToSrgb(g) << 8) | linearToSrgb(b);
+                }
+            }
+            return Bitmap.createBitmap(pixels, width, height, Bitmap.Config.ARGB_8888);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static int quantiseAc(double value, double maximumValue) {
+        return (int) Math.max(0, Math.min(18, Math.floor(signPow(value / maximumValue, 0.5) * 9 + 9.5)));
+    }
+
+    private static double signPow(double value, double exponent) {
+        return Math.copySign(Math.pow(Math.abs(value), exponent), value);
+    }
+
+    private static double srgbToLinear(int value) {
+        double v = value / 255.0;
+        return v <= 0.04045 ? v / 12.92 : Math.pow((v + 0.055) / 1.055, 2.4);
+    }
+
+    private static int linearToSrgb(double value) {
+        double v = Math.max(0, Math.min(1, value));
+        return v <= 0.0031308
+                ? (int) (v * 12.92 * 255 + 0.5)
+                : (int) ((1.055 * Math.pow(v, 1 / 2.4) - 0.055) * 255 + 0.5);
+    }
+
+    private static void encode83(StringBuilder hash, int value, int length) {
+        for (int i = 1; i <= length; i++) {
+            int digit = (value / (int) Math.pow(83, length - i)) % 83;
+            hash.append(CHARACTERS.charAt(digit));
+        }
+    }
+
+    private static int decode83(String hash, int start, int end) {
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = CHARACTERS.indexOf(hash.charAt(i));
+            if (digit < 0) {
+                throw new IllegalArgumentException("Invalid BlurHash character");
+            }
+            value = value * 83 + digit;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.coursesharingapp.util;
+
+/**
+ * Keyed one-to-one mapping of [0, size) onto itself. A balanced Feistel
+ * network over the smallest even number of bits covering size scrambles a
+ * value; results outside the range are scrambled again (cycle walking) until
+ * they fall inside, which takes fewer than four passes on average.
+ *
+ * Consecutive inputs give outputs that look random, yet two inputs never give
+ * the same output, so permuting a counter yields unique codes without
+ * checking for collisions. Not encryption: it hides the order of codes, not
+ * the codes themselves.
+ */
+public class FeistelPermutation {
+
+    private static final int ROUNDS = 4;
+
+    private final long size;
+    private final int halfBits;
+    private final long halfMask;
+    private final long[] roundKeys = new long[ROUNDS];
+
+    /**
+     * @param size Number of values in the domain, at least 1 and at most 2^62
+     * @param key Secret that picks the permutation; the same key always gives the same one
+     */
+    public FeistelPermutation(long size, long key) {
+        if (size < 1 || size > (1L << 62)) {
+            throw new IllegalArgumentException("Invalid permutation size: " + size);
+        }
+        int bits = 64 - Long.numberOfLeadingZeros(size - 1);
+        bits = Math.max(2, bits + (bits & 1));
+
+        this.size = size;
+        this.halfBits = bits / 2;
+        this.halfMask = (1L << halfBits) - 1;
+
+        long state = key;
+        for (int i = 0; i < ROUNDS; i++) {
+            state += 0x9E3779B97F4A7C15L;
+            roundKeys[i] = mix(state);
+        }
+    }
+
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Map a value to its image
+     * @param value A number in [0, size)
+     * @return A number in [0, size), distinct for every distinct value
+     */
+    public long permute(long value) {
+        if (value < 0 || value >= size) {
+            throw new IllegalArgumentException("Value out of range: " + value);
+        }
+        long result = value;
+        do {
+            result = scramble(result);
+        } while (result >= size);
+        return result;
+    }
+
+    // One pass of the network over the full bit width, which may leave the range
+    private long scramble(long value) {
+        long left = value >>> halfBits;
+        long right = value & halfMask;
+        for (long roundKey : roundKeys) {
+            long next = left ^ (mix(right ^ roundKey) & halfMask);
+            left = right;
+            right = next;
+        }
+        return (left << halfBits) | right;
+    }
+
+    // SplitMix64 finalizer: every input bit affects every output bit
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.coursesharingapp.util;
+
+// One change to a live list, with positions as in Firestore's DocumentChange: applying
+// a batch of changes in order turns the previous list into the new one
+public class ListChange<T> {
+
+    public enum Type {
+        ADDED,
+        MODIFIED,
+        REMOVED
+    }
+
+    private final Type type;
+    private final T item;
+    private final int oldIndex; // -1 for ADDED
+    private final int newIndex; // -1 for REMOVED
+
+    public ListChange(Type type, T item, int oldIndex, int newIndex) {
+        this.type = type;
+        this.item = item;
+        this.oldIndex = oldIndex;
+        this.newIndex = newIndex;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public T getItem() {
+        return item;
+    }
+
+    public int getOldIndex() {
+        return oldIndex;
+    }
+
+    public int getNewIndex() {
+        return newIndex;
+    }
+}
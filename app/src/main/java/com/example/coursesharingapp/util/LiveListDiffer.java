@@ -0,0 +1,198 @@
+package com.example.coursesharingapp.util;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * Holds the list shown by a RecyclerView adapter and keeps the adapter told
+ * about every change.
+ *
+ * Whole lists from {@link #submitList(List)} are diffed on a background
+ * thread like AsyncListDiffer does. Live feeds instead pass the changes
+ * their snapshot listener reported to {@link #applyChanges(List)}, which
+ * applies them directly, so an update costs as much as what changed rather
+ * than a pass over the whole list. Main thread only.
+ */
+public class LiveListDiffer<T> {
+
+    private static final Executor DIFF_EXECUTOR = Executors.newSingleThreadExecutor();
+
+    private final RecyclerView.Adapter<?> adapter;
+    private final DiffUtil.ItemCallback<T> itemCallback;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private List<T> list = new ArrayList<>();
+
+    // Target of the diff in progress, null if none; bumping the generation drops that diff
+    private List<T> pendingList;
+    private int generation = 0;
+
+    public LiveListDiffer(RecyclerView.Adapter<?> adapter, DiffUtil.ItemCallback<T> itemCallback) {
+        this.adapter = adapter;
+        this.itemCallback = itemCallback;
+    }
+
+    public List<T> getCurrentList() {
+        return Collections.unmodifiableList(list);
+    }
+
+    public T getItem(int position) {
+        return list.get(position);
+    }
+
+    public int getItemCount() {
+        return list.size();
+    }
+
+    /**
+     * Replace the whole list, animating the difference once it has been computed
+     * @param newList The new list; null for an empty one
+     */
+    public void submitList(List<T> newList) {
+        submitList(newList, null);
+    }
+
+    /**
+     * Replace the whole list, animating the difference once it has been computed
+     * @param newList The new list; null for an empty one
+     * @param commitCallback Run once the list is shown; not run if a newer list or change replaces it first
+     */
+    public void submitList(List<T> newList, Runnable commitCallback) {
+        final int submitGeneration = ++generation;
+        final List<T> target = newList != null ? new ArrayList<>(newList) : new ArrayList<>();
+
+        // Nothing to diff against one of the lists being empty
+        if (list.isEmpty() || target.isEmpty()) {
+            pendingList = null;
+            int oldSize = list.size();
+            list = target;
+            if (oldSize > 0) {
+                adapter.notifyItemRangeRemoved(0, oldSize);
+            }
+            if (!target.isEmpty()) {
+                adapter.notifyItemRangeInserted(0, target.size());
+            }
+            if (commitCallback != null) {
+                commitCallback.run();
+            }
+            return;
+        }
+
+        pendingList = target;
+        final List<T> oldList = list;
+        DIFF_EXECUTOR.execute(() -> {
+            DiffUtil.DiffResult result = DiffUtil.calculateDiff(new DiffUtil.Callback() {
+                @Override
+                public int getOldListSize() {
+                    return oldList.size();
+                }
+
+                @Override
+                public int getNewListSize() {
+                    return target.size();
+                }
+
+                @Override
+                public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+                    return itemCallback.areItemsTheSame(oldList.get(oldItemPosition), target.get(newItemPosition));
+                }
+
+                @Override
+                public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+                    return itemCallback.areContentsTheSame(oldList.get(oldItemPosition), target.get(newItemPosition));
+                }
+            });
+            mainHandler.post(() -> {
+                // A newer list or change arrived while this was computed
+                if (submitGeneration != generation) {
+                    return;
+                }
+                pendingList = null;
+                list = target;
+                result.dispatchUpdatesTo(adapter);
+                if (commitCallback != null) {
+                    commitCallback.run();
+                }
+            });
+        });
+    }
+
+    /**
+     * Apply changes reported against the list last submitted or changed
+     * @param changes The changes, in the order to apply them
+     */
+    public void applyChanges(@NonNull List<ListChange<T>> changes) {
+        if (pendingList != null) {
+            // The changes are relative to the list being diffed; fold them in and diff again
+            List<T> updated = new ArrayList<>(pendingList);
+            for (ListChange<T> change : changes) {
+                apply(updated, change);
+            }
+            submitList(updated);
+            return;
+        }
+
+        for (ListChange<T> change : changes) {
+            switch (change.getType()) {
+                case ADDED:
+                    list.add(change.getNewIndex(), change.getItem());
+                    adapter.notifyItemInserted(change.getNewIndex());
+                    break;
+                case REMOVED:
+                    list.remove(change.getOldIndex());
+                    adapter.notifyItemRemoved(change.getOldIndex());
+                    break;
+                case MODIFIED:
+                    T previous = list.get(change.getOldIndex());
+                    apply(list, change);
+                    if (change.getOldIndex() != change.getNewIndex()) {
+                        adapter.notifyItemMoved(change.getOldIndex(), change.getNewIndex());
+                    }
+                    if (!itemCallback.areContentsTheSame(previous, change.getItem())) {
+                        adapter.notifyItemChanged(change.getNewIndex());
+                    }
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Move one item, as a drag does
+     * @param fromPosition Where the item is now
+     * @param toPosition Where it goes
+     */
+    public void moveItem(int fromPosition, int toPosition) {
+        List<T> current = pendingList != null ? pendingList : list;
+        applyChanges(Collections.singletonList(new ListChange<>(ListChange.Type.MODIFIED,
+                current.get(fromPosition), fromPosition, toPosition)));
+    }
+
+    private static <T> void apply(List<T> target, ListChange<T> change) {
+        switch (change.getType()) {
+            case ADDED:
+                target.add(change.getNewIndex(), change.getItem());
+                break;
+            case REMOVED:
+                target.remove(change.getOldIndex());
+                break;
+            case MODIFIED:
+                if (change.getOldIndex() == change.getNewIndex()) {
+                    target.set(change.getNewIndex(), change.getItem());
+                } else {
+                    target.remove(change.getOldIndex());
+                    target.add(change.getNewIndex(), change.getItem());
+                }
+                break;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.coursesharingapp.util;
+
+import android.content.Context;
+import android.net.Uri;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Copies of picked files kept in app storage. A content URI handed back by a
+ * picker can only be read while the grant lasts, which ends with the activity
+ * or process, so work that runs later reads a copy instead.
+ */
+public final class LocalFiles {
+    private static final String TAG = "LocalFiles";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private LocalFiles() {
+    }
+
+    /**
+     * Copy a file into app storage. Call off the main thread; videos can be gigabytes.
+     * @param context Any context
+     * @param source The file to copy, readable now
+     * @param target Where to put the copy; its directory is created if needed
+     * @throws IOException If the source can't be read or the copy can't be written
+     */
+    public static void copy(Context context, Uri source, File target) throws IOException {
+        File parent = target.getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Could not create " + parent);
+        }
+
+        // Write beside the target first so a copy cut short never looks complete
+        File partial = new File(target.getPath() + ".part");
+        try (InputStream input = context.getContentResolver().openInputStream(source);
+             OutputStream output = new FileOutputStream(partial)) {
+            if (input == null) {
+                throw new IOException("Could not open " + source);
+            }
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                output.write(buffer, 0, read);
+            }
+        } catch (IOException | SecurityException e) {
+            partial.delete();
+            throw e instanceof IOException ? (IOException) e : new IOException(e.getMessage(), e);
+        }
+        if (!partial.renameTo(target)) {
+            partial.delete();
+            throw new IOException("Could not move the copy to " + target);
+        }
+    }
+
+    // Delete a file, or a directory and everything in it
+    public static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        if (file.exists() && !file.delete()) {
+            Log.w(TAG, "Could not delete " + file);
+        }
+    }
+}
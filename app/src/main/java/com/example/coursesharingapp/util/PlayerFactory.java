@@ -0,0 +1,71 @@
+package com.example.coursesharingapp.util;
+
+import android.content.Context;
+import android.net.Uri;
+
+import androidx.annotation.OptIn;
+import androidx.media3.common.MediaItem;
+import androidx.media3.common.MimeTypes;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.exoplayer.DefaultLoadControl;
+import androidx.media3.exoplayer.ExoPlayer;
+
+import com.example.coursesharingapp.model.Course;
+import com.example.coursesharingapp.repository.VideoCache;
+
+/**
+ * Builds the players and media items used for course videos, so every screen
+ * plays through the shared {@link VideoCache} with the same buffering.
+ */
+@OptIn(markerClass = UnstableApi.class)
+public final class PlayerFactory {
+
+    // Buffered video needed before playback starts (ExoPlayer's default is 2.5 seconds)
+    private static final int START_PLAYBACK_BUFFER_MS = 1000;
+
+    private PlayerFactory() {
+    }
+
+    /**
+     * Create a player that reads through the shared disk cache and starts playing once a second is
+     * buffered, since the beginning of the video is usually prefetched already
+     * @param context Any context
+     * @return A new player; the caller releases it
+     */
+    public static ExoPlayer createPlayer(Context context) {
+        return new ExoPlayer.Builder(context)
+                .setMediaSourceFactory(VideoCache.getInstance().getMediaSourceFactory(context))
+                .setLoadControl(new DefaultLoadControl.Builder()
+                        .setBufferDurationsMs(
+                                DefaultLoadControl.DEFAULT_MIN_BUFFER_MS,
+                                DefaultLoadControl.DEFAULT_MAX_BUFFER_MS,
+                                START_PLAYBACK_BUFFER_MS,
+                                DefaultLoadControl.DEFAULT_BUFFER_FOR_PLAYBACK_AFTER_REBUFFER_MS)
+                        .build())
+                .build();
+    }
+
+    /**
+     * Build the media item for a course's video. Packaged courses stream their HLS ladder and the
+     * player picks renditions by bandwidth; others play the uploaded file.
+     * @param course The course
+     * @return The media item, with the course id as media id, or null if the course has no video
+     */
+    public static MediaItem createMediaItem(Course course) {
+        if (course.getHlsManifestUrl() != null && !course.getHlsManifestUrl().isEmpty()) {
+            // Storage URLs don't end in .m3u8, so the format has to be named
+            return new MediaItem.Builder()
+                    .setMediaId(course.getId())
+                    .setUri(Uri.parse(course.getHlsManifestUrl()))
+                    .setMimeType(MimeTypes.APPLICATION_M3U8)
+                    .build();
+        }
+        if (course.getVideoUrl() != null && !course.getVideoUrl().isEmpty()) {
+            return new MediaItem.Builder()
+                    .setMediaId(course.getId())
+                    .setUri(Uri.parse(course.getVideoUrl()))
+                    .build();
+        }
+        return null;
+    }
+}
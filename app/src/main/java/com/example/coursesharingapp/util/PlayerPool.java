@@ -0,0 +1,139 @@
+package com.example.coursesharingapp.util;
+
+import androidx.annotation.NonNull;
+import androidx.fragment.app.FragmentActivity;
+import androidx.lifecycle.DefaultLifecycleObserver;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleOwner;
+import androidx.media3.common.MediaItem;
+import androidx.media3.common.Player;
+import androidx.media3.exoplayer.ExoPlayer;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * Keeps course video players alive for the life of an activity, so opening a
+ * course again doesn't rebuild the player, its renderers and decoders.
+ *
+ * Screens {@link #acquire(String)} a player when they start and
+ * {@link #release(ExoPlayer)} it when they stop. A returned player stays
+ * prepared on its video, so reopening the same course shows its first frame
+ * from the existing buffer; a different course reuses the least recently
+ * used idle player. At most {@link #MAX_IDLE_PLAYERS} idle players are kept,
+ * which caps the decoders held. While the activity is stopped, idle players
+ * give up their decoders and buffers but keep their media.
+ * Main thread only.
+ */
+public class PlayerPool implements DefaultLifecycleObserver {
+
+    // Each prepared player holds a video and an audio decoder
+    private static final int MAX_IDLE_PLAYERS = 2;
+
+    private static final Map<FragmentActivity, PlayerPool> pools = new WeakHashMap<>();
+
+    private final FragmentActivity activity;
+
+    // Most recently returned first
+    private final Deque<ExoPlayer> idlePlayers = new ArrayDeque<>();
+    private final Set<ExoPlayer> activePlayers = new HashSet<>();
+
+    /**
+     * @param activity The activity the players live with
+     * @return That activity's pool, created on first use and released with the activity
+     */
+    public static PlayerPool get(FragmentActivity activity) {
+        PlayerPool pool = pools.get(activity);
+        if (pool == null) {
+            pool = new PlayerPool(activity);
+            pools.put(activity, pool);
+        }
+        return pool;
+    }
+
+    private PlayerPool(FragmentActivity activity) {
+        this.activity = activity;
+        activity.getLifecycle().addObserver(this);
+    }
+
+    /**
+     * Take a player out of the pool
+     * @param mediaId The media id about to be played, or null; a player already holding it is preferred
+     * @return A player, paused, with no view attached. It may still hold the media it played before.
+     */
+    public ExoPlayer acquire(String mediaId) {
+        ExoPlayer player = null;
+        if (mediaId != null) {
+            for (Iterator<ExoPlayer> it = idlePlayers.iterator(); it.hasNext(); ) {
+                ExoPlayer candidate = it.next();
+                MediaItem current = candidate.getCurrentMediaItem();
+                if (current != null && mediaId.equals(current.mediaId)) {
+                    it.remove();
+                    player = candidate;
+                    break;
+                }
+            }
+        }
+        if (player == null) {
+            // Keep the most recently used players warm for going back to them
+            player = idlePlayers.pollLast();
+        }
+        if (player == null) {
+            player = PlayerFactory.createPlayer(activity);
+        }
+
+        // Stopped while the activity was in the background; reload the media it still holds
+        if (player.getPlaybackState() == Player.STATE_IDLE && player.getMediaItemCount() > 0) {
+            player.prepare();
+        }
+        activePlayers.add(player);
+        return player;
+    }
+
+    /**
+     * Give a player back. The caller must have detached it from its view and removed its listeners.
+     * @param player A player from {@link #acquire(String)}
+     */
+    public void release(ExoPlayer player) {
+        if (!activePlayers.remove(player)) {
+            return;
+        }
+        player.pause();
+        // Screens can hand players back after the activity's onStop has already stopped the idle
+        // ones (on API 29+ it reaches this pool before the fragments' onStop)
+        if (!activity.getLifecycle().getCurrentState().isAtLeast(Lifecycle.State.STARTED)) {
+            player.stop();
+        }
+        idlePlayers.addFirst(player);
+        while (idlePlayers.size() > MAX_IDLE_PLAYERS) {
+            idlePlayers.pollLast().release();
+        }
+    }
+
+    @Override
+    public void onStop(@NonNull LifecycleOwner owner) {
+        // Free decoders and buffers while nothing is visible; the media stays set for a quick restart
+        for (ExoPlayer player : idlePlayers) {
+            player.stop();
+        }
+    }
+
+    @Override
+    public void onDestroy(@NonNull LifecycleOwner owner) {
+        for (ExoPlayer player : idlePlayers) {
+            player.release();
+        }
+        for (ExoPlayer player : activePlayers) {
+            player.release();
+        }
+        idlePlayers.clear();
+        activePlayers.clear();
+        pools.remove(activity);
+        activity.getLifecycle().removeObserver(this);
+    }
+}
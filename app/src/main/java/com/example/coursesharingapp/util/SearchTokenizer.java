@@ -0,0 +1,131 @@
+package com.example.coursesharingapp.util;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Helper class to turn free text into normalized search tokens.
+ * Documents store every prefix of every word, so a query word matches
+ * any indexed word that starts with it using a plain equality lookup.
+ */
+public class SearchTokenizer {
+
+    // Prefixes longer than this are not indexed; longer query words are truncated to match
+    public static final int MAX_PREFIX_LENGTH = 15;
+
+    /**
+     * Normalize text for indexing and matching: lowercase, accents removed
+     * @param text The raw text
+     * @return Normalized text, never null
+     */
+    public static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        return decomposed.replaceAll("\\p{M}", "").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Split text into normalized words
+     * @param text The raw text
+     * @return Distinct words in order of appearance
+     */
+    public static List<String> words(String text) {
+        Set<String> words = new LinkedHashSet<>();
+        for (String word : normalize(text).split("[^\\p{L}\\p{N}]+")) {
+            if (!word.isEmpty()) {
+                words.add(word);
+            }
+        }
+        return new ArrayList<>(words);
+    }
+
+    /**
+     * Build the prefix tokens to store on a document
+     * @param fields The text fields to index
+     * @return Distinct prefix tokens of every word in the fields
+     */
+    public static List<String> prefixTokens(String... fields) {
+        Set<String> tokens = new LinkedHashSet<>();
+        for (String field : fields) {
+            for (String word : words(field)) {
+                int maxLength = Math.min(word.length(), MAX_PREFIX_LENGTH);
+                for (int length = 1; length <= maxLength; length++) {
+                    tokens.add(word.substring(0, length));
+                }
+            }
+        }
+        return new ArrayList<>(tokens);
+    }
+
+    /**
+     * Build the tokens to look up for a user query
+     * @param query The raw query
+     * @return One token per query word, truncated to the indexed prefix length
+     */
+    public static List<String> queryTokens(String query) {
+        Set<String> tokens = new LinkedHashSet<>();
+        for (String word : words(query)) {
+            tokens.add(word.length() > MAX_PREFIX_LENGTH ? word.substring(0, MAX_PREFIX_LENGTH) : word);
+        }
+        return new ArrayList<>(tokens);
+    }
+
+    /**
+     * Rank a search hit: title matches count most, then uploader, then description
+     * @param titleWords Normalized words of the title
+     * @param uploaderWords Normalized words of the uploader username
+     * @param descriptionWords Normalized words of the short description
+     * @param queryTokens Tokens from {@link #queryTokens(String)}
+     * @return Higher is a better match
+     */
+    public static int score(List<String> titleWords, List<String> uploaderWords,
+                            List<String> descriptionWords, List<String> queryTokens) {
+        int score = 0;
+        for (String token : queryTokens) {
+            if (anyStartsWith(titleWords, token)) {
+                score += 3;
+            }
+            if (anyStartsWith(uploaderWords, token)) {
+                score += 2;
+            }
+            if (anyStartsWith(descriptionWords, token)) {
+                score += 1;
+            }
+        }
+        return score;
+    }
+
+    /**
+     * Check whether every query token is a prefix of some word in the fields
+     * @param queryTokens Tokens from {@link #queryTokens(String)}
+     * @param fields The text fields to match against
+     * @return True if all tokens match
+     */
+    public static boolean matchesAll(List<String> queryTokens, String... fields) {
+        List<String> fieldWords = new ArrayList<>();
+        for (String field : fields) {
+            fieldWords.addAll(words(field));
+        }
+        for (String token : queryTokens) {
+            if (!anyStartsWith(fieldWords, token)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean anyStartsWith(List<String> words, String prefix) {
+        for (String word : words) {
+            if (word.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.coursesharingapp.util;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * RecyclerView item IDs for rows keyed by a document ID. Each key gets the
+ * next number the first time it is asked for and keeps it for the life of
+ * the adapter, so a row keeps its ID however the list is reordered.
+ */
+public class StableIds {
+
+    private final Map<String, Long> ids = new HashMap<>(); // Document ID -> RecyclerView item ID
+
+    // Get the item ID for a key, assigning the next free one if it has none yet
+    public long getId(String key) {
+        Long id = ids.get(key);
+        if (id == null) {
+            id = (long) ids.size();
+            ids.put(key, id);
+        }
+        return id;
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.coursesharingapp.util;
+
+import android.graphics.Bitmap;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.util.LruCache;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+
+import androidx.core.content.ContextCompat;
+
+import com.bumptech.glide.Glide;
+import com.example.coursesharingapp.R;
+import com.example.coursesharingapp.model.Course;
+
+import java.util.Map;
+
+/**
+ * Loads course thumbnails into list rows at the size they are shown.
+ *
+ * Of the sizes stored in {@link Course#getThumbnailVariants()}, the smallest
+ * one that still covers the view after centerCrop is downloaded, and Glide is
+ * given the view's pixel size as an explicit override, so a row never holds a
+ * bitmap larger than its own ImageView. The course's BlurHash is drawn while
+ * the image loads. Courses uploaded before thumbnails had sizes fall back to
+ * {@link Course#getThumbnailUrl()}, still decoded at the view size.
+ */
+public final class ThumbnailLoader {
+
+    // Decoded placeholders are tiny; the view scales them up
+    private static final int PLACEHOLDER_WIDTH = 32;
+    private static final int PLACEHOLDER_CACHE_BYTES = 256 * 1024;
+
+    private static final LruCache<String, Bitmap> placeholderCache =
+            new LruCache<String, Bitmap>(PLACEHOLDER_CACHE_BYTES) {
+                @Override
+                protected int sizeOf(String key, Bitmap value) {
+                    return value.getByteCount();
+                }
+            };
+
+    private ThumbnailLoader() {
+    }
+
+    /**
+     * Load a course's thumbnail into a centerCrop ImageView
+     * @param imageView The view to fill
+     * @param course The course whose thumbnail to show
+     */
+    public static void load(ImageView imageView, Course course) {
+        String url = course.getThumbnailUrl();
+        if (url == null || url.isEmpty()) {
+            Glide.with(imageView).clear(imageView);
+            imageView.setImageResource(R.drawable.ic_placeholder_thumbnail);
+            return;
+        }
+
+        int[] size = targetSize(imageView, course.getThumbnailAspectRatio());
+        String variantUrl = selectVariantUrl(course, size[0], size[1]);
+
+        Glide.with(imageView)
+                .load(variantUrl != null ? variantUrl : url)
+                .override(size[0], size[1])
+                .placeholder(placeholder(imageView, course))
+                .error(R.drawable.ic_error_thumbnail)
+                .centerCrop()
+                .into(imageView);
+    }
+
+    /**
+     * Pick the smallest stored size that covers a centerCrop view of the given size
+     * @param course The course
+     * @param targetWidth View width in pixels
+     * @param targetHeight View height in pixels
+     * @return The URL of that size, the largest size if none covers it, or null if the course has no sizes
+     */
+    public static String selectVariantUrl(Course course, int targetWidth, int targetHeight) {
+        Map<String, String> variants = course.getThumbnailVariants();
+        if (variants == null || variants.isEmpty()) {
+            return null;
+        }
+
+        // centerCrop scales the image until both sides cover the view
+        int requiredWidth = targetWidth;
+        double aspectRatio = course.getThumbnailAspectRatio();
+        if (aspectRatio > 0) {
+            requiredWidth = Math.max(targetWidth, (int) Math.ceil(targetHeight * aspectRatio));
+        }
+
+        String bestUrl = null;
+        int bestWidth = Integer.MAX_VALUE;
+        String largestUrl = null;
+        int largestWidth = -1;
+        for (Map.Entry<String, String> entry : variants.entrySet()) {
+            int width;
+            try {
+                width = Integer.parseInt(entry.getKey());
+            } catch (NumberFormatException e) {
+                continue;
+            }
+            if (width >= requiredWidth && width < bestWidth) {
+                bestWidth = width;
+                bestUrl = entry.getValue();
+            }
+            if (width > largestWidth) {
+                largestWidth = width;
+                largestUrl = entry.getValue();
+            }
+        }
+        return bestUrl != null ? bestUrl : largestUrl;
+    }
+
+    // Rows bound before their first layout have no measured size yet; fall back to the layout params
+    private static int[] targetSize(ImageView imageView, double aspectRatio) {
+        int width = imageView.getWidth();
+        int height = imageView.getHeight();
+        ViewGroup.LayoutParams params = imageView.getLayoutParams();
+        if (width <= 0 && params != null && params.width > 0) {
+            width = params.width;
+        }
+        if (height <= 0 && params != null && params.height > 0) {
+            height = params.height;
+        }
+        if (width <= 0) {
+            // match_parent rows span the list, which is at most the screen width
+            width = imageView.getResources().getDisplayMetrics().widthPixels;
+        }
+        if (height <= 0) {
+            height = aspectRatio > 0 ? (int) Math.ceil(width / aspectRatio) : width;
+        }
+        return new int[]{width, height};
+    }
+
+    private static Drawable placeholder(ImageView imageView, Course course) {
+        String hash = course.getThumbnailPlaceholder();
+        if (hash != null) {
+            Bitmap bitmap = placeholderCache.get(hash);
+            if (bitmap == null) {
+                double aspectRatio = course.getThumbnailAspectRatio();
+                int height = aspectRatio > 0
+                        ? Math.max(1, (int) Math.round(PLACEHOLDER_WIDTH / aspectRatio))
+                        : PLACEHOLDER_WIDTH;
+                bitmap = BlurHash.decode(hash, PLACEHOLDER_WIDTH, height);
+                if (bitmap != null) {
+                    placeholderCache.put(hash, bitmap);
+                }
+            }
+            if (bitmap != null) {
+                // Drawables keep per-view state, so each view gets its own wrapper of the shared bitmap
+                return new BitmapDrawable(imageView.getResources(), bitmap);
+            }
+        }
+        return ContextCompat.getDrawable(imageView.getContext(), R.drawable.ic_placeholder_thumbnail);
+    }
+}
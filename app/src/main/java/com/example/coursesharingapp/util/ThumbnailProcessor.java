@@ -0,0 +1,279 @@
+package com.example.coursesharingapp.util;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Matrix;
+import android.media.ExifInterface;
+import android.net.Uri;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Turns a picked image into the thumbnail files that get uploaded.
+ *
+ * The image is decoded with the largest inSampleSize that still covers the
+ * largest target width, rotated upright from its EXIF orientation, scaled to
+ * each of {@link #TARGET_WIDTHS} and re-encoded as WebP. Re-encoding drops all
+ * metadata, so EXIF data such as GPS position never leaves the device.
+ * A {@link BlurHash} of the image is computed alongside as a placeholder.
+ * Decoding and encoding run on a background thread; results are delivered on
+ * the main thread.
+ */
+public class ThumbnailProcessor {
+    private static final String TAG = "ThumbnailProcessor";
+
+    // Thumbnail rows at 1x-3x density, up to a full-width card on a 1080px wide screen
+    public static final int[] TARGET_WIDTHS = {160, 360, 720, 1080};
+
+    // Lossy WebP quality; thumbnails are shown small, so fine detail isn't worth the bytes
+    public static final int WEBP_QUALITY = 80;
+
+    public static final String CONTENT_TYPE = "image/webp";
+
+    // BlurHash detail; 4x3 components describe a landscape thumbnail in 28 characters
+    private static final int PLACEHOLDER_COMPONENTS_X = 4;
+    private static final int PLACEHOLDER_COMPONENTS_Y = 3;
+    private static final int PLACEHOLDER_SOURCE_WIDTH = 32;
+
+    private static ThumbnailProcessor instance;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private ContentResolver contentResolver;
+
+    // One encoded size of a thumbnail
+    public static class Variant {
+        private final int width;
+        private final int height;
+        private final byte[] data;
+
+        Variant(int width, int height, byte[] data) {
+            this.width = width;
+            this.height = height;
+            this.data = data;
+        }
+
+        public int getWidth() {
+            return width;
+        }
+
+        public int getHeight() {
+            return height;
+        }
+
+        public byte[] getData() {
+            return data;
+        }
+    }
+
+    // All sizes of a thumbnail, smallest first, and its placeholder
+    public static class ProcessedThumbnail {
+        private final List<Variant> variants;
+        private final String placeholderHash;
+
+        ProcessedThumbnail(List<Variant> variants, String placeholderHash) {
+            this.variants = variants;
+            this.placeholderHash = placeholderHash;
+        }
+
+        public List<Variant> getVariants() {
+            return variants;
+        }
+
+        public String getPlaceholderHash() {
+            return placeholderHash;
+        }
+
+        // Width divided by height, the same for every size
+        public double getAspectRatio() {
+            Variant largest = variants.get(variants.size() - 1);
+            return (double) largest.getWidth() / largest.getHeight();
+        }
+    }
+
+    // Interface for processing results
+    public interface ThumbnailCallback {
+        void onProcessed(ProcessedThumbnail thumbnail);
+        void onError(String errorMessage);
+    }
+
+    public static synchronized ThumbnailProcessor getInstance() {
+        if (instance == null) {
+            instance = new ThumbnailProcessor();
+        }
+        return instance;
+    }
+
+    private ThumbnailProcessor() {
+    }
+
+    /**
+     * Give the processor access to picked images. Safe to call more than once.
+     * @param context Any context; only its content resolver is kept
+     */
+    public synchronized void init(Context context) {
+        if (contentResolver == null) {
+            contentResolver = context.getApplicationContext().getContentResolver();
+        }
+    }
+
+    /**
+     * Decode an image and encode it at every target width it is large enough for.
+     * An image narrower than the smallest target yields one variant at its own width.
+     * @param imageUri The picked image
+     * @param callback Result callback, called on the main thread
+     */
+    public void process(Uri imageUri, ThumbnailCallback callback) {
+        if (contentResolver == null) {
+            callback.onError("Thumbnail processor is not initialized");
+            return;
+        }
+
+        executor.execute(() -> {
+            try {
+                ProcessedThumbnail thumbnail = processImage(imageUri);
+                mainHandler.post(() -> callback.onProcessed(thumbnail));
+            } catch (IOException | RuntimeException | OutOfMemoryError e) {
+                Log.e(TAG, "Failed to process thumbnail " + imageUri + ": " + e.getMessage());
+                mainHandler.post(() -> callback.onError("Could not read the thumbnail image"));
+            }
+        });
+    }
+
+    private ProcessedThumbnail processImage(Uri imageUri) throws IOException {
+        int rotation = readRotation(imageUri);
+
+        // Read the dimensions only
+        BitmapFactory.Options bounds = new BitmapFactory.Options();
+        bounds.inJustDecodeBounds = true;
+        try (InputStream input = openStream(imageUri)) {
+            BitmapFactory.decodeStream(input, null, bounds);
+        }
+        if (bounds.outWidth <= 0 || bounds.outHeight <= 0) {
+            throw new IOException("Not a decodable image");
+        }
+
+        // Width as displayed, after the EXIF rotation
+        int uprightWidth = rotation % 180 == 0 ? bounds.outWidth : bounds.outHeight;
+        int largestTarget = TARGET_WIDTHS[TARGET_WIDTHS.length - 1];
+
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inSampleSize = calculateInSampleSize(uprightWidth, largestTarget);
+        Bitmap decoded;
+        try (InputStream input = openStream(imageUri)) {
+            decoded = BitmapFactory.decodeStream(input, null, options);
+        }
+        if (decoded == null) {
+            throw new IOException("Not a decodable image");
+        }
+
+        Bitmap upright = decoded;
+        if (rotation != 0) {
+            Matrix matrix = new Matrix();
+            matrix.postRotate(rotation);
+            upright = Bitmap.createBitmap(decoded, 0, 0, decoded.getWidth(), decoded.getHeight(), matrix, true);
+            decoded.recycle();
+        }
+
+        List<Variant> variants = new ArrayList<>();
+        String placeholderHash;
+        try {
+            placeholderHash = encodePlaceholder(upright);
+            for (int targetWidth : TARGET_WIDTHS) {
+                if (targetWidth > upright.getWidth()) {
+                    break;
+                }
+                variants.add(encode(upright, targetWidth));
+            }
+            if (variants.isEmpty()) {
+                // Smaller than every target; keep it at its own size rather than upscale
+                variants.add(encode(upright, upright.getWidth()));
+            }
+        } finally {
+            upright.recycle();
+        }
+        return new ProcessedThumbnail(variants, placeholderHash);
+    }
+
+    // BlurHash cost grows with the pixel count, so hash a tiny copy
+    private static String encodePlaceholder(Bitmap source) {
+        int width = Math.min(PLACEHOLDER_SOURCE_WIDTH, source.getWidth());
+        int height = Math.max(1, Math.round((float) source.getHeight() * width / source.getWidth()));
+        Bitmap small = Bitmap.createScaledBitmap(source, width, height, true);
+        String hash = BlurHash.encode(small, PLACEHOLDER_COMPONENTS_X, PLACEHOLDER_COMPONENTS_Y);
+        if (small != source) {
+            small.recycle();
+        }
+        return hash;
+    }
+
+    private static Variant encode(Bitmap source, int width) {
+        int height = Math.max(1, Math.round((float) source.getHeight() * width / source.getWidth()));
+        Bitmap scaled = width == source.getWidth()
+                ? source
+                : Bitmap.createScaledBitmap(source, width, height, true);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        scaled.compress(webpFormat(), WEBP_QUALITY, output);
+        if (scaled != source) {
+            scaled.recycle();
+        }
+        return new Variant(width, height, output.toByteArray());
+    }
+
+    @SuppressWarnings("deprecation")
+    private static Bitmap.CompressFormat webpFormat() {
+        // WEBP means lossy at quality < 100 before API 30, where it was split into explicit formats
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.R
+                ? Bitmap.CompressFormat.WEBP_LOSSY
+                : Bitmap.CompressFormat.WEBP;
+    }
+
+    // Largest power of two that keeps the decoded width at or above the target
+    private static int calculateInSampleSize(int width, int targetWidth) {
+        int inSampleSize = 1;
+        while (width / (inSampleSize * 2) >= targetWidth) {
+            inSampleSize *= 2;
+        }
+        return inSampleSize;
+    }
+
+    private int readRotation(Uri imageUri) {
+        try (InputStream input = openStream(imageUri)) {
+            ExifInterface exif = new ExifInterface(input);
+            switch (exif.getAttributeInt(ExifInterface.TAG_ORIENTATION, ExifInterface.ORIENTATION_NORMAL)) {
+                case ExifInterface.ORIENTATION_ROTATE_90:
+                    return 90;
+                case ExifInterface.ORIENTATION_ROTATE_180:
+                    return 180;
+                case ExifInterface.ORIENTATION_ROTATE_270:
+                    return 270;
+                default:
+                    return 0;
+            }
+        } catch (IOException e) {
+            // No readable EXIF block, e.g. PNG or WebP input
+            return 0;
+        }
+    }
+
+    private InputStream openStream(Uri imageUri) throws IOException {
+        InputStream input = contentResolver.openInputStream(imageUri);
+        if (input == null) {
+            throw new IOException("Unable to open " + imageUri);
+        }
+        return input;
+    }
+}
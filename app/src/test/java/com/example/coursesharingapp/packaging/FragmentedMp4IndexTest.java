@@ -0,0 +1,236 @@
+package com.example.coursesharingapp.packaging;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Box parsing on small files built here: a 1280x720 video track (id 1,
+ * timescale 1000, trex default of 40 per sample) and an audio track (id 2).
+ */
+public class FragmentedMp4IndexTest {
+
+    private static final int VIDEO_TRACK = 1;
+    private static final int AUDIO_TRACK = 2;
+
+    @Test
+    public void indexesInitSectionAndFragments() throws IOException {
+        byte[] ftyp = box("ftyp", "isom".getBytes(StandardCharsets.US_ASCII), ints(0));
+        byte[] moov = moov();
+        byte[] moof1 = moof(VIDEO_TRACK, -1, 2000, 2000, 2000); // Explicit sample durations
+        byte[] mdat1 = box("mdat", new byte[500]);
+        byte[] moof2 = moof(VIDEO_TRACK, -1, -50); // 50 samples at the trex default
+        byte[] mdat2 = box("mdat", new byte[300]);
+
+        FragmentedMp4Index index = read(ftyp, moov, moof1, mdat1, moof2, mdat2);
+
+        long initLength = ftyp.length + moov.length;
+        assertEquals(initLength, index.getInitLength());
+        assertEquals(1280, index.getWidth());
+        assertEquals(720, index.getHeight());
+
+        List<FragmentedMp4Index.Fragment> fragments = index.getFragments();
+        assertEquals(2, fragments.size());
+        assertFragment(fragments.get(0), initLength, moof1.length + mdat1.length, 6_000_000);
+        assertFragment(fragments.get(1), initLength + moof1.length + mdat1.length,
+                moof2.length + mdat2.length, 2_000_000);
+        assertEquals(8_000_000, index.getDurationUs());
+    }
+
+    @Test
+    public void tfhdDefaultOverridesTrexDefault() throws IOException {
+        FragmentedMp4Index index = read(moov(), moof(VIDEO_TRACK, 100, -10), box("mdat", new byte[10]));
+
+        assertEquals(1_000_000, index.getFragments().get(0).getDurationUs());
+    }
+
+    @Test
+    public void audioOnlyFragmentJoinsPreviousSegment() throws IOException {
+        byte[] moov = moov();
+        byte[] videoMoof = moof(VIDEO_TRACK, -1, 1000);
+        byte[] audioMoof = moof(AUDIO_TRACK, -1, 1000);
+        byte[] mdat = box("mdat", new byte[20]);
+
+        FragmentedMp4Index index = read(moov, videoMoof, mdat, audioMoof, mdat);
+
+        assertEquals(1, index.getFragments().size());
+        assertFragment(index.getFragments().get(0), moov.length,
+                videoMoof.length + audioMoof.length + 2L * mdat.length, 1_000_000);
+    }
+
+    @Test
+    public void largeSizeBoxIsSkippedByItsSixtyFourBitSize() throws IOException {
+        byte[] moov = moov();
+        byte[] moof = moof(VIDEO_TRACK, -1, 1000);
+        // size == 1: the real size follows the type as a 64-bit value
+        byte[] largeMdat = concat(ints(1), "mdat".getBytes(StandardCharsets.US_ASCII), longs(16 + 64), new byte[64]);
+        byte[] nextMoof = moof(VIDEO_TRACK, -1, 500);
+        byte[] nextMdat = box("mdat", new byte[8]);
+
+        FragmentedMp4Index index = read(moov, moof, largeMdat, nextMoof, nextMdat);
+
+        assertEquals(2, index.getFragments().size());
+        assertFragment(index.getFragments().get(0), moov.length, moof.length + largeMdat.length, 1_000_000);
+        assertFragment(index.getFragments().get(1), moov.length + moof.length + largeMdat.length,
+                nextMoof.length + nextMdat.length, 500_000);
+    }
+
+    @Test
+    public void zeroSizeBoxRunsToEndOfFile() throws IOException {
+        byte[] moov = moov();
+        byte[] moof = moof(VIDEO_TRACK, -1, 1000);
+        // size == 0: the box extends to the end of the file
+        byte[] openMdat = concat(ints(0), "mdat".getBytes(StandardCharsets.US_ASCII), new byte[100]);
+
+        FragmentedMp4Index index = read(moov, moof, openMdat);
+
+        assertEquals(1, index.getFragments().size());
+        assertFragment(index.getFragments().get(0), moov.length, moof.length + openMdat.length, 1_000_000);
+    }
+
+    @Test
+    public void mfraIsNotPartOfAnySegment() throws IOException {
+        byte[] moov = moov();
+        byte[] moof = moof(VIDEO_TRACK, -1, 1000);
+        byte[] mdat = box("mdat", new byte[10]);
+
+        FragmentedMp4Index index = read(moov, moof, mdat, box("mfra", new byte[16]));
+
+        assertFragment(index.getFragments().get(0), moov.length, moof.length + mdat.length, 1_000_000);
+    }
+
+    @Test
+    public void truncatedBoxIsRejected() throws IOException {
+        byte[] whole = concat(moov(), moof(VIDEO_TRACK, -1, 1000), box("mdat", new byte[100]));
+
+        assertRejected(Arrays.copyOf(whole, whole.length - 40));
+    }
+
+    @Test
+    public void truncatedLargeSizeBoxIsRejected() throws IOException {
+        byte[] largeMdat = concat(ints(1), "mdat".getBytes(StandardCharsets.US_ASCII), longs(1L << 40));
+
+        assertRejected(concat(moov(), moof(VIDEO_TRACK, -1, 1000), largeMdat));
+    }
+
+    @Test
+    public void fileCutInsideMoovIsRejected() throws IOException {
+        byte[] moov = moov();
+
+        assertRejected(Arrays.copyOf(moov, moov.length / 2));
+    }
+
+    @Test
+    public void unfragmentedFileIsRejected() throws IOException {
+        assertRejected(concat(moov(), box("mdat", new byte[100])));
+    }
+
+    @Test
+    public void fragmentBeforeMoovIsRejected() throws IOException {
+        assertRejected(concat(moof(VIDEO_TRACK, -1, 1000), moov()));
+    }
+
+    private static void assertFragment(FragmentedMp4Index.Fragment fragment, long offset, long length,
+                                       long durationUs) {
+        assertEquals(offset, fragment.getOffset());
+        assertEquals(length, fragment.getLength());
+        assertEquals(durationUs, fragment.getDurationUs());
+    }
+
+    private static void assertRejected(byte[] contents) throws IOException {
+        try {
+            read(contents);
+            fail("Expected an IOException");
+        } catch (IOException expected) {
+            // Malformed input is reported, not indexed
+        }
+    }
+
+    private static FragmentedMp4Index read(byte[]... boxes) throws IOException {
+        File file = File.createTempFile("fragmented", ".mp4");
+        try {
+            try (FileOutputStream output = new FileOutputStream(file)) {
+                output.write(concat(boxes));
+            }
+            return FragmentedMp4Index.read(file);
+        } finally {
+            file.delete();
+        }
+    }
+
+    // A video and an audio track, with trex defaults for both
+    private static byte[] moov() {
+        return box("moov",
+                trak(VIDEO_TRACK, "vide", 1280, 720),
+                trak(AUDIO_TRACK, "soun", 0, 0),
+                box("mvex",
+                        box("trex", ints(0, VIDEO_TRACK, 1, 40, 0, 0)),
+                        box("trex", ints(0, AUDIO_TRACK, 1, 1024, 0, 0))));
+    }
+
+    private static byte[] trak(int trackId, String handler, int width, int height) {
+        // Version 0: times, track id, reserved, duration, reserved, layer..volume, matrix, 16.16 width and height
+        byte[] tkhd = box("tkhd", ints(0, 0, 0, trackId, 0, 0, 0, 0, 0, 0), new byte[36],
+                ints(width << 16, height << 16));
+        byte[] mdhd = box("mdhd", ints(0, 0, 0, 1000, 0, 0));
+        byte[] hdlr = box("hdlr", ints(0, 0), handler.getBytes(StandardCharsets.US_ASCII), new byte[13]);
+        return box("trak", tkhd, box("mdia", mdhd, hdlr));
+    }
+
+    /**
+     * One track fragment
+     * @param defaultDuration A tfhd default sample duration, or -1 for none
+     * @param durations Per-sample durations, or a single negative sample count to use the defaults
+     */
+    private static byte[] moof(int trackId, int defaultDuration, int... durations) {
+        byte[] tfhd = defaultDuration >= 0
+                ? box("tfhd", ints(0x08, trackId, defaultDuration))
+                : box("tfhd", ints(0, trackId));
+        byte[] trun;
+        if (durations.length == 1 && durations[0] < 0) {
+            trun = box("trun", ints(0x01, -durations[0], 0));
+        } else {
+            trun = box("trun", ints(0x101, durations.length, 0), ints(durations));
+        }
+        return box("moof", box("mfhd", ints(0, 1)), box("traf", tfhd, trun));
+    }
+
+    private static byte[] box(String type, byte[]... children) {
+        byte[] payload = concat(children);
+        return concat(ints(8 + payload.length), type.getBytes(StandardCharsets.US_ASCII), payload);
+    }
+
+    private static byte[] ints(int... values) {
+        ByteBuffer buffer = ByteBuffer.allocate(values.length * 4);
+        for (int value : values) {
+            buffer.putInt(value);
+        }
+        return buffer.array();
+    }
+
+    private static byte[] longs(long... values) {
+        ByteBuffer buffer = ByteBuffer.allocate(values.length * 8);
+        for (long value : values) {
+            buffer.putLong(value);
+        }
+        return buffer.array();
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            output.write(part, 0, part.length);
+        }
+        return output.toByteArray();
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.coursesharingapp.packaging;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Playlists addressing one fragmented MP4 file per rendition by byte range.
+ */
+public class HlsPlaylistWriterTest {
+
+    private static final String MEDIA_URL = "https://storage.example.com/720p.mp4?alt=media";
+
+    @Test
+    public void mediaPlaylistAddressesFragmentsByByteRange() {
+        FragmentedMp4Index index = new FragmentedMp4Index(1200, 1280, 720, Arrays.asList(
+                new FragmentedMp4Index.Fragment(1200, 50_000, 6_000_000),
+                new FragmentedMp4Index.Fragment(51_200, 40_000, 6_000_000),
+                new FragmentedMp4Index.Fragment(91_200, 10_000, 2_500_000)));
+
+        String expected = "#EXTM3U\n"
+                + "#EXT-X-VERSION:7\n"
+                + "#EXT-X-TARGETDURATION:6\n"
+                + "#EXT-X-MEDIA-SEQUENCE:0\n"
+                + "#EXT-X-PLAYLIST-TYPE:VOD\n"
+                + "#EXT-X-INDEPENDENT-SEGMENTS\n"
+                + "#EXT-X-MAP:URI=\"" + MEDIA_URL + "\",BYTERANGE=\"1200@0\"\n"
+                + "#EXTINF:6.000,\n"
+                + "#EXT-X-BYTERANGE:50000@1200\n"
+                + MEDIA_URL + "\n"
+                + "#EXTINF:6.000,\n"
+                + "#EXT-X-BYTERANGE:40000@51200\n"
+                + MEDIA_URL + "\n"
+                + "#EXTINF:2.500,\n"
+                + "#EXT-X-BYTERANGE:10000@91200\n"
+                + MEDIA_URL + "\n"
+                + "#EXT-X-ENDLIST\n";
+        assertEquals(expected, HlsPlaylistWriter.writeMediaPlaylist(MEDIA_URL, index));
+    }
+
+    @Test
+    public void targetDurationRoundsUp() {
+        FragmentedMp4Index index = new FragmentedMp4Index(100, 0, 0, Arrays.asList(
+                new FragmentedMp4Index.Fragment(100, 1000, 6_000_001),
+                new FragmentedMp4Index.Fragment(1100, 1000, 4_000_000)));
+
+        String playlist = HlsPlaylistWriter.writeMediaPlaylist(MEDIA_URL, index);
+
+        assertTrue(playlist.contains("#EXT-X-TARGETDURATION:7\n"));
+        assertTrue(playlist.contains("#EXTINF:6.000,\n#EXT-X-BYTERANGE:1000@100\n"));
+    }
+
+    @Test
+    public void masterPlaylistListsLowestBandwidthFirst() {
+        FragmentedMp4Index high = new FragmentedMp4Index(1000, 1280, 720, Arrays.asList(
+                new FragmentedMp4Index.Fragment(1000, 2_000_000, 4_000_000)));
+        FragmentedMp4Index low = new FragmentedMp4Index(1000, 426, 240, Arrays.asList(
+                new FragmentedMp4Index.Fragment(1000, 200_000, 4_000_000)));
+
+        String expected = "#EXTM3U\n"
+                + "#EXT-X-VERSION:7\n"
+                + "#EXT-X-INDEPENDENT-SEGMENTS\n"
+                + "#EXT-X-STREAM-INF:BANDWIDTH=400000,AVERAGE-BANDWIDTH=400000,RESOLUTION=426x240\n"
+                + "https://example.com/240p.m3u8\n"
+                + "#EXT-X-STREAM-INF:BANDWIDTH=4000000,AVERAGE-BANDWIDTH=4000000,RESOLUTION=1280x720\n"
+                + "https://example.com/720p.m3u8\n";
+        assertEquals(expected, HlsPlaylistWriter.writeMasterPlaylist(Arrays.asList(
+                new HlsPlaylistWriter.Variant("https://example.com/720p.m3u8", high),
+                new HlsPlaylistWriter.Variant("https://example.com/240p.m3u8", low))));
+    }
+}
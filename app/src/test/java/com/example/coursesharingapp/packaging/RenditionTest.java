@@ -0,0 +1,63 @@
+package com.example.coursesharingapp.packaging;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Ladder selection: every rung up to the source, never above it.
+ */
+public class RenditionTest {
+
+    @Test
+    public void fullHdSourceGetsWholeLadder() {
+        assertEquals(Rendition.LADDER, Rendition.ladderFor(1080));
+        assertEquals(Rendition.LADDER, Rendition.ladderFor(2160));
+    }
+
+    @Test
+    public void rungMatchingTheSourceIsKept() {
+        assertNames(Rendition.ladderFor(720), "240p", "360p", "480p", "720p");
+    }
+
+    @Test
+    public void neverUpscales() {
+        for (int source = 2; source <= 2160; source++) {
+            for (Rendition rendition : Rendition.ladderFor(source)) {
+                assertTrue(rendition.getName() + " for a " + source + "p source",
+                        rendition.getShortSide() <= source);
+            }
+        }
+    }
+
+    @Test
+    public void oddSourceJustBelowRungDropsIt() {
+        assertNames(Rendition.ladderFor(1079), "240p", "360p", "480p", "720p");
+        assertNames(Rendition.ladderFor(359), "240p");
+    }
+
+    @Test
+    public void smallSourceGetsOneRenditionAtItsOwnSize() {
+        List<Rendition> renditions = Rendition.ladderFor(180);
+
+        assertNames(renditions, "180p");
+        assertEquals(180, renditions.get(0).getShortSide());
+        assertEquals(Rendition.LADDER.get(0).getVideoBitrate(), renditions.get(0).getVideoBitrate());
+    }
+
+    @Test
+    public void smallOddSourceIsRoundedDownToEven() {
+        assertNames(Rendition.ladderFor(239), "238p");
+        assertNames(Rendition.ladderFor(145), "144p");
+    }
+
+    private static void assertNames(List<Rendition> renditions, String... names) {
+        assertEquals(names.length, renditions.size());
+        for (int i = 0; i < names.length; i++) {
+            assertEquals(names[i], renditions.get(i).getName());
+        }
+    }
+}
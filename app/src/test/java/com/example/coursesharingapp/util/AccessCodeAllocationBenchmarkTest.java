@@ -0,0 +1,98 @@
+package com.example.coursesharingapp.util;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Turning counter values into access codes: every counter value gets its own
+ * index, and, in a benchmark run by hand, the cost per code must not grow
+ * with how many codes were handed out before.
+ */
+public class AccessCodeAllocationBenchmarkTest {
+
+    private static final int CODES_PER_SAMPLE = 200_000;
+    private static final int UNIQUENESS_SAMPLE = 20_000;
+
+    private final AccessCodeFormat format = AccessCodeFormat.DEFAULT;
+    private final FeistelPermutation permutation = new FeistelPermutation(format.size(), 42);
+    private final Random secretSource = new Random(7);
+
+    @Test
+    public void indexPartsAreUnique() {
+        // Runs of counter values from the start, the middle and the end of the range
+        long[] starts = {0, 1_000_000, format.size() / 2, format.size() - UNIQUENESS_SAMPLE};
+        long[] indexes = new long[starts.length * UNIQUENESS_SAMPLE];
+        int count = 0;
+        for (long start : starts) {
+            for (long value = start; value < start + UNIQUENESS_SAMPLE; value++) {
+                long index = permutation.permute(value);
+                assertTrue("Index out of range at " + value, index >= 0 && index < format.size());
+                indexes[count++] = index;
+            }
+        }
+
+        Arrays.sort(indexes);
+        for (int i = 1; i < indexes.length; i++) {
+            assertTrue("Repeated index " + indexes[i], indexes[i] != indexes[i - 1]);
+        }
+    }
+
+    @Test
+    public void permutationIsBijective() {
+        FeistelPermutation small = new FeistelPermutation(19_683, 7);
+        boolean[] hit = new boolean[19_683];
+        for (int value = 0; value < hit.length; value++) {
+            int image = (int) small.permute(value);
+            assertTrue(!hit[image]);
+            hit[image] = true;
+        }
+    }
+
+    @Test
+    public void codesMatchTheirFormat() {
+        for (long value = 0; value < 1000; value++) {
+            String code = format.encode(permutation.permute(value), secretSource);
+            assertEquals(format.getLength(), code.length());
+            assertTrue(format.matches(code));
+        }
+    }
+
+    // Wall-clock timing is too noisy for the build; run by hand after changing the permutation
+    @Ignore("Benchmark")
+    @Test
+    public void allocationCostIsFlat() {
+        long[] starts = {0, 1_000_000, 5_000_000, 10_000_000, format.size() - CODES_PER_SAMPLE};
+
+        // Warm up the JIT before measuring
+        nanosPerCode(0);
+        nanosPerCode(0);
+
+        double fastest = Double.MAX_VALUE;
+        double slowest = 0;
+        for (long start : starts) {
+            // Best of three, so a GC pause or a busy core doesn't count as growth
+            double nanos = Math.min(nanosPerCode(start), Math.min(nanosPerCode(start), nanosPerCode(start)));
+            fastest = Math.min(fastest, nanos);
+            slowest = Math.max(slowest, nanos);
+        }
+        // Generous bound: timing on shared machines is noisy, growth with the counter would not be
+        assertTrue("Allocation cost grows with the counter", slowest < fastest * 5);
+    }
+
+    private double nanosPerCode(long start) {
+        long checksum = 0;
+        long began = System.nanoTime();
+        for (long value = start; value < start + CODES_PER_SAMPLE; value++) {
+            checksum += format.encode(permutation.permute(value), secretSource).charAt(0);
+        }
+        long elapsed = System.nanoTime() - began;
+        assertTrue(checksum > 0);
+        return (double) elapsed / CODES_PER_SAMPLE;
+    }
+}